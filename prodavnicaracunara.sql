@@ -16,6 +16,26 @@
 /*!40101 SET @OLD_SQL_MODE=@@SQL_MODE, SQL_MODE='NO_AUTO_VALUE_ON_ZERO' */;
 /*M!100616 SET @OLD_NOTE_VERBOSITY=@@NOTE_VERBOSITY, NOTE_VERBOSITY=0 */;
 
+--
+-- Table structure for table `idempotentni_zahtevi`
+--
+
+DROP TABLE IF EXISTS `idempotentni_zahtevi`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8mb4 */;
+CREATE TABLE `idempotentni_zahtevi` (
+  `kljuc` varchar(255) NOT NULL,
+  `istice` datetime(6) NOT NULL,
+  `kreirano` datetime(6) NOT NULL,
+  `otisak` varchar(64) NOT NULL,
+  `status` int(11) NOT NULL,
+  `telo` longtext NOT NULL,
+  `zaglavlja` longtext DEFAULT NULL,
+  PRIMARY KEY (`kljuc`),
+  KEY `idx_idempotentni_zahtevi_istice` (`istice`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `kupci`
 --
@@ -30,9 +50,10 @@ CREATE TABLE `kupci` (
   `ime` varchar(50) NOT NULL,
   `prezime` varchar(50) NOT NULL,
   `telefon` varchar(20) DEFAULT NULL,
+  `verzija` bigint(20) NOT NULL DEFAULT 0,
   PRIMARY KEY (`id`),
   UNIQUE KEY `UK_ao579vysqssd3tjjehj6su1jd` (`email`)
-) ENGINE=MyISAM AUTO_INCREMENT=6 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+) ENGINE=InnoDB AUTO_INCREMENT=6 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
 --
@@ -43,15 +64,44 @@ LOCK TABLES `kupci` WRITE;
 /*!40000 ALTER TABLE `kupci` DISABLE KEYS */;
 set autocommit=0;
 INSERT INTO `kupci` VALUES
-(1,'Knez Mihailova 12, Beograd','marko.petrovic@gmail.com','Marko','Petrović','+381641234567'),
-(2,'Kralja Petra 5, Novi Sad','ana.jovanovic@yahoo.com','Ana','Jovanović','+381652345678'),
-(3,'Svetosavska 8, Niš','stefan.nikolic@hotmail.com','Stefan','Nikolić','+381663456789'),
-(4,'Zmaj Jovina 15, Sombor','milica.stojanovic@gmail.com','Milica','Stojanović','+381674567890'),
-(5,'Cara Dušana 22, Kragujevac','nemanja.milosavljevic@outlook.com','Nemanja','Milosavljević','+381685678901');
+(1,'Knez Mihailova 12, Beograd','marko.petrovic@gmail.com','Marko','Petrović','+381641234567',0),
+(2,'Kralja Petra 5, Novi Sad','ana.jovanovic@yahoo.com','Ana','Jovanović','+381652345678',0),
+(3,'Svetosavska 8, Niš','stefan.nikolic@hotmail.com','Stefan','Nikolić','+381663456789',0),
+(4,'Zmaj Jovina 15, Sombor','milica.stojanovic@gmail.com','Milica','Stojanović','+381674567890',0),
+(5,'Cara Dušana 22, Kragujevac','nemanja.milosavljevic@outlook.com','Nemanja','Milosavljević','+381685678901',0);
 /*!40000 ALTER TABLE `kupci` ENABLE KEYS */;
 UNLOCK TABLES;
 commit;
 
+--
+-- Table structure for table `monitoring_cvorovi`
+--
+
+DROP TABLE IF EXISTS `monitoring_cvorovi`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8mb4 */;
+CREATE TABLE `monitoring_cvorovi` (
+  `id` varchar(64) NOT NULL,
+  `poslednji_signal` datetime(6) NOT NULL,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `monitoring_particije`
+--
+
+DROP TABLE IF EXISTS `monitoring_particije`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8mb4 */;
+CREATE TABLE `monitoring_particije` (
+  `broj` int(11) NOT NULL,
+  `vlasnik` varchar(64) DEFAULT NULL,
+  `zakup_do` datetime(6) DEFAULT NULL,
+  PRIMARY KEY (`broj`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `narudzba_proizvod`
 --
@@ -64,7 +114,7 @@ CREATE TABLE `narudzba_proizvod` (
   `proizvod_id` bigint(20) NOT NULL,
   KEY `FKopvhrp8neycegjqsuvncjugo7` (`proizvod_id`),
   KEY `FK98i2e5pnp58cg4c9me7rvodgl` (`narudzba_id`)
-) ENGINE=MyISAM DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
 --
@@ -98,11 +148,13 @@ CREATE TABLE `narudzbe` (
   `datum_kreiranja` datetime NOT NULL,
   `status` varchar(20) NOT NULL,
   `ukupna_cena` decimal(10,2) NOT NULL,
+  `verzija` bigint(20) NOT NULL DEFAULT 0,
   `kupac_id` bigint(20) NOT NULL,
   PRIMARY KEY (`id`),
   UNIQUE KEY `UK_9rg2dyt8f4h3gfqhpdl8rejjm` (`broj_narudzbe`),
-  KEY `FKsnxtrxmo2bwa8pgreullq1fq0` (`kupac_id`)
-) ENGINE=MyISAM AUTO_INCREMENT=6 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+  KEY `FKsnxtrxmo2bwa8pgreullq1fq0` (`kupac_id`),
+  KEY `idx_narudzbe_status_datum` (`status`,`datum_kreiranja`,`id`)
+) ENGINE=InnoDB AUTO_INCREMENT=6 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
 --
@@ -113,15 +165,40 @@ LOCK TABLES `narudzbe` WRITE;
 /*!40000 ALTER TABLE `narudzbe` DISABLE KEYS */;
 set autocommit=0;
 INSERT INTO `narudzbe` VALUES
-(1,'ORD-2024-001','2024-01-15 10:30:00','ISPORUCENA',1250.00,1),
-(2,'ORD-2024-002','2024-01-16 14:45:00','ISPORUCENA',650.00,2),
-(3,'ORD-2024-003','2024-01-17 09:15:00','ISPORUCENA',2100.00,3),
-(4,'ORD-2024-004','2024-01-18 16:20:00','ISPORUCENA',900.00,4),
-(5,'ORD-2024-005','2024-01-19 11:10:00','ISPORUCENA',2850.00,5);
+(1,'ORD-2024-001','2024-01-15 10:30:00','ISPORUCENA',1250.00,0,1),
+(2,'ORD-2024-002','2024-01-16 14:45:00','ISPORUCENA',650.00,0,2),
+(3,'ORD-2024-003','2024-01-17 09:15:00','ISPORUCENA',2100.00,0,3),
+(4,'ORD-2024-004','2024-01-18 16:20:00','ISPORUCENA',900.00,0,4),
+(5,'ORD-2024-005','2024-01-19 11:10:00','ISPORUCENA',2850.00,0,5);
 /*!40000 ALTER TABLE `narudzbe` ENABLE KEYS */;
 UNLOCK TABLES;
 commit;
 
+--
+-- Table structure for table `narudzbe_seq`
+--
+
+DROP TABLE IF EXISTS `narudzbe_seq`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8mb4 */;
+CREATE TABLE `narudzbe_seq` (
+  `next_val` bigint(20) DEFAULT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Dumping data for table `narudzbe_seq`
+--
+
+LOCK TABLES `narudzbe_seq` WRITE;
+/*!40000 ALTER TABLE `narudzbe_seq` DISABLE KEYS */;
+set autocommit=0;
+INSERT INTO `narudzbe_seq` VALUES
+(101);
+/*!40000 ALTER TABLE `narudzbe_seq` ENABLE KEYS */;
+UNLOCK TABLES;
+commit;
+
 --
 -- Table structure for table `placanja`
 --
@@ -134,10 +211,13 @@ CREATE TABLE `placanja` (
   `datum` datetime NOT NULL,
   `nacin_placanja` varchar(20) NOT NULL,
   `status` varchar(20) NOT NULL,
+  `verzija` bigint(20) NOT NULL DEFAULT 0,
   `narudzba_id` bigint(20) NOT NULL,
+  `referenca` varchar(100) DEFAULT NULL,
   PRIMARY KEY (`id`),
-  KEY `FKk4eko5yewwri404m0hodylw7c` (`narudzba_id`)
-) ENGINE=MyISAM AUTO_INCREMENT=6 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+  KEY `FKk4eko5yewwri404m0hodylw7c` (`narudzba_id`),
+  KEY `idx_placanja_status_datum` (`status`,`datum`)
+) ENGINE=InnoDB AUTO_INCREMENT=6 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
 --
@@ -148,15 +228,94 @@ LOCK TABLES `placanja` WRITE;
 /*!40000 ALTER TABLE `placanja` DISABLE KEYS */;
 set autocommit=0;
 INSERT INTO `placanja` VALUES
-(1,'2024-01-15 10:35:00','KARTICA','PLACENO',1),
-(2,'2024-01-16 14:50:00','PAYPAL','NEPLACENO',2),
-(3,'2024-01-17 09:20:00','GOTOVINA','PLACENO',3),
-(4,'2024-01-18 16:25:00','KARTICA','NEPLACENO',4),
-(5,'2024-01-19 11:15:00','PAYPAL','PLACENO',5);
+(1,'2024-01-15 10:35:00','KARTICA','PLACENO',0,1,NULL),
+(2,'2024-01-16 14:50:00','PAYPAL','NEPLACENO',0,2,NULL),
+(3,'2024-01-17 09:20:00','GOTOVINA','PLACENO',0,3,NULL),
+(4,'2024-01-18 16:25:00','KARTICA','NEPLACENO',0,4,NULL),
+(5,'2024-01-19 11:15:00','PAYPAL','PLACENO',0,5,NULL);
 /*!40000 ALTER TABLE `placanja` ENABLE KEYS */;
 UNLOCK TABLES;
 commit;
 
+--
+-- Table structure for table `povracaji`
+--
+
+DROP TABLE IF EXISTS `povracaji`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8mb4 */;
+CREATE TABLE `povracaji` (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `iznos` decimal(10,2) NOT NULL,
+  `kreirano` datetime(6) NOT NULL,
+  `placanje_id` bigint(20) NOT NULL,
+  `referenca` varchar(100) NOT NULL,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_povracaji_referenca` (`referenca`),
+  KEY `idx_povracaji_placanje` (`placanje_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `prihod_po_danu`
+--
+
+DROP TABLE IF EXISTS `prihod_po_danu`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8mb4 */;
+CREATE TABLE `prihod_po_danu` (
+  `dan` date NOT NULL,
+  `broj_placanja` bigint(20) NOT NULL,
+  `iznos` decimal(14,2) NOT NULL,
+  PRIMARY KEY (`dan`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Dumping data for table `prihod_po_danu`
+--
+
+LOCK TABLES `prihod_po_danu` WRITE;
+/*!40000 ALTER TABLE `prihod_po_danu` DISABLE KEYS */;
+set autocommit=0;
+INSERT INTO `prihod_po_danu` VALUES
+('2024-01-15',1,1250.00),
+('2024-01-17',1,2100.00),
+('2024-01-19',1,2850.00);
+/*!40000 ALTER TABLE `prihod_po_danu` ENABLE KEYS */;
+UNLOCK TABLES;
+commit;
+
+--
+-- Table structure for table `prihod_po_satu`
+--
+
+DROP TABLE IF EXISTS `prihod_po_satu`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8mb4 */;
+CREATE TABLE `prihod_po_satu` (
+  `sat` datetime NOT NULL,
+  `broj_placanja` bigint(20) NOT NULL,
+  `iznos` decimal(14,2) NOT NULL,
+  PRIMARY KEY (`sat`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Dumping data for table `prihod_po_satu`
+--
+
+LOCK TABLES `prihod_po_satu` WRITE;
+/*!40000 ALTER TABLE `prihod_po_satu` DISABLE KEYS */;
+set autocommit=0;
+INSERT INTO `prihod_po_satu` VALUES
+('2024-01-15 10:00:00',1,1250.00),
+('2024-01-17 09:00:00',1,2100.00),
+('2024-01-19 11:00:00',1,2850.00);
+/*!40000 ALTER TABLE `prihod_po_satu` ENABLE KEYS */;
+UNLOCK TABLES;
+commit;
+
 --
 -- Table structure for table `proizvodi`
 --
@@ -172,8 +331,9 @@ CREATE TABLE `proizvodi` (
   `kolicinaustanju` int(11) NOT NULL,
   `naziv` varchar(100) NOT NULL,
   `ram` text DEFAULT NULL,
+  `verzija` bigint(20) NOT NULL DEFAULT 0,
   PRIMARY KEY (`id`)
-) ENGINE=MyISAM AUTO_INCREMENT=6 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+) ENGINE=InnoDB AUTO_INCREMENT=6 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
 --
@@ -184,11 +344,11 @@ LOCK TABLES `proizvodi` WRITE;
 /*!40000 ALTER TABLE `proizvodi` DISABLE KEYS */;
 set autocommit=0;
 INSERT INTO `proizvodi` VALUES
-(1,1250.00,'AMD Ryzen 7 5800X','NVIDIA RTX 4070',15,'Gaming PC Pro','32GB DDR4'),
-(2,650.00,'Intel Core i5-12400','Intel UHD Graphics',25,'Office Computer','16GB DDR4'),
-(3,2100.00,'Intel Core i9-13900K','NVIDIA RTX 4080',8,'Workstation Elite','64GB DDR5'),
-(4,450.00,'AMD Ryzen 5 5600G','AMD Radeon Graphics',30,'Budget Build','8GB DDR4'),
-(5,2850.00,'AMD Ryzen 9 7900X','NVIDIA RTX 4090',5,'Creator Station','32GB DDR5');
+(1,1250.00,'AMD Ryzen 7 5800X','NVIDIA RTX 4070',15,'Gaming PC Pro','32GB DDR4',0),
+(2,650.00,'Intel Core i5-12400','Intel UHD Graphics',25,'Office Computer','16GB DDR4',0),
+(3,2100.00,'Intel Core i9-13900K','NVIDIA RTX 4080',8,'Workstation Elite','64GB DDR5',0),
+(4,450.00,'AMD Ryzen 5 5600G','AMD Radeon Graphics',30,'Budget Build','8GB DDR4',0),
+(5,2850.00,'AMD Ryzen 9 7900X','NVIDIA RTX 4090',5,'Creator Station','32GB DDR5',0);
 /*!40000 ALTER TABLE `proizvodi` ENABLE KEYS */;
 UNLOCK TABLES;
 commit;
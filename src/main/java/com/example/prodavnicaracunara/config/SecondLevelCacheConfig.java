@@ -0,0 +1,83 @@
+package com.example.prodavnicaracunara.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regions of the Hibernate second-level cache (JCache backed by Caffeine).
+ * <p>
+ * Products and customers are cached by ID, together with the in-stock and by-email query results. Every region is
+ * bounded and expires its entries, except the update timestamps that keep cached query results valid, which
+ * Hibernate requires to be kept in full. Regions not listed here fail the startup
+ * ({@code missing_cache_strategy=fail}), so a newly cached entity or query needs its region added.
+ * <p>
+ * Each application context gets its own cache manager, closed together with its session factory.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    public static final String PROIZVODI = "proizvodi";
+    public static final String KUPCI = "kupci";
+    public static final String PROIZVODI_NA_STANJU = "proizvodi.na-stanju";
+    public static final String KUPCI_PO_EMAILU = "kupci.po-emailu";
+
+    @Value("${app.l2.proizvodi.max-size:10000}")
+    private long maxProizvoda;
+
+    @Value("${app.l2.kupci.max-size:20000}")
+    private long maxKupaca;
+
+    @Value("${app.l2.entity.ttl-ms:600000}")
+    private long entityTtlMs;
+
+    @Value("${app.l2.upiti.max-size:5000}")
+    private long maxUpita;
+
+    @Value("${app.l2.upiti.ttl-ms:60000}")
+    private long upitiTtlMs;
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer() {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, cacheManager());
+    }
+
+    private CacheManager cacheManager() {
+        // A URI of its own: test contexts against different databases must not share cached rows
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hibernate:" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(PROIZVODI, region(maxProizvoda, entityTtlMs));
+        cacheManager.createCache(KUPCI, region(maxKupaca, entityTtlMs));
+        cacheManager.createCache(PROIZVODI_NA_STANJU, region(maxUpita, upitiTtlMs));
+        cacheManager.createCache(KUPCI_PO_EMAILU, region(maxUpita, upitiTtlMs));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, region(maxUpita, upitiTtlMs));
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, region(null, null));
+        return cacheManager;
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(Long maxStavki, Long ttlMs) {
+        CaffeineConfiguration<Object, Object> region = new CaffeineConfiguration<>();
+        // Hibernate stores immutable disassembled state, copying it on every access would only cost
+        region.setStoreByValue(false);
+        region.setStatisticsEnabled(true);
+        if (maxStavki != null) {
+            region.setMaximumSize(OptionalLong.of(maxStavki));
+        }
+        if (ttlMs != null) {
+            region.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(ttlMs)));
+        }
+        return region;
+    }
+}
@@ -1,17 +1,19 @@
 package com.example.prodavnicaracunara.controller;
 
+import com.example.prodavnicaracunara.dto.CursorPage;
+import com.example.prodavnicaracunara.dto.KupacDto;
 import com.example.prodavnicaracunara.entity.Kupac;
+import com.example.prodavnicaracunara.service.EntityTags;
 import com.example.prodavnicaracunara.service.KupacService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/kupci")
 public class KupacController {
@@ -29,31 +31,38 @@ public class KupacController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Kupac>> getAllKupci() {
+    public ResponseEntity<CursorPage<KupacDto>> getAllKupci(
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to get all Kupci");
-        List<Kupac> kupci = kupacService.getAllKupci();
-        return ResponseEntity.ok(kupci);
+        CursorPage<KupacDto> kupci = kupacService.getAllKupci(kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(kupci, EntityTags::kupac)).body(kupci);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Kupac> getKupacById(@PathVariable Long id) {
+    public ResponseEntity<Kupac> getKupacById(@PathVariable Long id, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.debug("REST request to get Kupac by id: {}", id);
+        String etag = EntityTags.notModified(ifNoneMatch, () -> kupacService.getKupacETag(id));
+        if (etag != null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Kupac kupac = kupacService.getKupacById(id);
-        return ResponseEntity.ok(kupac);
+        return ResponseEntity.ok().eTag(EntityTags.kupac(kupac)).body(kupac);
     }
 
     @GetMapping("/email/{email}")
     public ResponseEntity<Kupac> getKupacByEmail(@PathVariable String email) {
         logger.debug("REST request to get Kupac by email: {}", email);
         Kupac kupac = kupacService.getKupacByEmail(email);
-        return ResponseEntity.ok(kupac);
+        return ResponseEntity.ok().eTag(EntityTags.kupac(kupac)).body(kupac);
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Kupac> updateKupac(@PathVariable Long id, @Valid @RequestBody Kupac kupac) {
+    public ResponseEntity<Kupac> updateKupac(@PathVariable Long id, @Valid @RequestBody Kupac kupac,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         logger.info("REST request to update Kupac with id: {}", id);
-        Kupac updatedKupac = kupacService.updateKupac(id, kupac);
-        return ResponseEntity.ok(updatedKupac);
+        Kupac updatedKupac = kupacService.updateKupac(id, kupac, ifMatch);
+        return ResponseEntity.ok().eTag(EntityTags.kupac(updatedKupac)).body(updatedKupac);
     }
 
     @DeleteMapping("/{id}")
@@ -63,31 +72,53 @@ public class KupacController {
         return ResponseEntity.noContent().build();
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<CursorPage<KupacDto>> searchKupci(
+            @RequestParam String q,
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
+        logger.debug("REST request to search Kupci: {}", q);
+        CursorPage<KupacDto> kupci = kupacService.searchAll(q, kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(kupci, EntityTags::kupac)).body(kupci);
+    }
+
     @GetMapping("/search/ime")
-    public ResponseEntity<List<Kupac>> searchKupciByIme(@RequestParam String ime) {
+    public ResponseEntity<CursorPage<KupacDto>> searchKupciByIme(
+            @RequestParam String ime,
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to search Kupci by ime: {}", ime);
-        List<Kupac> kupci = kupacService.searchByIme(ime);
-        return ResponseEntity.ok(kupci);
+        CursorPage<KupacDto> kupci = kupacService.searchByIme(ime, kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(kupci, EntityTags::kupac)).body(kupci);
     }
 
     @GetMapping("/search/prezime")
-    public ResponseEntity<List<Kupac>> searchKupciByPrezime(@RequestParam String prezime) {
+    public ResponseEntity<CursorPage<KupacDto>> searchKupciByPrezime(
+            @RequestParam String prezime,
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to search Kupci by prezime: {}", prezime);
-        List<Kupac> kupci = kupacService.searchByPrezime(prezime);
-        return ResponseEntity.ok(kupci);
+        CursorPage<KupacDto> kupci = kupacService.searchByPrezime(prezime, kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(kupci, EntityTags::kupac)).body(kupci);
     }
 
     @GetMapping("/search/puno-ime")
-    public ResponseEntity<List<Kupac>> searchKupciByPunoIme(@RequestParam String punoIme) {
+    public ResponseEntity<CursorPage<KupacDto>> searchKupciByPunoIme(
+            @RequestParam String punoIme,
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to search Kupci by puno ime: {}", punoIme);
-        List<Kupac> kupci = kupacService.searchByPunoIme(punoIme);
-        return ResponseEntity.ok(kupci);
+        CursorPage<KupacDto> kupci = kupacService.searchByPunoIme(punoIme, kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(kupci, EntityTags::kupac)).body(kupci);
     }
 
     @GetMapping("/search/adresa")
-    public ResponseEntity<List<Kupac>> searchKupciByAdresa(@RequestParam String adresa) {
+    public ResponseEntity<CursorPage<KupacDto>> searchKupciByAdresa(
+            @RequestParam String adresa,
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to search Kupci by adresa: {}", adresa);
-        List<Kupac> kupci = kupacService.searchByAdresa(adresa);
-        return ResponseEntity.ok(kupci);
+        CursorPage<KupacDto> kupci = kupacService.searchByAdresa(adresa, kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(kupci, EntityTags::kupac)).body(kupci);
     }
 }
\ No newline at end of file
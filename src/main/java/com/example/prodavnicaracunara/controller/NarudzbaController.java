@@ -1,15 +1,30 @@
 package com.example.prodavnicaracunara.controller;
 
+import com.example.prodavnicaracunara.dto.AsyncNarudzbaStatus;
+import com.example.prodavnicaracunara.dto.BatchNarudzbaRequest;
+import com.example.prodavnicaracunara.dto.BatchNarudzbaResponse;
+import com.example.prodavnicaracunara.dto.BatchNarudzbaResult;
+import com.example.prodavnicaracunara.dto.CursorPage;
+import com.example.prodavnicaracunara.dto.NarudzbaDto;
+import com.example.prodavnicaracunara.dto.StatistikaStatusa;
 import com.example.prodavnicaracunara.entity.Narudzba;
 import com.example.prodavnicaracunara.entity.StatusNarudzbe;
+import com.example.prodavnicaracunara.service.EntityTags;
+import com.example.prodavnicaracunara.service.ExportService;
+import com.example.prodavnicaracunara.service.NarudzbaBatchService;
 import com.example.prodavnicaracunara.service.NarudzbaService;
+import com.example.prodavnicaracunara.service.OrderAcceptanceService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
 
@@ -22,66 +37,135 @@ public class NarudzbaController {
     @Autowired
     private NarudzbaService narudzbaService;
 
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private NarudzbaBatchService narudzbaBatchService;
+
+    @Autowired
+    private OrderAcceptanceService orderAcceptanceService;
+
     @PostMapping
-    public ResponseEntity<Narudzba> createNarudzba(@Valid @RequestBody Narudzba narudzba) {
+    public ResponseEntity<?> createNarudzba(@Valid @RequestBody Narudzba narudzba) {
         logger.info("REST request to create Narudzba for customer ID: {}", narudzba.getKupac() != null ? narudzba.getKupac().getId() : "null");
+        if (orderAcceptanceService.isEnabled()) {
+            AsyncNarudzbaStatus status = orderAcceptanceService.accept(narudzba);
+            return ResponseEntity.accepted()
+                    .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                            .path("/narudzbe/async/{brojNarudzbe}")
+                            .buildAndExpand(status.getBrojNarudzbe())
+                            .toUri())
+                    .body(status);
+        }
         Narudzba createdNarudzba = narudzbaService.createNarudzba(narudzba);
         return new ResponseEntity<>(createdNarudzba, HttpStatus.CREATED);
     }
 
+    @GetMapping("/async/{brojNarudzbe}")
+    public ResponseEntity<AsyncNarudzbaStatus> getAsyncStatus(@PathVariable String brojNarudzbe) {
+        logger.debug("REST request to get async status of Narudzba: {}", brojNarudzbe);
+        AsyncNarudzbaStatus status = orderAcceptanceService.getStatus(brojNarudzbe);
+        return ResponseEntity.ok(status);
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<BatchNarudzbaResponse> createNarudzbeBatch(@RequestBody List<BatchNarudzbaRequest> narudzbe) {
+        logger.info("REST request to create {} Narudzbe in batch", narudzbe.size());
+        List<BatchNarudzbaResult> rezultati = narudzbaBatchService.createNarudzbe(narudzbe);
+        return ResponseEntity.ok(new BatchNarudzbaResponse(rezultati));
+    }
+
     @GetMapping
-    public ResponseEntity<List<Narudzba>> getAllNarudzbe() {
+    public ResponseEntity<CursorPage<NarudzbaDto>> getAllNarudzbe(
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to get all Narudzbe");
-        List<Narudzba> narudzbe = narudzbaService.getAllNarudzbe();
-        return ResponseEntity.ok(narudzbe);
+        CursorPage<NarudzbaDto> narudzbe = narudzbaService.getAllNarudzbe(kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(narudzbe, EntityTags::narudzba)).body(narudzbe);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportNarudzbe() {
+        logger.info("REST request to export Narudzbe");
+        StreamingResponseBody body = out -> exportService.exportNarudzbe(out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Narudzba> getNarudzbaById(@PathVariable Long id) {
+    public ResponseEntity<Narudzba> getNarudzbaById(@PathVariable Long id, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.debug("REST request to get Narudzba by id: {}", id);
+        String etag = EntityTags.notModified(ifNoneMatch, () -> narudzbaService.getNarudzbaETag(id));
+        if (etag != null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Narudzba narudzba = narudzbaService.getNarudzbaById(id);
-        return ResponseEntity.ok(narudzba);
+        return ResponseEntity.ok().eTag(EntityTags.narudzba(narudzba)).body(narudzba);
     }
 
     @GetMapping("/broj/{brojNarudzbe}")
     public ResponseEntity<Narudzba> getNarudzbaByBrojNarudzbe(@PathVariable String brojNarudzbe) {
         logger.debug("REST request to get Narudzba by broj: {}", brojNarudzbe);
         Narudzba narudzba = narudzbaService.getNarudzbaByBrojNarudzbe(brojNarudzbe);
-        return ResponseEntity.ok(narudzba);
+        return ResponseEntity.ok().eTag(EntityTags.narudzba(narudzba)).body(narudzba);
     }
 
     @GetMapping("/kupac/{kupacId}")
-    public ResponseEntity<List<Narudzba>> getNarudzbeByKupacId(@PathVariable Long kupacId) {
+    public ResponseEntity<CursorPage<NarudzbaDto>> getNarudzbeByKupacId(
+            @PathVariable Long kupacId,
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to get Narudzbe by kupac id: {}", kupacId);
-        List<Narudzba> narudzbe = narudzbaService.getNarudzbeByKupacId(kupacId);
-        return ResponseEntity.ok(narudzbe);
+        CursorPage<NarudzbaDto> narudzbe = narudzbaService.getNarudzbeByKupacId(kupacId, kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(narudzbe, EntityTags::narudzba)).body(narudzbe);
     }
 
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<Narudzba>> getNarudzbeByStatus(@PathVariable StatusNarudzbe status) {
+    public ResponseEntity<CursorPage<NarudzbaDto>> getNarudzbeByStatus(
+            @PathVariable StatusNarudzbe status,
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to get Narudzbe by status: {}", status);
-        List<Narudzba> narudzbe = narudzbaService.getNarudzbeByStatus(status);
-        return ResponseEntity.ok(narudzbe);
+        CursorPage<NarudzbaDto> narudzbe = narudzbaService.getNarudzbeByStatus(status, kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(narudzbe, EntityTags::narudzba)).body(narudzbe);
     }
 
     @GetMapping("/active")
-    public ResponseEntity<List<Narudzba>> getActiveOrders() {
+    public ResponseEntity<CursorPage<NarudzbaDto>> getActiveOrders(
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to get active orders");
-        List<Narudzba> narudzbe = narudzbaService.getActiveOrders();
-        return ResponseEntity.ok(narudzbe);
+        CursorPage<NarudzbaDto> narudzbe = narudzbaService.getActiveOrders(kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(narudzbe, EntityTags::narudzba)).body(narudzbe);
+    }
+
+    @GetMapping("/statistics")
+    public ResponseEntity<List<StatistikaStatusa<StatusNarudzbe>>> getOrderStatistics() {
+        logger.debug("REST request to get order statistics");
+        List<StatistikaStatusa<StatusNarudzbe>> statistics = narudzbaService.getOrderStatistics();
+        return ResponseEntity.ok(statistics);
     }
 
     @PatchMapping("/{id}/status")
-    public ResponseEntity<Narudzba> updateOrderStatus(@PathVariable Long id, @RequestParam StatusNarudzbe noviStatus) {
+    public ResponseEntity<Narudzba> updateOrderStatus(@PathVariable Long id, @RequestParam StatusNarudzbe noviStatus,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         logger.info("REST request to update status for Narudzba id: {} to {}", id, noviStatus);
-        Narudzba updatedNarudzba = narudzbaService.updateOrderStatus(id, noviStatus);
-        return ResponseEntity.ok(updatedNarudzba);
+        Narudzba updatedNarudzba = narudzbaService.updateOrderStatus(id, noviStatus, ifMatch);
+        return ResponseEntity.ok().eTag(EntityTags.narudzba(updatedNarudzba)).body(updatedNarudzba);
+    }
+
+    @PatchMapping("/cancel")
+    public ResponseEntity<List<Narudzba>> cancelOrders(@RequestBody List<Long> ids) {
+        logger.info("REST request to cancel {} Narudzbe", ids.size());
+        List<Narudzba> cancelledNarudzbe = narudzbaService.cancelOrders(ids);
+        return ResponseEntity.ok(cancelledNarudzbe);
     }
 
     @PatchMapping("/{id}/cancel")
-    public ResponseEntity<Narudzba> cancelOrder(@PathVariable Long id) {
+    public ResponseEntity<Narudzba> cancelOrder(@PathVariable Long id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         logger.info("REST request to cancel Narudzba with id: {}", id);
-        Narudzba cancelledNarudzba = narudzbaService.cancelOrder(id);
-        return ResponseEntity.ok(cancelledNarudzba);
+        Narudzba cancelledNarudzba = narudzbaService.cancelOrder(id, ifMatch);
+        // Restocking bumped the product versions past the loaded products, the tag is read from the rows
+        return ResponseEntity.ok().eTag(narudzbaService.getNarudzbaETag(id)).body(cancelledNarudzba);
     }
 }
\ No newline at end of file
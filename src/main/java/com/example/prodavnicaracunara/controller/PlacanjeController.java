@@ -1,20 +1,35 @@
 package com.example.prodavnicaracunara.controller;
 
+import com.example.prodavnicaracunara.dto.CursorPage;
+import com.example.prodavnicaracunara.dto.PlacanjeDto;
+import com.example.prodavnicaracunara.dto.SettlementRequest;
+import com.example.prodavnicaracunara.dto.SettlementResponse;
+import com.example.prodavnicaracunara.dto.StatistikaNacinaPlacanja;
+import com.example.prodavnicaracunara.dto.StatistikaStatusa;
 import com.example.prodavnicaracunara.entity.NacinPlacanja;
 import com.example.prodavnicaracunara.entity.Placanje;
 import com.example.prodavnicaracunara.entity.StatusPlacanja;
+import com.example.prodavnicaracunara.service.EntityTags;
+import com.example.prodavnicaracunara.service.ExportService;
+import com.example.prodavnicaracunara.service.IdempotencyStore;
 import com.example.prodavnicaracunara.service.PlacanjeService;
+import com.example.prodavnicaracunara.service.PlacanjeSettlementService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/placanja")
@@ -25,113 +40,168 @@ public class PlacanjeController {
     @Autowired
     private PlacanjeService placanjeService;
 
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private PlacanjeSettlementService placanjeSettlementService;
+
     @PostMapping
-    public ResponseEntity<Placanje> createPlacanje(@Valid @RequestBody Placanje placanje) {
-        logger.info("REST request to create Placanje for order ID: {}", placanje.getNarudzba() != null ? placanje.getNarudzba().getId() : "null");
-        Placanje createdPlacanje = placanjeService.createPlacanje(placanje);
-        return new ResponseEntity<>(createdPlacanje, HttpStatus.CREATED);
+    public ResponseEntity<?> createPlacanje(@Valid @RequestBody Placanje placanje,
+                                            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        Long narudzbaId = placanje.getNarudzba() != null ? placanje.getNarudzba().getId() : null;
+        logger.info("REST request to create Placanje for order ID: {}", narudzbaId != null ? narudzbaId : "null");
+        return idempotencyStore.execute(idempotencyKey, "POST /placanja " + narudzbaId + " " + placanje.getNacinPlacanja(), () -> {
+            Placanje createdPlacanje = placanjeService.createPlacanje(placanje);
+            return new ResponseEntity<>(createdPlacanje, HttpStatus.CREATED);
+        });
+    }
+
+    @PostMapping("/settlement")
+    public ResponseEntity<SettlementResponse> settlePlacanja(@RequestBody SettlementRequest zahtev) {
+        logger.info("REST request to settle Placanja");
+        SettlementResponse odgovor = new SettlementResponse(placanjeSettlementService.settle(zahtev));
+        return ResponseEntity.ok(odgovor);
     }
 
     @GetMapping
-    public ResponseEntity<List<Placanje>> getAllPlacanja() {
+    public ResponseEntity<CursorPage<PlacanjeDto>> getAllPlacanja(
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to get all Placanja");
-        List<Placanje> placanja = placanjeService.getAllPlacanja();
-        return ResponseEntity.ok(placanja);
+        CursorPage<PlacanjeDto> placanja = placanjeService.getAllPlacanja(kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(placanja, EntityTags::placanje)).body(placanja);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportPlacanja() {
+        logger.info("REST request to export Placanja");
+        StreamingResponseBody body = out -> exportService.exportPlacanja(out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Placanje> getPlacanjeById(@PathVariable Long id) {
+    public ResponseEntity<Placanje> getPlacanjeById(@PathVariable Long id, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.debug("REST request to get Placanje by id: {}", id);
+        String etag = EntityTags.notModified(ifNoneMatch, () -> placanjeService.getPlacanjeETag(id));
+        if (etag != null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Placanje placanje = placanjeService.getPlacanjeById(id);
-        return ResponseEntity.ok(placanje);
+        return ResponseEntity.ok().eTag(EntityTags.placanje(placanje)).body(placanje);
     }
 
     @GetMapping("/narudzba/{narudzbaId}")
-    public ResponseEntity<Placanje> getPlacanjeByNarudzbaId(@PathVariable Long narudzbaId) {
+    public ResponseEntity<Placanje> getPlacanjeByNarudzbaId(@PathVariable Long narudzbaId, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.debug("REST request to get Placanje by narudzba id: {}", narudzbaId);
+        String etag = EntityTags.notModified(ifNoneMatch, () -> placanjeService.getPlacanjeETagByNarudzbaId(narudzbaId));
+        if (etag != null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Placanje placanje = placanjeService.getPlacanjeByNarudzbaId(narudzbaId);
-        return ResponseEntity.ok(placanje);
+        return ResponseEntity.ok().eTag(EntityTags.placanje(placanje)).body(placanje);
     }
 
     @GetMapping("/nacin-placanja/{nacinPlacanja}")
-    public ResponseEntity<List<Placanje>> getPlacanjaByNacinPlacanja(@PathVariable NacinPlacanja nacinPlacanja) {
+    public ResponseEntity<CursorPage<PlacanjeDto>> getPlacanjaByNacinPlacanja(
+            @PathVariable NacinPlacanja nacinPlacanja,
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to get Placanja by nacin placanja: {}", nacinPlacanja);
-        List<Placanje> placanja = placanjeService.getPlacanjaByNacinPlacanja(nacinPlacanja);
-        return ResponseEntity.ok(placanja);
+        CursorPage<PlacanjeDto> placanja = placanjeService.getPlacanjaByNacinPlacanja(nacinPlacanja, kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(placanja, EntityTags::placanje)).body(placanja);
     }
 
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<Placanje>> getPlacanjaByStatus(@PathVariable StatusPlacanja status) {
+    public ResponseEntity<CursorPage<PlacanjeDto>> getPlacanjaByStatus(
+            @PathVariable StatusPlacanja status,
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to get Placanja by status: {}", status);
-        List<Placanje> placanja = placanjeService.getPlacanjaByStatus(status);
-        return ResponseEntity.ok(placanja);
+        CursorPage<PlacanjeDto> placanja = placanjeService.getPlacanjaByStatus(status, kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(placanja, EntityTags::placanje)).body(placanja);
     }
 
     @GetMapping("/unpaid")
-    public ResponseEntity<List<Placanje>> getUnpaidPayments() {
+    public ResponseEntity<CursorPage<PlacanjeDto>> getUnpaidPayments(
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to get unpaid payments");
-        List<Placanje> placanja = placanjeService.getUnpaidPayments();
-        return ResponseEntity.ok(placanja);
+        CursorPage<PlacanjeDto> placanja = placanjeService.getUnpaidPayments(kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(placanja, EntityTags::placanje)).body(placanja);
     }
 
     @GetMapping("/kupac/{kupacId}")
-    public ResponseEntity<List<Placanje>> getPlacanjaByKupacId(@PathVariable Long kupacId) {
+    public ResponseEntity<CursorPage<PlacanjeDto>> getPlacanjaByKupacId(
+            @PathVariable Long kupacId,
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to get Placanja by kupac id: {}", kupacId);
-        List<Placanje> placanja = placanjeService.getPlacanjaByKupacId(kupacId);
-        return ResponseEntity.ok(placanja);
+        CursorPage<PlacanjeDto> placanja = placanjeService.getPlacanjaByKupacId(kupacId, kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(placanja, EntityTags::placanje)).body(placanja);
     }
 
     @GetMapping("/successful")
-    public ResponseEntity<List<Placanje>> getSuccessfulPayments(
+    public ResponseEntity<CursorPage<PlacanjeDto>> getSuccessfulPayments(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to get successful payments between {} and {}", startDate, endDate);
-        List<Placanje> placanja = placanjeService.getSuccessfulPayments(startDate, endDate);
-        return ResponseEntity.ok(placanja);
+        CursorPage<PlacanjeDto> placanja = placanjeService.getSuccessfulPayments(startDate, endDate, kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(placanja, EntityTags::placanje)).body(placanja);
     }
 
     @GetMapping("/revenue")
-    public ResponseEntity<Double> getTotalRevenue(
+    public ResponseEntity<BigDecimal> getTotalRevenue(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
         logger.debug("REST request to get total revenue between {} and {}", startDate, endDate);
-        Double totalRevenue = placanjeService.getTotalRevenue(startDate, endDate);
+        BigDecimal totalRevenue = placanjeService.getTotalRevenue(startDate, endDate);
         return ResponseEntity.ok(totalRevenue);
     }
 
     @GetMapping("/statistics/method")
-    public ResponseEntity<List<Object[]>> getPaymentStatisticsByMethod() {
+    public ResponseEntity<List<StatistikaNacinaPlacanja>> getPaymentStatisticsByMethod() {
         logger.debug("REST request to get payment statistics by method");
-        List<Object[]> statistics = placanjeService.getPaymentStatisticsByMethod();
+        List<StatistikaNacinaPlacanja> statistics = placanjeService.getPaymentStatisticsByMethod();
         return ResponseEntity.ok(statistics);
     }
 
     @GetMapping("/statistics/status")
-    public ResponseEntity<List<Object[]>> getPaymentStatisticsByStatus() {
+    public ResponseEntity<List<StatistikaStatusa<StatusPlacanja>>> getPaymentStatisticsByStatus() {
         logger.debug("REST request to get payment statistics by status");
-        List<Object[]> statistics = placanjeService.getPaymentStatisticsByStatus();
+        List<StatistikaStatusa<StatusPlacanja>> statistics = placanjeService.getPaymentStatisticsByStatus();
         return ResponseEntity.ok(statistics);
     }
 
     @PatchMapping("/{id}/process")
-    public ResponseEntity<Placanje> processPayment(@PathVariable Long id) {
+    public CompletableFuture<ResponseEntity<?>> processPayment(@PathVariable Long id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                               @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         logger.info("REST request to process Placanje with id: {}", id);
-        Placanje processedPlacanje = placanjeService.processPayment(id);
-        return ResponseEntity.ok(processedPlacanje);
+        return idempotencyStore.executeAsync(idempotencyKey, "PATCH /placanja/" + id + "/process", () ->
+                placanjeService.chargePayment(id, ifMatch).thenApply(referenca -> () -> {
+                    Placanje processedPlacanje = placanjeService.completePayment(id, referenca);
+                    return ResponseEntity.ok().eTag(EntityTags.placanje(processedPlacanje)).body(processedPlacanje);
+                }));
     }
 
     @PatchMapping("/{id}/cancel")
-    public ResponseEntity<Placanje> cancelPayment(@PathVariable Long id) {
+    public ResponseEntity<Placanje> cancelPayment(@PathVariable Long id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         logger.info("REST request to cancel Placanje with id: {}", id);
-        Placanje cancelledPlacanje = placanjeService.cancelPayment(id);
-        return ResponseEntity.ok(cancelledPlacanje);
+        Placanje cancelledPlacanje = placanjeService.cancelPayment(id, ifMatch);
+        return ResponseEntity.ok().eTag(EntityTags.placanje(cancelledPlacanje)).body(cancelledPlacanje);
     }
 
     @PatchMapping("/{id}/payment-method")
-    public ResponseEntity<Placanje> updatePaymentMethod(@PathVariable Long id, @RequestParam NacinPlacanja noviNacinPlacanja) {
+    public ResponseEntity<Placanje> updatePaymentMethod(@PathVariable Long id, @RequestParam NacinPlacanja noviNacinPlacanja,
+                                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         logger.info("REST request to update payment method for Placanje id: {} to {}", id, noviNacinPlacanja);
-        Placanje updatedPlacanje = placanjeService.updatePaymentMethod(id, noviNacinPlacanja);
-        return ResponseEntity.ok(updatedPlacanje);
+        Placanje updatedPlacanje = placanjeService.updatePaymentMethod(id, noviNacinPlacanja, ifMatch);
+        return ResponseEntity.ok().eTag(EntityTags.placanje(updatedPlacanje)).body(updatedPlacanje);
     }
 
     @DeleteMapping("/{id}")
@@ -1,17 +1,21 @@
 package com.example.prodavnicaracunara.controller;
 
+import com.example.prodavnicaracunara.dto.CursorPage;
+import com.example.prodavnicaracunara.dto.FacetPage;
+import com.example.prodavnicaracunara.dto.ProizvodFacetFilter;
 import com.example.prodavnicaracunara.entity.Proizvod;
+import com.example.prodavnicaracunara.service.EntityTags;
 import com.example.prodavnicaracunara.service.ProizvodService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
-import java.util.List;
 
 @RestController
 @RequestMapping("/proizvodi")
@@ -30,24 +34,27 @@ public class ProizvodController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Proizvod>> getAllProizvodi() {
+    public ResponseEntity<CursorPage<Proizvod>> getAllProizvodi(
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to get all Proizvodi");
-        List<Proizvod> proizvodi = proizvodService.getAllProizvodi();
-        return ResponseEntity.ok(proizvodi);
+        CursorPage<Proizvod> proizvodi = proizvodService.getAllProizvodi(kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(proizvodi, EntityTags::proizvod)).body(proizvodi);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Proizvod> getProizvodById(@PathVariable Long id) {
         logger.debug("REST request to get Proizvod by id: {}", id);
         Proizvod proizvod = proizvodService.getProizvodById(id);
-        return ResponseEntity.ok(proizvod);
+        return ResponseEntity.ok().eTag(EntityTags.proizvod(proizvod)).body(proizvod);
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Proizvod> updateProizvod(@PathVariable Long id, @Valid @RequestBody Proizvod proizvod) {
+    public ResponseEntity<Proizvod> updateProizvod(@PathVariable Long id, @Valid @RequestBody Proizvod proizvod,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         logger.info("REST request to update Proizvod with id: {}", id);
-        Proizvod updatedProizvod = proizvodService.updateProizvod(id, proizvod);
-        return ResponseEntity.ok(updatedProizvod);
+        Proizvod updatedProizvod = proizvodService.updateProizvod(id, proizvod, ifMatch);
+        return ResponseEntity.ok().eTag(EntityTags.proizvod(updatedProizvod)).body(updatedProizvod);
     }
 
     @DeleteMapping("/{id}")
@@ -58,31 +65,50 @@ public class ProizvodController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<Proizvod>> searchProizvodiByNaziv(@RequestParam String naziv) {
-        logger.debug("REST request to search Proizvodi by naziv: {}", naziv);
-        List<Proizvod> proizvodi = proizvodService.searchByNaziv(naziv);
-        return ResponseEntity.ok(proizvodi);
+    public ResponseEntity<CursorPage<Proizvod>> searchProizvodi(
+            @RequestParam String naziv,
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
+        logger.debug("REST request to search Proizvodi: {}", naziv);
+        CursorPage<Proizvod> proizvodi = proizvodService.search(naziv, kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(proizvodi, EntityTags::proizvod)).body(proizvodi);
+    }
+
+    @GetMapping("/fasete")
+    public ResponseEntity<FacetPage<Proizvod>> facetSearchProizvodi(
+            ProizvodFacetFilter filter,
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
+        logger.debug("REST request for faceted search of Proizvodi");
+        FacetPage<Proizvod> proizvodi = proizvodService.facetSearch(filter, kursor, velicina);
+        String etag = EntityTags.page(proizvodi.getProizvodi(), EntityTags::proizvod, proizvodi.getUkupno(), proizvodi.getFasete());
+        return ResponseEntity.ok().eTag(etag).body(proizvodi);
     }
 
     @GetMapping("/in-stock")
-    public ResponseEntity<List<Proizvod>> getProizvodiInStock() {
+    public ResponseEntity<CursorPage<Proizvod>> getProizvodiInStock(
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to get Proizvodi in stock");
-        List<Proizvod> proizvodi = proizvodService.getProizvodiInStock();
-        return ResponseEntity.ok(proizvodi);
+        CursorPage<Proizvod> proizvodi = proizvodService.getProizvodiInStock(kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(proizvodi, EntityTags::proizvod)).body(proizvodi);
     }
 
     @GetMapping("/price-range")
-    public ResponseEntity<List<Proizvod>> getProizvodiByPriceRange(
-            @RequestParam BigDecimal minCena, @RequestParam BigDecimal maxCena) {
+    public ResponseEntity<CursorPage<Proizvod>> getProizvodiByPriceRange(
+            @RequestParam BigDecimal minCena, @RequestParam BigDecimal maxCena,
+            @RequestParam(required = false) String kursor,
+            @RequestParam(required = false) Integer velicina) {
         logger.debug("REST request to get Proizvodi by price range: {} - {}", minCena, maxCena);
-        List<Proizvod> proizvodi = proizvodService.getProizvodiByPriceRange(minCena, maxCena);
-        return ResponseEntity.ok(proizvodi);
+        CursorPage<Proizvod> proizvodi = proizvodService.getProizvodiByPriceRange(minCena, maxCena, kursor, velicina);
+        return ResponseEntity.ok().eTag(EntityTags.page(proizvodi, EntityTags::proizvod)).body(proizvodi);
     }
 
     @PatchMapping("/{id}/stock")
-    public ResponseEntity<Proizvod> updateStock(@PathVariable Long id, @RequestParam Integer novaKolicina) {
+    public ResponseEntity<Proizvod> updateStock(@PathVariable Long id, @RequestParam Integer novaKolicina,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         logger.info("REST request to update stock for Proizvod id: {} to {}", id, novaKolicina);
-        Proizvod updatedProizvod = proizvodService.updateStock(id, novaKolicina);
-        return ResponseEntity.ok(updatedProizvod);
+        Proizvod updatedProizvod = proizvodService.updateStock(id, novaKolicina, ifMatch);
+        return ResponseEntity.ok().eTag(EntityTags.proizvod(updatedProizvod)).body(updatedProizvod);
     }
 }
\ No newline at end of file
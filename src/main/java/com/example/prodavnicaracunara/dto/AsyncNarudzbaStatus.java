@@ -0,0 +1,81 @@
+package com.example.prodavnicaracunara.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Processing state of an order accepted asynchronously. The tracking number
+ * becomes the order number once the order is created.
+ */
+public class AsyncNarudzbaStatus {
+
+    public enum Stanje {
+        PRIMLJENA,
+        U_TOKU,
+        KREIRANA,
+        ODBIJENA
+    }
+
+    private String brojNarudzbe;
+    // Written by order workers, read by request threads
+    private volatile Stanje stanje;
+    private volatile Long narudzbaId;
+    private volatile String greska;
+    private LocalDateTime primljeno;
+    private volatile LocalDateTime zavrseno;
+
+    public AsyncNarudzbaStatus() {}
+
+    public AsyncNarudzbaStatus(String brojNarudzbe) {
+        this.brojNarudzbe = brojNarudzbe;
+        this.stanje = Stanje.PRIMLJENA;
+        this.primljeno = LocalDateTime.now();
+    }
+
+    public String getBrojNarudzbe() {
+        return brojNarudzbe;
+    }
+
+    public void setBrojNarudzbe(String brojNarudzbe) {
+        this.brojNarudzbe = brojNarudzbe;
+    }
+
+    public Stanje getStanje() {
+        return stanje;
+    }
+
+    public void setStanje(Stanje stanje) {
+        this.stanje = stanje;
+    }
+
+    public Long getNarudzbaId() {
+        return narudzbaId;
+    }
+
+    public void setNarudzbaId(Long narudzbaId) {
+        this.narudzbaId = narudzbaId;
+    }
+
+    public String getGreska() {
+        return greska;
+    }
+
+    public void setGreska(String greska) {
+        this.greska = greska;
+    }
+
+    public LocalDateTime getPrimljeno() {
+        return primljeno;
+    }
+
+    public void setPrimljeno(LocalDateTime primljeno) {
+        this.primljeno = primljeno;
+    }
+
+    public LocalDateTime getZavrseno() {
+        return zavrseno;
+    }
+
+    public void setZavrseno(LocalDateTime zavrseno) {
+        this.zavrseno = zavrseno;
+    }
+}
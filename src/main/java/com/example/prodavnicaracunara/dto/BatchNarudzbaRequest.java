@@ -0,0 +1,38 @@
+package com.example.prodavnicaracunara.dto;
+
+import java.util.List;
+
+/**
+ * One order of a bulk import. A product ID listed several times is ordered in that quantity.
+ * Orders are validated one by one by the batch service, so an invalid order is reported
+ * in its result instead of rejecting the whole request.
+ */
+public class BatchNarudzbaRequest {
+
+    private Long kupacId;
+
+    private List<Long> proizvodIds;
+
+    public BatchNarudzbaRequest() {}
+
+    public BatchNarudzbaRequest(Long kupacId, List<Long> proizvodIds) {
+        this.kupacId = kupacId;
+        this.proizvodIds = proizvodIds;
+    }
+
+    public Long getKupacId() {
+        return kupacId;
+    }
+
+    public void setKupacId(Long kupacId) {
+        this.kupacId = kupacId;
+    }
+
+    public List<Long> getProizvodIds() {
+        return proizvodIds;
+    }
+
+    public void setProizvodIds(List<Long> proizvodIds) {
+        this.proizvodIds = proizvodIds;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.prodavnicaracunara.dto;
+
+import java.util.List;
+
+/**
+ * Summary and per-order outcomes of a bulk import
+ */
+public class BatchNarudzbaResponse {
+
+    private int ukupno;
+    private int uspesno;
+    private int neuspesno;
+    private List<BatchNarudzbaResult> rezultati;
+
+    public BatchNarudzbaResponse() {}
+
+    public BatchNarudzbaResponse(List<BatchNarudzbaResult> rezultati) {
+        this.rezultati = rezultati;
+        this.ukupno = rezultati.size();
+        this.uspesno = (int) rezultati.stream().filter(BatchNarudzbaResult::isUspesno).count();
+        this.neuspesno = ukupno - uspesno;
+    }
+
+    public int getUkupno() {
+        return ukupno;
+    }
+
+    public void setUkupno(int ukupno) {
+        this.ukupno = ukupno;
+    }
+
+    public int getUspesno() {
+        return uspesno;
+    }
+
+    public void setUspesno(int uspesno) {
+        this.uspesno = uspesno;
+    }
+
+    public int getNeuspesno() {
+        return neuspesno;
+    }
+
+    public void setNeuspesno(int neuspesno) {
+        this.neuspesno = neuspesno;
+    }
+
+    public List<BatchNarudzbaResult> getRezultati() {
+        return rezultati;
+    }
+
+    public void setRezultati(List<BatchNarudzbaResult> rezultati) {
+        this.rezultati = rezultati;
+    }
+}
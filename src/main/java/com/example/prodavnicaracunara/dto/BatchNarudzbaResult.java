@@ -0,0 +1,72 @@
+package com.example.prodavnicaracunara.dto;
+
+/**
+ * Outcome of one order of a bulk import, {@code indeks} is its position in the request
+ */
+public class BatchNarudzbaResult {
+
+    private int indeks;
+    private boolean uspesno;
+    private Long narudzbaId;
+    private String brojNarudzbe;
+    private String greska;
+
+    public BatchNarudzbaResult() {}
+
+    public static BatchNarudzbaResult success(int indeks, Long narudzbaId, String brojNarudzbe) {
+        BatchNarudzbaResult result = new BatchNarudzbaResult();
+        result.indeks = indeks;
+        result.uspesno = true;
+        result.narudzbaId = narudzbaId;
+        result.brojNarudzbe = brojNarudzbe;
+        return result;
+    }
+
+    public static BatchNarudzbaResult failure(int indeks, String greska) {
+        BatchNarudzbaResult result = new BatchNarudzbaResult();
+        result.indeks = indeks;
+        result.uspesno = false;
+        result.greska = greska;
+        return result;
+    }
+
+    public int getIndeks() {
+        return indeks;
+    }
+
+    public void setIndeks(int indeks) {
+        this.indeks = indeks;
+    }
+
+    public boolean isUspesno() {
+        return uspesno;
+    }
+
+    public void setUspesno(boolean uspesno) {
+        this.uspesno = uspesno;
+    }
+
+    public Long getNarudzbaId() {
+        return narudzbaId;
+    }
+
+    public void setNarudzbaId(Long narudzbaId) {
+        this.narudzbaId = narudzbaId;
+    }
+
+    public String getBrojNarudzbe() {
+        return brojNarudzbe;
+    }
+
+    public void setBrojNarudzbe(String brojNarudzbe) {
+        this.brojNarudzbe = brojNarudzbe;
+    }
+
+    public String getGreska() {
+        return greska;
+    }
+
+    public void setGreska(String greska) {
+        this.greska = greska;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.prodavnicaracunara.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated list. {@code sledeciKursor} is passed back as {@code kursor}
+ * to get the next page and is {@code null} on the last page.
+ */
+public class CursorPage<T> {
+
+    private List<T> stavke;
+    private int velicina;
+    private String sledeciKursor;
+
+    public CursorPage() {}
+
+    public CursorPage(List<T> stavke, String sledeciKursor) {
+        this.stavke = stavke;
+        this.velicina = stavke.size();
+        this.sledeciKursor = sledeciKursor;
+    }
+
+    /**
+     * Same page with every item converted, the cursor is kept
+     */
+    public <R> CursorPage<R> map(Function<T, R> konverzija) {
+        return new CursorPage<>(stavke.stream().map(konverzija).toList(), sledeciKursor);
+    }
+
+    public List<T> getStavke() {
+        return stavke;
+    }
+
+    public void setStavke(List<T> stavke) {
+        this.stavke = stavke;
+    }
+
+    public int getVelicina() {
+        return velicina;
+    }
+
+    public void setVelicina(int velicina) {
+        this.velicina = velicina;
+    }
+
+    public String getSledeciKursor() {
+        return sledeciKursor;
+    }
+
+    public void setSledeciKursor(String sledeciKursor) {
+        this.sledeciKursor = sledeciKursor;
+    }
+}
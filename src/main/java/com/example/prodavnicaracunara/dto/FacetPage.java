@@ -0,0 +1,54 @@
+package com.example.prodavnicaracunara.dto;
+
+import java.util.Map;
+
+/**
+ * One page of a faceted product search. {@code ukupno} is the number of products matching all filters,
+ * {@code fasete} maps each facet to its value counts: a facet counts products matching every filter
+ * except its own, so a client can see how many products each further choice would give.
+ */
+public class FacetPage<T> {
+
+    private CursorPage<T> proizvodi;
+    private int ukupno;
+    private Map<String, Map<String, Integer>> fasete;
+
+    public FacetPage() {}
+
+    public FacetPage(CursorPage<T> proizvodi, int ukupno, Map<String, Map<String, Integer>> fasete) {
+        this.proizvodi = proizvodi;
+        this.ukupno = ukupno;
+        this.fasete = fasete;
+    }
+
+    /**
+     * Same counts with another page of products
+     */
+    public <R> FacetPage<R> withProizvodi(CursorPage<R> stranica) {
+        return new FacetPage<>(stranica, ukupno, fasete);
+    }
+
+    public CursorPage<T> getProizvodi() {
+        return proizvodi;
+    }
+
+    public void setProizvodi(CursorPage<T> proizvodi) {
+        this.proizvodi = proizvodi;
+    }
+
+    public int getUkupno() {
+        return ukupno;
+    }
+
+    public void setUkupno(int ukupno) {
+        this.ukupno = ukupno;
+    }
+
+    public Map<String, Map<String, Integer>> getFasete() {
+        return fasete;
+    }
+
+    public void setFasete(Map<String, Map<String, Integer>> fasete) {
+        this.fasete = fasete;
+    }
+}
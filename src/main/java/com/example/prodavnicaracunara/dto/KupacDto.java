@@ -0,0 +1,90 @@
+package com.example.prodavnicaracunara.dto;
+
+import com.example.prodavnicaracunara.entity.Kupac;
+
+/**
+ * Customer as returned by list endpoints, without the orders
+ */
+public class KupacDto {
+
+    private Long id;
+    private String ime;
+    private String prezime;
+    private String email;
+    private String telefon;
+    private String adresa;
+    private Long verzija;
+
+    public KupacDto() {}
+
+    /**
+     * Copies the customer columns, the lazy order list is not touched
+     */
+    public static KupacDto from(Kupac kupac) {
+        KupacDto dto = new KupacDto();
+        dto.id = kupac.getId();
+        dto.ime = kupac.getIme();
+        dto.prezime = kupac.getPrezime();
+        dto.email = kupac.getEmail();
+        dto.telefon = kupac.getTelefon();
+        dto.adresa = kupac.getAdresa();
+        dto.verzija = kupac.getVerzija();
+        return dto;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getIme() {
+        return ime;
+    }
+
+    public void setIme(String ime) {
+        this.ime = ime;
+    }
+
+    public String getPrezime() {
+        return prezime;
+    }
+
+    public void setPrezime(String prezime) {
+        this.prezime = prezime;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getTelefon() {
+        return telefon;
+    }
+
+    public void setTelefon(String telefon) {
+        this.telefon = telefon;
+    }
+
+    public String getAdresa() {
+        return adresa;
+    }
+
+    public void setAdresa(String adresa) {
+        this.adresa = adresa;
+    }
+
+    public Long getVerzija() {
+        return verzija;
+    }
+
+    public void setVerzija(Long verzija) {
+        this.verzija = verzija;
+    }
+}
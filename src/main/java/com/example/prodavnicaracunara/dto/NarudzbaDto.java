@@ -0,0 +1,118 @@
+package com.example.prodavnicaracunara.dto;
+
+import com.example.prodavnicaracunara.entity.Narudzba;
+import com.example.prodavnicaracunara.entity.Proizvod;
+import com.example.prodavnicaracunara.entity.StatusNarudzbe;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Order as returned by list endpoints, the customer is referenced by ID
+ */
+public class NarudzbaDto {
+
+    private Long id;
+    private String brojNarudzbe;
+    private Long kupacId;
+    private List<Proizvod> proizvodi;
+    private BigDecimal ukupnaCena;
+    private StatusNarudzbe status;
+    private LocalDateTime datumKreiranja;
+    private PlacanjeDto placanje;
+    private Long verzija;
+
+    public NarudzbaDto() {}
+
+    /**
+     * Copies the order, its products and payment must already be loaded
+     */
+    public static NarudzbaDto from(Narudzba narudzba) {
+        NarudzbaDto dto = new NarudzbaDto();
+        dto.id = narudzba.getId();
+        dto.brojNarudzbe = narudzba.getBrojNarudzbe();
+        // Reading the ID of the lazy customer proxy does not load the customer
+        dto.kupacId = narudzba.getKupac().getId();
+        dto.proizvodi = new ArrayList<>(narudzba.getProizvodi());
+        dto.ukupnaCena = narudzba.getUkupnaCena();
+        dto.status = narudzba.getStatus();
+        dto.datumKreiranja = narudzba.getDatumKreiranja();
+        dto.placanje = narudzba.getPlacanje() != null ? PlacanjeDto.from(narudzba.getPlacanje()) : null;
+        dto.verzija = narudzba.getVerzija();
+        return dto;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getBrojNarudzbe() {
+        return brojNarudzbe;
+    }
+
+    public void setBrojNarudzbe(String brojNarudzbe) {
+        this.brojNarudzbe = brojNarudzbe;
+    }
+
+    public Long getKupacId() {
+        return kupacId;
+    }
+
+    public void setKupacId(Long kupacId) {
+        this.kupacId = kupacId;
+    }
+
+    public List<Proizvod> getProizvodi() {
+        return proizvodi;
+    }
+
+    public void setProizvodi(List<Proizvod> proizvodi) {
+        this.proizvodi = proizvodi;
+    }
+
+    public BigDecimal getUkupnaCena() {
+        return ukupnaCena;
+    }
+
+    public void setUkupnaCena(BigDecimal ukupnaCena) {
+        this.ukupnaCena = ukupnaCena;
+    }
+
+    public StatusNarudzbe getStatus() {
+        return status;
+    }
+
+    public void setStatus(StatusNarudzbe status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getDatumKreiranja() {
+        return datumKreiranja;
+    }
+
+    public void setDatumKreiranja(LocalDateTime datumKreiranja) {
+        this.datumKreiranja = datumKreiranja;
+    }
+
+    public PlacanjeDto getPlacanje() {
+        return placanje;
+    }
+
+    public void setPlacanje(PlacanjeDto placanje) {
+        this.placanje = placanje;
+    }
+
+    public Long getVerzija() {
+        return verzija;
+    }
+
+    public void setVerzija(Long verzija) {
+        this.verzija = verzija;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.prodavnicaracunara.dto;
+
+import com.example.prodavnicaracunara.entity.StatusNarudzbe;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One order of the NDJSON order export, products are listed by ID
+ */
+public class NarudzbaExport {
+
+    private Long id;
+    private String brojNarudzbe;
+    private Long kupacId;
+    private BigDecimal ukupnaCena;
+    private StatusNarudzbe status;
+    private LocalDateTime datumKreiranja;
+    private List<Long> proizvodIds = new ArrayList<>();
+
+    public NarudzbaExport() {}
+
+    public NarudzbaExport(Long id, String brojNarudzbe, Long kupacId, BigDecimal ukupnaCena,
+                          StatusNarudzbe status, LocalDateTime datumKreiranja) {
+        this.id = id;
+        this.brojNarudzbe = brojNarudzbe;
+        this.kupacId = kupacId;
+        this.ukupnaCena = ukupnaCena;
+        this.status = status;
+        this.datumKreiranja = datumKreiranja;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getBrojNarudzbe() {
+        return brojNarudzbe;
+    }
+
+    public void setBrojNarudzbe(String brojNarudzbe) {
+        this.brojNarudzbe = brojNarudzbe;
+    }
+
+    public Long getKupacId() {
+        return kupacId;
+    }
+
+    public void setKupacId(Long kupacId) {
+        this.kupacId = kupacId;
+    }
+
+    public BigDecimal getUkupnaCena() {
+        return ukupnaCena;
+    }
+
+    public void setUkupnaCena(BigDecimal ukupnaCena) {
+        this.ukupnaCena = ukupnaCena;
+    }
+
+    public StatusNarudzbe getStatus() {
+        return status;
+    }
+
+    public void setStatus(StatusNarudzbe status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getDatumKreiranja() {
+        return datumKreiranja;
+    }
+
+    public void setDatumKreiranja(LocalDateTime datumKreiranja) {
+        this.datumKreiranja = datumKreiranja;
+    }
+
+    public List<Long> getProizvodIds() {
+        return proizvodIds;
+    }
+
+    public void setProizvodIds(List<Long> proizvodIds) {
+        this.proizvodIds = proizvodIds;
+    }
+}
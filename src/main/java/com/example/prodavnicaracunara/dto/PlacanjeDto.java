@@ -0,0 +1,95 @@
+package com.example.prodavnicaracunara.dto;
+
+import com.example.prodavnicaracunara.entity.NacinPlacanja;
+import com.example.prodavnicaracunara.entity.Placanje;
+import com.example.prodavnicaracunara.entity.StatusPlacanja;
+
+import java.time.LocalDateTime;
+
+/**
+ * Payment as returned by list endpoints, the order is referenced by ID
+ */
+public class PlacanjeDto {
+
+    private Long id;
+    private Long narudzbaId;
+    private NacinPlacanja nacinPlacanja;
+    private StatusPlacanja status;
+    private LocalDateTime datum;
+    private String referenca;
+    private Long verzija;
+
+    public PlacanjeDto() {}
+
+    /**
+     * Copies the payment columns and the order ID
+     */
+    public static PlacanjeDto from(Placanje placanje) {
+        PlacanjeDto dto = new PlacanjeDto();
+        dto.id = placanje.getId();
+        // Reading the ID of the lazy order proxy does not load the order
+        dto.narudzbaId = placanje.getNarudzba().getId();
+        dto.nacinPlacanja = placanje.getNacinPlacanja();
+        dto.status = placanje.getStatus();
+        dto.datum = placanje.getDatum();
+        dto.referenca = placanje.getReferenca();
+        dto.verzija = placanje.getVerzija();
+        return dto;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getNarudzbaId() {
+        return narudzbaId;
+    }
+
+    public void setNarudzbaId(Long narudzbaId) {
+        this.narudzbaId = narudzbaId;
+    }
+
+    public NacinPlacanja getNacinPlacanja() {
+        return nacinPlacanja;
+    }
+
+    public void setNacinPlacanja(NacinPlacanja nacinPlacanja) {
+        this.nacinPlacanja = nacinPlacanja;
+    }
+
+    public StatusPlacanja getStatus() {
+        return status;
+    }
+
+    public void setStatus(StatusPlacanja status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getDatum() {
+        return datum;
+    }
+
+    public void setDatum(LocalDateTime datum) {
+        this.datum = datum;
+    }
+
+    public String getReferenca() {
+        return referenca;
+    }
+
+    public void setReferenca(String referenca) {
+        this.referenca = referenca;
+    }
+
+    public Long getVerzija() {
+        return verzija;
+    }
+
+    public void setVerzija(Long verzija) {
+        this.verzija = verzija;
+    }
+}
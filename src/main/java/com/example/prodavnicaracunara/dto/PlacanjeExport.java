@@ -0,0 +1,80 @@
+package com.example.prodavnicaracunara.dto;
+
+import com.example.prodavnicaracunara.entity.NacinPlacanja;
+import com.example.prodavnicaracunara.entity.StatusPlacanja;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One payment of the NDJSON payment export
+ */
+public class PlacanjeExport {
+
+    private Long id;
+    private Long narudzbaId;
+    private BigDecimal iznos;
+    private NacinPlacanja nacinPlacanja;
+    private StatusPlacanja status;
+    private LocalDateTime datum;
+
+    public PlacanjeExport() {}
+
+    public PlacanjeExport(Long id, Long narudzbaId, BigDecimal iznos, NacinPlacanja nacinPlacanja,
+                          StatusPlacanja status, LocalDateTime datum) {
+        this.id = id;
+        this.narudzbaId = narudzbaId;
+        this.iznos = iznos;
+        this.nacinPlacanja = nacinPlacanja;
+        this.status = status;
+        this.datum = datum;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getNarudzbaId() {
+        return narudzbaId;
+    }
+
+    public void setNarudzbaId(Long narudzbaId) {
+        this.narudzbaId = narudzbaId;
+    }
+
+    public BigDecimal getIznos() {
+        return iznos;
+    }
+
+    public void setIznos(BigDecimal iznos) {
+        this.iznos = iznos;
+    }
+
+    public NacinPlacanja getNacinPlacanja() {
+        return nacinPlacanja;
+    }
+
+    public void setNacinPlacanja(NacinPlacanja nacinPlacanja) {
+        this.nacinPlacanja = nacinPlacanja;
+    }
+
+    public StatusPlacanja getStatus() {
+        return status;
+    }
+
+    public void setStatus(StatusPlacanja status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getDatum() {
+        return datum;
+    }
+
+    public void setDatum(LocalDateTime datum) {
+        this.datum = datum;
+    }
+}
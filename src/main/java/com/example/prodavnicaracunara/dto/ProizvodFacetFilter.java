@@ -0,0 +1,84 @@
+package com.example.prodavnicaracunara.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Filters of the faceted product search, bound from query parameters.
+ * Missing filters match everything; a list filter matches any of its values.
+ */
+public class ProizvodFacetFilter {
+
+    private BigDecimal minCena;
+    private BigDecimal maxCena;
+    private Integer minRamGb;
+    private List<String> cpuProizvodjac;
+    private Integer minCpuJezgra;
+    private List<String> gpuProizvodjac;
+    private List<String> gpuSerija;
+    private Integer minVramGb;
+
+    public BigDecimal getMinCena() {
+        return minCena;
+    }
+
+    public void setMinCena(BigDecimal minCena) {
+        this.minCena = minCena;
+    }
+
+    public BigDecimal getMaxCena() {
+        return maxCena;
+    }
+
+    public void setMaxCena(BigDecimal maxCena) {
+        this.maxCena = maxCena;
+    }
+
+    public Integer getMinRamGb() {
+        return minRamGb;
+    }
+
+    public void setMinRamGb(Integer minRamGb) {
+        this.minRamGb = minRamGb;
+    }
+
+    public List<String> getCpuProizvodjac() {
+        return cpuProizvodjac;
+    }
+
+    public void setCpuProizvodjac(List<String> cpuProizvodjac) {
+        this.cpuProizvodjac = cpuProizvodjac;
+    }
+
+    public Integer getMinCpuJezgra() {
+        return minCpuJezgra;
+    }
+
+    public void setMinCpuJezgra(Integer minCpuJezgra) {
+        this.minCpuJezgra = minCpuJezgra;
+    }
+
+    public List<String> getGpuProizvodjac() {
+        return gpuProizvodjac;
+    }
+
+    public void setGpuProizvodjac(List<String> gpuProizvodjac) {
+        this.gpuProizvodjac = gpuProizvodjac;
+    }
+
+    public List<String> getGpuSerija() {
+        return gpuSerija;
+    }
+
+    public void setGpuSerija(List<String> gpuSerija) {
+        this.gpuSerija = gpuSerija;
+    }
+
+    public Integer getMinVramGb() {
+        return minVramGb;
+    }
+
+    public void setMinVramGb(Integer minVramGb) {
+        this.minVramGb = minVramGb;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.prodavnicaracunara.dto;
+
+import com.example.prodavnicaracunara.entity.NacinPlacanja;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Payments to settle: either {@code ids}, or every unpaid payment dated from {@code datumOd} to {@code datumDo}
+ * (both inclusive), of {@code nacinPlacanja} when it is set
+ */
+public class SettlementRequest {
+
+    private List<Long> ids;
+    private NacinPlacanja nacinPlacanja;
+    private LocalDateTime datumOd;
+    private LocalDateTime datumDo;
+
+    public SettlementRequest() {}
+
+    public SettlementRequest(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public SettlementRequest(NacinPlacanja nacinPlacanja, LocalDateTime datumOd, LocalDateTime datumDo) {
+        this.nacinPlacanja = nacinPlacanja;
+        this.datumOd = datumOd;
+        this.datumDo = datumDo;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public NacinPlacanja getNacinPlacanja() {
+        return nacinPlacanja;
+    }
+
+    public void setNacinPlacanja(NacinPlacanja nacinPlacanja) {
+        this.nacinPlacanja = nacinPlacanja;
+    }
+
+    public LocalDateTime getDatumOd() {
+        return datumOd;
+    }
+
+    public void setDatumOd(LocalDateTime datumOd) {
+        this.datumOd = datumOd;
+    }
+
+    public LocalDateTime getDatumDo() {
+        return datumDo;
+    }
+
+    public void setDatumDo(LocalDateTime datumDo) {
+        this.datumDo = datumDo;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.prodavnicaracunara.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Summary and per-payment outcomes of a settlement, {@code iznos} is the total of the settled payments
+ */
+public class SettlementResponse {
+
+    private int ukupno;
+    private int uspesno;
+    private int neuspesno;
+    private BigDecimal iznos;
+    private List<SettlementResult> rezultati;
+
+    public SettlementResponse() {}
+
+    public SettlementResponse(List<SettlementResult> rezultati) {
+        this.rezultati = rezultati;
+        this.ukupno = rezultati.size();
+        this.uspesno = (int) rezultati.stream().filter(SettlementResult::isUspesno).count();
+        this.neuspesno = ukupno - uspesno;
+        this.iznos = rezultati.stream()
+                .filter(SettlementResult::isUspesno)
+                .map(SettlementResult::getIznos)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    public int getUkupno() {
+        return ukupno;
+    }
+
+    public void setUkupno(int ukupno) {
+        this.ukupno = ukupno;
+    }
+
+    public int getUspesno() {
+        return uspesno;
+    }
+
+    public void setUspesno(int uspesno) {
+        this.uspesno = uspesno;
+    }
+
+    public int getNeuspesno() {
+        return neuspesno;
+    }
+
+    public void setNeuspesno(int neuspesno) {
+        this.neuspesno = neuspesno;
+    }
+
+    public BigDecimal getIznos() {
+        return iznos;
+    }
+
+    public void setIznos(BigDecimal iznos) {
+        this.iznos = iznos;
+    }
+
+    public List<SettlementResult> getRezultati() {
+        return rezultati;
+    }
+
+    public void setRezultati(List<SettlementResult> rezultati) {
+        this.rezultati = rezultati;
+    }
+}
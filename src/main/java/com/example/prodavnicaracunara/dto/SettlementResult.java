@@ -0,0 +1,64 @@
+package com.example.prodavnicaracunara.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of one payment of a settlement, {@code iznos} is the order total of a settled payment
+ */
+public class SettlementResult {
+
+    private Long placanjeId;
+    private boolean uspesno;
+    private BigDecimal iznos;
+    private String greska;
+
+    public SettlementResult() {}
+
+    public static SettlementResult success(Long placanjeId, BigDecimal iznos) {
+        SettlementResult result = new SettlementResult();
+        result.placanjeId = placanjeId;
+        result.uspesno = true;
+        result.iznos = iznos;
+        return result;
+    }
+
+    public static SettlementResult failure(Long placanjeId, String greska) {
+        SettlementResult result = new SettlementResult();
+        result.placanjeId = placanjeId;
+        result.uspesno = false;
+        result.greska = greska;
+        return result;
+    }
+
+    public Long getPlacanjeId() {
+        return placanjeId;
+    }
+
+    public void setPlacanjeId(Long placanjeId) {
+        this.placanjeId = placanjeId;
+    }
+
+    public boolean isUspesno() {
+        return uspesno;
+    }
+
+    public void setUspesno(boolean uspesno) {
+        this.uspesno = uspesno;
+    }
+
+    public BigDecimal getIznos() {
+        return iznos;
+    }
+
+    public void setIznos(BigDecimal iznos) {
+        this.iznos = iznos;
+    }
+
+    public String getGreska() {
+        return greska;
+    }
+
+    public void setGreska(String greska) {
+        this.greska = greska;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.prodavnicaracunara.dto;
+
+import com.example.prodavnicaracunara.entity.NacinPlacanja;
+
+import java.math.BigDecimal;
+
+/**
+ * Number and order total of the paid payments made with one payment method
+ */
+public class StatistikaNacinaPlacanja {
+
+    private NacinPlacanja nacinPlacanja;
+    private long brojPlacanja;
+    private BigDecimal iznos;
+
+    public StatistikaNacinaPlacanja() {}
+
+    public StatistikaNacinaPlacanja(NacinPlacanja nacinPlacanja, long brojPlacanja, BigDecimal iznos) {
+        this.nacinPlacanja = nacinPlacanja;
+        this.brojPlacanja = brojPlacanja;
+        this.iznos = iznos;
+    }
+
+    public NacinPlacanja getNacinPlacanja() {
+        return nacinPlacanja;
+    }
+
+    public void setNacinPlacanja(NacinPlacanja nacinPlacanja) {
+        this.nacinPlacanja = nacinPlacanja;
+    }
+
+    public long getBrojPlacanja() {
+        return brojPlacanja;
+    }
+
+    public void setBrojPlacanja(long brojPlacanja) {
+        this.brojPlacanja = brojPlacanja;
+    }
+
+    public BigDecimal getIznos() {
+        return iznos;
+    }
+
+    public void setIznos(BigDecimal iznos) {
+        this.iznos = iznos;
+    }
+}
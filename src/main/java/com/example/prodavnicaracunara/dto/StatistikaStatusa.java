@@ -0,0 +1,33 @@
+package com.example.prodavnicaracunara.dto;
+
+/**
+ * Number of orders or payments in one status
+ */
+public class StatistikaStatusa<S extends Enum<S>> {
+
+    private S status;
+    private long broj;
+
+    public StatistikaStatusa() {}
+
+    public StatistikaStatusa(S status, long broj) {
+        this.status = status;
+        this.broj = broj;
+    }
+
+    public S getStatus() {
+        return status;
+    }
+
+    public void setStatus(S status) {
+        this.status = status;
+    }
+
+    public long getBroj() {
+        return broj;
+    }
+
+    public void setBroj(long broj) {
+        this.broj = broj;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.prodavnicaracunara.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Stored response of a request sent with an {@code Idempotency-Key}, maintained by {@code IdempotencyStore}
+ */
+@Entity
+@Table(name = "idempotentni_zahtevi", indexes = {
+    @Index(name = "idx_idempotentni_zahtevi_istice", columnList = "istice")
+})
+public class IdempotentniZahtev {
+    
+    @Id
+    @Column(length = 255)
+    private String kljuc;
+    
+    // SHA-256 of the request the key was first used for
+    @Column(nullable = false, length = 64)
+    private String otisak;
+    
+    @Column(nullable = false)
+    private Integer status;
+    
+    // JSON object of the replayed headers (ETag, Location)
+    @Lob
+    private String zaglavlja;
+    
+    @Lob
+    @Column(nullable = false)
+    private String telo;
+    
+    @Column(nullable = false)
+    private LocalDateTime kreirano;
+    
+    @Column(nullable = false)
+    private LocalDateTime istice;
+
+    // Constructors
+    public IdempotentniZahtev() {}
+
+    // Getters and Setters
+    public String getKljuc() {
+        return kljuc;
+    }
+
+    public void setKljuc(String kljuc) {
+        this.kljuc = kljuc;
+    }
+
+    public String getOtisak() {
+        return otisak;
+    }
+
+    public void setOtisak(String otisak) {
+        this.otisak = otisak;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public String getZaglavlja() {
+        return zaglavlja;
+    }
+
+    public void setZaglavlja(String zaglavlja) {
+        this.zaglavlja = zaglavlja;
+    }
+
+    public String getTelo() {
+        return telo;
+    }
+
+    public void setTelo(String telo) {
+        this.telo = telo;
+    }
+
+    public LocalDateTime getKreirano() {
+        return kreirano;
+    }
+
+    public void setKreirano(LocalDateTime kreirano) {
+        this.kreirano = kreirano;
+    }
+
+    public LocalDateTime getIstice() {
+        return istice;
+    }
+
+    public void setIstice(LocalDateTime istice) {
+        this.istice = istice;
+    }
+}
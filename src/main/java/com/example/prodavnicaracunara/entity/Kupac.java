@@ -1,12 +1,17 @@
 package com.example.prodavnicaracunara.entity;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.*;
 import java.util.List;
 
 @Entity
 @Table(name = "kupci")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "kupci")
 public class Kupac {
     
     @Id
@@ -40,6 +45,11 @@ public class Kupac {
     @JsonManagedReference("kupac-narudzbe")
     private List<Narudzba> narudzbe;
 
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long verzija;
+
     // Constructors
     public Kupac() {}
 
@@ -108,6 +118,14 @@ public class Kupac {
         this.narudzbe = narudzbe;
     }
 
+    public Long getVerzija() {
+        return verzija;
+    }
+
+    public void setVerzija(Long verzija) {
+        this.verzija = verzija;
+    }
+
     @Override
     public String toString() {
         return "Kupac{" +
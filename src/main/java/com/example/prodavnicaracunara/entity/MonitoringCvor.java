@@ -0,0 +1,44 @@
+package com.example.prodavnicaracunara.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Heartbeat of a running instance taking part in order status monitoring
+ */
+@Entity
+@Table(name = "monitoring_cvorovi")
+public class MonitoringCvor {
+    
+    @Id
+    @Column(length = 64)
+    private String id;
+    
+    @Column(nullable = false)
+    private LocalDateTime poslednjiSignal;
+
+    // Constructors
+    public MonitoringCvor() {}
+
+    public MonitoringCvor(String id, LocalDateTime poslednjiSignal) {
+        this.id = id;
+        this.poslednjiSignal = poslednjiSignal;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public LocalDateTime getPoslednjiSignal() {
+        return poslednjiSignal;
+    }
+
+    public void setPoslednjiSignal(LocalDateTime poslednjiSignal) {
+        this.poslednjiSignal = poslednjiSignal;
+    }
+}
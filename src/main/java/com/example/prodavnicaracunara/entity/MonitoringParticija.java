@@ -0,0 +1,52 @@
+package com.example.prodavnicaracunara.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Lease on one partition of the order ID space ({@code MOD(id, brojParticija)}) for status monitoring
+ */
+@Entity
+@Table(name = "monitoring_particije")
+public class MonitoringParticija {
+    
+    @Id
+    private Integer broj;
+    
+    @Column(length = 64)
+    private String vlasnik;
+    
+    private LocalDateTime zakupDo;
+
+    // Constructors
+    public MonitoringParticija() {}
+
+    public MonitoringParticija(Integer broj) {
+        this.broj = broj;
+    }
+
+    // Getters and Setters
+    public Integer getBroj() {
+        return broj;
+    }
+
+    public void setBroj(Integer broj) {
+        this.broj = broj;
+    }
+
+    public String getVlasnik() {
+        return vlasnik;
+    }
+
+    public void setVlasnik(String vlasnik) {
+        this.vlasnik = vlasnik;
+    }
+
+    public LocalDateTime getZakupDo() {
+        return zakupDo;
+    }
+
+    public void setZakupDo(LocalDateTime zakupDo) {
+        this.zakupDo = zakupDo;
+    }
+}
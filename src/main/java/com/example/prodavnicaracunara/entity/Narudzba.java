@@ -2,6 +2,7 @@ package com.example.prodavnicaracunara.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import java.math.BigDecimal;
@@ -9,11 +10,16 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "narudzbe")
+@Table(name = "narudzbe", indexes = {
+    // Covers the status progression sweep (status + age filter, keyset on id)
+    @Index(name = "idx_narudzbe_status_datum", columnList = "status, datumKreiranja, id")
+})
 public class Narudzba {
     
+    // Pooled sequence instead of IDENTITY so Hibernate can batch order inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "narudzbe_seq")
+    @SequenceGenerator(name = "narudzbe_seq", sequenceName = "narudzbe_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank(message = "Broj narudžbe je obavezan")
@@ -50,6 +56,12 @@ public class Narudzba {
     @JsonManagedReference("narudzba-placanje")
     private Placanje placanje;
 
+    // Also incremented by the scheduler's bulk status updates
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long verzija;
+
     // Constructors
     public Narudzba() {
         this.datumKreiranja = LocalDateTime.now();
@@ -128,6 +140,14 @@ public class Narudzba {
         this.placanje = placanje;
     }
 
+    public Long getVerzija() {
+        return verzija;
+    }
+
+    public void setVerzija(Long verzija) {
+        this.verzija = verzija;
+    }
+
     @Override
     public String toString() {
         return "Narudzba{" +
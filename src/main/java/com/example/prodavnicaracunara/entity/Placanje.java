@@ -1,12 +1,16 @@
 package com.example.prodavnicaracunara.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "placanja")
+@Table(name = "placanja", indexes = {
+    // Paid payments by date, the partial hours at the edges of a revenue range
+    @Index(name = "idx_placanja_status_datum", columnList = "status, datum")
+})
 public class Placanje {
     
     @Id
@@ -31,6 +35,16 @@ public class Placanje {
     @Column(nullable = false)
     private LocalDateTime datum;
 
+    // Transaction reference the payment gateway returned for the charge
+    @Column(length = 100)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String referenca;
+
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long verzija;
+
     // Constructors
     public Placanje() {
         this.datum = LocalDateTime.now();
@@ -83,6 +97,22 @@ public class Placanje {
         this.datum = datum;
     }
 
+    public String getReferenca() {
+        return referenca;
+    }
+
+    public void setReferenca(String referenca) {
+        this.referenca = referenca;
+    }
+
+    public Long getVerzija() {
+        return verzija;
+    }
+
+    public void setVerzija(Long verzija) {
+        this.verzija = verzija;
+    }
+
     @Override
     public String toString() {
         return "Placanje{" +
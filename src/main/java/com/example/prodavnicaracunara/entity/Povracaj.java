@@ -0,0 +1,80 @@
+package com.example.prodavnicaracunara.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Gateway charge that has to be refunded because its payment was cancelled while it was charged, written by
+ * {@code PlacanjeService}
+ */
+@Entity
+@Table(name = "povracaji", indexes = {
+    @Index(name = "idx_povracaji_placanje", columnList = "placanje_id")
+}, uniqueConstraints = {
+    // One refund per charge
+    @UniqueConstraint(name = "uk_povracaji_referenca", columnNames = "referenca")
+})
+public class Povracaj {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "placanje_id", nullable = false)
+    private Long placanjeId;
+    
+    // Gateway reference of the charge
+    @Column(nullable = false, length = 100)
+    private String referenca;
+    
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal iznos;
+    
+    @Column(nullable = false)
+    private LocalDateTime kreirano;
+
+    // Constructors
+    public Povracaj() {}
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getPlacanjeId() {
+        return placanjeId;
+    }
+
+    public void setPlacanjeId(Long placanjeId) {
+        this.placanjeId = placanjeId;
+    }
+
+    public String getReferenca() {
+        return referenca;
+    }
+
+    public void setReferenca(String referenca) {
+        this.referenca = referenca;
+    }
+
+    public BigDecimal getIznos() {
+        return iznos;
+    }
+
+    public void setIznos(BigDecimal iznos) {
+        this.iznos = iznos;
+    }
+
+    public LocalDateTime getKreirano() {
+        return kreirano;
+    }
+
+    public void setKreirano(LocalDateTime kreirano) {
+        this.kreirano = kreirano;
+    }
+}
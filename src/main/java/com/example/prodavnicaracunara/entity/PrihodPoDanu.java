@@ -0,0 +1,56 @@
+package com.example.prodavnicaracunara.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Revenue of paid payments dated within one day, maintained by {@code RevenueRollup}
+ */
+@Entity
+@Table(name = "prihod_po_danu")
+public class PrihodPoDanu {
+    
+    @Id
+    private LocalDate dan;
+    
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal iznos;
+    
+    @Column(nullable = false)
+    private Long brojPlacanja;
+
+    // Constructors
+    public PrihodPoDanu() {}
+
+    public PrihodPoDanu(LocalDate dan, BigDecimal iznos, Long brojPlacanja) {
+        this.dan = dan;
+        this.iznos = iznos;
+        this.brojPlacanja = brojPlacanja;
+    }
+
+    // Getters and Setters
+    public LocalDate getDan() {
+        return dan;
+    }
+
+    public void setDan(LocalDate dan) {
+        this.dan = dan;
+    }
+
+    public BigDecimal getIznos() {
+        return iznos;
+    }
+
+    public void setIznos(BigDecimal iznos) {
+        this.iznos = iznos;
+    }
+
+    public Long getBrojPlacanja() {
+        return brojPlacanja;
+    }
+
+    public void setBrojPlacanja(Long brojPlacanja) {
+        this.brojPlacanja = brojPlacanja;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.prodavnicaracunara.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Revenue of paid payments dated within one hour, maintained by {@code RevenueRollup}
+ */
+@Entity
+@Table(name = "prihod_po_satu")
+public class PrihodPoSatu {
+    
+    @Id
+    private LocalDateTime sat;
+    
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal iznos;
+    
+    @Column(nullable = false)
+    private Long brojPlacanja;
+
+    // Constructors
+    public PrihodPoSatu() {}
+
+    public PrihodPoSatu(LocalDateTime sat, BigDecimal iznos, Long brojPlacanja) {
+        this.sat = sat;
+        this.iznos = iznos;
+        this.brojPlacanja = brojPlacanja;
+    }
+
+    // Getters and Setters
+    public LocalDateTime getSat() {
+        return sat;
+    }
+
+    public void setSat(LocalDateTime sat) {
+        this.sat = sat;
+    }
+
+    public BigDecimal getIznos() {
+        return iznos;
+    }
+
+    public void setIznos(BigDecimal iznos) {
+        this.iznos = iznos;
+    }
+
+    public Long getBrojPlacanja() {
+        return brojPlacanja;
+    }
+
+    public void setBrojPlacanja(Long brojPlacanja) {
+        this.brojPlacanja = brojPlacanja;
+    }
+}
@@ -1,11 +1,19 @@
 package com.example.prodavnicaracunara.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 import jakarta.validation.constraints.*;
 import java.math.BigDecimal;
 
 @Entity
 @Table(name = "proizvodi")
+// Stock updates that bypass Hibernate lock their cache entries through StockCacheLocks
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "proizvodi")
+@DynamicUpdate // Stock is changed by delta updates, never rewrite it unless it was modified
 public class Proizvod {
     
     @Id
@@ -36,6 +44,12 @@ public class Proizvod {
     @Column(nullable = false)
     private Integer kolicinaUStanju;
 
+    // Also incremented by the delta stock updates, which bypass Hibernate
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long verzija;
+
     // Constructors
     public Proizvod() {}
 
@@ -105,6 +119,14 @@ public class Proizvod {
         this.kolicinaUStanju = kolicinaUStanju;
     }
 
+    public Long getVerzija() {
+        return verzija;
+    }
+
+    public void setVerzija(Long verzija) {
+        this.verzija = verzija;
+    }
+
     @Override
     public String toString() {
         return "Proizvod{" +
@@ -0,0 +1,66 @@
+package com.example.prodavnicaracunara.event;
+
+import com.example.prodavnicaracunara.entity.Kupac;
+
+/**
+ * Published when a customer is created, edited or deleted, delivered after commit.
+ * Carries the searchable fields so listeners need not load the customer again; a deleted customer has none.
+ */
+public class KupacChangedEvent {
+
+    private final Long kupacId;
+    private final boolean obrisan;
+    private final String ime;
+    private final String prezime;
+    private final String email;
+    private final String telefon;
+    private final String adresa;
+
+    private KupacChangedEvent(Long kupacId, boolean obrisan, String ime, String prezime, String email,
+                              String telefon, String adresa) {
+        this.kupacId = kupacId;
+        this.obrisan = obrisan;
+        this.ime = ime;
+        this.prezime = prezime;
+        this.email = email;
+        this.telefon = telefon;
+        this.adresa = adresa;
+    }
+
+    public static KupacChangedEvent saved(Kupac kupac) {
+        return new KupacChangedEvent(kupac.getId(), false, kupac.getIme(), kupac.getPrezime(), kupac.getEmail(),
+                kupac.getTelefon(), kupac.getAdresa());
+    }
+
+    public static KupacChangedEvent deleted(Long kupacId) {
+        return new KupacChangedEvent(kupacId, true, null, null, null, null, null);
+    }
+
+    public Long getKupacId() {
+        return kupacId;
+    }
+
+    public boolean isObrisan() {
+        return obrisan;
+    }
+
+    public String getIme() {
+        return ime;
+    }
+
+    public String getPrezime() {
+        return prezime;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getTelefon() {
+        return telefon;
+    }
+
+    public String getAdresa() {
+        return adresa;
+    }
+}
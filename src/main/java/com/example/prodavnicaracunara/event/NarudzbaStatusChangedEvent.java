@@ -0,0 +1,33 @@
+package com.example.prodavnicaracunara.event;
+
+import com.example.prodavnicaracunara.entity.StatusNarudzbe;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published when an order is created or its status changes, delivered after commit
+ */
+public class NarudzbaStatusChangedEvent {
+
+    private final Long narudzbaId;
+    private final StatusNarudzbe status;
+    private final LocalDateTime datumKreiranja;
+
+    public NarudzbaStatusChangedEvent(Long narudzbaId, StatusNarudzbe status, LocalDateTime datumKreiranja) {
+        this.narudzbaId = narudzbaId;
+        this.status = status;
+        this.datumKreiranja = datumKreiranja;
+    }
+
+    public Long getNarudzbaId() {
+        return narudzbaId;
+    }
+
+    public StatusNarudzbe getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getDatumKreiranja() {
+        return datumKreiranja;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.prodavnicaracunara.event;
+
+import java.util.Set;
+
+/**
+ * Published when this instance takes over monitoring partitions of the order ID space
+ */
+public class ParticijePreuzeteEvent {
+
+    private final Set<Integer> particije;
+    private final int brojParticija;
+
+    public ParticijePreuzeteEvent(Set<Integer> particije, int brojParticija) {
+        this.particije = particije;
+        this.brojParticija = brojParticija;
+    }
+
+    public Set<Integer> getParticije() {
+        return particije;
+    }
+
+    public int getBrojParticija() {
+        return brojParticija;
+    }
+}
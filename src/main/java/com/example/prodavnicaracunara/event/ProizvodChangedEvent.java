@@ -0,0 +1,68 @@
+package com.example.prodavnicaracunara.event;
+
+import com.example.prodavnicaracunara.entity.Proizvod;
+
+import java.math.BigDecimal;
+
+/**
+ * Published when a product is created, edited or deleted, delivered after commit.
+ * Carries the searchable fields and price so listeners need not load the product again; a deleted product has none.
+ */
+public class ProizvodChangedEvent {
+
+    private final Long proizvodId;
+    private final boolean obrisan;
+    private final String naziv;
+    private final String cpu;
+    private final String ram;
+    private final String gpu;
+    private final BigDecimal cena;
+
+    private ProizvodChangedEvent(Long proizvodId, boolean obrisan, String naziv, String cpu, String ram, String gpu,
+                                 BigDecimal cena) {
+        this.proizvodId = proizvodId;
+        this.obrisan = obrisan;
+        this.naziv = naziv;
+        this.cpu = cpu;
+        this.ram = ram;
+        this.gpu = gpu;
+        this.cena = cena;
+    }
+
+    public static ProizvodChangedEvent saved(Proizvod proizvod) {
+        return new ProizvodChangedEvent(proizvod.getId(), false, proizvod.getNaziv(), proizvod.getCpu(),
+                proizvod.getRam(), proizvod.getGpu(), proizvod.getCena());
+    }
+
+    public static ProizvodChangedEvent deleted(Long proizvodId) {
+        return new ProizvodChangedEvent(proizvodId, true, null, null, null, null, null);
+    }
+
+    public Long getProizvodId() {
+        return proizvodId;
+    }
+
+    public boolean isObrisan() {
+        return obrisan;
+    }
+
+    public String getNaziv() {
+        return naziv;
+    }
+
+    public String getCpu() {
+        return cpu;
+    }
+
+    public String getRam() {
+        return ram;
+    }
+
+    public String getGpu() {
+        return gpu;
+    }
+
+    public BigDecimal getCena() {
+        return cena;
+    }
+}
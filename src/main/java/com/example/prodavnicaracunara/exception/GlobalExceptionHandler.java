@@ -2,15 +2,19 @@ package com.example.prodavnicaracunara.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestControllerAdvice
@@ -46,6 +50,85 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<InsufficientStockErrorResponse> handleInsufficientStockException(InsufficientStockException ex) {
+        logger.error("Insufficient stock: {}", ex.getMessage());
+        
+        List<StockShortage> shortages = new ArrayList<>();
+        ex.getTrazeno().forEach((proizvodId, trazeno) ->
+                shortages.add(new StockShortage(proizvodId, trazeno, ex.getDostupno().getOrDefault(proizvodId, 0))));
+
+        InsufficientStockErrorResponse errorResponse = new InsufficientStockErrorResponse(
+                HttpStatus.CONFLICT.value(),
+                "Insufficient Stock",
+                ex.getMessage(),
+                LocalDateTime.now(),
+                shortages
+        );
+        
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleServiceOverloadedException(ServiceOverloadedException ex) {
+        logger.warn("Service overloaded: {}", ex.getMessage());
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Service Unavailable",
+                ex.getMessage(),
+                LocalDateTime.now()
+        );
+        
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+
+    @ExceptionHandler(PaymentDeclinedException.class)
+    public ResponseEntity<ErrorResponse> handlePaymentDeclinedException(PaymentDeclinedException ex) {
+        logger.warn("Payment declined: {}", ex.getMessage());
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpStatus.PAYMENT_REQUIRED.value(),
+                "Payment Declined",
+                ex.getMessage(),
+                LocalDateTime.now()
+        );
+        
+        return new ResponseEntity<>(errorResponse, HttpStatus.PAYMENT_REQUIRED);
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ErrorResponse> handlePreconditionFailedException(PreconditionFailedException ex) {
+        logger.warn("Precondition failed: {}", ex.getMessage());
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpStatus.PRECONDITION_FAILED.value(),
+                "Precondition Failed",
+                ex.getMessage(),
+                LocalDateTime.now()
+        );
+        
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .eTag(ex.getETag())
+                .body(errorResponse);
+    }
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailureException(ObjectOptimisticLockingFailureException ex) {
+        logger.warn("Concurrent modification: {}", ex.getMessage());
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpStatus.CONFLICT.value(),
+                "Conflict",
+                "Resource was modified concurrently, reload it and retry",
+                LocalDateTime.now()
+        );
+        
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ValidationErrorResponse> handleValidationExceptions(MethodArgumentNotValidException ex) {
         logger.error("Validation error: {}", ex.getMessage());
@@ -118,4 +201,35 @@ public class GlobalExceptionHandler {
         public Map<String, String> getFieldErrors() { return fieldErrors; }
         public void setFieldErrors(Map<String, String> fieldErrors) { this.fieldErrors = fieldErrors; }
     }
+
+    public static class InsufficientStockErrorResponse extends ErrorResponse {
+        private List<StockShortage> shortages;
+
+        public InsufficientStockErrorResponse(int status, String error, String message, LocalDateTime timestamp, List<StockShortage> shortages) {
+            super(status, error, message, timestamp);
+            this.shortages = shortages;
+        }
+
+        public List<StockShortage> getShortages() { return shortages; }
+        public void setShortages(List<StockShortage> shortages) { this.shortages = shortages; }
+    }
+
+    public static class StockShortage {
+        private Long proizvodId;
+        private int trazeno;
+        private int dostupno;
+
+        public StockShortage(Long proizvodId, int trazeno, int dostupno) {
+            this.proizvodId = proizvodId;
+            this.trazeno = trazeno;
+            this.dostupno = dostupno;
+        }
+
+        public Long getProizvodId() { return proizvodId; }
+        public void setProizvodId(Long proizvodId) { this.proizvodId = proizvodId; }
+        public int getTrazeno() { return trazeno; }
+        public void setTrazeno(int trazeno) { this.trazeno = trazeno; }
+        public int getDostupno() { return dostupno; }
+        public void setDostupno(int dostupno) { this.dostupno = dostupno; }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.example.prodavnicaracunara.exception;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class InsufficientStockException extends RuntimeException {
+
+    private final Map<Long, Integer> trazeno;
+    private final Map<Long, Integer> dostupno;
+
+    /**
+     * @param trazeno  requested quantity per product ID that could not be reserved
+     * @param dostupno quantity that was actually in stock per product ID at the time of the check
+     */
+    public InsufficientStockException(Map<Long, Integer> trazeno, Map<Long, Integer> dostupno) {
+        super("Insufficient stock for products: " + trazeno.keySet());
+        this.trazeno = Collections.unmodifiableMap(new LinkedHashMap<>(trazeno));
+        this.dostupno = Collections.unmodifiableMap(new LinkedHashMap<>(dostupno));
+    }
+
+    public Map<Long, Integer> getTrazeno() {
+        return trazeno;
+    }
+
+    public Map<Long, Integer> getDostupno() {
+        return dostupno;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.prodavnicaracunara.exception;
+
+public class PaymentDeclinedException extends RuntimeException {
+
+    public PaymentDeclinedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.prodavnicaracunara.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+
+    private final String eTag;
+
+    public PreconditionFailedException(String message, String eTag) {
+        super(message);
+        this.eTag = eTag;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+}
@@ -1,11 +1,16 @@
 package com.example.prodavnicaracunara.repository;
 
 import com.example.prodavnicaracunara.entity.Kupac;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,57 +18,45 @@ import java.util.Optional;
 public interface KupacRepository extends JpaRepository<Kupac, Long> {
     
     /**
-     * Finds customer by email address
+     * Finds customer by email address. Cached until any customer row changes.
      */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "kupci.po-emailu")
+    })
     Optional<Kupac> findByEmail(String email);
     
     /**
-     * Finds customers by first name (case-insensitive)
+     * Gets the ID and version of the customer and of every order, payment and product it is returned with,
+     * one row per order line (ETag without loading the customer)
      */
-    List<Kupac> findByImeContainingIgnoreCase(String ime);
+    @Query("SELECT k.id, k.verzija, n.id, n.verzija, pl.id, pl.verzija, p.id, p.verzija " +
+           "FROM Kupac k LEFT JOIN k.narudzbe n LEFT JOIN n.placanje pl LEFT JOIN n.proizvodi p WHERE k.id = :id")
+    List<Object[]> findVerzijeById(@Param("id") Long id);
     
     /**
-     * Finds customers by last name (case-insensitive)
+     * Gets a page of customers after the given ID
      */
-    List<Kupac> findByPrezimeContainingIgnoreCase(String prezime);
-    
-    /**
-     * Finds customers by full name (case-insensitive)
-     */
-    @Query("SELECT k FROM Kupac k WHERE " +
-           "LOWER(CONCAT(k.ime, ' ', k.prezime)) LIKE LOWER(CONCAT('%', :punoIme, '%'))")
-    List<Kupac> findByPunoIme(@Param("punoIme") String punoIme);
+    List<Kupac> findByIdGreaterThanOrderByIdAsc(Long posleId, Pageable pageable);
     
     /**
      * Finds customers by phone number
      */
     Optional<Kupac> findByTelefon(String telefon);
     
-    /**
-     * Finds customers by address containing the given text (case-insensitive)
-     */
-    List<Kupac> findByAdresaContainingIgnoreCase(String adresa);
-    
     /**
      * Checks if email already exists (for validation)
      */
     boolean existsByEmail(String email);
     
     /**
-     * Checks if phone number already exists (for validation)
+     * Returns which of the given customer IDs exist (set lookup for bulk validation)
      */
-    boolean existsByTelefon(String telefon);
+    @Query("SELECT k.id FROM Kupac k WHERE k.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
     
     /**
-     * Custom search by multiple criteria
+     * Checks if phone number already exists (for validation)
      */
-    @Query("SELECT k FROM Kupac k WHERE " +
-           "(:ime IS NULL OR LOWER(k.ime) LIKE LOWER(CONCAT('%', :ime, '%'))) AND " +
-           "(:prezime IS NULL OR LOWER(k.prezime) LIKE LOWER(CONCAT('%', :prezime, '%'))) AND " +
-           "(:email IS NULL OR LOWER(k.email) LIKE LOWER(CONCAT('%', :email, '%'))) AND " +
-           "(:adresa IS NULL OR LOWER(k.adresa) LIKE LOWER(CONCAT('%', :adresa, '%')))")
-    List<Kupac> findByCriteria(@Param("ime") String ime,
-                              @Param("prezime") String prezime,
-                              @Param("email") String email,
-                              @Param("adresa") String adresa);
+    boolean existsByTelefon(String telefon);
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.example.prodavnicaracunara.repository;
+
+import com.example.prodavnicaracunara.entity.MonitoringCvor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface MonitoringCvorRepository extends JpaRepository<MonitoringCvor, String> {
+    
+    /**
+     * Counts nodes that sent a heartbeat after the given time
+     */
+    @Query("SELECT COUNT(c) FROM MonitoringCvor c WHERE c.poslednjiSignal >= :granica")
+    long countAktivne(@Param("granica") LocalDateTime granica);
+    
+    /**
+     * Removes nodes that stopped sending heartbeats
+     */
+    @Modifying
+    @Query("DELETE FROM MonitoringCvor c WHERE c.poslednjiSignal < :granica")
+    int deleteNeaktivne(@Param("granica") LocalDateTime granica);
+}
@@ -0,0 +1,53 @@
+package com.example.prodavnicaracunara.repository;
+
+import com.example.prodavnicaracunara.entity.MonitoringParticija;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MonitoringParticijaRepository extends JpaRepository<MonitoringParticija, Integer> {
+    
+    /**
+     * Gets partition numbers held by a node
+     */
+    @Query("SELECT p.broj FROM MonitoringParticija p WHERE p.vlasnik = :vlasnik ORDER BY p.broj")
+    List<Integer> findBrojeviByVlasnik(@Param("vlasnik") String vlasnik);
+    
+    /**
+     * Gets partition numbers that are free or whose lease expired
+     */
+    @Query("SELECT p.broj FROM MonitoringParticija p WHERE p.vlasnik IS NULL OR p.zakupDo < :sada ORDER BY p.broj")
+    List<Integer> findSlobodneBrojeve(@Param("sada") LocalDateTime sada);
+    
+    /**
+     * Extends all leases of a node
+     */
+    @Modifying
+    @Query("UPDATE MonitoringParticija p SET p.zakupDo = :zakupDo WHERE p.vlasnik = :vlasnik")
+    int renew(@Param("vlasnik") String vlasnik, @Param("zakupDo") LocalDateTime zakupDo);
+    
+    /**
+     * Takes a partition if it is still free or expired, returns 1 when this node won it
+     */
+    @Modifying
+    @Query("UPDATE MonitoringParticija p SET p.vlasnik = :vlasnik, p.zakupDo = :zakupDo " +
+           "WHERE p.broj = :broj AND (p.vlasnik IS NULL OR p.zakupDo < :sada)")
+    int claim(@Param("broj") Integer broj,
+              @Param("vlasnik") String vlasnik,
+              @Param("zakupDo") LocalDateTime zakupDo,
+              @Param("sada") LocalDateTime sada);
+    
+    /**
+     * Gives up partitions held by a node
+     */
+    @Modifying
+    @Query("UPDATE MonitoringParticija p SET p.vlasnik = NULL, p.zakupDo = NULL WHERE p.broj IN :brojevi AND p.vlasnik = :vlasnik")
+    int release(@Param("brojevi") Collection<Integer> brojevi, @Param("vlasnik") String vlasnik);
+}
@@ -3,12 +3,16 @@ package com.example.prodavnicaracunara.repository;
 import com.example.prodavnicaracunara.entity.Kupac;
 import com.example.prodavnicaracunara.entity.Narudzba;
 import com.example.prodavnicaracunara.entity.StatusNarudzbe;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,21 +24,50 @@ public interface NarudzbaRepository extends JpaRepository<Narudzba, Long> {
      */
     Optional<Narudzba> findByBrojNarudzbe(String brojNarudzbe);
     
+    /**
+     * Gets the ID and version of the order, its payment and each of its products, one row per product (ETag without
+     * loading the order)
+     */
+    @Query("SELECT n.id, n.verzija, pl.id, pl.verzija, p.id, p.verzija " +
+           "FROM Narudzba n LEFT JOIN n.placanje pl LEFT JOIN n.proizvodi p WHERE n.id = :id")
+    List<Object[]> findVerzijeById(@Param("id") Long id);
+    
+    /**
+     * Finds orders by IDs together with their products (bulk cancellation, product lists of an order page).
+     * No DISTINCT: it would collapse repeated products (quantities) of the bag
+     */
+    @Query("SELECT n FROM Narudzba n LEFT JOIN FETCH n.proizvodi WHERE n.id IN :ids")
+    List<Narudzba> findAllWithProizvodiByIdIn(@Param("ids") Collection<Long> ids);
+    
     /**
      * Finds orders by customer
      */
     List<Narudzba> findByKupac(Kupac kupac);
     
     /**
-     * Finds orders by customer ID
+     * Gets a page of orders after the given ID.
+     * List queries fetch the payment in the same select, the inverse one-to-one would otherwise be loaded per order.
      */
-    List<Narudzba> findByKupacId(Long kupacId);
+    @EntityGraph(attributePaths = "placanje")
+    List<Narudzba> findByIdGreaterThanOrderByIdAsc(Long posleId, Pageable pageable);
+    
+    /**
+     * Finds orders by customer ID, a page after the given ID
+     */
+    @EntityGraph(attributePaths = "placanje")
+    List<Narudzba> findByKupacIdAndIdGreaterThanOrderByIdAsc(Long kupacId, Long posleId, Pageable pageable);
     
     /**
      * Finds orders by status
      */
     List<Narudzba> findByStatus(StatusNarudzbe status);
     
+    /**
+     * Finds orders by status, a page after the given ID
+     */
+    @EntityGraph(attributePaths = "placanje")
+    List<Narudzba> findByStatusAndIdGreaterThanOrderByIdAsc(StatusNarudzbe status, Long posleId, Pageable pageable);
+    
     /**
      * Finds orders created within a date range
      */
@@ -46,16 +79,56 @@ public interface NarudzbaRepository extends JpaRepository<Narudzba, Long> {
     List<Narudzba> findByKupacAndStatus(Kupac kupac, StatusNarudzbe status);
     
     /**
-     * Gets all orders for monitoring (orders that are not delivered or cancelled)
+     * Gets orders that are not delivered or cancelled, a page after the given ID
+     */
+    @EntityGraph(attributePaths = "placanje")
+    @Query("SELECT n FROM Narudzba n WHERE n.status IN ('U_OBRADI', 'POSLATA') AND n.id > :posleId ORDER BY n.id")
+    List<Narudzba> findActiveOrders(@Param("posleId") Long posleId, Pageable pageable);
+    
+    /**
+     * Gets the next chunk of IDs (ascending, after the given ID) of orders in a status created before the cutoff,
+     * limited to the given monitoring partitions. Served from the (status, datum_kreiranja, id) index.
+     */
+    @Query("SELECT n.id FROM Narudzba n WHERE n.status = :status AND n.datumKreiranja < :cutoffTime AND n.id > :posleId " +
+           "AND MOD(n.id, :brojParticija) IN :particije ORDER BY n.id")
+    List<Long> findIdsForStatusUpdate(@Param("status") StatusNarudzbe status,
+                                      @Param("cutoffTime") LocalDateTime cutoffTime,
+                                      @Param("posleId") Long posleId,
+                                      @Param("brojParticija") int brojParticija,
+                                      @Param("particije") Collection<Integer> particije,
+                                      Pageable pageable);
+    
+    /**
+     * Moves orders of an ID range that are in a status and created before the cutoff to a new status,
+     * limited to the given monitoring partitions
+     */
+    @Modifying
+    @Query("UPDATE Narudzba n SET n.status = :noviStatus, n.verzija = n.verzija + 1 WHERE n.status = :status AND n.datumKreiranja < :cutoffTime " +
+           "AND n.id BETWEEN :odId AND :doId AND MOD(n.id, :brojParticija) IN :particije")
+    int advanceStatusInRange(@Param("status") StatusNarudzbe status,
+                             @Param("noviStatus") StatusNarudzbe noviStatus,
+                             @Param("cutoffTime") LocalDateTime cutoffTime,
+                             @Param("odId") Long odId,
+                             @Param("doId") Long doId,
+                             @Param("brojParticija") int brojParticija,
+                             @Param("particije") Collection<Integer> particije);
+    
+    /**
+     * Gets ID, status and creation time of active orders in the given monitoring partitions (scheduler startup)
      */
-    @Query("SELECT n FROM Narudzba n WHERE n.status IN ('U_OBRADI', 'POSLATA')")
-    List<Narudzba> findActiveOrders();
+    @Query("SELECT n.id, n.status, n.datumKreiranja FROM Narudzba n WHERE n.status IN ('U_OBRADI', 'POSLATA') " +
+           "AND MOD(n.id, :brojParticija) IN :particije")
+    List<Object[]> findActiveOrderDeadlines(@Param("brojParticija") int brojParticija,
+                                            @Param("particije") Collection<Integer> particije);
     
     /**
-     * Gets orders that need status update (older than specified minutes)
+     * Moves the given orders to a new status, only those still in the expected status
      */
-    @Query("SELECT n FROM Narudzba n WHERE n.status = 'U_OBRADI' AND n.datumKreiranja < :cutoffTime")
-    List<Narudzba> findOrdersForStatusUpdate(@Param("cutoffTime") LocalDateTime cutoffTime);
+    @Modifying
+    @Query("UPDATE Narudzba n SET n.status = :noviStatus, n.verzija = n.verzija + 1 WHERE n.id IN :ids AND n.status = :status")
+    int advanceStatus(@Param("ids") Collection<Long> ids,
+                      @Param("status") StatusNarudzbe status,
+                      @Param("noviStatus") StatusNarudzbe noviStatus);
     
     /**
      * Gets orders by customer email
@@ -4,12 +4,18 @@ import com.example.prodavnicaracunara.entity.NacinPlacanja;
 import com.example.prodavnicaracunara.entity.Narudzba;
 import com.example.prodavnicaracunara.entity.Placanje;
 import com.example.prodavnicaracunara.entity.StatusPlacanja;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,15 +33,37 @@ public interface PlacanjeRepository extends JpaRepository<Placanje, Long> {
     Optional<Placanje> findByNarudzbaId(Long narudzbaId);
     
     /**
-     * Finds payments by payment method
+     * Gets the ID and version of a payment (ETag without loading the payment)
      */
-    List<Placanje> findByNacinPlacanja(NacinPlacanja nacinPlacanja);
+    @Query("SELECT p.id, p.verzija FROM Placanje p WHERE p.id = :id")
+    List<Object[]> findVerzijeById(@Param("id") Long id);
+    
+    /**
+     * Gets the ID and version of the payment of an order
+     */
+    @Query("SELECT p.id, p.verzija FROM Placanje p WHERE p.narudzba.id = :narudzbaId")
+    List<Object[]> findVerzijeByNarudzbaId(@Param("narudzbaId") Long narudzbaId);
+    
+    /**
+     * Gets a page of payments after the given ID
+     */
+    List<Placanje> findByIdGreaterThanOrderByIdAsc(Long posleId, Pageable pageable);
+    
+    /**
+     * Finds payments by payment method, a page after the given ID
+     */
+    List<Placanje> findByNacinPlacanjaAndIdGreaterThanOrderByIdAsc(NacinPlacanja nacinPlacanja, Long posleId, Pageable pageable);
     
     /**
      * Finds payments by status
      */
     List<Placanje> findByStatus(StatusPlacanja status);
     
+    /**
+     * Finds payments by status, a page after the given ID
+     */
+    List<Placanje> findByStatusAndIdGreaterThanOrderByIdAsc(StatusPlacanja status, Long posleId, Pageable pageable);
+    
     /**
      * Finds payments within a date range
      */
@@ -65,22 +93,56 @@ public interface PlacanjeRepository extends JpaRepository<Placanje, Long> {
     List<Object[]> getPaymentStatisticsByStatus();
     
     /**
-     * Finds payments for a specific customer
+     * Finds payments for a specific customer, a page after the given ID
      */
-    @Query("SELECT p FROM Placanje p WHERE p.narudzba.kupac.id = :kupacId")
-    List<Placanje> findByKupacId(@Param("kupacId") Long kupacId);
+    @Query("SELECT p FROM Placanje p WHERE p.narudzba.kupac.id = :kupacId AND p.id > :posleId ORDER BY p.id")
+    List<Placanje> findByKupacId(@Param("kupacId") Long kupacId, @Param("posleId") Long posleId, Pageable pageable);
     
     /**
-     * Gets successful payments in date range
+     * Gets successful payments in date range, a page after the given ID
      */
-    @Query("SELECT p FROM Placanje p WHERE p.status = 'PLACENO' AND p.datum BETWEEN :startDate AND :endDate")
+    @Query("SELECT p FROM Placanje p WHERE p.status = 'PLACENO' AND p.datum BETWEEN :startDate AND :endDate " +
+           "AND p.id > :posleId ORDER BY p.id")
     List<Placanje> findSuccessfulPayments(@Param("startDate") LocalDateTime startDate, 
-                                         @Param("endDate") LocalDateTime endDate);
+                                         @Param("endDate") LocalDateTime endDate,
+                                         @Param("posleId") Long posleId,
+                                         Pageable pageable);
+    
+    /**
+     * Sums the order totals of paid payments dated from {@code od} (inclusive) to {@code doIskljucivo} (exclusive)
+     */
+    @Query("SELECT COALESCE(SUM(n.ukupnaCena), 0) FROM Placanje p JOIN p.narudzba n " +
+           "WHERE p.status = 'PLACENO' AND p.datum >= :od AND p.datum < :doIskljucivo")
+    BigDecimal sumRevenue(@Param("od") LocalDateTime od, @Param("doIskljucivo") LocalDateTime doIskljucivo);
+    
+    /**
+     * Gets the ID, status, method, date and order total of the given payments, for a settlement; the rows stay locked
+     * until the end of the transaction
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p.id, p.status, p.nacinPlacanja, p.datum, n.ukupnaCena FROM Placanje p JOIN p.narudzba n WHERE p.id IN :ids")
+    List<Object[]> findForSettlement(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Gets the ID, status, method, date and order total of unpaid payments dated within a range, optionally of one
+     * method, a page after the given ID; the rows stay locked until the end of the transaction
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p.id, p.status, p.nacinPlacanja, p.datum, n.ukupnaCena FROM Placanje p JOIN p.narudzba n " +
+           "WHERE p.status = 'NEPLACENO' AND p.datum BETWEEN :startDate AND :endDate " +
+           "AND (:nacinPlacanja IS NULL OR p.nacinPlacanja = :nacinPlacanja) AND p.id > :posleId ORDER BY p.id")
+    List<Object[]> findUnpaidForSettlement(@Param("nacinPlacanja") NacinPlacanja nacinPlacanja,
+                                           @Param("startDate") LocalDateTime startDate,
+                                           @Param("endDate") LocalDateTime endDate,
+                                           @Param("posleId") Long posleId,
+                                           Pageable pageable);
     
     /**
-     * Gets total revenue for a date range
+     * Moves the given payments to a new status, only those still in the expected status
      */
-    @Query("SELECT SUM(p.narudzba.ukupnaCena) FROM Placanje p WHERE p.status = 'PLACENO' AND p.datum BETWEEN :startDate AND :endDate")
-    Optional<Double> getTotalRevenue(@Param("startDate") LocalDateTime startDate, 
-                                   @Param("endDate") LocalDateTime endDate);
-}
\ No newline at end of file
+    @Modifying
+    @Query("UPDATE Placanje p SET p.status = :noviStatus, p.verzija = p.verzija + 1 WHERE p.id IN :ids AND p.status = :status")
+    int advanceStatus(@Param("ids") Collection<Long> ids,
+                      @Param("status") StatusPlacanja status,
+                      @Param("noviStatus") StatusPlacanja noviStatus);
+}
@@ -1,8 +1,12 @@
 package com.example.prodavnicaracunara.repository;
 
 import com.example.prodavnicaracunara.entity.Proizvod;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -13,14 +17,14 @@ import java.util.List;
 public interface ProizvodRepository extends JpaRepository<Proizvod, Long> {
     
     /**
-     * Finds products by name containing the given text (case-insensitive)
+     * Gets a page of products after the given ID
      */
-    List<Proizvod> findByNazivContainingIgnoreCase(String naziv);
+    List<Proizvod> findByIdGreaterThanOrderByIdAsc(Long posleId, Pageable pageable);
     
     /**
-     * Finds products within a price range
+     * Finds products within a price range, a page after the given ID
      */
-    List<Proizvod> findByCenaBetween(BigDecimal minCena, BigDecimal maxCena);
+    List<Proizvod> findByCenaBetweenAndIdGreaterThanOrderByIdAsc(BigDecimal minCena, BigDecimal maxCena, Long posleId, Pageable pageable);
     
     /**
      * Finds products with stock greater than zero
@@ -28,10 +32,14 @@ public interface ProizvodRepository extends JpaRepository<Proizvod, Long> {
     List<Proizvod> findByKolicinaUStanjuGreaterThan(Integer kolicina);
     
     /**
-     * Finds products that are in stock
+     * Finds products that are in stock, a page after the given ID. Cached until any product row changes.
      */
-    @Query("SELECT p FROM Proizvod p WHERE p.kolicinaUStanju > 0")
-    List<Proizvod> findInStock();
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "proizvodi.na-stanju")
+    })
+    @Query("SELECT p FROM Proizvod p WHERE p.kolicinaUStanju > 0 AND p.id > :posleId ORDER BY p.id")
+    List<Proizvod> findInStock(@Param("posleId") Long posleId, Pageable pageable);
     
     /**
      * Finds products with specific CPU specification
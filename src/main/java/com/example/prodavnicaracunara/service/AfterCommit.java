@@ -0,0 +1,26 @@
+package com.example.prodavnicaracunara.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers in-memory side effects (counters, cache evictions) of a write until its transaction commits, a rolled back
+ * transaction leaves them out. Outside a transaction they run at once.
+ */
+final class AfterCommit {
+
+    private AfterCommit() {}
+
+    static void run(Runnable akcija) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            akcija.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                akcija.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.dto.CursorPage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset pagination for list endpoints.
+ * <p>
+ * Every list is sorted by ID and a page is read with {@code WHERE id > :posleId ORDER BY id LIMIT velicina + 1},
+ * so the cost of a page does not depend on how deep the client is, unlike OFFSET. The extra row only tells
+ * whether another page exists. The cursor handed to clients is the last ID of the page, base64 encoded so
+ * clients treat it as opaque and the sort key can change without breaking them.
+ */
+@Component
+public class CursorPagination {
+
+    private static final String PREFIKS = "id:";
+
+    @Value("${app.pagination.default-page-size:50}")
+    private int defaultVelicina;
+
+    @Value("${app.pagination.max-page-size:500}")
+    private int maxVelicina;
+
+    /**
+     * Resolves the request parameters, a missing cursor starts from the beginning and the size is capped
+     */
+    public Upit upit(String kursor, Integer velicina) {
+        return new Upit(decode(kursor), velicina(velicina));
+    }
+
+    /**
+     * Resolves the requested page size for lists with their own cursor format, a missing size is the default one
+     */
+    public int velicina(Integer velicina) {
+        if (velicina != null && velicina <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return velicina == null ? defaultVelicina : Math.min(velicina, maxVelicina);
+    }
+
+    private static long decode(String kursor) {
+        if (kursor == null || kursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String vrednost = new String(Base64.getUrlDecoder().decode(kursor), StandardCharsets.UTF_8);
+            if (!vrednost.startsWith(PREFIKS)) {
+                throw new IllegalArgumentException("Invalid cursor: " + kursor);
+            }
+            return Long.parseLong(vrednost.substring(PREFIKS.length()));
+        } catch (IllegalArgumentException e) {
+            // Also covers malformed base64 and NumberFormatException
+            throw new IllegalArgumentException("Invalid cursor: " + kursor);
+        }
+    }
+
+    private static String encode(Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((PREFIKS + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Position and size of one requested page
+     */
+    public static final class Upit {
+
+        private final long posleId;
+        private final int velicina;
+
+        private Upit(long posleId, int velicina) {
+            this.posleId = posleId;
+            this.velicina = velicina;
+        }
+
+        /**
+         * ID after which the page starts
+         */
+        public long getPosleId() {
+            return posleId;
+        }
+
+        public int getVelicina() {
+            return velicina;
+        }
+
+        /**
+         * Limit for the repository query, one row more than the page to detect the next page
+         */
+        public Pageable pageable() {
+            return PageRequest.of(0, velicina + 1);
+        }
+
+        /**
+         * Builds the page from rows loaded with {@link #pageable()}
+         */
+        public <T> CursorPage<T> page(List<T> ucitano, Function<T, Long> id) {
+            if (ucitano.size() <= velicina) {
+                return new CursorPage<>(ucitano, null);
+            }
+            List<T> stavke = new ArrayList<>(ucitano.subList(0, velicina));
+            return new CursorPage<>(stavke, encode(id.apply(stavke.get(velicina - 1))));
+        }
+    }
+}
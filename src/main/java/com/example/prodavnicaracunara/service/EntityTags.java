@@ -0,0 +1,194 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.dto.CursorPage;
+import com.example.prodavnicaracunara.dto.KupacDto;
+import com.example.prodavnicaracunara.dto.NarudzbaDto;
+import com.example.prodavnicaracunara.dto.PlacanjeDto;
+import com.example.prodavnicaracunara.entity.Kupac;
+import com.example.prodavnicaracunara.entity.Narudzba;
+import com.example.prodavnicaracunara.entity.Placanje;
+import com.example.prodavnicaracunara.entity.Proizvod;
+import com.example.prodavnicaracunara.exception.PreconditionFailedException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Weak ETags computed from entity versions.
+ * <p>
+ * A representation's tag is a hash of the ID and {@code verzija} of every entity it contains: an order covers its
+ * payment and products, a customer covers its orders with theirs. Every write increments the version of the row it
+ * changes, so a tag changes exactly when some part of the representation may have. The same tag is computed from
+ * loaded entities, list DTOs or the version rows of a repository query, so a conditional GET can be answered
+ * without loading the entity.
+ * <p>
+ * The tags are weak ({@code W/"..."}): one tag stands for every representation of the same versions, JSON, CBOR or
+ * Smile, gzipped or not, which are equivalent but not byte-identical. Tomcat compresses responses with weak tags.
+ * <p>
+ * A list page's tag covers its items in order, the next cursor and any other page content (facet counts).
+ */
+public final class EntityTags {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private EntityTags() {}
+
+    public static String proizvod(Proizvod proizvod) {
+        return new Verzije().dodaj("p", proizvod.getId(), proizvod.getVerzija()).etag();
+    }
+
+    public static String placanje(Placanje placanje) {
+        return new Verzije().dodaj("pl", placanje.getId(), placanje.getVerzija()).etag();
+    }
+
+    public static String placanje(PlacanjeDto placanje) {
+        return new Verzije().dodaj("pl", placanje.getId(), placanje.getVerzija()).etag();
+    }
+
+    public static String narudzba(Narudzba narudzba) {
+        return dodajNarudzbu(new Verzije(), narudzba).etag();
+    }
+
+    public static String narudzba(NarudzbaDto narudzba) {
+        Verzije verzije = new Verzije().dodaj("n", narudzba.getId(), narudzba.getVerzija());
+        if (narudzba.getPlacanje() != null) {
+            verzije.dodaj("pl", narudzba.getPlacanje().getId(), narudzba.getPlacanje().getVerzija());
+        }
+        narudzba.getProizvodi().forEach(proizvod -> verzije.dodaj("p", proizvod.getId(), proizvod.getVerzija()));
+        return verzije.etag();
+    }
+
+    /**
+     * Tag of the customer with its orders, loads the orders when they are not loaded yet
+     */
+    public static String kupac(Kupac kupac) {
+        Verzije verzije = new Verzije().dodaj("k", kupac.getId(), kupac.getVerzija());
+        if (kupac.getNarudzbe() != null) {
+            kupac.getNarudzbe().forEach(narudzba -> dodajNarudzbu(verzije, narudzba));
+        }
+        return verzije.etag();
+    }
+
+    public static String kupac(KupacDto kupac) {
+        return new Verzije().dodaj("k", kupac.getId(), kupac.getVerzija()).etag();
+    }
+
+    /**
+     * Tag from repository version rows, each row an ID and version pair per type in the given order
+     * (left-joined pairs may be {@code null}). Returns {@code null} when there are no rows.
+     */
+    public static String fromRows(List<Object[]> redovi, String... tipovi) {
+        if (redovi.isEmpty()) {
+            return null;
+        }
+        Verzije verzije = new Verzije();
+        for (Object[] red : redovi) {
+            for (int i = 0; i < tipovi.length; i++) {
+                if (red[2 * i] != null) {
+                    verzije.dodaj(tipovi[i], (Long) red[2 * i], (Long) red[2 * i + 1]);
+                }
+            }
+        }
+        return verzije.etag();
+    }
+
+    /**
+     * Tag of a list page from the tags of its items, its cursor and the rest of its content
+     */
+    public static <T> String page(CursorPage<T> stranica, Function<T, String> tag, Object... ostalo) {
+        StringBuilder sadrzaj = new StringBuilder();
+        stranica.getStavke().forEach(stavka -> sadrzaj.append(tag.apply(stavka)).append('|'));
+        sadrzaj.append(stranica.getSledeciKursor());
+        for (Object deo : ostalo) {
+            sadrzaj.append('|').append(deo);
+        }
+        return hash(sadrzaj.toString());
+    }
+
+    /**
+     * If-None-Match check before loading a resource: returns the current tag when the header lists it
+     * (compared weakly, as the header requires), otherwise {@code null}. The tag is computed only when the header is present.
+     */
+    public static String notModified(String ifNoneMatch, Supplier<String> trenutni) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        String etag = trenutni.get();
+        if (etag == null) {
+            return null;
+        }
+        for (String kandidat : ifNoneMatch.split(",")) {
+            String vrednost = kandidat.trim();
+            if (vrednost.equals("*") || stripWeak(vrednost).equals(stripWeak(etag))) {
+                return etag;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * If-Match check on a write: passes without the header, otherwise the current tag has to be listed.
+     * Tags are compared without the weak prefix: they identify versions, which is what a write is conditional on.
+     * The current tag is computed only when the header is present.
+     */
+    public static void requireMatch(String ifMatch, Supplier<String> trenutni) {
+        if (ifMatch == null) {
+            return;
+        }
+        String etag = trenutni.get();
+        for (String kandidat : ifMatch.split(",")) {
+            String vrednost = kandidat.trim();
+            if (vrednost.equals("*") || stripWeak(vrednost).equals(stripWeak(etag))) {
+                return;
+            }
+        }
+        throw new PreconditionFailedException("Resource has changed, current ETag is " + etag, etag);
+    }
+
+    private static Verzije dodajNarudzbu(Verzije verzije, Narudzba narudzba) {
+        verzije.dodaj("n", narudzba.getId(), narudzba.getVerzija());
+        if (narudzba.getPlacanje() != null) {
+            verzije.dodaj("pl", narudzba.getPlacanje().getId(), narudzba.getPlacanje().getVerzija());
+        }
+        if (narudzba.getProizvodi() != null) {
+            narudzba.getProizvodi().forEach(proizvod -> verzije.dodaj("p", proizvod.getId(), proizvod.getVerzija()));
+        }
+        return verzije;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static String hash(String sadrzaj) {
+        try {
+            byte[] otisak = MessageDigest.getInstance("SHA-256").digest(sadrzaj.getBytes(StandardCharsets.UTF_8));
+            return "W/\"" + HEX.formatHex(otisak, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Set of entity versions, sorted so that any load order gives the same tag
+     */
+    private static final class Verzije {
+
+        private final TreeSet<String> delovi = new TreeSet<>();
+
+        private Verzije dodaj(String tip, Long id, Long verzija) {
+            delovi.add(tip + id + ":" + verzija);
+            return this;
+        }
+
+        private String etag() {
+            return hash(String.join(",", delovi));
+        }
+    }
+}
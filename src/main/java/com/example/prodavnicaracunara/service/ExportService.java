@@ -0,0 +1,137 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.dto.NarudzbaExport;
+import com.example.prodavnicaracunara.dto.PlacanjeExport;
+import com.example.prodavnicaracunara.entity.StatusNarudzbe;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streaming NDJSON export of orders and payments for reporting.
+ * <p>
+ * Rows are read from a forward-only result set as scalar projections, so nothing is attached to the
+ * persistence context, and every record is written to the response as soon as it is complete. The fetch
+ * size {@code app.streaming.fetch-size} is set on the export queries only; on MySQL it is
+ * {@link Integer#MIN_VALUE}, which makes the driver stream rows instead of reading the whole result set.
+ * Memory use does not depend on the number of exported rows.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportService.class);
+
+    // One row per order line, ordered by order ID
+    private static final String NARUDZBE_JPQL = "SELECT n.id, n.brojNarudzbe, n.kupac.id, n.ukupnaCena, n.status, n.datumKreiranja, p.id " +
+            "FROM Narudzba n LEFT JOIN n.proizvodi p ORDER BY n.id";
+
+    private static final String PLACANJA_JPQL = "SELECT new com.example.prodavnicaracunara.dto.PlacanjeExport(" +
+            "p.id, n.id, n.ukupnaCena, p.nacinPlacanja, p.status, p.datum) FROM Placanje p JOIN p.narudzba n ORDER BY p.id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.streaming.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * Writes every order as one JSON line, returns the number of exported orders
+     */
+    public long exportNarudzbe(OutputStream out) throws IOException {
+        logger.info("Exporting orders");
+        long broj = 0;
+        try (Stream<Object[]> redovi = stream(NARUDZBE_JPQL, Object[].class);
+             JsonGenerator generator = createGenerator(out)) {
+            ObjectWriter writer = lineWriter();
+            NarudzbaExport trenutna = null;
+
+            // One row per order line, lines of an order are consecutive because rows are ordered by order ID
+            Iterator<Object[]> iterator = redovi.iterator();
+            while (iterator.hasNext()) {
+                Object[] red = iterator.next();
+                Long id = (Long) red[0];
+                if (trenutna == null || !trenutna.getId().equals(id)) {
+                    if (trenutna != null) {
+                        writeLine(generator, writer, trenutna);
+                        broj++;
+                    }
+                    trenutna = new NarudzbaExport(id, (String) red[1], (Long) red[2], (BigDecimal) red[3],
+                            (StatusNarudzbe) red[4], (LocalDateTime) red[5]);
+                }
+                if (red[6] != null) {
+                    trenutna.getProizvodIds().add((Long) red[6]);
+                }
+            }
+            if (trenutna != null) {
+                writeLine(generator, writer, trenutna);
+                broj++;
+            }
+        }
+        logger.info("Exported {} orders", broj);
+        return broj;
+    }
+
+    /**
+     * Writes every payment as one JSON line, returns the number of exported payments
+     */
+    public long exportPlacanja(OutputStream out) throws IOException {
+        logger.info("Exporting payments");
+        long broj = 0;
+        try (Stream<PlacanjeExport> placanja = stream(PLACANJA_JPQL, PlacanjeExport.class);
+             JsonGenerator generator = createGenerator(out)) {
+            ObjectWriter writer = lineWriter();
+            Iterator<PlacanjeExport> iterator = placanja.iterator();
+            while (iterator.hasNext()) {
+                writeLine(generator, writer, iterator.next());
+                broj++;
+            }
+        }
+        logger.info("Exported {} payments", broj);
+        return broj;
+    }
+
+    private <T> Stream<T> stream(String jpql, Class<T> tip) {
+        return entityManager.createQuery(jpql, tip)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream();
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        // The servlet container owns the response stream, lines are separated explicitly
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+
+    private ObjectWriter lineWriter() {
+        // Let the generator buffer fill up instead of flushing the response after every line
+        return objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    private static void writeLine(JsonGenerator generator, ObjectWriter writer, Object zapis) throws IOException {
+        writer.writeValue(generator, zapis);
+        generator.writeRaw('\n');
+    }
+}
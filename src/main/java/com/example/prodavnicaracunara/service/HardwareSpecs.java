@@ -0,0 +1,132 @@
+package com.example.prodavnicaracunara.service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Structured attributes parsed from the free-text CPU, RAM and GPU of a product.
+ * An attribute that cannot be recognized is {@code null}.
+ */
+public final class HardwareSpecs {
+
+    private static final Pattern GB = Pattern.compile("(\\d{1,4})\\s*GB", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern JEZGRA = Pattern.compile(
+            "(\\d{1,3})\\s*-?\\s*(?:cores?|jezgr[oa]|jezgara)\\b|\\b(\\d{1,3})C/\\d{1,3}T\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern JEZGRA_RECIMA = Pattern.compile("\\b(dual|quad|hexa|octa)[\\s-]?core\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Map<String, Integer> BROJ_JEZGARA = Map.of("dual", 2, "quad", 4, "hexa", 6, "octa", 8);
+
+    // The first matching pattern names the vendor
+    private static final List<Map.Entry<Pattern, String>> CPU_PROIZVODJACI = List.of(
+            Map.entry(Pattern.compile("intel|\\bcore\\s*(?:i[3579]|ultra)\\b|\\bi[3579]-|celeron|pentium|xeon"), "INTEL"),
+            Map.entry(Pattern.compile("\\bamd\\b|ryzen|threadripper|athlon"), "AMD"),
+            Map.entry(Pattern.compile("apple|\\bm[1-4](?:\\s*(?:pro|max|ultra))?\\b"), "APPLE"),
+            Map.entry(Pattern.compile("qualcomm|snapdragon"), "QUALCOMM"));
+
+    private static final List<Map.Entry<Pattern, String>> GPU_PROIZVODJACI = List.of(
+            Map.entry(Pattern.compile("nvidia|geforce|\\brtx|\\bgtx|quadro"), "NVIDIA"),
+            Map.entry(Pattern.compile("radeon|\\bamd\\b"), "AMD"),
+            Map.entry(Pattern.compile("intel|\\biris|\\buhd\\b|\\barc\\b"), "INTEL"),
+            Map.entry(Pattern.compile("apple|\\bm[1-4]\\b"), "APPLE"));
+
+    private static final Pattern GPU_SERIJA = Pattern.compile("\\b(RTX|GTX|MX|RX|ARC|IRIS|UHD|QUADRO)\\b", Pattern.CASE_INSENSITIVE);
+
+    private final Integer ramGb;
+    private final String cpuProizvodjac;
+    private final Integer cpuJezgra;
+    private final String gpuProizvodjac;
+    private final String gpuSerija;
+    private final Integer vramGb;
+
+    private HardwareSpecs(Integer ramGb, String cpuProizvodjac, Integer cpuJezgra,
+                          String gpuProizvodjac, String gpuSerija, Integer vramGb) {
+        this.ramGb = ramGb;
+        this.cpuProizvodjac = cpuProizvodjac;
+        this.cpuJezgra = cpuJezgra;
+        this.gpuProizvodjac = gpuProizvodjac;
+        this.gpuSerija = gpuSerija;
+        this.vramGb = vramGb;
+    }
+
+    /**
+     * Parses the spec columns of a product, any of them may be {@code null}
+     */
+    public static HardwareSpecs parse(String cpu, String ram, String gpu) {
+        return new HardwareSpecs(
+                firstNumber(GB, ram),
+                vendor(CPU_PROIZVODJACI, cpu),
+                cores(cpu),
+                vendor(GPU_PROIZVODJACI, gpu),
+                series(gpu),
+                firstNumber(GB, gpu));
+    }
+
+    private static Integer firstNumber(Pattern pattern, String tekst) {
+        if (tekst == null) {
+            return null;
+        }
+        Matcher matcher = pattern.matcher(tekst);
+        return matcher.find() ? Integer.valueOf(matcher.group(1)) : null;
+    }
+
+    private static Integer cores(String cpu) {
+        if (cpu == null) {
+            return null;
+        }
+        Matcher matcher = JEZGRA.matcher(cpu);
+        if (matcher.find()) {
+            return Integer.valueOf(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+        }
+        matcher = JEZGRA_RECIMA.matcher(cpu);
+        return matcher.find() ? BROJ_JEZGARA.get(matcher.group(1).toLowerCase(Locale.ROOT)) : null;
+    }
+
+    private static String vendor(List<Map.Entry<Pattern, String>> proizvodjaci, String tekst) {
+        if (tekst == null) {
+            return null;
+        }
+        String malo = tekst.toLowerCase(Locale.ROOT);
+        return proizvodjaci.stream()
+                .filter(proizvodjac -> proizvodjac.getKey().matcher(malo).find())
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static String series(String gpu) {
+        if (gpu == null) {
+            return null;
+        }
+        Matcher matcher = GPU_SERIJA.matcher(gpu);
+        return matcher.find() ? matcher.group(1).toUpperCase(Locale.ROOT) : null;
+    }
+
+    public Integer getRamGb() {
+        return ramGb;
+    }
+
+    public String getCpuProizvodjac() {
+        return cpuProizvodjac;
+    }
+
+    public Integer getCpuJezgra() {
+        return cpuJezgra;
+    }
+
+    public String getGpuProizvodjac() {
+        return gpuProizvodjac;
+    }
+
+    public String getGpuSerija() {
+        return gpuSerija;
+    }
+
+    public Integer getVramGb() {
+        return vramGb;
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.prodavnicaracunara.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs requests sent with an {@code Idempotency-Key} header once and answers their retries with the stored response.
+ * <p>
+ * Responses are kept for {@code app.idempotency.ttl-ms} in a bounded in-memory cache and in the
+ * {@code idempotentni_zahtevi} table, written in the transaction of the request itself: a request either commits
+ * together with its stored response or leaves nothing behind. A retry found in memory is answered without any query,
+ * one found only in the table (after a restart, an eviction or on another instance) with a single read of it.
+ * A duplicate that arrives while the first request is still running waits for its result instead of running again;
+ * if it reaches another instance and both run, the second one fails on the key and is rolled back.
+ * <p>
+ * Only successful responses are stored, with their status, body and the headers that describe the result
+ * ({@code ETag}, {@code Location}); a failed request can be retried with the same key. A key reused for a different
+ * request is rejected.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private static final int MAX_KLJUC = 255;
+
+    // Headers replayed with the stored body, the rest are written again for the retry
+    private static final List<String> ZAGLAVLJA = List.of(HttpHeaders.ETAG, HttpHeaders.LOCATION);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.idempotency.max-size:10000}")
+    private long maxOdgovora;
+
+    @Value("${app.idempotency.ttl-ms:86400000}")
+    private long ttlMs;
+
+    // Completed responses and requests still running, keyed by Idempotency-Key
+    private Cache<String, CompletableFuture<Odgovor>> odgovori;
+
+    @PostConstruct
+    public void init() {
+        odgovori = Caffeine.newBuilder()
+                .maximumSize(maxOdgovora)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, odgovori, "idempotency");
+    }
+
+    /**
+     * Runs {@code akcija} in a transaction and stores its response under {@code kljuc}, or returns the response stored
+     * for it. {@code zahtev} describes the request (method, path and parameters) so that a key is not reused for
+     * another one. Without a key the action just runs.
+     */
+    public ResponseEntity<?> execute(String kljuc, String zahtev, Supplier<ResponseEntity<?>> akcija) {
+        return await(executeAsync(kljuc, zahtev, () -> CompletableFuture.completedFuture(akcija)));
+    }
+
+    /**
+     * Like {@link #execute}, for a request that first waits for something outside the database (a payment gateway):
+     * {@code akcija} starts that wait without a transaction and completes with the part that writes the response,
+     * which runs in the transaction that stores it. A duplicate of a running request waits without blocking a thread.
+     */
+    public CompletableFuture<ResponseEntity<?>> executeAsync(String kljuc, String zahtev,
+                                                             Supplier<CompletableFuture<Supplier<ResponseEntity<?>>>> akcija) {
+        if (kljuc == null) {
+            return akcija.get().thenApply(Supplier::get);
+        }
+        if (kljuc.isBlank() || kljuc.length() > MAX_KLJUC) {
+            throw new IllegalArgumentException(HEADER + " must have between 1 and " + MAX_KLJUC + " characters");
+        }
+        String otisak = sha256(zahtev);
+
+        CompletableFuture<Odgovor> moj = new CompletableFuture<>();
+        CompletableFuture<Odgovor> prethodni = odgovori.asMap().putIfAbsent(kljuc, moj);
+        if (prethodni != null) {
+            // Finished already or still running, either way its result is the answer
+            return prethodni.thenApply(odgovor -> replay(odgovor, otisak));
+        }
+
+        CompletableFuture<ResponseEntity<?>> rezultat;
+        try {
+            Odgovor sacuvan = find(kljuc);
+            if (sacuvan != null) {
+                moj.complete(sacuvan);
+                return CompletableFuture.completedFuture(replay(sacuvan, otisak));
+            }
+            rezultat = akcija.get().thenApply(zavrsetak -> run(kljuc, otisak, zavrsetak, moj));
+        } catch (RuntimeException e) {
+            rezultat = CompletableFuture.failedFuture(e);
+        }
+        return rezultat.whenComplete((odgovor, greska) -> {
+            if (greska != null) {
+                // Waiting duplicates fail the same way, a later retry runs again
+                odgovori.asMap().remove(kljuc, moj);
+                moj.completeExceptionally(unwrap(greska));
+            }
+        });
+    }
+
+    /**
+     * Deletes stored responses whose window has passed
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        int obrisano = jdbcTemplate.update("DELETE FROM idempotentni_zahtevi WHERE istice <= ?", LocalDateTime.now());
+        if (obrisano > 0) {
+            logger.debug("Deleted {} expired idempotency keys", obrisano);
+        }
+    }
+
+    private ResponseEntity<?> run(String kljuc, String otisak, Supplier<ResponseEntity<?>> akcija, CompletableFuture<Odgovor> moj) {
+        ResponseEntity<?>[] original = new ResponseEntity<?>[1];
+        Odgovor odgovor;
+        try {
+            odgovor = new TransactionTemplate(transactionManager).execute(status -> {
+                original[0] = akcija.get();
+                // Serialized while the transaction is open, lazy associations read the same as in the response
+                String telo = toJson(original[0].getBody());
+                HttpHeaders zaglavlja = stored(original[0].getHeaders());
+                LocalDateTime sada = LocalDateTime.now();
+                jdbcTemplate.update("DELETE FROM idempotentni_zahtevi WHERE kljuc = ? AND istice <= ?", kljuc, sada);
+                jdbcTemplate.update("INSERT INTO idempotentni_zahtevi (kljuc, otisak, status, zaglavlja, telo, kreirano, istice) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                        kljuc, otisak, original[0].getStatusCode().value(), toJson(zaglavlja), telo, sada, sada.plusNanos(ttlMs * 1_000_000));
+                return new Odgovor(otisak, original[0].getStatusCode().value(), zaglavlja, readJson(telo));
+            });
+        } catch (RuntimeException e) {
+            // A duplicate sent to another instance may have committed first, its response stands
+            Odgovor drugi = find(kljuc);
+            if (drugi == null) {
+                throw e;
+            }
+            logger.info("Request with idempotency key {} was completed concurrently, replaying: {}", kljuc, e.getMessage());
+            moj.complete(drugi);
+            return replay(drugi, otisak);
+        }
+        moj.complete(odgovor);
+        return original[0];
+    }
+
+    private Odgovor find(String kljuc) {
+        List<Odgovor> sacuvani = jdbcTemplate.query(
+                "SELECT otisak, status, zaglavlja, telo FROM idempotentni_zahtevi WHERE kljuc = ? AND istice > ?",
+                (rs, i) -> new Odgovor(rs.getString("otisak"), rs.getInt("status"), readHeaders(rs.getString("zaglavlja")),
+                        readJson(rs.getString("telo"))),
+                kljuc, LocalDateTime.now());
+        return sacuvani.isEmpty() ? null : sacuvani.get(0);
+    }
+
+    private static ResponseEntity<?> replay(Odgovor odgovor, String otisak) {
+        if (!odgovor.otisak.equals(otisak)) {
+            throw new IllegalArgumentException(HEADER + " was already used for a different request");
+        }
+        // The stored JSON tree is written in whatever format the client accepts
+        return ResponseEntity.status(odgovor.status).headers(odgovor.zaglavlja).header(REPLAYED_HEADER, "true").body(odgovor.telo);
+    }
+
+    private static HttpHeaders stored(HttpHeaders zaglavlja) {
+        HttpHeaders sacuvana = new HttpHeaders();
+        for (String ime : ZAGLAVLJA) {
+            List<String> vrednosti = zaglavlja.get(ime);
+            if (vrednosti != null) {
+                sacuvana.put(ime, vrednosti);
+            }
+        }
+        return sacuvana;
+    }
+
+    private static <T> T await(CompletableFuture<T> odgovor) {
+        try {
+            return odgovor.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException uzrok) {
+                throw uzrok;
+            }
+            throw e;
+        }
+    }
+
+    private static Throwable unwrap(Throwable greska) {
+        return greska instanceof CompletionException && greska.getCause() != null ? greska.getCause() : greska;
+    }
+
+    private String toJson(Object telo) {
+        try {
+            return objectMapper.writeValueAsString(telo);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response could not be stored: " + e.getMessage(), e);
+        }
+    }
+
+    private JsonNode readJson(String telo) {
+        try {
+            // Prices stay exact when the tree is written again
+            return objectMapper.reader().with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS).readTree(telo);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response could not be read: " + e.getMessage(), e);
+        }
+    }
+
+    private HttpHeaders readHeaders(String zaglavlja) {
+        HttpHeaders procitana = new HttpHeaders();
+        if (zaglavlja == null) {
+            // Stored before headers were kept
+            return procitana;
+        }
+        try {
+            procitana.putAll(objectMapper.readValue(zaglavlja, new TypeReference<Map<String, List<String>>>() {}));
+            return procitana;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response headers could not be read: " + e.getMessage(), e);
+        }
+    }
+
+    private static String sha256(String zahtev) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(zahtev.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Response stored for a key, with the fingerprint of its request
+     */
+    private static final class Odgovor {
+
+        private final String otisak;
+        private final int status;
+        private final HttpHeaders zaglavlja;
+        private final JsonNode telo;
+
+        private Odgovor(String otisak, int status, HttpHeaders zaglavlja, JsonNode telo) {
+            this.otisak = otisak;
+            this.status = status;
+            this.zaglavlja = zaglavlja;
+            this.telo = telo;
+        }
+    }
+}
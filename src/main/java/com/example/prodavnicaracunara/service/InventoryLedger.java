@@ -0,0 +1,227 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.exception.InsufficientStockException;
+import com.example.prodavnicaracunara.exception.ResourceNotFoundException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory inventory ledger, enabled with {@code app.inventory.mode=ledger}.
+ * <p>
+ * Available quantity of every product is kept in a CAS counter, so reservations never
+ * touch the {@code proizvodi} rows and hot products stop serializing checkouts on row locks.
+ * Changes are recorded as net deltas once the reserving transaction commits, and a
+ * scheduled flush writes them back with one batched {@code kolicinaustanju + ?} update.
+ * Counters are rebuilt from the table on startup.
+ * <p>
+ * The ledger assumes this instance is the only writer of stock for the products it serves
+ * (for example a dedicated checkout node). Catalog reads see table values, which lag the
+ * counters by at most one flush interval.
+ */
+@Component
+@ConditionalOnProperty(name = "app.inventory.mode", havingValue = "ledger")
+public class InventoryLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryLedger.class);
+
+    private static final String LOAD_ALL_SQL = "SELECT id, kolicinaustanju FROM proizvodi";
+    private static final String LOAD_ONE_SQL = "SELECT kolicinaustanju FROM proizvodi WHERE id = ?";
+    private static final String FLUSH_SQL = "UPDATE proizvodi SET kolicinaustanju = kolicinaustanju + ?, verzija = verzija + 1 WHERE id = ?";
+
+    // Available quantity including reservations that are not committed yet
+    private final ConcurrentHashMap<Long, AtomicInteger> dostupno = new ConcurrentHashMap<>();
+
+    // Committed changes that are not written to the table yet
+    private final ConcurrentHashMap<Long, AtomicInteger> nezapisano = new ConcurrentHashMap<>();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ProizvodCache proizvodCache;
+
+    @Autowired
+    private StockCacheLocks stockCacheLocks;
+
+    /**
+     * Rebuilds all counters from the proizvodi table
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        logger.info("Rebuilding inventory ledger from proizvodi table");
+        jdbcTemplate.query(LOAD_ALL_SQL, rs -> {
+            dostupno.putIfAbsent(rs.getLong("id"), new AtomicInteger(rs.getInt("kolicinaustanju")));
+        });
+        logger.info("Inventory ledger loaded with {} products", dostupno.size());
+    }
+
+    /**
+     * Reserves all lines (product ID -> quantity, ascending IDs) or none of them
+     */
+    public void reserve(Map<Long, Integer> kolicine) {
+        Map<Long, Integer> rezervisano = new LinkedHashMap<>();
+        Map<Long, Integer> nedostaje = new LinkedHashMap<>();
+        Map<Long, Integer> naStanju = new LinkedHashMap<>();
+
+        for (Map.Entry<Long, Integer> stavka : kolicine.entrySet()) {
+            AtomicInteger brojac = counter(stavka.getKey());
+            int kolicina = stavka.getValue();
+            int trenutno;
+            do {
+                trenutno = brojac.get();
+            } while (trenutno >= kolicina && !brojac.compareAndSet(trenutno, trenutno - kolicina));
+
+            if (trenutno >= kolicina) {
+                rezervisano.put(stavka.getKey(), kolicina);
+            } else {
+                nedostaje.put(stavka.getKey(), kolicina);
+                naStanju.put(stavka.getKey(), trenutno);
+            }
+        }
+
+        if (!nedostaje.isEmpty()) {
+            rezervisano.forEach((id, kolicina) -> counter(id).addAndGet(kolicina));
+            throw new InsufficientStockException(nedostaje, naStanju);
+        }
+
+        rezervisano.replaceAll((id, kolicina) -> -kolicina);
+        recordOnCompletion(rezervisano);
+    }
+
+    /**
+     * Returns stock to the ledger (product ID -> quantity)
+     */
+    public void release(Map<Long, Integer> kolicine) {
+        kolicine.forEach((id, kolicina) -> counter(id).addAndGet(kolicina));
+        recordOnCompletion(kolicine);
+    }
+
+    /**
+     * Sets the available quantity of a product, recorded as a delta against the ledger
+     */
+    public void adjustTo(Long id, int kolicina) {
+        AtomicInteger brojac = counter(id);
+        int trenutno;
+        do {
+            trenutno = brojac.get();
+        } while (!brojac.compareAndSet(trenutno, kolicina));
+        recordOnCompletion(Map.of(id, kolicina - trenutno));
+    }
+
+    /**
+     * Returns the currently available quantity of a product
+     */
+    public int available(Long id) {
+        return counter(id).get();
+    }
+
+    /**
+     * Forgets a deleted product once the deleting transaction commits
+     */
+    public void remove(Long id) {
+        AfterCommit.run(() -> {
+            dostupno.remove(id);
+            nezapisano.remove(id);
+        });
+    }
+
+    /**
+     * Writes committed deltas to the proizvodi table in one batch
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.ledger.flush-interval-ms:1000}")
+    public void flush() {
+        List<Object[]> promene = new ArrayList<>();
+        nezapisano.forEach((id, delta) -> {
+            int vrednost = delta.getAndSet(0);
+            if (vrednost != 0) {
+                promene.add(new Object[]{vrednost, id});
+            }
+        });
+        if (promene.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Long> ids = promene.stream().map(p -> (Long) p[1]).toList();
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(FLUSH_SQL, promene);
+                stockCacheLocks.lock(ids);
+            });
+            // The catalog shows table values, cached entries of flushed products are out of date now
+            proizvodCache.evictStock(ids);
+            logger.debug("Flushed stock deltas for {} products", promene.size());
+        } catch (RuntimeException e) {
+            // Keep the deltas for the next flush
+            promene.forEach(p -> pending((Long) p[1]).addAndGet((Integer) p[0]));
+            logger.error("Error occurred while flushing inventory ledger: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        logger.info("Flushing inventory ledger before shutdown");
+        flush();
+    }
+
+    private AtomicInteger counter(Long id) {
+        return dostupno.computeIfAbsent(id, this::load);
+    }
+
+    private AtomicInteger pending(Long id) {
+        return nezapisano.computeIfAbsent(id, key -> new AtomicInteger());
+    }
+
+    private AtomicInteger load(Long id) {
+        try {
+            return new AtomicInteger(jdbcTemplate.queryForObject(LOAD_ONE_SQL, Integer.class, id));
+        } catch (EmptyResultDataAccessException e) {
+            throw new ResourceNotFoundException("Proizvod with ID " + id + " not found");
+        }
+    }
+
+    private void recordOnCompletion(Map<Long, Integer> delte) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            delte.forEach((id, delta) -> pending(id).addAndGet(delta));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    delte.forEach((id, delta) -> pending(id).addAndGet(delta));
+                } else {
+                    // Undo the counter change made for the rolled back transaction
+                    delte.forEach((id, delta) -> {
+                        AtomicInteger brojac = dostupno.get(id);
+                        if (brojac != null) {
+                            brojac.addAndGet(-delta);
+                        }
+                    });
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.dto.CursorPage;
+import com.example.prodavnicaracunara.entity.Kupac;
+import com.example.prodavnicaracunara.event.KupacChangedEvent;
+import com.example.prodavnicaracunara.repository.KupacRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.ngram.NGramTokenizer;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-memory trigram index of customers (Lucene) for call-center lookups.
+ * <p>
+ * Every searchable field is indexed twice: as overlapping three-letter grams of the whole value and as words,
+ * both lower-cased and folded to ASCII. A customer matches a field when at least
+ * {@code app.kupci.search.min-similarity} of the search text's trigrams occur in it, which finds any substring
+ * and tolerates some typos, or when every search word is within a few edits of a word of the field (none up to
+ * three letters, one up to six, two beyond), which catches swapped and mistyped letters in short names.
+ * Hits are ranked by the number of matched grams and words, equal scores by customer ID.
+ * <p>
+ * Phone numbers are indexed and searched by their digits only. The index is rebuilt on startup and updated from
+ * {@link KupacChangedEvent} after commit.
+ */
+@Component
+public class KupacSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(KupacSearchIndex.class);
+
+    // Suffix of the word field indexed next to each trigram field
+    private static final String RECI = "_reci";
+
+    private static final int DUZINA_GRAMA = 3;
+
+    /**
+     * Searchable customer fields
+     */
+    public enum Polje {
+
+        IME("ime", KupacChangedEvent::getIme),
+        PREZIME("prezime", KupacChangedEvent::getPrezime),
+        PUNO_IME("punoIme", kupac -> kupac.getIme() + " " + kupac.getPrezime()),
+        EMAIL("email", KupacChangedEvent::getEmail),
+        TELEFON("telefon", kupac -> digits(kupac.getTelefon())),
+        ADRESA("adresa", KupacChangedEvent::getAdresa);
+
+        private final String naziv;
+        private final Function<KupacChangedEvent, String> vrednost;
+
+        Polje(String naziv, Function<KupacChangedEvent, String> vrednost) {
+            this.naziv = naziv;
+            this.vrednost = vrednost;
+        }
+    }
+
+    @Autowired
+    private KupacRepository kupacRepository;
+
+    @Value("${app.search.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    @Value("${app.kupci.search.min-similarity:0.6}")
+    private double minSlicnost;
+
+    private final Analyzer analyzer = createAnalyzer();
+
+    private LuceneIndex index;
+
+    @PostConstruct
+    public void init() throws IOException {
+        index = new LuceneIndex(analyzer, "kupci");
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        index.close();
+    }
+
+    /**
+     * Indexes all customers on startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Replaces the index with the current customers
+     */
+    public void rebuild() {
+        long pocetak = System.currentTimeMillis();
+        long broj = index.rebuild(rebuildBatchSize, kupacRepository::findByIdGreaterThanOrderByIdAsc,
+                Kupac::getId, kupac -> document(KupacChangedEvent.saved(kupac)));
+        logger.info("Customer search index rebuilt with {} customers in {} ms", broj, System.currentTimeMillis() - pocetak);
+    }
+
+    /**
+     * Updates the customer in the index once its change is committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKupacChanged(KupacChangedEvent event) {
+        if (event.isObrisan()) {
+            index.delete(event.getKupacId());
+        } else {
+            index.update(event.getKupacId(), document(event));
+        }
+    }
+
+    /**
+     * Returns IDs of customers matching the text in any of the given fields, best match first
+     */
+    public CursorPage<Long> search(String tekst, Collection<Polje> polja, String kursor, int velicina) {
+        return index.search(query(tekst == null ? "" : tekst, polja), kursor, velicina);
+    }
+
+    private Query query(String tekst, Collection<Polje> polja) {
+        BooleanQuery.Builder upit = new BooleanQuery.Builder();
+        boolean postojiUslov = false;
+        for (Polje polje : polja) {
+            String vrednost = polje == Polje.TELEFON ? digits(tekst) : tekst;
+            List<String> grami = analyze(polje.naziv, vrednost);
+            if (grami.isEmpty()) {
+                // Too short for this field, a phone search without three digits skips phones
+                continue;
+            }
+            upit.add(trigramQuery(polje.naziv, grami), BooleanClause.Occur.SHOULD);
+            if (polje != Polje.TELEFON) {
+                upit.add(wordQuery(polje.naziv + RECI, analyze(polje.naziv + RECI, vrednost)), BooleanClause.Occur.SHOULD);
+            }
+            postojiUslov = true;
+        }
+        if (!postojiUslov) {
+            throw new IllegalArgumentException("Search text must have at least " + DUZINA_GRAMA + " characters");
+        }
+        return upit.build();
+    }
+
+    private Query trigramQuery(String polje, List<String> grami) {
+        BooleanQuery.Builder upit = new BooleanQuery.Builder();
+        // Every matched gram scores 1, however common it is
+        grami.forEach(gram -> upit.add(new ConstantScoreQuery(new TermQuery(new Term(polje, gram))), BooleanClause.Occur.SHOULD));
+        upit.setMinimumNumberShouldMatch((int) Math.ceil(grami.size() * minSlicnost));
+        return upit.build();
+    }
+
+    private static Query wordQuery(String polje, List<String> reci) {
+        BooleanQuery.Builder upit = new BooleanQuery.Builder();
+        for (String rec : reci) {
+            int izmene = rec.length() <= DUZINA_GRAMA ? 0 : rec.length() <= 6 ? 1 : 2;
+            Query uslov = izmene == 0 ? new TermQuery(new Term(polje, rec)) : new FuzzyQuery(new Term(polje, rec), izmene);
+            upit.add(new ConstantScoreQuery(uslov), BooleanClause.Occur.MUST);
+        }
+        return upit.build();
+    }
+
+    private List<String> analyze(String polje, String tekst) {
+        // Distinct terms, a gram repeated in the text counts once
+        LinkedHashSet<String> termini = new LinkedHashSet<>();
+        try (TokenStream tokeni = analyzer.tokenStream(polje, tekst)) {
+            CharTermAttribute termin = tokeni.addAttribute(CharTermAttribute.class);
+            tokeni.reset();
+            while (tokeni.incrementToken()) {
+                termini.add(termin.toString());
+            }
+            tokeni.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new ArrayList<>(termini);
+    }
+
+    private static Document document(KupacChangedEvent kupac) {
+        Document document = new Document();
+        for (Polje polje : Polje.values()) {
+            String vrednost = polje.vrednost.apply(kupac);
+            if (vrednost != null && !vrednost.isBlank()) {
+                document.add(new TextField(polje.naziv, vrednost, Field.Store.NO));
+                if (polje != Polje.TELEFON) {
+                    document.add(new TextField(polje.naziv + RECI, vrednost, Field.Store.NO));
+                }
+            }
+        }
+        return document;
+    }
+
+    private static String digits(String tekst) {
+        return tekst == null ? null : tekst.replaceAll("\\D", "");
+    }
+
+    // Trigram fields by default, the word analyzer for the word fields
+    private static Analyzer createAnalyzer() {
+        Analyzer grami = normalized(() -> new NGramTokenizer(DUZINA_GRAMA, DUZINA_GRAMA));
+        Analyzer reci = normalized(StandardTokenizer::new);
+        Map<String, Analyzer> poPolju = new HashMap<>();
+        for (Polje polje : Polje.values()) {
+            poPolju.put(polje.naziv + RECI, reci);
+        }
+        return new PerFieldAnalyzerWrapper(grami, poPolju);
+    }
+
+    /**
+     * Lower-cases and removes diacritics ({@code đ -> d}, {@code ć -> c}) from the tokens
+     */
+    private static Analyzer normalized(Supplier<Tokenizer> tokenizer) {
+        return new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String polje) {
+                Tokenizer izvor = tokenizer.get();
+                return new TokenStreamComponents(izvor, new ASCIIFoldingFilter(new LowerCaseFilter(izvor)));
+            }
+        };
+    }
+}
@@ -1,15 +1,26 @@
 package com.example.prodavnicaracunara.service;
 
+import com.example.prodavnicaracunara.dto.CursorPage;
+import com.example.prodavnicaracunara.dto.KupacDto;
 import com.example.prodavnicaracunara.entity.Kupac;
+import com.example.prodavnicaracunara.entity.Narudzba;
+import com.example.prodavnicaracunara.entity.Placanje;
+import com.example.prodavnicaracunara.entity.StatusPlacanja;
+import com.example.prodavnicaracunara.event.KupacChangedEvent;
 import com.example.prodavnicaracunara.exception.ResourceNotFoundException;
 import com.example.prodavnicaracunara.repository.KupacRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -20,6 +31,21 @@ public class KupacService {
     @Autowired
     private KupacRepository kupacRepository;
 
+    @Autowired
+    private CursorPagination cursorPagination;
+
+    @Autowired
+    private KupacSearchIndex kupacSearchIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private RevenueRollup revenueRollup;
+
+    @Autowired
+    private LiveStatistics liveStatistics;
+
     /**
      * Creates a new customer
      */
@@ -37,18 +63,20 @@ public class KupacService {
         }
         
         Kupac savedKupac = kupacRepository.save(kupac);
+        eventPublisher.publishEvent(KupacChangedEvent.saved(savedKupac));
         
         logger.info("Customer created successfully with ID: {}", savedKupac.getId());
         return savedKupac;
     }
 
     /**
-     * Gets all customers
+     * Gets a page of customers
      */
     @Transactional(readOnly = true)
-    public List<Kupac> getAllKupci() {
-        logger.debug("Fetching all customers");
-        return kupacRepository.findAll();
+    public CursorPage<KupacDto> getAllKupci(String kursor, Integer velicina) {
+        logger.debug("Fetching customers after cursor: {}", kursor);
+        CursorPagination.Upit upit = cursorPagination.upit(kursor, velicina);
+        return upit.page(kupacRepository.findByIdGreaterThanOrderByIdAsc(upit.getPosleId(), upit.pageable()), Kupac::getId).map(KupacDto::from);
     }
 
     /**
@@ -61,6 +89,14 @@ public class KupacService {
                 .orElseThrow(() -> new ResourceNotFoundException("Kupac with ID " + id + " not found"));
     }
 
+    /**
+     * Gets the ETag of a customer from the versions alone, {@code null} when the customer does not exist
+     */
+    @Transactional(readOnly = true)
+    public String getKupacETag(Long id) {
+        return EntityTags.fromRows(kupacRepository.findVerzijeById(id), "k", "n", "pl", "p");
+    }
+
     /**
      * Gets a customer by email
      */
@@ -72,13 +108,14 @@ public class KupacService {
     }
 
     /**
-     * Updates an existing customer
+     * Updates an existing customer, {@code ifMatch} (may be {@code null}) has to list the current ETag
      */
-    public Kupac updateKupac(Long id, Kupac kupac) {
+    public Kupac updateKupac(Long id, Kupac kupac, String ifMatch) {
         logger.info("Updating customer with ID: {}", id);
         
         Kupac existingKupac = kupacRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Kupac with ID " + id + " not found"));
+        EntityTags.requireMatch(ifMatch, () -> EntityTags.kupac(existingKupac));
 
         // Check if email is being changed and if new email already exists
         if (!existingKupac.getEmail().equals(kupac.getEmail()) && kupacRepository.existsByEmail(kupac.getEmail())) {
@@ -98,6 +135,7 @@ public class KupacService {
         existingKupac.setAdresa(kupac.getAdresa());
 
         Kupac updatedKupac = kupacRepository.save(existingKupac);
+        eventPublisher.publishEvent(KupacChangedEvent.saved(updatedKupac));
         logger.info("Customer updated successfully: {}", updatedKupac.getId());
         
         return updatedKupac;
@@ -109,47 +147,82 @@ public class KupacService {
     public void deleteKupac(Long id) {
         logger.info("Deleting customer with ID: {}", id);
         
-        if (!kupacRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Kupac with ID " + id + " not found");
-        }
+        Kupac kupac = kupacRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Kupac with ID " + id + " not found"));
         
-        kupacRepository.deleteById(id);
+        // Orders and payments are deleted with the customer (the cascade loads them anyway), and so are their revenue and counts
+        for (Narudzba narudzba : kupac.getNarudzbe()) {
+            liveStatistics.orderChanged(narudzba.getStatus(), null);
+            Placanje placanje = narudzba.getPlacanje();
+            if (placanje != null) {
+                liveStatistics.paymentDeleted(placanje);
+                if (placanje.getStatus() == StatusPlacanja.PLACENO) {
+                    revenueRollup.subtract(placanje.getDatum(), narudzba.getUkupnaCena());
+                }
+            }
+        }
+        kupacRepository.delete(kupac);
+        eventPublisher.publishEvent(KupacChangedEvent.deleted(id));
         logger.info("Customer deleted successfully: {}", id);
     }
 
     /**
-     * Searches customers by first name
+     * Searches customers by first name, tolerating typos
      */
     @Transactional(readOnly = true)
-    public List<Kupac> searchByIme(String ime) {
+    public CursorPage<KupacDto> searchByIme(String ime, String kursor, Integer velicina) {
         logger.debug("Searching customers by first name: {}", ime);
-        return kupacRepository.findByImeContainingIgnoreCase(ime);
+        return search(ime, List.of(KupacSearchIndex.Polje.IME), kursor, velicina);
     }
 
     /**
-     * Searches customers by last name
+     * Searches customers by last name, tolerating typos
      */
     @Transactional(readOnly = true)
-    public List<Kupac> searchByPrezime(String prezime) {
+    public CursorPage<KupacDto> searchByPrezime(String prezime, String kursor, Integer velicina) {
         logger.debug("Searching customers by last name: {}", prezime);
-        return kupacRepository.findByPrezimeContainingIgnoreCase(prezime);
+        return search(prezime, List.of(KupacSearchIndex.Polje.PREZIME), kursor, velicina);
     }
 
     /**
-     * Searches customers by full name
+     * Searches customers by full name, tolerating typos
      */
     @Transactional(readOnly = true)
-    public List<Kupac> searchByPunoIme(String punoIme) {
+    public CursorPage<KupacDto> searchByPunoIme(String punoIme, String kursor, Integer velicina) {
         logger.debug("Searching customers by full name: {}", punoIme);
-        return kupacRepository.findByPunoIme(punoIme);
+        return search(punoIme, List.of(KupacSearchIndex.Polje.PUNO_IME), kursor, velicina);
     }
 
     /**
-     * Searches customers by address
+     * Searches customers by address, tolerating typos
      */
     @Transactional(readOnly = true)
-    public List<Kupac> searchByAdresa(String adresa) {
+    public CursorPage<KupacDto> searchByAdresa(String adresa, String kursor, Integer velicina) {
         logger.debug("Searching customers by address: {}", adresa);
-        return kupacRepository.findByAdresaContainingIgnoreCase(adresa);
+        return search(adresa, List.of(KupacSearchIndex.Polje.ADRESA), kursor, velicina);
+    }
+
+    /**
+     * Searches customers by full name, email, phone and address at once
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<KupacDto> searchAll(String tekst, String kursor, Integer velicina) {
+        logger.debug("Searching customers: {}", tekst);
+        return search(tekst, List.of(KupacSearchIndex.Polje.PUNO_IME, KupacSearchIndex.Polje.EMAIL,
+                KupacSearchIndex.Polje.TELEFON, KupacSearchIndex.Polje.ADRESA), kursor, velicina);
+    }
+
+    // The index ranks the IDs, the customers of the page are loaded with one query
+    private CursorPage<KupacDto> search(String tekst, List<KupacSearchIndex.Polje> polja, String kursor, Integer velicina) {
+        CursorPage<Long> ids = kupacSearchIndex.search(tekst, polja, kursor, cursorPagination.velicina(velicina));
+        Map<Long, Kupac> kupci = kupacRepository.findAllById(ids.getStavke()).stream()
+                .collect(Collectors.toMap(Kupac::getId, Function.identity()));
+        // A customer deleted since the search is left out
+        List<KupacDto> stavke = ids.getStavke().stream()
+                .map(kupci::get)
+                .filter(Objects::nonNull)
+                .map(KupacDto::from)
+                .toList();
+        return new CursorPage<>(stavke, ids.getSledeciKursor());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,219 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.dto.StatistikaNacinaPlacanja;
+import com.example.prodavnicaracunara.dto.StatistikaStatusa;
+import com.example.prodavnicaracunara.entity.NacinPlacanja;
+import com.example.prodavnicaracunara.entity.Placanje;
+import com.example.prodavnicaracunara.entity.StatusNarudzbe;
+import com.example.prodavnicaracunara.entity.StatusPlacanja;
+import com.example.prodavnicaracunara.repository.NarudzbaRepository;
+import com.example.prodavnicaracunara.repository.PlacanjeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Order and payment statistics kept in memory: orders and payments per status, and number and order total of paid
+ * payments per payment method.
+ * <p>
+ * The services report every status, method and deletion change they make and the counters change once the
+ * transaction commits, so readers never scan the tables. Counters are striped ({@link LongAdder}) and money is counted
+ * in para, so concurrent orders and payments do not contend on them. Changes this instance does not see (other
+ * instances, SQL run directly against the database) and changes committed while a reconciliation runs are corrected by
+ * the periodic reconciliation against the GROUP BY queries, which also fills the counters on startup.
+ */
+@Component
+public class LiveStatistics {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveStatistics.class);
+
+    private final Map<StatusNarudzbe, LongAdder> narudzbe = counters(StatusNarudzbe.class);
+    private final Map<StatusPlacanja, LongAdder> placanja = counters(StatusPlacanja.class);
+    private final Map<NacinPlacanja, LongAdder> placenaPoNacinu = counters(NacinPlacanja.class);
+    private final Map<NacinPlacanja, LongAdder> paraPoNacinu = counters(NacinPlacanja.class);
+
+    @Autowired
+    private NarudzbaRepository narudzbaRepository;
+
+    @Autowired
+    private PlacanjeRepository placanjeRepository;
+
+    /**
+     * Orders moved from {@code stari} to {@code novi} status, {@code null} for an order created or deleted
+     */
+    public void ordersChanged(StatusNarudzbe stari, StatusNarudzbe novi, long broj) {
+        if (stari == novi || broj == 0) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            if (stari != null) {
+                narudzbe.get(stari).add(-broj);
+            }
+            if (novi != null) {
+                narudzbe.get(novi).add(broj);
+            }
+        });
+    }
+
+    /**
+     * An order moved from {@code stari} to {@code novi} status, {@code null} for an order created or deleted
+     */
+    public void orderChanged(StatusNarudzbe stari, StatusNarudzbe novi) {
+        ordersChanged(stari, novi, 1);
+    }
+
+    /**
+     * A payment was created ({@code stariStatus} is {@code null}) or its status or method changed,
+     * call it after the change with the previous values
+     */
+    public void paymentChanged(StatusPlacanja stariStatus, NacinPlacanja stariNacin, Placanje placanje) {
+        StatusPlacanja noviStatus = placanje.getStatus();
+        NacinPlacanja noviNacin = placanje.getNacinPlacanja();
+        if (stariStatus == noviStatus && stariNacin == noviNacin) {
+            return;
+        }
+        long para = stariStatus == StatusPlacanja.PLACENO || noviStatus == StatusPlacanja.PLACENO ? para(placanje) : 0;
+        AfterCommit.run(() -> {
+            if (stariStatus != null) {
+                count(stariStatus, stariNacin, 1, para, -1);
+            }
+            count(noviStatus, noviNacin, 1, para, 1);
+        });
+    }
+
+    /**
+     * {@code broj} payments of one method, with order total {@code iznos}, moved from {@code stari} to {@code novi}
+     * status together (bulk updates)
+     */
+    public void paymentsChanged(StatusPlacanja stari, StatusPlacanja novi, NacinPlacanja nacin, long broj, BigDecimal iznos) {
+        if (stari == novi || broj == 0) {
+            return;
+        }
+        long para = para(iznos);
+        AfterCommit.run(() -> {
+            count(stari, nacin, broj, para, -1);
+            count(novi, nacin, broj, para, 1);
+        });
+    }
+
+    /**
+     * A payment is deleted, directly or together with its order
+     */
+    public void paymentDeleted(Placanje placanje) {
+        StatusPlacanja status = placanje.getStatus();
+        NacinPlacanja nacin = placanje.getNacinPlacanja();
+        long para = status == StatusPlacanja.PLACENO ? para(placanje) : 0;
+        AfterCommit.run(() -> count(status, nacin, 1, para, -1));
+    }
+
+    /**
+     * Number of orders in each status
+     */
+    public List<StatistikaStatusa<StatusNarudzbe>> getOrderStatistics() {
+        return statuses(narudzbe);
+    }
+
+    /**
+     * Number of payments in each status
+     */
+    public List<StatistikaStatusa<StatusPlacanja>> getPaymentStatisticsByStatus() {
+        return statuses(placanja);
+    }
+
+    /**
+     * Number and order total of paid payments for each payment method
+     */
+    public List<StatistikaNacinaPlacanja> getPaymentStatisticsByMethod() {
+        List<StatistikaNacinaPlacanja> statistika = new ArrayList<>();
+        for (NacinPlacanja nacin : NacinPlacanja.values()) {
+            statistika.add(new StatistikaNacinaPlacanja(nacin, placenaPoNacinu.get(nacin).sum(),
+                    BigDecimal.valueOf(paraPoNacinu.get(nacin).sum(), 2)));
+        }
+        return statistika;
+    }
+
+    /**
+     * Sets the counters to the GROUP BY results, on startup and every {@code app.statistika.reconcile-interval-ms}
+     */
+    @Scheduled(fixedDelayString = "${app.statistika.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        try {
+            Map<StatusNarudzbe, Long> poStatusuNarudzbe = new EnumMap<>(StatusNarudzbe.class);
+            narudzbaRepository.getOrderStatistics().forEach(red -> poStatusuNarudzbe.put((StatusNarudzbe) red[0], (Long) red[1]));
+            Map<StatusPlacanja, Long> poStatusuPlacanja = new EnumMap<>(StatusPlacanja.class);
+            placanjeRepository.getPaymentStatisticsByStatus().forEach(red -> poStatusuPlacanja.put((StatusPlacanja) red[0], (Long) red[1]));
+            Map<NacinPlacanja, Long> brojPoNacinu = new EnumMap<>(NacinPlacanja.class);
+            Map<NacinPlacanja, Long> iznosPoNacinu = new EnumMap<>(NacinPlacanja.class);
+            placanjeRepository.getPaymentStatisticsByMethod().forEach(red -> {
+                brojPoNacinu.put((NacinPlacanja) red[0], (Long) red[1]);
+                iznosPoNacinu.put((NacinPlacanja) red[0], para((BigDecimal) red[2]));
+            });
+
+            long odstupanje = set(narudzbe, poStatusuNarudzbe) + set(placanja, poStatusuPlacanja)
+                    + set(placenaPoNacinu, brojPoNacinu) + set(paraPoNacinu, iznosPoNacinu);
+            if (odstupanje != 0) {
+                logger.debug("Statistics reconciled, {} counters corrected", odstupanje);
+            }
+        } catch (Exception e) {
+            logger.error("Statistics reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void count(StatusPlacanja status, NacinPlacanja nacin, long broj, long para, int znak) {
+        placanja.get(status).add(znak * broj);
+        if (status == StatusPlacanja.PLACENO) {
+            placenaPoNacinu.get(nacin).add(znak * broj);
+            paraPoNacinu.get(nacin).add(znak * para);
+        }
+    }
+
+    private static long para(Placanje placanje) {
+        return para(placanje.getNarudzba().getUkupnaCena());
+    }
+
+    private static long para(BigDecimal iznos) {
+        return iznos == null ? 0 : iznos.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Moves every counter to its value in the database (0 when missing), returns how many were off
+     */
+    private static <K extends Enum<K>> long set(Map<K, LongAdder> brojaci, Map<K, Long> vrednosti) {
+        long odstupanje = 0;
+        for (Map.Entry<K, LongAdder> brojac : brojaci.entrySet()) {
+            // Adding the difference keeps readers from seeing a zeroed counter
+            long razlika = vrednosti.getOrDefault(brojac.getKey(), 0L) - brojac.getValue().sum();
+            if (razlika != 0) {
+                brojac.getValue().add(razlika);
+                odstupanje++;
+            }
+        }
+        return odstupanje;
+    }
+
+    private static <S extends Enum<S>> List<StatistikaStatusa<S>> statuses(Map<S, LongAdder> brojaci) {
+        List<StatistikaStatusa<S>> statistika = new ArrayList<>();
+        brojaci.forEach((status, brojac) -> statistika.add(new StatistikaStatusa<>(status, brojac.sum())));
+        return statistika;
+    }
+
+    private static <K extends Enum<K>> Map<K, LongAdder> counters(Class<K> tip) {
+        Map<K, LongAdder> brojaci = new EnumMap<>(tip);
+        for (K kljuc : tip.getEnumConstants()) {
+            brojaci.put(kljuc, new LongAdder());
+        }
+        // Filled once, read concurrently
+        return Collections.unmodifiableMap(brojaci);
+    }
+}
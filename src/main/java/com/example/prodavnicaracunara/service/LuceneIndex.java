@@ -0,0 +1,134 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.dto.CursorPage;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * In-memory Lucene index of entities keyed by ID, the part shared by the search indexes.
+ * <p>
+ * Documents are built by the owning index; this class adds the ID fields, keeps the writer and the searcher
+ * and pages hits with {@link RelevancePaging}. Rebuilds and single-entity updates are serialized, so a rebuild
+ * cannot overwrite a newer change with a row it read before it. Searches see the old index until a rebuild is done.
+ */
+final class LuceneIndex implements AutoCloseable {
+
+    private static final String ID = "id";
+    private static final String ID_SORT = "id_sort";
+
+    private final ByteBuffersDirectory directory = new ByteBuffersDirectory();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final RelevancePaging paging;
+
+    /**
+     * @param analyzer      analyzer of the document fields
+     * @param kursorPrefiks cursor prefix, tells cursors of different indexes apart
+     */
+    LuceneIndex(Analyzer analyzer, String kursorPrefiks) throws IOException {
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+        this.searcherManager = new SearcherManager(writer, null);
+        this.paging = new RelevancePaging(kursorPrefiks, ID_SORT);
+    }
+
+    /**
+     * Replaces the index with all entities, read in ID order in batches of the given size; returns their number
+     */
+    synchronized <T> long rebuild(int velicinaSerije, BiFunction<Long, Pageable, List<T>> serija,
+                                  ToLongFunction<T> id, Function<T, Document> dokument) {
+        long broj = 0;
+        try {
+            writer.deleteAll();
+            long posleId = 0;
+            List<T> entiteti;
+            do {
+                entiteti = serija.apply(posleId, PageRequest.of(0, velicinaSerije));
+                for (T entitet : entiteti) {
+                    posleId = id.applyAsLong(entitet);
+                    writer.updateDocument(idTerm(posleId), withId(posleId, dokument.apply(entitet)));
+                }
+                broj += entiteti.size();
+            } while (entiteti.size() == velicinaSerije);
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return broj;
+    }
+
+    /**
+     * Adds or replaces the document of an entity
+     */
+    synchronized void update(long id, Document dokument) {
+        try {
+            writer.updateDocument(idTerm(id), withId(id, dokument));
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Removes the document of an entity
+     */
+    synchronized void delete(long id) {
+        try {
+            writer.deleteDocuments(idTerm(id));
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns IDs of one page of hits after the cursor, most relevant first
+     */
+    CursorPage<Long> search(Query upit, String kursor, int velicina) {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                return paging.search(searcher, upit, kursor, velicina);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    private static Term idTerm(long id) {
+        return new Term(ID, Long.toString(id));
+    }
+
+    private static Document withId(long id, Document dokument) {
+        dokument.add(new StringField(ID, Long.toString(id), Field.Store.NO));
+        dokument.add(new NumericDocValuesField(ID_SORT, id));
+        return dokument;
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.entity.MonitoringCvor;
+import com.example.prodavnicaracunara.entity.MonitoringParticija;
+import com.example.prodavnicaracunara.event.ParticijePreuzeteEvent;
+import com.example.prodavnicaracunara.repository.MonitoringCvorRepository;
+import com.example.prodavnicaracunara.repository.MonitoringParticijaRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits order status monitoring between instances, enabled with {@code app.narudzbe.monitoring.lease.enabled=true}.
+ * <p>
+ * Order IDs are split into {@code app.narudzbe.monitoring.partitions} partitions ({@code MOD(id, partitions)}).
+ * Every instance sends a heartbeat to {@code monitoring_cvorovi} and holds leases on its fair share of
+ * partitions in {@code monitoring_particije}, renewed every {@code lease.renew-interval-ms}. A partition is
+ * taken with a guarded UPDATE that only succeeds while it is free or its lease expired, so exactly one
+ * instance wins it. Instances above their share give partitions back, and leases of an instance that stops
+ * renewing expire after {@code lease.ttl-ms}, so partitions rebalance without an external coordinator.
+ * Renewals run on their own thread, so a long sweep or reconciliation on the shared scheduler cannot delay them
+ * past the TTL while this instance keeps working on its partitions.
+ * <p>
+ * When disabled the instance owns the whole ID space as a single partition.
+ */
+@Service
+public class MonitoringLeaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonitoringLeaseService.class);
+
+    @Autowired
+    private MonitoringParticijaRepository particijaRepository;
+
+    @Autowired
+    private MonitoringCvorRepository cvorRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.narudzbe.monitoring.lease.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.narudzbe.monitoring.partitions:16}")
+    private int brojParticija;
+
+    @Value("${app.narudzbe.monitoring.lease.ttl-ms:30000}")
+    private long ttlMs;
+
+    @Value("${app.narudzbe.monitoring.lease.renew-interval-ms:10000}")
+    private long renewIntervalMs;
+
+    private final String cvorId = UUID.randomUUID().toString();
+
+    private volatile Set<Integer> drzane = Set.of();
+
+    // Held partitions are trusted locally only until a renewal is overdue
+    private volatile long vaziDo;
+
+    private ScheduledExecutorService obnavljanje;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        createPartitions();
+        logger.info("Monitoring node {} joining with {} partitions", cvorId, brojParticija);
+        renew();
+
+        obnavljanje = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "monitoring-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        obnavljanje.scheduleWithFixedDelay(this::renew, renewIntervalMs, renewIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gives all partitions back so other instances take them over without waiting for expiry
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (obnavljanje != null) {
+            obnavljanje.shutdownNow();
+        }
+        if (!enabled || drzane.isEmpty()) {
+            return;
+        }
+        Set<Integer> vraceno = drzane;
+        drzane = Set.of();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                particijaRepository.release(vraceno, cvorId);
+                cvorRepository.deleteById(cvorId);
+            });
+            logger.info("Monitoring node {} released partitions {}", cvorId, vraceno);
+        } catch (RuntimeException e) {
+            logger.warn("Could not release monitoring partitions, they will expire: {}", e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Number of partitions the order ID space is split into
+     */
+    public int getPartitionCount() {
+        return enabled ? brojParticija : 1;
+    }
+
+    /**
+     * Partitions this instance currently monitors, empty while its leases are not confirmed
+     */
+    public Set<Integer> getOwnedPartitions() {
+        if (!enabled) {
+            return Set.of(0);
+        }
+        return System.currentTimeMillis() < vaziDo ? drzane : Set.of();
+    }
+
+    /**
+     * Whether this instance currently monitors the order with ID {@code narudzbaId}
+     */
+    public boolean owns(long narudzbaId) {
+        return !enabled || getOwnedPartitions().contains((int) (narudzbaId % brojParticija));
+    }
+
+    /**
+     * Sends a heartbeat, renews held leases and claims or gives back partitions to reach the fair share,
+     * every {@code lease.renew-interval-ms} on the lease thread
+     */
+    public synchronized void renew() {
+        if (!enabled) {
+            return;
+        }
+        long pocetak = System.currentTimeMillis();
+        // After a lapse every held partition counts as taken over, its deadlines may have been dropped meanwhile
+        Set<Integer> prethodne = getOwnedPartitions();
+        try {
+            Set<Integer> nove = new TransactionTemplate(transactionManager).execute(status -> rebalance());
+            drzane = nove;
+            vaziDo = pocetak + ttlMs - renewIntervalMs;
+
+            Set<Integer> preuzete = new TreeSet<>(nove);
+            preuzete.removeAll(prethodne);
+            if (!preuzete.isEmpty() || !prethodne.equals(nove)) {
+                logger.info("Monitoring node {} now holds partitions {}", cvorId, new TreeSet<>(nove));
+            }
+            if (!preuzete.isEmpty()) {
+                eventPublisher.publishEvent(new ParticijePreuzeteEvent(preuzete, brojParticija));
+            }
+        } catch (RuntimeException e) {
+            // Without a confirmed renewal the held partitions stop being processed once vaziDo passes
+            logger.error("Error occurred while renewing monitoring leases: {}", e.getMessage(), e);
+        }
+    }
+
+    private Set<Integer> rebalance() {
+        LocalDateTime sada = LocalDateTime.now();
+        LocalDateTime zakupDo = sada.plusNanos(ttlMs * 1_000_000);
+        LocalDateTime granica = sada.minusNanos(ttlMs * 1_000_000);
+
+        cvorRepository.save(new MonitoringCvor(cvorId, sada));
+        cvorRepository.deleteNeaktivne(granica);
+        long aktivni = Math.max(1, cvorRepository.countAktivne(granica));
+        int udeo = (int) ((brojParticija + aktivni - 1) / aktivni);
+
+        particijaRepository.renew(cvorId, zakupDo);
+        List<Integer> moje = new ArrayList<>(particijaRepository.findBrojeviByVlasnik(cvorId));
+
+        if (moje.size() > udeo) {
+            List<Integer> visak = new ArrayList<>(moje.subList(udeo, moje.size()));
+            particijaRepository.release(visak, cvorId);
+            moje.removeAll(visak);
+        } else if (moje.size() < udeo) {
+            for (Integer broj : particijaRepository.findSlobodneBrojeve(sada)) {
+                if (moje.size() >= udeo) {
+                    break;
+                }
+                if (broj < brojParticija && particijaRepository.claim(broj, cvorId, zakupDo, sada) == 1) {
+                    moje.add(broj);
+                }
+            }
+        }
+        return Set.copyOf(moje);
+    }
+
+    private void createPartitions() {
+        Set<Integer> postojece = new HashSet<>();
+        particijaRepository.findAll().forEach(p -> postojece.add(p.getBroj()));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int broj = 0; broj < brojParticija; broj++) {
+            if (postojece.contains(broj)) {
+                continue;
+            }
+            int novi = broj;
+            try {
+                // persist, not save: merging would wipe a lease taken by an instance that created the row first
+                transactionTemplate.executeWithoutResult(status -> {
+                    entityManager.persist(new MonitoringParticija(novi));
+                    entityManager.flush();
+                });
+            } catch (PersistenceException | DataIntegrityViolationException e) {
+                // Created by another instance starting at the same time
+            }
+        }
+    }
+}
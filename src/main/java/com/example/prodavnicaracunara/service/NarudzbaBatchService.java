@@ -0,0 +1,229 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.dto.BatchNarudzbaRequest;
+import com.example.prodavnicaracunara.dto.BatchNarudzbaResult;
+import com.example.prodavnicaracunara.entity.Narudzba;
+import com.example.prodavnicaracunara.entity.Proizvod;
+import com.example.prodavnicaracunara.entity.StatusNarudzbe;
+import com.example.prodavnicaracunara.event.NarudzbaStatusChangedEvent;
+import com.example.prodavnicaracunara.repository.KupacRepository;
+import com.example.prodavnicaracunara.repository.NarudzbaRepository;
+import com.example.prodavnicaracunara.repository.ProizvodRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk order ingestion.
+ * <p>
+ * Orders are processed in chunks of {@code app.narudzbe.batch.chunk-size}, each chunk in its own
+ * transaction: customers and products are validated with one set lookup each, the stock of all
+ * accepted orders is reserved in one batch and the orders are inserted with JDBC batching.
+ * An order that fails validation is reported and skipped; if the chunk itself fails (for example
+ * stock was taken by a concurrent order after validation) every order of that chunk is reported failed.
+ */
+@Service
+public class NarudzbaBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NarudzbaBatchService.class);
+
+    @Autowired
+    private NarudzbaRepository narudzbaRepository;
+
+    @Autowired
+    private KupacRepository kupacRepository;
+
+    @Autowired
+    private ProizvodRepository proizvodRepository;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private LiveStatistics liveStatistics;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.narudzbe.batch.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.narudzbe.batch.max-size:10000}")
+    private int maxSize;
+
+    /**
+     * Creates all given orders and returns one result per order, in request order
+     */
+    public List<BatchNarudzbaResult> createNarudzbe(List<BatchNarudzbaRequest> zahtevi) {
+        if (zahtevi == null || zahtevi.isEmpty()) {
+            throw new IllegalArgumentException("At least one order is required");
+        }
+        if (zahtevi.size() > maxSize) {
+            throw new IllegalArgumentException("Too many orders in one batch: " + zahtevi.size() + ", maximum is " + maxSize);
+        }
+        logger.info("Creating {} orders in chunks of {}", zahtevi.size(), chunkSize);
+
+        BatchNarudzbaResult[] rezultati = new BatchNarudzbaResult[zahtevi.size()];
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        for (int pocetak = 0; pocetak < zahtevi.size(); pocetak += chunkSize) {
+            int od = pocetak;
+            int doIndeksa = Math.min(pocetak + chunkSize, zahtevi.size());
+            try {
+                transactionTemplate.executeWithoutResult(status -> createChunk(zahtevi, od, doIndeksa, rezultati));
+            } catch (RuntimeException e) {
+                logger.error("Order chunk {}-{} failed: {}", od, doIndeksa - 1, e.getMessage());
+                for (int i = od; i < doIndeksa; i++) {
+                    if (rezultati[i] == null || rezultati[i].isUspesno()) {
+                        rezultati[i] = BatchNarudzbaResult.failure(i, "Chunk rolled back: " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        List<BatchNarudzbaResult> lista = Arrays.asList(rezultati);
+        logger.info("Bulk order creation finished, {} of {} orders created",
+                lista.stream().filter(BatchNarudzbaResult::isUspesno).count(), lista.size());
+        return lista;
+    }
+
+    private void createChunk(List<BatchNarudzbaRequest> zahtevi, int od, int doIndeksa, BatchNarudzbaResult[] rezultati) {
+        List<BatchNarudzbaRequest> chunk = zahtevi.subList(od, doIndeksa);
+
+        // Set lookups for the whole chunk
+        Set<Long> kupacIds = chunk.stream()
+                .map(BatchNarudzbaRequest::getKupacId)
+                .filter(id -> id != null)
+                .collect(Collectors.toSet());
+        Set<Long> postojeciKupci = new HashSet<>(kupacIds.isEmpty() ? List.of() : kupacRepository.findExistingIds(kupacIds));
+
+        Set<Long> proizvodIds = chunk.stream()
+                .filter(z -> z.getProizvodIds() != null)
+                .flatMap(z -> z.getProizvodIds().stream())
+                .filter(id -> id != null)
+                .collect(Collectors.toSet());
+        Map<Long, Proizvod> proizvodi = proizvodRepository.findAllById(proizvodIds).stream()
+                .collect(Collectors.toMap(Proizvod::getId, Function.identity()));
+        Map<Long, Integer> preostalo = new HashMap<>(stockReservationService.getAvailableStock(proizvodi.keySet()));
+
+        Map<Long, Integer> ukupneKolicine = new HashMap<>();
+        List<Narudzba> narudzbe = new ArrayList<>();
+        List<Integer> indeksi = new ArrayList<>();
+        LocalDateTime sada = LocalDateTime.now();
+
+        for (int i = od; i < doIndeksa; i++) {
+            BatchNarudzbaRequest zahtev = zahtevi.get(i);
+            String greska = validate(zahtev, postojeciKupci, proizvodi);
+            if (greska == null) {
+                Map<Long, Integer> kolicine = countQuantities(zahtev.getProizvodIds());
+                greska = takeStock(kolicine, preostalo);
+                if (greska == null) {
+                    kolicine.forEach((id, kolicina) -> ukupneKolicine.merge(id, kolicina, Integer::sum));
+                    narudzbe.add(buildNarudzba(zahtev, proizvodi, sada));
+                    indeksi.add(i);
+                }
+            }
+            if (greska != null) {
+                rezultati[i] = BatchNarudzbaResult.failure(i, greska);
+            }
+        }
+
+        if (narudzbe.isEmpty()) {
+            return;
+        }
+
+        stockReservationService.reserve(ukupneKolicine);
+        narudzbaRepository.saveAll(narudzbe);
+        entityManager.flush();
+        entityManager.clear();
+
+        for (int j = 0; j < narudzbe.size(); j++) {
+            Narudzba narudzba = narudzbe.get(j);
+            rezultati[indeksi.get(j)] = BatchNarudzbaResult.success(indeksi.get(j), narudzba.getId(), narudzba.getBrojNarudzbe());
+            liveStatistics.orderChanged(null, narudzba.getStatus());
+            eventPublisher.publishEvent(new NarudzbaStatusChangedEvent(
+                    narudzba.getId(), narudzba.getStatus(), narudzba.getDatumKreiranja()));
+        }
+        logger.debug("Created {} orders in chunk {}-{}", narudzbe.size(), od, doIndeksa - 1);
+    }
+
+    private String validate(BatchNarudzbaRequest zahtev, Set<Long> postojeciKupci, Map<Long, Proizvod> proizvodi) {
+        if (zahtev == null || zahtev.getKupacId() == null) {
+            return "Customer is required for order";
+        }
+        if (!postojeciKupci.contains(zahtev.getKupacId())) {
+            return "Kupac with ID " + zahtev.getKupacId() + " not found";
+        }
+        if (zahtev.getProizvodIds() == null || zahtev.getProizvodIds().isEmpty()) {
+            return "At least one product is required for order";
+        }
+        List<Long> nedostaju = zahtev.getProizvodIds().stream()
+                .filter(id -> id == null || !proizvodi.containsKey(id))
+                .distinct()
+                .collect(Collectors.toList());
+        if (!nedostaju.isEmpty()) {
+            return "Products not found: " + nedostaju;
+        }
+        return null;
+    }
+
+    private String takeStock(Map<Long, Integer> kolicine, Map<Long, Integer> preostalo) {
+        List<Long> nedostaje = kolicine.entrySet().stream()
+                .filter(e -> preostalo.getOrDefault(e.getKey(), 0) < e.getValue())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        if (!nedostaje.isEmpty()) {
+            return "Insufficient stock for products: " + nedostaje;
+        }
+        kolicine.forEach((id, kolicina) -> preostalo.merge(id, -kolicina, Integer::sum));
+        return null;
+    }
+
+    private Narudzba buildNarudzba(BatchNarudzbaRequest zahtev, Map<Long, Proizvod> proizvodi, LocalDateTime sada) {
+        List<Proizvod> stavke = zahtev.getProizvodIds().stream()
+                .map(proizvodi::get)
+                .collect(Collectors.toList());
+        BigDecimal ukupnaCena = NarudzbaService.calculateTotalPrice(stavke);
+
+        Narudzba narudzba = new Narudzba(orderNumberGenerator.nextOrderNumber(),
+                kupacRepository.getReferenceById(zahtev.getKupacId()), stavke, ukupnaCena);
+        narudzba.setStatus(StatusNarudzbe.U_OBRADI);
+        narudzba.setDatumKreiranja(sada);
+        return narudzba;
+    }
+
+    private static Map<Long, Integer> countQuantities(List<Long> proizvodIds) {
+        Map<Long, Integer> kolicine = new LinkedHashMap<>();
+        proizvodIds.forEach(id -> kolicine.merge(id, 1, Integer::sum));
+        return kolicine;
+    }
+}
@@ -1,20 +1,43 @@
 package com.example.prodavnicaracunara.service;
 
+import com.example.prodavnicaracunara.dto.CursorPage;
+import com.example.prodavnicaracunara.dto.NarudzbaDto;
+import com.example.prodavnicaracunara.dto.StatistikaStatusa;
 import com.example.prodavnicaracunara.entity.*;
+import com.example.prodavnicaracunara.event.NarudzbaStatusChangedEvent;
 import com.example.prodavnicaracunara.exception.ResourceNotFoundException;
 import com.example.prodavnicaracunara.repository.KupacRepository;
 import com.example.prodavnicaracunara.repository.NarudzbaRepository;
-import com.example.prodavnicaracunara.repository.ProizvodRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,20 +48,61 @@ public class NarudzbaService {
 
     @Autowired
     private NarudzbaRepository narudzbaRepository;
+
+    @Autowired
+    private CursorPagination cursorPagination;
     
     @Autowired
     private KupacRepository kupacRepository;
     
     @Autowired
-    private ProizvodRepository proizvodRepository;
+    private StockReservationService stockReservationService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Value("${app.narudzbe.monitoring.processing-delay-ms:300000}")
+    private long processingDelayMs;
+    
+    @Value("${app.narudzbe.monitoring.delivery-delay-ms:600000}")
+    private long deliveryDelayMs;
+    
+    @Value("${app.narudzbe.monitoring.batch-size:500}")
+    private int sweepChunkSize;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
     
     @Autowired
-    private ProizvodService proizvodService;
+    private MonitoringLeaseService monitoringLeaseService;
+    
+    @Autowired
+    private RevenueRollup revenueRollup;
+    
+    @Autowired
+    private LiveStatistics liveStatistics;
 
     /**
      * Creates a new order
      */
     public Narudzba createNarudzba(Narudzba narudzba) {
+        // Generator guarantees uniqueness, no need to probe the unique index
+        return createNarudzba(narudzba, orderNumberGenerator.nextOrderNumber());
+    }
+
+    /**
+     * Creates a new order under an order number issued in advance (asynchronous acceptance)
+     */
+    public Narudzba createNarudzba(Narudzba narudzba, String brojNarudzbe) {
         logger.info("Creating new order for customer ID: {}", narudzba.getKupac() != null ? narudzba.getKupac().getId() : "null");
         
         // Validate customer exists
@@ -55,19 +119,19 @@ public class NarudzbaService {
             throw new IllegalArgumentException("At least one product is required for order");
         }
         
-        // Fetch full product details and validate
-        List<Long> proizvodIds = proizvodi.stream().map(Proizvod::getId).collect(Collectors.toList());
-        List<Proizvod> fullProizvodi = validateAndGetProizvodi(proizvodIds);
+        // A product listed several times is ordered in that quantity
+        Map<Long, Integer> kolicine = countQuantities(proizvodi);
+        Map<Long, Proizvod> proizvodiById = validateAndGetProizvodi(kolicine.keySet());
+        List<Proizvod> fullProizvodi = proizvodi.stream()
+                .map(p -> proizvodiById.get(p.getId()))
+                .collect(Collectors.toList());
         BigDecimal calculatedTotal = calculateTotalPrice(fullProizvodi);
         
-        // Check stock availability
-        validateStockAvailability(fullProizvodi);
-        
-        // Generate unique order number
-        String brojNarudzbe;
-        do {
-            brojNarudzbe = generateOrderNumber();
-        } while (narudzbaRepository.existsByBrojNarudzbe(brojNarudzbe));
+        // Reserve stock for all ordered products at once, rolls back the order if any is short.
+        // This is the only stock check: table values lag behind the ledger when it is enabled
+        stockReservationService.reserve(kolicine);
+        // Loaded before the reservation, the response and its ETag show the reserved stock
+        stockReservationService.refresh(proizvodiById.values());
         
         // Create order
         narudzba.setBrojNarudzbe(brojNarudzbe);
@@ -78,23 +142,22 @@ public class NarudzbaService {
         narudzba.setDatumKreiranja(LocalDateTime.now());
         
         Narudzba savedNarudzba = narudzbaRepository.save(narudzba);
-        
-        // Reduce stock for ordered products
-        for (Proizvod proizvod : fullProizvodi) {
-            proizvodService.reduceStock(proizvod.getId(), 1); // Assuming quantity 1 for each product
-        }
+        liveStatistics.orderChanged(null, savedNarudzba.getStatus());
+        eventPublisher.publishEvent(new NarudzbaStatusChangedEvent(
+                savedNarudzba.getId(), savedNarudzba.getStatus(), savedNarudzba.getDatumKreiranja()));
         
         logger.info("Order created successfully with number: {}", brojNarudzbe);
         return savedNarudzba;
     }
 
     /**
-     * Gets all orders
+     * Gets a page of orders
      */
     @Transactional(readOnly = true)
-    public List<Narudzba> getAllNarudzbe() {
-        logger.debug("Fetching all orders");
-        return narudzbaRepository.findAll();
+    public CursorPage<NarudzbaDto> getAllNarudzbe(String kursor, Integer velicina) {
+        logger.debug("Fetching orders after cursor: {}", kursor);
+        CursorPagination.Upit upit = cursorPagination.upit(kursor, velicina);
+        return toDtoPage(upit.page(narudzbaRepository.findByIdGreaterThanOrderByIdAsc(upit.getPosleId(), upit.pageable()), Narudzba::getId));
     }
 
     /**
@@ -107,6 +170,14 @@ public class NarudzbaService {
                 .orElseThrow(() -> new ResourceNotFoundException("Narudzba with ID " + id + " not found"));
     }
 
+    /**
+     * Gets the ETag of an order from the versions alone, {@code null} when the order does not exist
+     */
+    @Transactional(readOnly = true)
+    public String getNarudzbaETag(Long id) {
+        return EntityTags.fromRows(narudzbaRepository.findVerzijeById(id), "n", "pl", "p");
+    }
+
     /**
      * Gets an order by order number
      */
@@ -121,47 +192,56 @@ public class NarudzbaService {
      * Gets orders by customer ID
      */
     @Transactional(readOnly = true)
-    public List<Narudzba> getNarudzbeByKupacId(Long kupacId) {
+    public CursorPage<NarudzbaDto> getNarudzbeByKupacId(Long kupacId, String kursor, Integer velicina) {
         logger.debug("Fetching orders for customer ID: {}", kupacId);
-        return narudzbaRepository.findByKupacId(kupacId);
+        CursorPagination.Upit upit = cursorPagination.upit(kursor, velicina);
+        return toDtoPage(upit.page(narudzbaRepository.findByKupacIdAndIdGreaterThanOrderByIdAsc(
+                kupacId, upit.getPosleId(), upit.pageable()), Narudzba::getId));
     }
 
     /**
      * Gets orders by status
      */
     @Transactional(readOnly = true)
-    public List<Narudzba> getNarudzbeByStatus(StatusNarudzbe status) {
+    public CursorPage<NarudzbaDto> getNarudzbeByStatus(StatusNarudzbe status, String kursor, Integer velicina) {
         logger.debug("Fetching orders with status: {}", status);
-        return narudzbaRepository.findByStatus(status);
+        CursorPagination.Upit upit = cursorPagination.upit(kursor, velicina);
+        return toDtoPage(upit.page(narudzbaRepository.findByStatusAndIdGreaterThanOrderByIdAsc(
+                status, upit.getPosleId(), upit.pageable()), Narudzba::getId));
     }
 
     /**
-     * Updates order status
+     * Updates order status, {@code ifMatch} (may be {@code null}) has to list the current ETag
      */
-    public Narudzba updateOrderStatus(Long id, StatusNarudzbe newStatus) {
+    public Narudzba updateOrderStatus(Long id, StatusNarudzbe newStatus, String ifMatch) {
         logger.info("Updating order status for ID: {} to {}", id, newStatus);
         
         Narudzba narudzba = narudzbaRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Narudzba with ID " + id + " not found"));
+        EntityTags.requireMatch(ifMatch, () -> EntityTags.narudzba(narudzba));
         
         // Validate status transition
         validateStatusTransition(narudzba.getStatus(), newStatus);
         
+        liveStatistics.orderChanged(narudzba.getStatus(), newStatus);
         narudzba.setStatus(newStatus);
         Narudzba updatedNarudzba = narudzbaRepository.save(narudzba);
+        eventPublisher.publishEvent(new NarudzbaStatusChangedEvent(
+                updatedNarudzba.getId(), newStatus, updatedNarudzba.getDatumKreiranja()));
         
         logger.info("Order status updated successfully: {}", id);
         return updatedNarudzba;
     }
 
     /**
-     * Cancels an order
+     * Cancels an order, {@code ifMatch} (may be {@code null}) has to list the current ETag
      */
-    public Narudzba cancelOrder(Long id) {
+    public Narudzba cancelOrder(Long id, String ifMatch) {
         logger.info("Cancelling order with ID: {}", id);
         
         Narudzba narudzba = narudzbaRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Narudzba with ID " + id + " not found"));
+        EntityTags.requireMatch(ifMatch, () -> EntityTags.narudzba(narudzba));
         
         if (narudzba.getStatus() == StatusNarudzbe.ISPORUCENA) {
             throw new IllegalArgumentException("Cannot cancel delivered order");
@@ -169,11 +249,11 @@ public class NarudzbaService {
         
         // Restore stock if order was not delivered
         if (narudzba.getStatus() != StatusNarudzbe.OTKAZANA) {
-            for (Proizvod proizvod : narudzba.getProizvodi()) {
-                proizvodService.updateStock(proizvod.getId(), proizvod.getKolicinaUStanju() + 1);
-            }
+            stockReservationService.release(countQuantities(narudzba.getProizvodi()));
         }
+        refund(narudzba);
         
+        liveStatistics.orderChanged(narudzba.getStatus(), StatusNarudzbe.OTKAZANA);
         narudzba.setStatus(StatusNarudzbe.OTKAZANA);
         Narudzba cancelledNarudzba = narudzbaRepository.save(narudzba);
         
@@ -181,74 +261,211 @@ public class NarudzbaService {
         return cancelledNarudzba;
     }
 
+    /**
+     * Cancels several orders in one transaction, restocking all of them with one batch
+     */
+    public List<Narudzba> cancelOrders(List<Long> ids) {
+        logger.info("Cancelling {} orders", ids != null ? ids.size() : 0);
+        
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("At least one order ID is required");
+        }
+        
+        Set<Long> trazeni = new LinkedHashSet<>(ids);
+        List<Narudzba> narudzbe = narudzbaRepository.findAllWithProizvodiByIdIn(trazeni);
+        if (narudzbe.size() != trazeni.size()) {
+            Set<Long> pronadjeni = narudzbe.stream().map(Narudzba::getId).collect(Collectors.toSet());
+            List<Long> missing = trazeni.stream().filter(id -> !pronadjeni.contains(id)).collect(Collectors.toList());
+            throw new ResourceNotFoundException("Orders not found: " + missing);
+        }
+        
+        List<String> isporucene = narudzbe.stream()
+                .filter(n -> n.getStatus() == StatusNarudzbe.ISPORUCENA)
+                .map(Narudzba::getBrojNarudzbe)
+                .collect(Collectors.toList());
+        if (!isporucene.isEmpty()) {
+            throw new IllegalArgumentException("Cannot cancel delivered orders: " + isporucene);
+        }
+        
+        // Restock all lines of all orders that were not cancelled already in one batch
+        Map<Long, Integer> povracaj = new HashMap<>();
+        for (Narudzba narudzba : narudzbe) {
+            if (narudzba.getStatus() != StatusNarudzbe.OTKAZANA) {
+                countQuantities(narudzba.getProizvodi()).forEach((id, kolicina) -> povracaj.merge(id, kolicina, Integer::sum));
+                liveStatistics.orderChanged(narudzba.getStatus(), StatusNarudzbe.OTKAZANA);
+                narudzba.setStatus(StatusNarudzbe.OTKAZANA);
+            }
+        }
+        stockReservationService.release(povracaj);
+        narudzbe.forEach(this::refund);
+        
+        List<Narudzba> cancelled = narudzbaRepository.saveAll(narudzbe);
+        logger.info("{} orders cancelled successfully", cancelled.size());
+        return cancelled;
+    }
+
+    /**
+     * Refunds the payment of a cancelled order if it was paid, taking it out of the revenue rollups
+     */
+    private void refund(Narudzba narudzba) {
+        Placanje placanje = narudzba.getPlacanje();
+        if (placanje != null && placanje.getStatus() == StatusPlacanja.PLACENO) {
+            placanje.setStatus(StatusPlacanja.OTKAZANO);
+            liveStatistics.paymentChanged(StatusPlacanja.PLACENO, placanje.getNacinPlacanja(), placanje);
+            revenueRollup.subtract(placanje.getDatum(), narudzba.getUkupnaCena());
+        }
+    }
+
+    /**
+     * Gets the number of orders in each status, from memory
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<StatistikaStatusa<StatusNarudzbe>> getOrderStatistics() {
+        logger.debug("Fetching order statistics");
+        return liveStatistics.getOrderStatistics();
+    }
+
     /**
      * Gets active orders for monitoring
      */
     @Transactional(readOnly = true)
-    public List<Narudzba> getActiveOrders() {
+    public CursorPage<NarudzbaDto> getActiveOrders(String kursor, Integer velicina) {
         logger.debug("Fetching active orders for monitoring");
-        return narudzbaRepository.findActiveOrders();
+        CursorPagination.Upit upit = cursorPagination.upit(kursor, velicina);
+        return toDtoPage(upit.page(narudzbaRepository.findActiveOrders(upit.getPosleId(), upit.pageable()), Narudzba::getId));
+    }
+
+    /**
+     * Converts a page of orders loaded with their payments, the product lists of the whole page
+     * are loaded with one more query instead of one per order
+     */
+    private CursorPage<NarudzbaDto> toDtoPage(CursorPage<Narudzba> stranica) {
+        if (!stranica.getStavke().isEmpty()) {
+            narudzbaRepository.findAllWithProizvodiByIdIn(
+                    stranica.getStavke().stream().map(Narudzba::getId).collect(Collectors.toList()));
+        }
+        return stranica.map(NarudzbaDto::from);
     }
 
     /**
-     * Updates orders that need status progression
+     * Moves orders that are still in the given status to the next one, returns how many moved
      */
+    public int advanceStatus(Collection<Long> ids, StatusNarudzbe status, StatusNarudzbe noviStatus) {
+        logger.debug("Advancing {} orders from {} to {}", ids.size(), status, noviStatus);
+        int updated = narudzbaRepository.advanceStatus(ids, status, noviStatus);
+        liveStatistics.ordersChanged(status, noviStatus, updated);
+        transitionCounter(noviStatus, "scheduler").increment(updated);
+        logger.info("{} orders status updated to {}", updated, noviStatus);
+        return updated;
+    }
+
+    /**
+     * Updates orders that need status progression.
+     * Runs outside a transaction: every chunk of {@code app.narudzbe.monitoring.batch-size} orders
+     * is moved with one bulk UPDATE in its own short transaction, over the partitions still held when it starts.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void processOrderStatusUpdates() {
         logger.debug("Processing order status updates");
         
-        LocalDateTime cutoffTime = LocalDateTime.now().minusMinutes(5);
-        List<Narudzba> ordersToUpdate = narudzbaRepository.findOrdersForStatusUpdate(cutoffTime);
+        // Only orders in the partitions this instance holds
+        Set<Integer> particije = monitoringLeaseService.getOwnedPartitions();
+        if (particije.isEmpty()) {
+            logger.debug("No monitoring partitions held, skipping order status updates");
+            return;
+        }
+        int brojParticija = monitoringLeaseService.getPartitionCount();
         
-        for (Narudzba narudzba : ordersToUpdate) {
-            // Simple logic: U_OBRADI -> POSLATA -> ISPORUCENA
-            if (narudzba.getStatus() == StatusNarudzbe.U_OBRADI) {
-                narudzba.setStatus(StatusNarudzbe.POSLATA);
-                narudzbaRepository.save(narudzba);
-                logger.info("Order {} status updated to POSLATA", narudzba.getBrojNarudzbe());
+        // Simple logic: U_OBRADI -> POSLATA -> ISPORUCENA
+        LocalDateTime sada = LocalDateTime.now();
+        advanceOverdue(StatusNarudzbe.U_OBRADI, StatusNarudzbe.POSLATA, sada.minusNanos(processingDelayMs * 1_000_000), brojParticija);
+        advanceOverdue(StatusNarudzbe.POSLATA, StatusNarudzbe.ISPORUCENA, sada.minusNanos(deliveryDelayMs * 1_000_000), brojParticija);
+    }
+
+    private int advanceOverdue(StatusNarudzbe status, StatusNarudzbe noviStatus, LocalDateTime cutoffTime, int brojParticija) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int[] ukupno = new int[1];
+        Long posleId = 0L;
+        while (posleId != null) {
+            // Leases can be lost during a long sweep, partitions taken over by another instance are left to it
+            Set<Integer> particije = monitoringLeaseService.getOwnedPartitions();
+            if (particije.isEmpty()) {
+                logger.warn("Monitoring partitions lost, stopping the {} sweep after order {}", status, posleId);
+                break;
             }
+            Long odId = posleId;
+            // Keyset chunk: next IDs after the previous chunk, then one guarded UPDATE over their range
+            posleId = transactionTemplate.execute(tx -> {
+                List<Long> ids = narudzbaRepository.findIdsForStatusUpdate(status, cutoffTime, odId,
+                        brojParticija, particije, PageRequest.of(0, sweepChunkSize));
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                Long doId = ids.get(ids.size() - 1);
+                int pomereno = narudzbaRepository.advanceStatusInRange(status, noviStatus, cutoffTime, ids.get(0), doId,
+                        brojParticija, particije);
+                liveStatistics.ordersChanged(status, noviStatus, pomereno);
+                ukupno[0] += pomereno;
+                return ids.size() < sweepChunkSize ? null : doId;
+            });
         }
-        
-        // Update POSLATA orders older than 10 minutes to ISPORUCENA
-        LocalDateTime deliveryCutoff = LocalDateTime.now().minusMinutes(10);
-        List<Narudzba> deliveryOrders = narudzbaRepository.findByStatus(StatusNarudzbe.POSLATA)
-                .stream()
-                .filter(n -> n.getDatumKreiranja().isBefore(deliveryCutoff))
-                .collect(Collectors.toList());
-        
-        for (Narudzba narudzba : deliveryOrders) {
-            narudzba.setStatus(StatusNarudzbe.ISPORUCENA);
-            narudzbaRepository.save(narudzba);
-            logger.info("Order {} status updated to ISPORUCENA", narudzba.getBrojNarudzbe());
+
+        transitionCounter(noviStatus, "sweep").increment(ukupno[0]);
+        DistributionSummary.builder("narudzbe.status.sweep.rows")
+                .description("Orders moved per monitoring sweep")
+                .tag("status", noviStatus.name())
+                .register(meterRegistry)
+                .record(ukupno[0]);
+        if (ukupno[0] > 0) {
+            logger.info("{} orders status updated to {}", ukupno[0], noviStatus);
         }
+        return ukupno[0];
+    }
+
+    private Counter transitionCounter(StatusNarudzbe noviStatus, String izvor) {
+        return Counter.builder("narudzbe.status.transitions")
+                .description("Automatic order status transitions")
+                .tag("status", noviStatus.name())
+                .tag("izvor", izvor)
+                .register(meterRegistry);
     }
 
     // Helper methods
-    private List<Proizvod> validateAndGetProizvodi(List<Long> proizvodIds) {
-        List<Proizvod> proizvodi = proizvodRepository.findAllById(proizvodIds);
+    private Map<Long, Integer> countQuantities(List<Proizvod> proizvodi) {
+        Map<Long, Integer> kolicine = new LinkedHashMap<>();
+        for (Proizvod proizvod : proizvodi) {
+            if (proizvod == null || proizvod.getId() == null) {
+                throw new IllegalArgumentException("Product ID is required for every order item");
+            }
+            kolicine.merge(proizvod.getId(), 1, Integer::sum);
+        }
+        return kolicine;
+    }
+    
+    private Map<Long, Proizvod> validateAndGetProizvodi(Collection<Long> proizvodIds) {
+        // Loaded by ID, not with a query, so products in the second-level cache are not selected again
+        Map<Long, Proizvod> proizvodi = entityManager.unwrap(Session.class).byMultipleIds(Proizvod.class)
+                .multiLoad(new ArrayList<>(proizvodIds)).stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toMap(Proizvod::getId, Function.identity()));
         if (proizvodi.size() != proizvodIds.size()) {
-            throw new ResourceNotFoundException("Some products not found");
+            List<Long> missing = proizvodIds.stream()
+                    .filter(id -> !proizvodi.containsKey(id))
+                    .collect(Collectors.toList());
+            throw new ResourceNotFoundException("Products not found: " + missing);
         }
         return proizvodi;
     }
     
-    private BigDecimal calculateTotalPrice(List<Proizvod> proizvodi) {
+    /**
+     * Sums the prices of all order lines, a product repeated once per unit
+     */
+    public static BigDecimal calculateTotalPrice(List<Proizvod> proizvodi) {
         return proizvodi.stream()
                 .map(Proizvod::getCena)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
     
-    private void validateStockAvailability(List<Proizvod> proizvodi) {
-        for (Proizvod proizvod : proizvodi) {
-            if (proizvod.getKolicinaUStanju() <= 0) {
-                throw new IllegalArgumentException("Product out of stock: " + proizvod.getNaziv());
-            }
-        }
-    }
-    
-    private String generateOrderNumber() {
-        return "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-    }
-    
     private void validateStatusTransition(StatusNarudzbe currentStatus, StatusNarudzbe newStatus) {
         // Define valid transitions
         if (currentStatus == StatusNarudzbe.ISPORUCENA || currentStatus == StatusNarudzbe.OTKAZANA) {
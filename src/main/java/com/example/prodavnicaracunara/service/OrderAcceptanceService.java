@@ -0,0 +1,176 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.dto.AsyncNarudzbaStatus;
+import com.example.prodavnicaracunara.entity.Narudzba;
+import com.example.prodavnicaracunara.entity.Proizvod;
+import com.example.prodavnicaracunara.exception.ResourceNotFoundException;
+import com.example.prodavnicaracunara.exception.ServiceOverloadedException;
+import com.example.prodavnicaracunara.repository.NarudzbaRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous order acceptance, enabled with {@code app.narudzbe.async.enabled=true}.
+ * <p>
+ * Accepted orders are put on a bounded queue and created by a fixed pool of workers running
+ * the regular {@link NarudzbaService#createNarudzba(Narudzba, String)} logic. The pool is kept
+ * smaller than the connection pool, so a burst of orders waits in the queue instead of
+ * exhausting database connections; once the queue is full new orders are refused with 503.
+ * The tracking number handed out on acceptance becomes the order number.
+ */
+@Service
+public class OrderAcceptanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderAcceptanceService.class);
+
+    @Autowired
+    private NarudzbaService narudzbaService;
+
+    @Autowired
+    private NarudzbaRepository narudzbaRepository;
+
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
+
+    @Value("${app.narudzbe.async.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.narudzbe.async.workers:4}")
+    private int workers;
+
+    @Value("${app.narudzbe.async.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.narudzbe.async.tracking-ttl-ms:600000}")
+    private long trackingTtlMs;
+
+    private final ConcurrentHashMap<String, AsyncNarudzbaStatus> statusi = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        AtomicInteger brojac = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "narudzba-worker-" + brojac.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        logger.info("Asynchronous order acceptance started with {} workers and queue capacity {}", workers, queueCapacity);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        logger.info("Stopping asynchronous order acceptance, {} orders queued", executor.getQueue().size());
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            logger.warn("Order workers did not finish in time, {} orders left unprocessed", executor.shutdownNow().size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Validates the order shape and queues it, returns the tracking number
+     */
+    public AsyncNarudzbaStatus accept(Narudzba narudzba) {
+        validateShape(narudzba);
+
+        String brojNarudzbe = orderNumberGenerator.nextOrderNumber();
+        AsyncNarudzbaStatus status = new AsyncNarudzbaStatus(brojNarudzbe);
+        statusi.put(brojNarudzbe, status);
+
+        try {
+            executor.execute(() -> process(narudzba, status));
+        } catch (RejectedExecutionException e) {
+            statusi.remove(brojNarudzbe);
+            logger.warn("Order queue is full ({} orders), rejecting order", queueCapacity);
+            throw new ServiceOverloadedException("Order queue is full, please retry later", 1);
+        }
+
+        logger.info("Order accepted for asynchronous processing with number: {}", brojNarudzbe);
+        return status;
+    }
+
+    /**
+     * Returns the processing state of an asynchronously accepted order
+     */
+    public AsyncNarudzbaStatus getStatus(String brojNarudzbe) {
+        AsyncNarudzbaStatus status = statusi.get(brojNarudzbe);
+        if (status != null) {
+            return status;
+        }
+
+        // Tracking entries expire, the order itself is still there if it was created
+        Narudzba narudzba = narudzbaRepository.findByBrojNarudzbe(brojNarudzbe)
+                .orElseThrow(() -> new ResourceNotFoundException("Order with tracking number " + brojNarudzbe + " not found"));
+        AsyncNarudzbaStatus kreirana = new AsyncNarudzbaStatus(brojNarudzbe);
+        kreirana.setStanje(AsyncNarudzbaStatus.Stanje.KREIRANA);
+        kreirana.setNarudzbaId(narudzba.getId());
+        kreirana.setPrimljeno(narudzba.getDatumKreiranja());
+        return kreirana;
+    }
+
+    /**
+     * Drops tracking entries of finished orders older than the configured TTL
+     */
+    @Scheduled(fixedDelayString = "${app.narudzbe.async.tracking-ttl-ms:600000}")
+    public void evictFinished() {
+        LocalDateTime granica = LocalDateTime.now().minusNanos(trackingTtlMs * 1_000_000);
+        statusi.values().removeIf(s -> s.getZavrseno() != null && s.getZavrseno().isBefore(granica));
+    }
+
+    private void process(Narudzba narudzba, AsyncNarudzbaStatus status) {
+        status.setStanje(AsyncNarudzbaStatus.Stanje.U_TOKU);
+        try {
+            Narudzba kreirana = narudzbaService.createNarudzba(narudzba, status.getBrojNarudzbe());
+            status.setNarudzbaId(kreirana.getId());
+            status.setStanje(AsyncNarudzbaStatus.Stanje.KREIRANA);
+        } catch (RuntimeException e) {
+            logger.error("Asynchronous order {} failed: {}", status.getBrojNarudzbe(), e.getMessage());
+            status.setGreska(e.getMessage());
+            status.setStanje(AsyncNarudzbaStatus.Stanje.ODBIJENA);
+        } finally {
+            status.setZavrseno(LocalDateTime.now());
+        }
+    }
+
+    private void validateShape(Narudzba narudzba) {
+        if (narudzba.getKupac() == null || narudzba.getKupac().getId() == null) {
+            throw new IllegalArgumentException("Customer is required for order");
+        }
+        if (narudzba.getProizvodi() == null || narudzba.getProizvodi().isEmpty()) {
+            throw new IllegalArgumentException("At least one product is required for order");
+        }
+        for (Proizvod proizvod : narudzba.getProizvodi()) {
+            if (proizvod == null || proizvod.getId() == null) {
+                throw new IllegalArgumentException("Product ID is required for every order item");
+            }
+        }
+    }
+}
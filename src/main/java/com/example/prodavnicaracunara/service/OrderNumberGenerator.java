@@ -0,0 +1,15 @@
+package com.example.prodavnicaracunara.service;
+
+/**
+ * Source of order numbers ({@code broj_narudzbe}).
+ * <p>
+ * Implementations must guarantee uniqueness on their own, without querying the
+ * database, so order creation never has to probe the unique index.
+ */
+public interface OrderNumberGenerator {
+
+    /**
+     * Returns a new, globally unique order number
+     */
+    String nextOrderNumber();
+}
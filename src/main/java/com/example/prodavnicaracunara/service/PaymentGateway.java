@@ -0,0 +1,23 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.entity.NacinPlacanja;
+
+import java.math.BigDecimal;
+
+/**
+ * External payment gateway (acquirer) that charges payments.
+ * <p>
+ * Calls block until the gateway answers and are made by {@link PaymentGatewayClient} on the bulkhead of the payment
+ * method, never on a request thread; a call still running after {@code app.placanja.gateway.timeout-ms} is
+ * interrupted. The payment ID is the reference the gateway deduplicates charges on, so a
+ * payment retried after a timeout or processed twice concurrently is charged once.
+ */
+public interface PaymentGateway {
+
+    /**
+     * Charges {@code iznos} for the payment and returns the gateway's transaction reference. Throws
+     * {@link com.example.prodavnicaracunara.exception.PaymentDeclinedException} when the charge is declined and any
+     * other exception when the gateway could not be reached or failed.
+     */
+    String charge(Long placanjeId, NacinPlacanja nacinPlacanja, BigDecimal iznos);
+}
@@ -0,0 +1,246 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.entity.NacinPlacanja;
+import com.example.prodavnicaracunara.exception.PaymentDeclinedException;
+import com.example.prodavnicaracunara.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Calls the {@link PaymentGateway} asynchronously, with a bulkhead, a timeout and a circuit breaker per payment method.
+ * <p>
+ * Each payment method has its own pool of {@code app.placanja.gateway.bulkhead.max-concurrent} threads with a queue of
+ * {@code queue-capacity} charges, so a slow acquirer for one method cannot take the threads of the others and a full
+ * bulkhead refuses new charges with 503 instead of queueing them without bound. A charge that does not answer within
+ * {@code app.placanja.gateway.timeout-ms} fails with 503 and its call is interrupted to free its thread; the gateway
+ * deduplicates on the payment ID, so it can be retried even if the charge went through. After
+ * {@code circuit.failure-threshold} consecutive errors or timeouts of a method its circuit opens and charges fail at
+ * once for {@code circuit.open-ms}, then a single trial charge decides whether it closes again. A declined charge is
+ * an answer of the gateway and does not count as a failure.
+ * <p>
+ * Bulkhead threads only wait for the gateway. The returned future completes on a separate pool of
+ * {@code app.placanja.gateway.completion.workers} threads, which run the caller's stages that write the paid payment,
+ * so completing payments take at most that many database connections however many charges are running.
+ */
+@Component
+public class PaymentGatewayClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentGatewayClient.class);
+
+    @Autowired
+    private PaymentGateway paymentGateway;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.placanja.gateway.bulkhead.max-concurrent:8}")
+    private int maxConcurrent;
+
+    @Value("${app.placanja.gateway.bulkhead.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${app.placanja.gateway.timeout-ms:5000}")
+    private long timeoutMs;
+
+    @Value("${app.placanja.gateway.circuit.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${app.placanja.gateway.circuit.open-ms:30000}")
+    private long openMs;
+
+    @Value("${app.placanja.gateway.completion.workers:4}")
+    private int completionWorkers;
+
+    private final Map<NacinPlacanja, ThreadPoolExecutor> pregrade = new EnumMap<>(NacinPlacanja.class);
+
+    private final Map<NacinPlacanja, Prekidac> prekidaci = new EnumMap<>(NacinPlacanja.class);
+
+    private ThreadPoolExecutor zavrsetak;
+
+    @PostConstruct
+    public void start() {
+        for (NacinPlacanja nacin : NacinPlacanja.values()) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), threadFactory("gateway-" + nacin.name().toLowerCase() + "-"),
+                    new ThreadPoolExecutor.AbortPolicy());
+            Prekidac prekidac = new Prekidac(failureThreshold, openMs);
+            pregrade.put(nacin, executor);
+            prekidaci.put(nacin, prekidac);
+
+            Tags tagovi = Tags.of("nacin", nacin.name());
+            new ExecutorServiceMetrics(executor, "payment.gateway", tagovi).bindTo(meterRegistry);
+            Gauge.builder("payment.gateway.circuit.open", prekidac, p -> p.isOtvoren() ? 1 : 0)
+                    .tags(tagovi)
+                    .register(meterRegistry);
+        }
+
+        // Unbounded, but never holds more than the charges the bulkheads admitted; an approved charge is never refused
+        zavrsetak = new ThreadPoolExecutor(completionWorkers, completionWorkers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), threadFactory("gateway-completion-"));
+        new ExecutorServiceMetrics(zavrsetak, "payment.gateway.completion", Tags.empty()).bindTo(meterRegistry);
+        logger.info("Payment gateway client started with {} concurrent charges and queue capacity {} per payment method, {} completion workers",
+                maxConcurrent, queueCapacity, completionWorkers);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        pregrade.values().forEach(ThreadPoolExecutor::shutdown);
+        for (Map.Entry<NacinPlacanja, ThreadPoolExecutor> pregrada : pregrade.entrySet()) {
+            if (!pregrada.getValue().awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                logger.warn("Payment gateway charges for {} did not finish in time, {} left unprocessed",
+                        pregrada.getKey(), pregrada.getValue().shutdownNow().size());
+            }
+        }
+        zavrsetak.shutdown();
+        if (!zavrsetak.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+            logger.warn("Charged payments did not complete in time, {} left unprocessed", zavrsetak.shutdownNow().size());
+        }
+    }
+
+    /**
+     * Charges a payment on the bulkhead of its payment method, the future completes with the gateway's reference on
+     * a completion worker.
+     * Fails at once with {@link ServiceOverloadedException} while the method's circuit is open or its bulkhead is full.
+     */
+    public CompletableFuture<String> charge(Long placanjeId, NacinPlacanja nacinPlacanja, BigDecimal iznos) {
+        Prekidac prekidac = prekidaci.get(nacinPlacanja);
+        if (!prekidac.dozvoli()) {
+            throw new ServiceOverloadedException("Payment gateway for " + nacinPlacanja + " is unavailable, please retry later",
+                    prekidac.sekundiDoProbe());
+        }
+
+        CompletableFuture<String> odgovor = new CompletableFuture<>();
+        Future<?> poziv;
+        try {
+            poziv = pregrade.get(nacinPlacanja).submit(() -> {
+                try {
+                    odgovor.complete(paymentGateway.charge(placanjeId, nacinPlacanja, iznos));
+                } catch (RuntimeException e) {
+                    odgovor.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            prekidac.odustani();
+            logger.warn("Payment gateway bulkhead for {} is full, rejecting payment {}", nacinPlacanja, placanjeId);
+            throw new ServiceOverloadedException("Payment gateway for " + nacinPlacanja + " is busy, please retry later", 1);
+        }
+
+        return odgovor.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).handleAsync((referenca, greska) -> {
+            Throwable uzrok = greska instanceof CompletionException && greska.getCause() != null ? greska.getCause() : greska;
+            if (uzrok == null || uzrok instanceof PaymentDeclinedException) {
+                prekidac.uspeh();
+                if (uzrok != null) {
+                    throw (PaymentDeclinedException) uzrok;
+                }
+                return referenca;
+            }
+            if (prekidac.neuspeh()) {
+                logger.error("Payment gateway circuit for {} opened for {} ms", nacinPlacanja, openMs);
+            }
+            if (uzrok instanceof TimeoutException) {
+                // Frees the bulkhead slot; the charge may still have gone through, a retry is deduplicated on the payment ID
+                poziv.cancel(true);
+                logger.warn("Payment gateway did not answer for payment {} within {} ms", placanjeId, timeoutMs);
+                throw new ServiceOverloadedException("Payment gateway did not answer in time, please retry later", 1);
+            }
+            logger.error("Payment gateway failed for payment {}: {}", placanjeId, uzrok.getMessage());
+            throw new ServiceOverloadedException("Payment gateway failed, please retry later", 1);
+        }, zavrsetak);
+    }
+
+    private static ThreadFactory threadFactory(String ime) {
+        AtomicInteger brojac = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, ime + brojac.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Circuit breaker of one payment method: closed until {@code prag} consecutive failures, then open for
+     * {@code otvorenMs}, then half-open with one trial charge
+     */
+    private static final class Prekidac {
+
+        private final int prag;
+        private final long otvorenMs;
+
+        private int uzastopnihNeuspeha;
+        private long otvorenDo;
+        private boolean probaUToku;
+
+        private Prekidac(int prag, long otvorenMs) {
+            this.prag = prag;
+            this.otvorenMs = otvorenMs;
+        }
+
+        private synchronized boolean dozvoli() {
+            if (uzastopnihNeuspeha < prag) {
+                return true;
+            }
+            if (probaUToku || System.currentTimeMillis() < otvorenDo) {
+                return false;
+            }
+            probaUToku = true;
+            return true;
+        }
+
+        private synchronized void uspeh() {
+            uzastopnihNeuspeha = 0;
+            probaUToku = false;
+        }
+
+        /**
+         * Records a failure, returns whether it opened the circuit
+         */
+        private synchronized boolean neuspeh() {
+            boolean bioOtvoren = uzastopnihNeuspeha >= prag;
+            uzastopnihNeuspeha++;
+            probaUToku = false;
+            if (uzastopnihNeuspeha >= prag) {
+                otvorenDo = System.currentTimeMillis() + otvorenMs;
+            }
+            return !bioOtvoren && uzastopnihNeuspeha >= prag;
+        }
+
+        /**
+         * A permitted charge that never reached the gateway
+         */
+        private synchronized void odustani() {
+            probaUToku = false;
+        }
+
+        private synchronized boolean isOtvoren() {
+            return uzastopnihNeuspeha >= prag;
+        }
+
+        private synchronized long sekundiDoProbe() {
+            return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(otvorenDo - System.currentTimeMillis() + 999));
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.example.prodavnicaracunara.service;
 
+import com.example.prodavnicaracunara.dto.CursorPage;
+import com.example.prodavnicaracunara.dto.PlacanjeDto;
+import com.example.prodavnicaracunara.dto.StatistikaNacinaPlacanja;
+import com.example.prodavnicaracunara.dto.StatistikaStatusa;
 import com.example.prodavnicaracunara.entity.*;
 import com.example.prodavnicaracunara.exception.ResourceNotFoundException;
 import com.example.prodavnicaracunara.repository.NarudzbaRepository;
@@ -7,12 +11,22 @@ import com.example.prodavnicaracunara.repository.PlacanjeRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 @Transactional
@@ -22,10 +36,28 @@ public class PlacanjeService {
 
     @Autowired
     private PlacanjeRepository placanjeRepository;
+
+    @Autowired
+    private CursorPagination cursorPagination;
     
     @Autowired
     private NarudzbaRepository narudzbaRepository;
 
+    @Autowired
+    private RevenueRollup revenueRollup;
+
+    @Autowired
+    private LiveStatistics liveStatistics;
+
+    @Autowired
+    private PaymentGatewayClient paymentGatewayClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     /**
      * Creates a new payment
      */
@@ -52,18 +84,20 @@ public class PlacanjeService {
         placanje.setDatum(LocalDateTime.now());
         
         Placanje savedPlacanje = placanjeRepository.save(placanje);
+        liveStatistics.paymentChanged(null, null, savedPlacanje);
         
         logger.info("Payment created successfully with ID: {}", savedPlacanje.getId());
         return savedPlacanje;
     }
 
     /**
-     * Gets all payments
+     * Gets a page of payments
      */
     @Transactional(readOnly = true)
-    public List<Placanje> getAllPlacanja() {
-        logger.debug("Fetching all payments");
-        return placanjeRepository.findAll();
+    public CursorPage<PlacanjeDto> getAllPlacanja(String kursor, Integer velicina) {
+        logger.debug("Fetching payments after cursor: {}", kursor);
+        CursorPagination.Upit upit = cursorPagination.upit(kursor, velicina);
+        return upit.page(placanjeRepository.findByIdGreaterThanOrderByIdAsc(upit.getPosleId(), upit.pageable()), Placanje::getId).map(PlacanjeDto::from);
     }
 
     /**
@@ -76,6 +110,22 @@ public class PlacanjeService {
                 .orElseThrow(() -> new ResourceNotFoundException("Placanje with ID " + id + " not found"));
     }
 
+    /**
+     * Gets the ETag of a payment from its version alone, {@code null} when the payment does not exist
+     */
+    @Transactional(readOnly = true)
+    public String getPlacanjeETag(Long id) {
+        return EntityTags.fromRows(placanjeRepository.findVerzijeById(id), "pl");
+    }
+
+    /**
+     * Gets the ETag of the payment of an order, {@code null} when there is none
+     */
+    @Transactional(readOnly = true)
+    public String getPlacanjeETagByNarudzbaId(Long narudzbaId) {
+        return EntityTags.fromRows(placanjeRepository.findVerzijeByNarudzbaId(narudzbaId), "pl");
+    }
+
     /**
      * Gets payment by order ID
      */
@@ -92,129 +142,222 @@ public class PlacanjeService {
      * Gets payments by payment method
      */
     @Transactional(readOnly = true)
-    public List<Placanje> getPlacanjaByNacinPlacanja(NacinPlacanja nacinPlacanja) {
+    public CursorPage<PlacanjeDto> getPlacanjaByNacinPlacanja(NacinPlacanja nacinPlacanja, String kursor, Integer velicina) {
         logger.debug("Fetching payments by payment method: {}", nacinPlacanja);
-        return placanjeRepository.findByNacinPlacanja(nacinPlacanja);
+        CursorPagination.Upit upit = cursorPagination.upit(kursor, velicina);
+        return upit.page(placanjeRepository.findByNacinPlacanjaAndIdGreaterThanOrderByIdAsc(
+                nacinPlacanja, upit.getPosleId(), upit.pageable()), Placanje::getId).map(PlacanjeDto::from);
     }
 
     /**
      * Gets payments by status
      */
     @Transactional(readOnly = true)
-    public List<Placanje> getPlacanjaByStatus(StatusPlacanja status) {
+    public CursorPage<PlacanjeDto> getPlacanjaByStatus(StatusPlacanja status, String kursor, Integer velicina) {
         logger.debug("Fetching payments by status: {}", status);
-        return placanjeRepository.findByStatus(status);
+        CursorPagination.Upit upit = cursorPagination.upit(kursor, velicina);
+        return upit.page(placanjeRepository.findByStatusAndIdGreaterThanOrderByIdAsc(
+                status, upit.getPosleId(), upit.pageable()), Placanje::getId).map(PlacanjeDto::from);
     }
 
     /**
      * Gets unpaid payments
      */
     @Transactional(readOnly = true)
-    public List<Placanje> getUnpaidPayments() {
+    public CursorPage<PlacanjeDto> getUnpaidPayments(String kursor, Integer velicina) {
         logger.debug("Fetching unpaid payments");
-        return placanjeRepository.findByStatus(StatusPlacanja.NEPLACENO);
+        return getPlacanjaByStatus(StatusPlacanja.NEPLACENO, kursor, velicina);
     }
 
     /**
      * Gets payments by customer ID
      */
     @Transactional(readOnly = true)
-    public List<Placanje> getPlacanjaByKupacId(Long kupacId) {
+    public CursorPage<PlacanjeDto> getPlacanjaByKupacId(Long kupacId, String kursor, Integer velicina) {
         logger.debug("Fetching payments for customer ID: {}", kupacId);
-        return placanjeRepository.findByKupacId(kupacId);
+        CursorPagination.Upit upit = cursorPagination.upit(kursor, velicina);
+        return upit.page(placanjeRepository.findByKupacId(kupacId, upit.getPosleId(), upit.pageable()), Placanje::getId).map(PlacanjeDto::from);
     }
 
     /**
      * Gets successful payments in date range
      */
     @Transactional(readOnly = true)
-    public List<Placanje> getSuccessfulPayments(LocalDateTime startDate, LocalDateTime endDate) {
+    public CursorPage<PlacanjeDto> getSuccessfulPayments(LocalDateTime startDate, LocalDateTime endDate,
+                                                      String kursor, Integer velicina) {
         logger.debug("Fetching successful payments between {} and {}", startDate, endDate);
-        return placanjeRepository.findSuccessfulPayments(startDate, endDate);
+        CursorPagination.Upit upit = cursorPagination.upit(kursor, velicina);
+        return upit.page(placanjeRepository.findSuccessfulPayments(
+                startDate, endDate, upit.getPosleId(), upit.pageable()), Placanje::getId).map(PlacanjeDto::from);
     }
 
     /**
-     * Calculates total revenue in date range
+     * Calculates total revenue in date range (both inclusive) from the hourly and daily rollups
      */
     @Transactional(readOnly = true)
-    public Double getTotalRevenue(LocalDateTime startDate, LocalDateTime endDate) {
+    public BigDecimal getTotalRevenue(LocalDateTime startDate, LocalDateTime endDate) {
         logger.debug("Calculating total revenue between {} and {}", startDate, endDate);
-        return placanjeRepository.getTotalRevenue(startDate, endDate).orElse(0.0);
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+        return revenueRollup.revenue(startDate, endDate);
     }
 
     /**
-     * Gets payment statistics by method
+     * Gets payment statistics by method, from memory
      */
-    @Transactional(readOnly = true)
-    public List<Object[]> getPaymentStatisticsByMethod() {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<StatistikaNacinaPlacanja> getPaymentStatisticsByMethod() {
         logger.debug("Fetching payment statistics by method");
-        return placanjeRepository.getPaymentStatisticsByMethod();
+        return liveStatistics.getPaymentStatisticsByMethod();
     }
 
     /**
-     * Gets payment statistics by status
+     * Gets payment statistics by status, from memory
      */
-    @Transactional(readOnly = true)
-    public List<Object[]> getPaymentStatisticsByStatus() {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<StatistikaStatusa<StatusPlacanja>> getPaymentStatisticsByStatus() {
         logger.debug("Fetching payment statistics by status");
-        return placanjeRepository.getPaymentStatisticsByStatus();
+        return liveStatistics.getPaymentStatisticsByStatus();
     }
 
     /**
-     * Processes a payment (marks as paid)
+     * Processes a payment (charges it through the payment gateway and marks it paid) and waits for the gateway,
+     * {@code ifMatch} (may be {@code null}) has to list the current ETag
      */
-    public Placanje processPayment(Long id) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Placanje processPayment(Long id, String ifMatch) {
+        CompletableFuture<Placanje> placanje = chargePayment(id, ifMatch)
+                .thenApply(referenca -> new TransactionTemplate(transactionManager).execute(status -> completePayment(id, referenca)));
+        try {
+            return placanje.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException uzrok) {
+                throw uzrok;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Checks that a payment can be processed, {@code ifMatch} (may be {@code null}) has to list the current ETag, and
+     * charges it through the payment gateway. The future completes with the gateway's reference once the gateway
+     * approves the charge; {@link #completePayment} then marks the payment paid. No transaction or connection is held
+     * while the gateway answers.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<String> chargePayment(Long id, String ifMatch) {
         logger.info("Processing payment with ID: {}", id);
-        
+
+        // JDBC instead of the request's EntityManager, which (open in view) would keep its connection during the charge
+        List<Map<String, Object>> redovi = jdbcTemplate.queryForList(
+                "SELECT p.verzija, p.status, p.nacin_placanja, n.ukupna_cena FROM placanja p JOIN narudzbe n ON n.id = p.narudzba_id WHERE p.id = ?", id);
+        if (redovi.isEmpty()) {
+            throw new ResourceNotFoundException("Placanje with ID " + id + " not found");
+        }
+        Map<String, Object> red = redovi.get(0);
+        Long verzija = ((Number) red.get("verzija")).longValue();
+        EntityTags.requireMatch(ifMatch, () -> EntityTags.fromRows(List.<Object[]>of(new Object[]{id, verzija}), "pl"));
+
+        StatusPlacanja status = StatusPlacanja.valueOf((String) red.get("status"));
+        if (status == StatusPlacanja.PLACENO) {
+            throw new IllegalArgumentException("Payment is already processed");
+        }
+        if (status == StatusPlacanja.OTKAZANO) {
+            throw new IllegalArgumentException("Payment is cancelled");
+        }
+
+        return paymentGatewayClient.charge(id, NacinPlacanja.valueOf((String) red.get("nacin_placanja")), (BigDecimal) red.get("ukupna_cena"));
+    }
+
+    /**
+     * Marks a payment paid after the payment gateway approved its charge with {@code referenca} and stores the
+     * reference; the charge of a payment cancelled meanwhile is queued for refund instead
+     */
+    public Placanje completePayment(Long id, String referenca) {
         Placanje placanje = placanjeRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Placanje with ID " + id + " not found"));
-        
         if (placanje.getStatus() == StatusPlacanja.PLACENO) {
-            throw new IllegalArgumentException("Payment is already processed");
+            // Processed concurrently, the gateway charged it once
+            logger.info("Payment {} was already processed, gateway reference {}", id, referenca);
+            return placanje;
+        }
+        if (placanje.getStatus() == StatusPlacanja.OTKAZANO) {
+            // Paid by a settlement and refunded with its order while the gateway charged it
+            recordRefund(id, referenca, placanje.getNarudzba().getUkupnaCena());
+            throw new IllegalArgumentException("Payment is cancelled");
         }
         
+        StatusPlacanja stariStatus = placanje.getStatus();
         placanje.setStatus(StatusPlacanja.PLACENO);
-        Placanje processedPlacanje = placanjeRepository.save(placanje);
+        placanje.setReferenca(referenca);
+        Placanje processedPlacanje = placanjeRepository.saveAndFlush(placanje);
+        liveStatistics.paymentChanged(stariStatus, placanje.getNacinPlacanja(), placanje);
+        // Last, the bucket row stays locked until the commit
+        revenueRollup.add(placanje.getDatum(), placanje.getNarudzba().getUkupnaCena());
         
-        logger.info("Payment processed successfully: {}", id);
+        logger.info("Payment processed successfully: {}, gateway reference {}", id, referenca);
         return processedPlacanje;
     }
 
     /**
-     * Cancels a payment
+     * Queues the refund of a charge whose payment was cancelled meanwhile. Committed on its own, the caller's
+     * transaction is rolled back by the rejected payment; a retried completion with the same reference adds nothing.
+     */
+    private void recordRefund(Long id, String referenca, BigDecimal iznos) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                    "INSERT INTO povracaji (placanje_id, referenca, iznos, kreirano) VALUES (?, ?, ?, ?)",
+                    id, referenca, iznos, LocalDateTime.now()));
+            logger.warn("Payment {} was cancelled during its charge, gateway reference {} is queued for refund", id, referenca);
+        } catch (DuplicateKeyException e) {
+            logger.info("Refund of payment {} with gateway reference {} is already queued", id, referenca);
+        }
+    }
+
+    /**
+     * Cancels a payment, {@code ifMatch} (may be {@code null}) has to list the current ETag
      */
-    public Placanje cancelPayment(Long id) {
+    public Placanje cancelPayment(Long id, String ifMatch) {
         logger.info("Cancelling payment with ID: {}", id);
         
         Placanje placanje = placanjeRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Placanje with ID " + id + " not found"));
+        EntityTags.requireMatch(ifMatch, () -> EntityTags.placanje(placanje));
         
         if (placanje.getStatus() == StatusPlacanja.PLACENO) {
             throw new IllegalArgumentException("Cannot cancel processed payment");
         }
         
+        StatusPlacanja stariStatus = placanje.getStatus();
         placanje.setStatus(StatusPlacanja.NEPLACENO);
         Placanje cancelledPlacanje = placanjeRepository.save(placanje);
+        liveStatistics.paymentChanged(stariStatus, placanje.getNacinPlacanja(), placanje);
         
         logger.info("Payment cancelled successfully: {}", id);
         return cancelledPlacanje;
     }
 
     /**
-     * Updates payment method
+     * Updates payment method, {@code ifMatch} (may be {@code null}) has to list the current ETag
      */
-    public Placanje updatePaymentMethod(Long id, NacinPlacanja newPaymentMethod) {
+    public Placanje updatePaymentMethod(Long id, NacinPlacanja newPaymentMethod, String ifMatch) {
         logger.info("Updating payment method for ID: {} to {}", id, newPaymentMethod);
         
         Placanje placanje = placanjeRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Placanje with ID " + id + " not found"));
+        EntityTags.requireMatch(ifMatch, () -> EntityTags.placanje(placanje));
         
         if (placanje.getStatus() == StatusPlacanja.PLACENO) {
             throw new IllegalArgumentException("Cannot change payment method for processed payment");
         }
         
+        NacinPlacanja stariNacin = placanje.getNacinPlacanja();
         placanje.setNacinPlacanja(newPaymentMethod);
         Placanje updatedPlacanje = placanjeRepository.save(placanje);
+        liveStatistics.paymentChanged(placanje.getStatus(), stariNacin, placanje);
         
         logger.info("Payment method updated successfully: {}", id);
         return updatedPlacanje;
@@ -234,6 +377,7 @@ public class PlacanjeService {
         }
         
         placanjeRepository.deleteById(id);
+        liveStatistics.paymentDeleted(placanje);
         logger.info("Payment deleted successfully: {}", id);
     }
 }
\ No newline at end of file
@@ -0,0 +1,211 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.dto.SettlementRequest;
+import com.example.prodavnicaracunara.dto.SettlementResult;
+import com.example.prodavnicaracunara.entity.NacinPlacanja;
+import com.example.prodavnicaracunara.entity.StatusPlacanja;
+import com.example.prodavnicaracunara.repository.PlacanjeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk payment settlement.
+ * <p>
+ * Payments are settled in chunks of {@code app.placanja.settlement.chunk-size}, each chunk in its own transaction:
+ * the chunk is read with one query, its unpaid payments are marked paid with one bulk UPDATE and the revenue rollups
+ * and statistics get one increment per hour, day and payment method. Only unpaid payments are settled, a paid or
+ * cancelled payment is reported and skipped. The read locks the chunk's payments until the commit, so the UPDATE moves
+ * exactly the payments read as unpaid whatever the isolation level; a concurrent write to one of them waits for the
+ * commit and then fails on the changed version.
+ */
+@Service
+public class PlacanjeSettlementService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlacanjeSettlementService.class);
+
+    @Autowired
+    private PlacanjeRepository placanjeRepository;
+
+    @Autowired
+    private RevenueRollup revenueRollup;
+
+    @Autowired
+    private LiveStatistics liveStatistics;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.placanja.settlement.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.placanja.settlement.max-size:10000}")
+    private int maxSize;
+
+    /**
+     * Settles the given payments (one result per distinct ID, in request order) or, for a date range, up to
+     * {@code app.placanja.settlement.max-size} of its unpaid payments (in ID order)
+     */
+    public List<SettlementResult> settle(SettlementRequest zahtev) {
+        boolean filter = zahtev != null
+                && (zahtev.getNacinPlacanja() != null || zahtev.getDatumOd() != null || zahtev.getDatumDo() != null);
+        if (zahtev == null || (zahtev.getIds() == null) == !filter) {
+            throw new IllegalArgumentException("Either payment IDs or a date range is required");
+        }
+        List<SettlementResult> rezultati = filter
+                ? settleRange(zahtev.getNacinPlacanja(), zahtev.getDatumOd(), zahtev.getDatumDo())
+                : settleIds(zahtev.getIds());
+        logger.info("Settlement finished, {} of {} payments settled",
+                rezultati.stream().filter(SettlementResult::isUspesno).count(), rezultati.size());
+        return rezultati;
+    }
+
+    private List<SettlementResult> settleIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("At least one payment ID is required");
+        }
+        if (ids.size() > maxSize) {
+            throw new IllegalArgumentException("Too many payments in one settlement: " + ids.size() + ", maximum is " + maxSize);
+        }
+        if (ids.contains(null)) {
+            throw new IllegalArgumentException("Payment IDs must not be null");
+        }
+        List<Long> redom = new ArrayList<>(new LinkedHashSet<>(ids));
+        logger.info("Settling {} payments in chunks of {}", redom.size(), chunkSize);
+
+        Map<Long, SettlementResult> rezultati = new HashMap<>();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        for (int pocetak = 0; pocetak < redom.size(); pocetak += chunkSize) {
+            List<Long> chunk = redom.subList(pocetak, Math.min(pocetak + chunkSize, redom.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        settleChunk(chunk, placanjeRepository.findForSettlement(chunk), rezultati));
+            } catch (RuntimeException e) {
+                logger.error("Settlement chunk of payments {}-{} failed: {}", chunk.get(0), chunk.get(chunk.size() - 1), e.getMessage());
+                chunk.forEach(id -> rezultati.put(id, SettlementResult.failure(id, "Chunk rolled back: " + e.getMessage())));
+            }
+        }
+        return redom.stream().map(rezultati::get).collect(Collectors.toList());
+    }
+
+    private List<SettlementResult> settleRange(NacinPlacanja nacinPlacanja, LocalDateTime od, LocalDateTime doDatuma) {
+        if (od == null || doDatuma == null) {
+            throw new IllegalArgumentException("Start and end date are required");
+        }
+        if (doDatuma.isBefore(od)) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+        logger.info("Settling unpaid {} payments dated between {} and {} in chunks of {}",
+                nacinPlacanja != null ? nacinPlacanja : "all", od, doDatuma, chunkSize);
+
+        List<SettlementResult> rezultati = new ArrayList<>();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long posleId = 0;
+
+        while (rezultati.size() < maxSize) {
+            int velicina = Math.min(chunkSize, maxSize - rezultati.size());
+            List<List<Long>> procitani = new ArrayList<>(1);
+            long odId = posleId;
+            try {
+                Map<Long, SettlementResult> chunk = transactionTemplate.execute(status -> {
+                    List<Object[]> redovi = placanjeRepository.findUnpaidForSettlement(
+                            nacinPlacanja, od, doDatuma, odId, PageRequest.of(0, velicina));
+                    List<Long> ids = redovi.stream().map(red -> (Long) red[0]).collect(Collectors.toList());
+                    procitani.add(ids);
+                    Map<Long, SettlementResult> rezultatiChunka = new LinkedHashMap<>();
+                    settleChunk(ids, redovi, rezultatiChunka);
+                    return rezultatiChunka;
+                });
+                rezultati.addAll(chunk.values());
+            } catch (RuntimeException e) {
+                if (procitani.isEmpty()) {
+                    // Nothing known about the chunk, the payments after it stay unpaid for the next settlement
+                    logger.error("Settlement stopped after payment {}: {}", posleId, e.getMessage());
+                    break;
+                }
+                logger.error("Settlement chunk after payment {} failed: {}", posleId, e.getMessage());
+                procitani.get(0).forEach(id -> rezultati.add(SettlementResult.failure(id, "Chunk rolled back: " + e.getMessage())));
+            }
+
+            List<Long> ids = procitani.get(0);
+            if (ids.size() < velicina) {
+                break;
+            }
+            posleId = ids.get(ids.size() - 1);
+        }
+        return rezultati;
+    }
+
+    /**
+     * Settles the unpaid payments among {@code ids}, {@code redovi} are their ID, status, method, date and order total
+     */
+    private void settleChunk(Collection<Long> ids, List<Object[]> redovi, Map<Long, SettlementResult> rezultati) {
+        Map<Long, Object[]> poId = redovi.stream().collect(Collectors.toMap(red -> (Long) red[0], red -> red));
+
+        List<Long> zaNaplatu = new ArrayList<>();
+        for (Long id : ids) {
+            Object[] red = poId.get(id);
+            String greska = red == null ? "Placanje with ID " + id + " not found" : validate((StatusPlacanja) red[1]);
+            if (greska != null) {
+                rezultati.put(id, SettlementResult.failure(id, greska));
+            } else {
+                zaNaplatu.add(id);
+            }
+        }
+        if (zaNaplatu.isEmpty()) {
+            return;
+        }
+
+        int placeno = placanjeRepository.advanceStatus(zaNaplatu, StatusPlacanja.NEPLACENO, StatusPlacanja.PLACENO);
+        if (placeno != zaNaplatu.size()) {
+            // Cannot happen while the rows are locked, the chunk is rolled back rather than counted wrong
+            throw new IllegalStateException((zaNaplatu.size() - placeno) + " payments were changed concurrently");
+        }
+
+        List<Object[]> prihodi = new ArrayList<>(zaNaplatu.size());
+        Map<NacinPlacanja, Long> brojPoNacinu = new EnumMap<>(NacinPlacanja.class);
+        Map<NacinPlacanja, BigDecimal> iznosPoNacinu = new EnumMap<>(NacinPlacanja.class);
+        for (Long id : zaNaplatu) {
+            Object[] red = poId.get(id);
+            NacinPlacanja nacin = (NacinPlacanja) red[2];
+            BigDecimal iznos = (BigDecimal) red[4];
+            rezultati.put(id, SettlementResult.success(id, iznos));
+            prihodi.add(new Object[]{red[3], iznos});
+            brojPoNacinu.merge(nacin, 1L, Long::sum);
+            iznosPoNacinu.merge(nacin, iznos, BigDecimal::add);
+        }
+        brojPoNacinu.forEach((nacin, broj) -> liveStatistics.paymentsChanged(
+                StatusPlacanja.NEPLACENO, StatusPlacanja.PLACENO, nacin, broj, iznosPoNacinu.get(nacin)));
+        // Last, the bucket rows stay locked until the commit
+        revenueRollup.addAll(prihodi);
+        logger.debug("Settled {} payments", placeno);
+    }
+
+    private static String validate(StatusPlacanja status) {
+        if (status == StatusPlacanja.PLACENO) {
+            return "Payment is already processed";
+        }
+        if (status == StatusPlacanja.OTKAZANO) {
+            return "Payment is cancelled";
+        }
+        return null;
+    }
+}
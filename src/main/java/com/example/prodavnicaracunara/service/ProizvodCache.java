@@ -0,0 +1,206 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.dto.CursorPage;
+import com.example.prodavnicaracunara.entity.Proizvod;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process cache of the product catalog.
+ * <p>
+ * Products are cached by ID. List pages (in stock, price range) are cached only as the IDs they contain and are rebuilt from
+ * the product entries, so a changed product is corrected in every cached page by evicting its one entry.
+ * Pages are dropped only when a change can alter which products they contain: any product edit drops all
+ * pages, a stock change drops the in-stock pages. Evictions run after the changing transaction commits.
+ * <p>
+ * A read that started before such a commit may return after its eviction with rows read before it. Single products
+ * are loaded under their entry's lock, so the eviction waits for the load and drops it. Pages and bulk loads record
+ * when they started and drop what they cached if the product or page was evicted since; a read older than the entry
+ * TTL caches nothing. Cached products are detached copies shared by all requests and must not be modified.
+ * <p>
+ * The order path never reads this cache, stock is reserved against the table (or the inventory ledger),
+ * so a cached catalog entry can only make the catalog view lag, never oversell.
+ * Hit, miss and eviction counts are published as {@code cache.*} metrics.
+ */
+@Component
+public class ProizvodCache {
+
+    private static final String NA_STANJU = "stanje:";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.cache.proizvodi.max-size:10000}")
+    private long maxProizvoda;
+
+    @Value("${app.cache.proizvodi.ttl-ms:600000}")
+    private long proizvodTtlMs;
+
+    @Value("${app.cache.stranice.max-size:2000}")
+    private long maxStranica;
+
+    @Value("${app.cache.stranice.ttl-ms:60000}")
+    private long straniceTtlMs;
+
+    private Cache<Long, Proizvod> proizvodi;
+
+    private Cache<String, CursorPage<Long>> stranice;
+
+    // System.nanoTime() of the last eviction per product, kept for the TTL, longer than any read that may still cache
+    private Cache<Long, Long> evikcije;
+
+    private volatile long straniceEvikcija = System.nanoTime();
+
+    private volatile long naStanjuEvikcija = System.nanoTime();
+
+    @PostConstruct
+    public void init() {
+        proizvodi = Caffeine.newBuilder()
+                .maximumSize(maxProizvoda)
+                .expireAfterWrite(Duration.ofMillis(proizvodTtlMs))
+                .recordStats()
+                .build();
+        stranice = Caffeine.newBuilder()
+                .maximumSize(maxStranica)
+                .expireAfterWrite(Duration.ofMillis(straniceTtlMs))
+                .recordStats()
+                .build();
+        evikcije = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(proizvodTtlMs))
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, proizvodi, "proizvodi");
+        CaffeineCacheMetrics.monitor(meterRegistry, stranice, "proizvodi.stranice");
+    }
+
+    /**
+     * Returns the cached product or loads it, a loader exception is passed on and nothing is cached
+     */
+    public Proizvod get(Long id, Function<Long, Proizvod> ucitaj) {
+        // Loaded under the entry's lock, an eviction of the product waits for the load to finish
+        return proizvodi.get(id, kljuc -> kopija(ucitaj.apply(kljuc)));
+    }
+
+    /**
+     * Returns a list page of products, cached under {@code kljuc}.
+     * Products of a cached page that are no longer cached are loaded with one {@code ucitaj} call.
+     */
+    public CursorPage<Proizvod> page(String kljuc, Supplier<CursorPage<Proizvod>> upit,
+                                     Function<Collection<Long>, List<Proizvod>> ucitaj) {
+        CursorPage<Long> ids = stranice.getIfPresent(kljuc);
+        if (ids == null) {
+            long pocetak = System.nanoTime();
+            CursorPage<Proizvod> stranica = upit.get();
+            stranica.getStavke().forEach(proizvod -> cache(proizvod, pocetak));
+            CursorPage<Long> nova = stranica.map(Proizvod::getId);
+            stranice.put(kljuc, nova);
+            long evikcija = kljuc.startsWith(NA_STANJU) ? Math.max(straniceEvikcija, naStanjuEvikcija) : straniceEvikcija;
+            if (stale(evikcija, pocetak)) {
+                stranice.asMap().remove(kljuc, nova);
+            }
+            return stranica;
+        }
+        return load(ids, ucitaj);
+    }
+
+    /**
+     * Returns the products of a page of IDs in page order, those not cached are loaded with one {@code ucitaj} call
+     */
+    public CursorPage<Proizvod> load(CursorPage<Long> ids, Function<Collection<Long>, List<Proizvod>> ucitaj) {
+        long pocetak = System.nanoTime();
+        Map<Long, Proizvod> ucitani = new HashMap<>(proizvodi.getAllPresent(ids.getStavke()));
+        List<Long> nedostaju = ids.getStavke().stream().filter(id -> !ucitani.containsKey(id)).toList();
+        if (!nedostaju.isEmpty()) {
+            ucitaj.apply(nedostaju).forEach(proizvod -> ucitani.put(proizvod.getId(), cache(proizvod, pocetak)));
+        }
+        // A product deleted since the page was read is left out
+        List<Proizvod> stavke = ids.getStavke().stream()
+                .map(ucitani::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new CursorPage<>(stavke, ids.getSledeciKursor());
+    }
+
+    /**
+     * Key of a price range page
+     */
+    public static String priceRangeKey(BigDecimal minCena, BigDecimal maxCena, long posleId, int velicina) {
+        return "cena:" + posleId + ":" + velicina + ":" + minCena.stripTrailingZeros().toPlainString()
+                + "-" + maxCena.stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * Key of an in-stock page, dropped on every stock change
+     */
+    public static String inStockKey(long posleId, int velicina) {
+        return NA_STANJU + posleId + ":" + velicina;
+    }
+
+    /**
+     * A product was created, edited or deleted: drops its entry and all pages once the transaction commits
+     */
+    public void evictProizvod(Long id) {
+        AfterCommit.run(() -> {
+            long sada = System.nanoTime();
+            evikcije.put(id, sada);
+            straniceEvikcija = sada;
+            proizvodi.invalidate(id);
+            stranice.invalidateAll();
+        });
+    }
+
+    /**
+     * Stock of the given products changed: drops their entries and the in-stock pages once the transaction commits
+     */
+    public void evictStock(Collection<Long> ids) {
+        List<Long> kopija = List.copyOf(ids);
+        AfterCommit.run(() -> {
+            long sada = System.nanoTime();
+            kopija.forEach(id -> evikcije.put(id, sada));
+            naStanjuEvikcija = sada;
+            proizvodi.invalidateAll(kopija);
+            stranice.asMap().keySet().removeIf(kljuc -> kljuc.startsWith(NA_STANJU));
+        });
+    }
+
+    /**
+     * Caches a detached copy of a product read at {@code pocetak}, unless the product was evicted since
+     */
+    private Proizvod cache(Proizvod proizvod, long pocetak) {
+        Proizvod kopija = kopija(proizvod);
+        proizvodi.put(kopija.getId(), kopija);
+        // Evicted after the check would also remove the new entry, evicted before it is removed here
+        Long evikcija = evikcije.getIfPresent(kopija.getId());
+        if (stale(evikcija != null ? evikcija : pocetak - 1, pocetak)) {
+            proizvodi.asMap().remove(kopija.getId(), kopija);
+        }
+        return kopija;
+    }
+
+    private boolean stale(long evikcija, long pocetak) {
+        return evikcija - pocetak >= 0 || System.nanoTime() - pocetak >= Duration.ofMillis(proizvodTtlMs).toNanos();
+    }
+
+    private static Proizvod kopija(Proizvod proizvod) {
+        Proizvod kopija = new Proizvod(proizvod.getNaziv(), proizvod.getCpu(), proizvod.getRam(), proizvod.getGpu(),
+                proizvod.getCena(), proizvod.getKolicinaUStanju());
+        kopija.setId(proizvod.getId());
+        kopija.setVerzija(proizvod.getVerzija());
+        return kopija;
+    }
+}
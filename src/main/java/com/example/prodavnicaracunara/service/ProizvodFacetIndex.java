@@ -0,0 +1,304 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.dto.CursorPage;
+import com.example.prodavnicaracunara.dto.FacetPage;
+import com.example.prodavnicaracunara.dto.ProizvodFacetFilter;
+import com.example.prodavnicaracunara.entity.Proizvod;
+import com.example.prodavnicaracunara.event.ProizvodChangedEvent;
+import com.example.prodavnicaracunara.repository.ProizvodRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Columnar in-memory index of parsed hardware attributes for faceted product search.
+ * <p>
+ * Each facet is a column of {@code short} codes into a sorted dictionary of its values, prices are a column of
+ * {@code long} cents, rows are ordered by product ID. A filter is resolved once per request into a
+ * {@code boolean} per dictionary code, then one pass over the columns finds the matching products and counts
+ * every facet value among the products that pass all other filters.
+ * <p>
+ * Attributes are parsed by {@link HardwareSpecs}, rows are kept up to date from {@link ProizvodChangedEvent}
+ * after commit and the columns are rebuilt on the first search after a change.
+ */
+@Component
+public class ProizvodFacetIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProizvodFacetIndex.class);
+
+    private static final List<Faseta> FASETE = List.of(
+            new Faseta("ramGb", HardwareSpecs::getRamGb),
+            new Faseta("cpuProizvodjac", HardwareSpecs::getCpuProizvodjac),
+            new Faseta("cpuJezgra", HardwareSpecs::getCpuJezgra),
+            new Faseta("gpuProizvodjac", HardwareSpecs::getGpuProizvodjac),
+            new Faseta("gpuSerija", HardwareSpecs::getGpuSerija),
+            new Faseta("vramGb", HardwareSpecs::getVramGb));
+
+    private static final short NEPOZNATO = -1;
+
+    @Autowired
+    private ProizvodRepository proizvodRepository;
+
+    @Value("${app.search.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    // Parsed products by ID, guarded by this
+    private final TreeMap<Long, Red> redovi = new TreeMap<>();
+
+    // Columns built from redovi, null after a change until the next search
+    private volatile Kolone kolone;
+
+    /**
+     * Parses the whole catalog on startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Replaces the index with the current catalog
+     */
+    public synchronized void rebuild() {
+        long pocetak = System.currentTimeMillis();
+        redovi.clear();
+        long posleId = 0;
+        List<Proizvod> proizvodi;
+        do {
+            proizvodi = proizvodRepository.findByIdGreaterThanOrderByIdAsc(posleId, PageRequest.of(0, rebuildBatchSize));
+            for (Proizvod proizvod : proizvodi) {
+                redovi.put(proizvod.getId(), red(ProizvodChangedEvent.saved(proizvod)));
+                posleId = proizvod.getId();
+            }
+        } while (proizvodi.size() == rebuildBatchSize);
+        kolone = null;
+        logger.info("Product facet index rebuilt with {} products in {} ms", redovi.size(), System.currentTimeMillis() - pocetak);
+    }
+
+    /**
+     * Updates the product row once its change is committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProizvodChanged(ProizvodChangedEvent event) {
+        if (event.isObrisan()) {
+            redovi.remove(event.getProizvodId());
+        } else {
+            redovi.put(event.getProizvodId(), red(event));
+        }
+        kolone = null;
+    }
+
+    /**
+     * Returns IDs of products matching the filter in ID order, with facet value counts
+     */
+    public FacetPage<Long> search(ProizvodFacetFilter filter, CursorPagination.Upit upit) {
+        Kolone k = kolone();
+        int brojFaseta = FASETE.size();
+
+        boolean[][] dozvoljeno = new boolean[brojFaseta][];
+        List<Predicate<Object>> uslovi = conditions(filter);
+        for (int f = 0; f < brojFaseta; f++) {
+            Predicate<Object> uslov = uslovi.get(f);
+            if (uslov != null) {
+                dozvoljeno[f] = new boolean[k.recnici[f].length];
+                for (int kod = 0; kod < dozvoljeno[f].length; kod++) {
+                    dozvoljeno[f][kod] = uslov.test(k.recnici[f][kod]);
+                }
+            }
+        }
+        long minCena = filter.getMinCena() == null ? Long.MIN_VALUE : cents(filter.getMinCena());
+        long maxCena = filter.getMaxCena() == null ? Long.MAX_VALUE : cents(filter.getMaxCena());
+
+        int[][] brojevi = new int[brojFaseta][];
+        for (int f = 0; f < brojFaseta; f++) {
+            brojevi[f] = new int[k.recnici[f].length];
+        }
+        List<Long> stranica = new ArrayList<>(upit.getVelicina() + 1);
+        int ukupno = 0;
+
+        for (int i = 0; i < k.ids.length; i++) {
+            if (k.cene[i] < minCena || k.cene[i] > maxCena) {
+                continue;
+            }
+            // The only facet whose filter the row fails, -2 when it fails more than one
+            int promasena = -1;
+            for (int f = 0; f < brojFaseta && promasena != -2; f++) {
+                if (dozvoljeno[f] != null) {
+                    short kod = k.kodovi[f][i];
+                    if (kod == NEPOZNATO || !dozvoljeno[f][kod]) {
+                        promasena = promasena == -1 ? f : -2;
+                    }
+                }
+            }
+            if (promasena == -1) {
+                ukupno++;
+                if (k.ids[i] > upit.getPosleId() && stranica.size() <= upit.getVelicina()) {
+                    stranica.add(k.ids[i]);
+                }
+                for (int f = 0; f < brojFaseta; f++) {
+                    count(brojevi[f], k.kodovi[f][i]);
+                }
+            } else if (promasena >= 0) {
+                count(brojevi[promasena], k.kodovi[promasena][i]);
+            }
+        }
+
+        Map<String, Map<String, Integer>> fasete = new LinkedHashMap<>();
+        for (int f = 0; f < brojFaseta; f++) {
+            Map<String, Integer> vrednosti = new LinkedHashMap<>();
+            for (int kod = 0; kod < brojevi[f].length; kod++) {
+                if (brojevi[f][kod] > 0) {
+                    vrednosti.put(k.recnici[f][kod].toString(), brojevi[f][kod]);
+                }
+            }
+            fasete.put(FASETE.get(f).naziv, vrednosti);
+        }
+        CursorPage<Long> ids = upit.page(stranica, Function.identity());
+        return new FacetPage<>(ids, ukupno, fasete);
+    }
+
+    private Kolone kolone() {
+        Kolone trenutne = kolone;
+        if (trenutne != null) {
+            return trenutne;
+        }
+        synchronized (this) {
+            if (kolone == null) {
+                kolone = new Kolone(redovi);
+            }
+            return kolone;
+        }
+    }
+
+    // One condition per facet in FASETE order, null for a facet without a filter
+    private static List<Predicate<Object>> conditions(ProizvodFacetFilter filter) {
+        List<Predicate<Object>> uslovi = new ArrayList<>();
+        uslovi.add(atLeast(filter.getMinRamGb()));
+        uslovi.add(anyOf(filter.getCpuProizvodjac()));
+        uslovi.add(atLeast(filter.getMinCpuJezgra()));
+        uslovi.add(anyOf(filter.getGpuProizvodjac()));
+        uslovi.add(anyOf(filter.getGpuSerija()));
+        uslovi.add(atLeast(filter.getMinVramGb()));
+        return uslovi;
+    }
+
+    private static Predicate<Object> atLeast(Integer min) {
+        return min == null ? null : vrednost -> (Integer) vrednost >= min;
+    }
+
+    private static Predicate<Object> anyOf(List<String> izbor) {
+        if (izbor == null || izbor.isEmpty()) {
+            return null;
+        }
+        Set<String> velikim = izbor.stream().map(v -> v.trim().toUpperCase(Locale.ROOT)).collect(Collectors.toSet());
+        return velikim::contains;
+    }
+
+    private static void count(int[] brojevi, short kod) {
+        if (kod != NEPOZNATO) {
+            brojevi[kod]++;
+        }
+    }
+
+    private static Red red(ProizvodChangedEvent proizvod) {
+        return new Red(cents(proizvod.getCena()), HardwareSpecs.parse(proizvod.getCpu(), proizvod.getRam(), proizvod.getGpu()));
+    }
+
+    private static long cents(BigDecimal iznos) {
+        return iznos.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static final class Faseta {
+
+        private final String naziv;
+        private final Function<HardwareSpecs, Object> vrednost;
+
+        private Faseta(String naziv, Function<HardwareSpecs, Object> vrednost) {
+            this.naziv = naziv;
+            this.vrednost = vrednost;
+        }
+    }
+
+    private static final class Red {
+
+        private final long cena;
+        private final HardwareSpecs specs;
+
+        private Red(long cena, HardwareSpecs specs) {
+            this.cena = cena;
+            this.specs = specs;
+        }
+    }
+
+    /**
+     * Immutable column snapshot, searches read it without locking
+     */
+    private static final class Kolone {
+
+        private final long[] ids;
+        private final long[] cene;
+        private final short[][] kodovi;
+        private final Object[][] recnici;
+
+        private Kolone(TreeMap<Long, Red> redovi) {
+            int n = redovi.size();
+            ids = new long[n];
+            cene = new long[n];
+            kodovi = new short[FASETE.size()][n];
+            recnici = new Object[FASETE.size()][];
+
+            for (int f = 0; f < FASETE.size(); f++) {
+                Function<HardwareSpecs, Object> vrednost = FASETE.get(f).vrednost;
+                TreeSet<Object> vrednosti = new TreeSet<>();
+                redovi.values().forEach(red -> {
+                    Object v = vrednost.apply(red.specs);
+                    if (v != null) {
+                        vrednosti.add(v);
+                    }
+                });
+                recnici[f] = vrednosti.toArray();
+            }
+
+            List<Map<Object, Short>> kodoviVrednosti = new ArrayList<>();
+            for (Object[] recnik : recnici) {
+                Map<Object, Short> kodVrednosti = new HashMap<>();
+                for (short kod = 0; kod < recnik.length; kod++) {
+                    kodVrednosti.put(recnik[kod], kod);
+                }
+                kodoviVrednosti.add(kodVrednosti);
+            }
+
+            int i = 0;
+            for (Map.Entry<Long, Red> red : redovi.entrySet()) {
+                ids[i] = red.getKey();
+                cene[i] = red.getValue().cena;
+                for (int f = 0; f < FASETE.size(); f++) {
+                    Object v = FASETE.get(f).vrednost.apply(red.getValue().specs);
+                    kodovi[f][i] = v == null ? NEPOZNATO : kodoviVrednosti.get(f).get(v);
+                }
+                i++;
+            }
+        }
+    }
+}
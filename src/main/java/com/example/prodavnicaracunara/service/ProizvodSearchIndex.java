@@ -0,0 +1,185 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.dto.CursorPage;
+import com.example.prodavnicaracunara.entity.Proizvod;
+import com.example.prodavnicaracunara.event.ProizvodChangedEvent;
+import com.example.prodavnicaracunara.repository.ProizvodRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory full-text index of the product catalog (Lucene).
+ * <p>
+ * Name, CPU, RAM and GPU are tokenized, lower-cased and folded to ASCII, so {@code "čip"} finds {@code "Cip"}.
+ * Every word of the search text has to match some field, as a whole word or as a word prefix, and hits are
+ * ranked by BM25 relevance with matches in the name weighted highest; equal scores are ordered by product ID.
+ * <p>
+ * The index is rebuilt from the database on startup and updated from {@link ProizvodChangedEvent} after commit.
+ * Products written to the table outside {@link ProizvodService} show up after the next {@link #rebuild()}.
+ * The index holds product IDs only, products are loaded through {@link ProizvodCache}.
+ */
+@Component
+public class ProizvodSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProizvodSearchIndex.class);
+
+    // Field boosts, a word in the name is worth more than the same word in the specs
+    private static final Map<String, Float> POLJA = Map.of("naziv", 3f, "cpu", 1f, "ram", 1f, "gpu", 1f);
+
+    // A prefix match scores less than the whole word
+    private static final float PREFIKS = 0.5f;
+
+
+    @Autowired
+    private ProizvodRepository proizvodRepository;
+
+    @Value("${app.search.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    private final Analyzer analyzer = new KatalogAnalyzer();
+
+    private LuceneIndex index;
+
+    @PostConstruct
+    public void init() throws IOException {
+        index = new LuceneIndex(analyzer, "pretraga");
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        index.close();
+    }
+
+    /**
+     * Indexes the whole catalog on startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Replaces the index with the current catalog
+     */
+    public void rebuild() {
+        long pocetak = System.currentTimeMillis();
+        long broj = index.rebuild(rebuildBatchSize, proizvodRepository::findByIdGreaterThanOrderByIdAsc,
+                Proizvod::getId, proizvod -> document(ProizvodChangedEvent.saved(proizvod)));
+        logger.info("Product search index rebuilt with {} products in {} ms", broj, System.currentTimeMillis() - pocetak);
+    }
+
+    /**
+     * Updates the product in the index once its change is committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProizvodChanged(ProizvodChangedEvent event) {
+        if (event.isObrisan()) {
+            index.delete(event.getProizvodId());
+        } else {
+            index.update(event.getProizvodId(), document(event));
+        }
+    }
+
+    /**
+     * Returns IDs of matching products, most relevant first. Blank text matches every product in ID order.
+     */
+    public CursorPage<Long> search(String tekst, String kursor, int velicina) {
+        return index.search(query(tekst), kursor, velicina);
+    }
+
+    private Query query(String tekst) {
+        List<String> reci = analyze(tekst == null ? "" : tekst);
+        if (reci.isEmpty()) {
+            return new MatchAllDocsQuery();
+        }
+        BooleanQuery.Builder upit = new BooleanQuery.Builder();
+        for (String rec : reci) {
+            BooleanQuery.Builder poljaReci = new BooleanQuery.Builder();
+            POLJA.forEach((polje, tezina) -> {
+                poljaReci.add(new BoostQuery(new TermQuery(new Term(polje, rec)), tezina), BooleanClause.Occur.SHOULD);
+                poljaReci.add(new BoostQuery(new PrefixQuery(new Term(polje, rec)), tezina * PREFIKS), BooleanClause.Occur.SHOULD);
+            });
+            upit.add(poljaReci.build(), BooleanClause.Occur.MUST);
+        }
+        return upit.build();
+    }
+
+    private List<String> analyze(String tekst) {
+        List<String> reci = new ArrayList<>();
+        try (TokenStream tokeni = analyzer.tokenStream("naziv", tekst)) {
+            CharTermAttribute rec = tokeni.addAttribute(CharTermAttribute.class);
+            tokeni.reset();
+            while (tokeni.incrementToken()) {
+                reci.add(rec.toString());
+            }
+            tokeni.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return reci;
+    }
+
+    private static Document document(ProizvodChangedEvent proizvod) {
+        Document document = new Document();
+        addText(document, "naziv", proizvod.getNaziv());
+        addText(document, "cpu", proizvod.getCpu());
+        addText(document, "ram", proizvod.getRam());
+        addText(document, "gpu", proizvod.getGpu());
+        return document;
+    }
+
+    private static void addText(Document document, String polje, String vrednost) {
+        if (vrednost != null) {
+            document.add(new TextField(polje, vrednost, Field.Store.NO));
+        }
+    }
+
+    /**
+     * Splits on word boundaries, lower-cases and removes diacritics ({@code đ -> d}, {@code č -> c})
+     */
+    private static final class KatalogAnalyzer extends Analyzer {
+
+        @Override
+        protected TokenStreamComponents createComponents(String polje) {
+            StandardTokenizer tokenizer = new StandardTokenizer();
+            TokenStream tokeni = new ASCIIFoldingFilter(new LowerCaseFilter(tokenizer));
+            return new TokenStreamComponents(tokenizer, tokeni);
+        }
+
+        @Override
+        protected TokenStream normalize(String polje, TokenStream ulaz) {
+            return new ASCIIFoldingFilter(new LowerCaseFilter(ulaz));
+        }
+    }
+}
@@ -1,16 +1,25 @@
 package com.example.prodavnicaracunara.service;
 
+import com.example.prodavnicaracunara.dto.CursorPage;
+import com.example.prodavnicaracunara.dto.FacetPage;
+import com.example.prodavnicaracunara.dto.ProizvodFacetFilter;
 import com.example.prodavnicaracunara.entity.Proizvod;
+import com.example.prodavnicaracunara.event.ProizvodChangedEvent;
 import com.example.prodavnicaracunara.exception.ResourceNotFoundException;
 import com.example.prodavnicaracunara.repository.ProizvodRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Transactional
@@ -21,6 +30,30 @@ public class ProizvodService {
     @Autowired
     private ProizvodRepository proizvodRepository;
 
+    @Autowired
+    private CursorPagination cursorPagination;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired(required = false)
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private ProizvodCache proizvodCache;
+
+    @Autowired
+    private ProizvodSearchIndex proizvodSearchIndex;
+
+    @Autowired
+    private ProizvodFacetIndex proizvodFacetIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Creates a new product
      */
@@ -28,47 +61,59 @@ public class ProizvodService {
         logger.info("Creating new product: {}", proizvod.getNaziv());
         
         Proizvod savedProizvod = proizvodRepository.save(proizvod);
+        proizvodCache.evictProizvod(savedProizvod.getId());
+        eventPublisher.publishEvent(ProizvodChangedEvent.saved(savedProizvod));
         
         logger.info("Product created successfully with ID: {}", savedProizvod.getId());
         return savedProizvod;
     }
 
     /**
-     * Gets all products
+     * Gets a page of products
      */
     @Transactional(readOnly = true)
-    public List<Proizvod> getAllProizvodi() {
-        logger.debug("Fetching all products");
-        return proizvodRepository.findAll();
+    public CursorPage<Proizvod> getAllProizvodi(String kursor, Integer velicina) {
+        logger.debug("Fetching products after cursor: {}", kursor);
+        CursorPagination.Upit upit = cursorPagination.upit(kursor, velicina);
+        return upit.page(proizvodRepository.findByIdGreaterThanOrderByIdAsc(upit.getPosleId(), upit.pageable()), Proizvod::getId);
     }
 
     /**
-     * Gets a product by ID
+     * Gets a product by ID, from the catalog cache when present.
+     * Cached reads join no transaction, a miss is loaded by the repository in its own read-only transaction.
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Proizvod getProizvodById(Long id) {
         logger.debug("Fetching product with ID: {}", id);
-        return proizvodRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Proizvod with ID " + id + " not found"));
+        return proizvodCache.get(id, kljuc -> proizvodRepository.findById(kljuc)
+                .orElseThrow(() -> new ResourceNotFoundException("Proizvod with ID " + kljuc + " not found")));
     }
 
     /**
-     * Updates an existing product
+     * Updates an existing product, {@code ifMatch} (may be {@code null}) has to list the current ETag
      */
-    public Proizvod updateProizvod(Long id, Proizvod proizvod) {
+    public Proizvod updateProizvod(Long id, Proizvod proizvod, String ifMatch) {
         logger.info("Updating product with ID: {}", id);
         
         Proizvod existingProizvod = proizvodRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Proizvod with ID " + id + " not found"));
+        EntityTags.requireMatch(ifMatch, () -> EntityTags.proizvod(existingProizvod));
 
         existingProizvod.setNaziv(proizvod.getNaziv());
         existingProizvod.setCpu(proizvod.getCpu());
         existingProizvod.setRam(proizvod.getRam());
         existingProizvod.setGpu(proizvod.getGpu());
         existingProizvod.setCena(proizvod.getCena());
-        existingProizvod.setKolicinaUStanju(proizvod.getKolicinaUStanju());
+        if (inventoryLedger == null) {
+            existingProizvod.setKolicinaUStanju(proizvod.getKolicinaUStanju());
+        }
 
         Proizvod updatedProizvod = proizvodRepository.save(existingProizvod);
+        proizvodCache.evictProizvod(id);
+        eventPublisher.publishEvent(ProizvodChangedEvent.saved(updatedProizvod));
+        if (inventoryLedger != null) {
+            updatedProizvod = adjustLedgerStock(updatedProizvod, proizvod.getKolicinaUStanju());
+        }
         logger.info("Product updated successfully: {}", updatedProizvod.getId());
         
         return updatedProizvod;
@@ -85,47 +130,78 @@ public class ProizvodService {
         }
         
         proizvodRepository.deleteById(id);
+        proizvodCache.evictProizvod(id);
+        eventPublisher.publishEvent(ProizvodChangedEvent.deleted(id));
+        if (inventoryLedger != null) {
+            inventoryLedger.remove(id);
+        }
         logger.info("Product deleted successfully: {}", id);
     }
 
     /**
-     * Searches products by name
+     * Full-text search over name, CPU, RAM and GPU, most relevant first.
+     * The search index supplies the IDs, the products come from the catalog cache.
      */
-    @Transactional(readOnly = true)
-    public List<Proizvod> searchByNaziv(String naziv) {
-        logger.debug("Searching products by name: {}", naziv);
-        return proizvodRepository.findByNazivContainingIgnoreCase(naziv);
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public CursorPage<Proizvod> search(String tekst, String kursor, Integer velicina) {
+        logger.debug("Searching products: {}", tekst);
+        CursorPage<Long> ids = proizvodSearchIndex.search(tekst, kursor, cursorPagination.velicina(velicina));
+        return proizvodCache.load(ids, proizvodRepository::findAllById);
     }
 
     /**
-     * Finds products in stock
+     * Filters products by parsed hardware attributes and price, with facet value counts
      */
-    @Transactional(readOnly = true)
-    public List<Proizvod> getProizvodiInStock() {
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public FacetPage<Proizvod> facetSearch(ProizvodFacetFilter filter, String kursor, Integer velicina) {
+        logger.debug("Faceted product search");
+        FacetPage<Long> rezultat = proizvodFacetIndex.search(filter, cursorPagination.upit(kursor, velicina));
+        return rezultat.withProizvodi(proizvodCache.load(rezultat.getProizvodi(), proizvodRepository::findAllById));
+    }
+
+    /**
+     * Finds products in stock, cached
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public CursorPage<Proizvod> getProizvodiInStock(String kursor, Integer velicina) {
         logger.debug("Fetching products in stock");
-        return proizvodRepository.findInStock();
+        CursorPagination.Upit upit = cursorPagination.upit(kursor, velicina);
+        return proizvodCache.page(ProizvodCache.inStockKey(upit.getPosleId(), upit.getVelicina()),
+                () -> upit.page(proizvodRepository.findInStock(upit.getPosleId(), upit.pageable()), Proizvod::getId),
+                proizvodRepository::findAllById);
     }
 
     /**
-     * Finds products by price range
+     * Finds products by price range, cached
      */
-    @Transactional(readOnly = true)
-    public List<Proizvod> getProizvodiByPriceRange(BigDecimal minCena, BigDecimal maxCena) {
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public CursorPage<Proizvod> getProizvodiByPriceRange(BigDecimal minCena, BigDecimal maxCena, String kursor, Integer velicina) {
         logger.debug("Fetching products in price range: {} - {}", minCena, maxCena);
-        return proizvodRepository.findByCenaBetween(minCena, maxCena);
+        CursorPagination.Upit upit = cursorPagination.upit(kursor, velicina);
+        return proizvodCache.page(ProizvodCache.priceRangeKey(minCena, maxCena, upit.getPosleId(), upit.getVelicina()),
+                () -> upit.page(proizvodRepository.findByCenaBetweenAndIdGreaterThanOrderByIdAsc(
+                        minCena, maxCena, upit.getPosleId(), upit.pageable()), Proizvod::getId),
+                proizvodRepository::findAllById);
     }
 
     /**
-     * Updates product stock
+     * Updates product stock, {@code ifMatch} (may be {@code null}) has to list the current ETag
      */
-    public Proizvod updateStock(Long id, Integer newStock) {
+    public Proizvod updateStock(Long id, Integer newStock, String ifMatch) {
         logger.info("Updating stock for product ID: {} to {}", id, newStock);
         
         Proizvod proizvod = proizvodRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Proizvod with ID " + id + " not found"));
+        EntityTags.requireMatch(ifMatch, () -> EntityTags.proizvod(proizvod));
         
-        proizvod.setKolicinaUStanju(newStock);
-        Proizvod updatedProizvod = proizvodRepository.save(proizvod);
+        Proizvod updatedProizvod;
+        if (inventoryLedger != null) {
+            updatedProizvod = adjustLedgerStock(proizvod, newStock);
+        } else {
+            proizvod.setKolicinaUStanju(newStock);
+            updatedProizvod = proizvodRepository.save(proizvod);
+        }
+        proizvodCache.evictStock(List.of(id));
         
         logger.info("Stock updated successfully for product: {}", id);
         return updatedProizvod;
@@ -137,16 +213,17 @@ public class ProizvodService {
     public void reduceStock(Long id, Integer quantity) {
         logger.info("Reducing stock for product ID: {} by {}", id, quantity);
         
-        Proizvod proizvod = proizvodRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Proizvod with ID " + id + " not found"));
-        
-        if (proizvod.getKolicinaUStanju() < quantity) {
-            throw new IllegalArgumentException("Insufficient stock. Available: " + proizvod.getKolicinaUStanju() + ", Required: " + quantity);
-        }
-        
-        proizvod.setKolicinaUStanju(proizvod.getKolicinaUStanju() - quantity);
-        proizvodRepository.save(proizvod);
+        stockReservationService.reserve(Map.of(id, quantity));
         
         logger.info("Stock reduced successfully for product: {}", id);
     }
+
+    // In ledger mode stock is written by the ledger flush, the returned copy shows the ledger value
+    private Proizvod adjustLedgerStock(Proizvod proizvod, Integer newStock) {
+        inventoryLedger.adjustTo(proizvod.getId(), newStock);
+        proizvodRepository.flush();
+        entityManager.detach(proizvod);
+        proizvod.setKolicinaUStanju(inventoryLedger.available(proizvod.getId()));
+        return proizvod;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.dto.CursorPage;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopFieldDocs;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Cursor paging of a relevance-ranked Lucene search.
+ * <p>
+ * Hits are sorted by score, equal scores by the entity ID doc value. The cursor is the sort key of the last hit,
+ * so the next page is read with {@code searchAfter} and costs the same however deep the client is.
+ */
+final class RelevancePaging {
+
+    private final String prefiks;
+    private final Sort redosled;
+
+    /**
+     * @param prefiks cursor prefix, tells cursors of different searches apart
+     * @param idPolje numeric doc values field with the entity ID
+     */
+    RelevancePaging(String prefiks, String idPolje) {
+        this.prefiks = prefiks + ":";
+        this.redosled = new Sort(SortField.FIELD_SCORE, new SortField(idPolje, SortField.Type.LONG));
+    }
+
+    /**
+     * Returns IDs of one page of hits after the cursor
+     */
+    CursorPage<Long> search(IndexSearcher searcher, Query upit, String kursor, int velicina) throws IOException {
+        Object[] posle = decode(kursor);
+        // A hit sorting equal to the cursor is the cursor itself, the last doc number makes searchAfter skip it
+        FieldDoc od = posle == null ? null
+                : new FieldDoc(searcher.getIndexReader().maxDoc() - 1, (Float) posle[0], posle);
+        TopFieldDocs rezultat = searcher.searchAfter(od, upit, velicina + 1, redosled, true);
+
+        ScoreDoc[] pogoci = rezultat.scoreDocs;
+        List<Long> ids = new ArrayList<>(velicina);
+        for (int i = 0; i < Math.min(pogoci.length, velicina); i++) {
+            ids.add((Long) ((FieldDoc) pogoci[i]).fields[1]);
+        }
+        // The extra hit only tells whether another page exists
+        String sledeci = pogoci.length > velicina ? encode((FieldDoc) pogoci[velicina - 1]) : null;
+        return new CursorPage<>(ids, sledeci);
+    }
+
+    private String encode(FieldDoc poslednji) {
+        String vrednost = prefiks + poslednji.fields[0] + ":" + poslednji.fields[1];
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(vrednost.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Object[] decode(String kursor) {
+        if (kursor == null || kursor.isBlank()) {
+            return null;
+        }
+        try {
+            String vrednost = new String(Base64.getUrlDecoder().decode(kursor), StandardCharsets.UTF_8);
+            if (!vrednost.startsWith(prefiks)) {
+                throw new IllegalArgumentException("Invalid cursor: " + kursor);
+            }
+            String[] delovi = vrednost.substring(prefiks.length()).split(":");
+            if (delovi.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor: " + kursor);
+            }
+            return new Object[]{Float.parseFloat(delovi[0]), Long.parseLong(delovi[1])};
+        } catch (IllegalArgumentException e) {
+            // Also covers malformed base64 and NumberFormatException
+            throw new IllegalArgumentException("Invalid cursor: " + kursor);
+        }
+    }
+}
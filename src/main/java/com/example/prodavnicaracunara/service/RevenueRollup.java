@@ -0,0 +1,229 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.repository.PlacanjeRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Hourly and daily revenue rollups ({@code prihod_po_satu}, {@code prihod_po_danu}).
+ * <p>
+ * A paid payment adds its order total to the hour and the day of its date ({@code placanja.datum}, the date revenue
+ * ranges filter on) and a refund subtracts it again, in the transaction that changes the payment. Buckets are changed
+ * with atomic increments, so concurrent payments never overwrite each other; payments dated within the same hour
+ * wait for each other's commit on the bucket row, which is why the increment comes last in the payment transaction.
+ * <p>
+ * Revenue over a range is read from the whole days and hours it covers plus the payments of the two partial hours at
+ * its edges, so its cost does not depend on how many payments fall in the range. The rollups are rebuilt from the
+ * payments on startup when they are empty (a new or migrated database).
+ */
+@Component
+public class RevenueRollup {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevenueRollup.class);
+
+    private static final String SAT_UPDATE = "UPDATE prihod_po_satu SET iznos = iznos + ?, broj_placanja = broj_placanja + ? WHERE sat = ?";
+    private static final String SAT_INSERT = "INSERT INTO prihod_po_satu (sat, iznos, broj_placanja) VALUES (?, ?, ?)";
+    private static final String DAN_UPDATE = "UPDATE prihod_po_danu SET iznos = iznos + ?, broj_placanja = broj_placanja + ? WHERE dan = ?";
+    private static final String DAN_INSERT = "INSERT INTO prihod_po_danu (dan, iznos, broj_placanja) VALUES (?, ?, ?)";
+
+    private static final String SATI_SQL = "SELECT COALESCE(SUM(iznos), 0) FROM prihod_po_satu WHERE sat >= ? AND sat < ?";
+    private static final String DANI_SQL = "SELECT COALESCE(SUM(iznos), 0) FROM prihod_po_danu WHERE dan >= ? AND dan < ?";
+
+    private static final String PLACENA_JPQL = "SELECT p.datum, n.ukupnaCena FROM Placanje p JOIN p.narudzba n WHERE p.status = 'PLACENO'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlacanjeRepository placanjeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Rows of the rebuild are streamed like those of the exports, see ExportService
+    @Value("${app.streaming.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * Rebuilds the rollups of an existing database on its first start with them
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Integer dani = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM prihod_po_danu", Integer.class);
+        if (dani == 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Adds a payment that was just paid, call it in the paying transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(LocalDateTime datum, BigDecimal iznos) {
+        increment(datum, iznos, 1);
+    }
+
+    /**
+     * Adds payments (rows of date and order total) paid together in the current transaction, with one increment
+     * per hour and day they fall in
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addAll(List<Object[]> placanja) {
+        Map<LocalDateTime, Zbir> sati = new TreeMap<>();
+        Map<LocalDate, Zbir> dani = new TreeMap<>();
+        placanja.forEach(red -> aggregate(red, sati, dani));
+        // Buckets in key order, concurrent settlements lock them in the same order
+        sati.forEach((sat, zbir) -> increment(SAT_UPDATE, SAT_INSERT, sat, zbir.iznos, zbir.broj));
+        dani.forEach((dan, zbir) -> increment(DAN_UPDATE, DAN_INSERT, dan, zbir.iznos, zbir.broj));
+    }
+
+    /**
+     * Subtracts a paid payment that is refunded or removed, call it in the same transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void subtract(LocalDateTime datum, BigDecimal iznos) {
+        increment(datum, iznos.negate(), -1);
+    }
+
+    /**
+     * Revenue of payments paid and dated between {@code od} and {@code doVkljucivo} (both inclusive)
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal revenue(LocalDateTime od, LocalDateTime doVkljucivo) {
+        // Scale of the prices, whichever of the sums below it comes from
+        return sumRange(od, doVkljucivo).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private BigDecimal sumRange(LocalDateTime od, LocalDateTime doVkljucivo) {
+        // Half-open range at the microsecond precision of the columns
+        LocalDateTime kraj = doVkljucivo.truncatedTo(ChronoUnit.MICROS).plus(1, ChronoUnit.MICROS);
+        if (!od.isBefore(kraj)) {
+            return BigDecimal.ZERO;
+        }
+
+        LocalDateTime prviSat = ceilToHour(od);
+        LocalDateTime krajSati = kraj.truncatedTo(ChronoUnit.HOURS);
+        if (!prviSat.isBefore(krajSati)) {
+            // No whole hour in the range
+            return placanjeRepository.sumRevenue(od, kraj);
+        }
+
+        BigDecimal ukupno = payments(od, prviSat).add(payments(krajSati, kraj));
+        LocalDate prviDan = prviSat.toLocalTime().equals(LocalTime.MIDNIGHT) ? prviSat.toLocalDate() : prviSat.toLocalDate().plusDays(1);
+        LocalDate krajDana = krajSati.toLocalDate();
+        if (prviDan.isBefore(krajDana)) {
+            return ukupno.add(sum(DANI_SQL, prviDan, krajDana))
+                    .add(sum(SATI_SQL, prviSat, prviDan.atStartOfDay()))
+                    .add(sum(SATI_SQL, krajDana.atStartOfDay(), krajSati));
+        }
+        return ukupno.add(sum(SATI_SQL, prviSat, krajSati));
+    }
+
+    /**
+     * Replaces the rollups with sums over the paid payments, in one transaction
+     */
+    public void rebuild() {
+        long pocetak = System.currentTimeMillis();
+        Map<LocalDateTime, Zbir> sati = new TreeMap<>();
+        Map<LocalDate, Zbir> dani = new TreeMap<>();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            try (Stream<Object[]> placanja = entityManager.createQuery(PLACENA_JPQL, Object[].class)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                    .getResultStream()) {
+                placanja.forEach(red -> aggregate(red, sati, dani));
+            }
+            jdbcTemplate.update("DELETE FROM prihod_po_satu");
+            jdbcTemplate.update("DELETE FROM prihod_po_danu");
+            jdbcTemplate.batchUpdate(SAT_INSERT, rows(sati));
+            jdbcTemplate.batchUpdate(DAN_INSERT, rows(dani));
+        });
+        logger.info("Revenue rollups rebuilt with {} hours and {} days in {} ms",
+                sati.size(), dani.size(), System.currentTimeMillis() - pocetak);
+    }
+
+    private static void aggregate(Object[] red, Map<LocalDateTime, Zbir> sati, Map<LocalDate, Zbir> dani) {
+        LocalDateTime datum = (LocalDateTime) red[0];
+        BigDecimal iznos = (BigDecimal) red[1];
+        sati.computeIfAbsent(datum.truncatedTo(ChronoUnit.HOURS), sat -> new Zbir()).dodaj(iznos);
+        dani.computeIfAbsent(datum.toLocalDate(), dan -> new Zbir()).dodaj(iznos);
+    }
+
+    private void increment(LocalDateTime datum, BigDecimal iznos, long broj) {
+        increment(SAT_UPDATE, SAT_INSERT, datum.truncatedTo(ChronoUnit.HOURS), iznos, broj);
+        increment(DAN_UPDATE, DAN_INSERT, datum.toLocalDate(), iznos, broj);
+    }
+
+    private void increment(String update, String insert, Object kljuc, BigDecimal iznos, long broj) {
+        if (jdbcTemplate.update(update, iznos, broj, kljuc) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(insert, kljuc, iznos, broj);
+        } catch (DuplicateKeyException e) {
+            // A concurrent payment created the bucket in between
+            jdbcTemplate.update(update, iznos, broj, kljuc);
+        }
+    }
+
+    private BigDecimal payments(LocalDateTime od, LocalDateTime doIskljucivo) {
+        return od.isBefore(doIskljucivo) ? placanjeRepository.sumRevenue(od, doIskljucivo) : BigDecimal.ZERO;
+    }
+
+    private BigDecimal sum(String sql, Object od, Object doIskljucivo) {
+        return jdbcTemplate.queryForObject(sql, BigDecimal.class, od, doIskljucivo);
+    }
+
+    private static LocalDateTime ceilToHour(LocalDateTime vreme) {
+        LocalDateTime sat = vreme.truncatedTo(ChronoUnit.HOURS);
+        return sat.equals(vreme) ? sat : sat.plusHours(1);
+    }
+
+    private static List<Object[]> rows(Map<?, Zbir> zbirovi) {
+        List<Object[]> redovi = new ArrayList<>(zbirovi.size());
+        zbirovi.forEach((kljuc, zbir) -> redovi.add(new Object[]{kljuc, zbir.iznos, zbir.broj}));
+        return redovi;
+    }
+
+    /**
+     * Running sum of one bucket during a rebuild or a bulk add
+     */
+    private static final class Zbir {
+
+        private BigDecimal iznos = BigDecimal.ZERO;
+        private long broj;
+
+        private void dodaj(BigDecimal vrednost) {
+            iznos = iznos.add(vrednost);
+            broj++;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.prodavnicaracunara.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.function.LongSupplier;
+
+/**
+ * Time-ordered, node-aware order number generator in the style of Snowflake.
+ * <p>
+ * Every number packs 41 bits of milliseconds since {@link #EPOCH}, a 10 bit node ID
+ * ({@code app.node-id}, unique per running instance) and a 12 bit per-millisecond sequence.
+ * The value is rendered as fixed-width base 36, so order numbers sort in creation order
+ * and inserts into the {@code broj_narudzbe} unique index stay append-mostly.
+ * <p>
+ * The generator keeps a logical clock that never moves backwards: if the wall clock
+ * is turned back, or more than 4096 numbers are requested in one millisecond, it keeps
+ * counting from the last issued timestamp instead of repeating a value.
+ */
+@Component
+public class SnowflakeOrderNumberGenerator implements OrderNumberGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnowflakeOrderNumberGenerator.class);
+
+    static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    private static final String PREFIX = "ORD-";
+    // Long.MAX_VALUE has 13 digits in base 36
+    private static final int WIDTH = 13;
+
+    private final long nodeId;
+
+    // Wall clock in epoch milliseconds
+    private final LongSupplier sat;
+
+    private long lastTimestamp = -1L;
+    private long sequence = 0L;
+
+    @Autowired
+    public SnowflakeOrderNumberGenerator(@Value("${app.node-id:0}") long nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    SnowflakeOrderNumberGenerator(long nodeId, LongSupplier sat) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("app.node-id must be between 0 and " + MAX_NODE_ID + ", was: " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.sat = sat;
+        logger.info("Order number generator initialized for node ID: {}", nodeId);
+    }
+
+    @Override
+    public String nextOrderNumber() {
+        return format(nextId());
+    }
+
+    /**
+     * Returns the next raw 63 bit identifier
+     */
+    synchronized long nextId() {
+        long timestamp = Math.max(sat.getAsLong() - EPOCH, lastTimestamp);
+
+        if (timestamp == lastTimestamp) {
+            sequence = (sequence + 1) & MAX_SEQUENCE;
+            if (sequence == 0) {
+                // Sequence exhausted for this millisecond, borrow the next one
+                timestamp = lastTimestamp + 1;
+            }
+        } else {
+            sequence = 0;
+        }
+
+        lastTimestamp = timestamp;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    static String format(long id) {
+        String digits = Long.toString(id, 36).toUpperCase();
+        StringBuilder broj = new StringBuilder(PREFIX.length() + WIDTH).append(PREFIX);
+        for (int i = digits.length(); i < WIDTH; i++) {
+            broj.append('0');
+        }
+        return broj.append(digits).toString();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.entity.Proizvod;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the second-level cache of products consistent with the stock updates that bypass Hibernate
+ * (reservations, releases and inventory ledger flushes).
+ * <p>
+ * Applies Hibernate's own update protocol to rows it did not write: the changed products are soft-locked in the
+ * transaction of the update and unlocked once it completes. Until then every read of them goes to the table, and a
+ * read that started before the commit cannot put the old row back afterwards. Cached query results over
+ * {@code proizvodi} (in-stock pages) are invalidated the same way.
+ */
+@Component
+public class StockCacheLocks {
+
+    private static final String[] PROIZVODI = {"proizvodi"};
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Locks the cached products until the current transaction completes, call it with the stock update
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lock(Collection<Long> ids) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        SessionFactoryImplementor factory = session.getFactory();
+        EntityPersister persister = factory.getMappingMetamodel().getEntityDescriptor(Proizvod.class);
+        EntityDataAccess cache = persister.getCacheAccessStrategy();
+        TimestampsCache timestamps = factory.getCache().getTimestampsCache();
+
+        Map<Object, SoftLock> zakljucani = new HashMap<>();
+        if (cache != null) {
+            for (Long id : ids) {
+                Object kljuc = cache.generateCacheKey(id, persister, factory, session.getTenantIdentifier());
+                zakljucani.put(kljuc, cache.lockItem(session, kljuc, null));
+            }
+        }
+        timestamps.preInvalidate(PROIZVODI, session);
+
+        session.getActionQueue().registerProcess((uspesno, sesija) -> {
+            zakljucani.forEach((kljuc, lock) -> cache.unlockItem(sesija, kljuc, lock));
+            timestamps.invalidate(PROIZVODI, sesija);
+        });
+    }
+}
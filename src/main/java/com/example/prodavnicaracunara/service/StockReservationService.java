@@ -0,0 +1,223 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.entity.Proizvod;
+import com.example.prodavnicaracunara.exception.InsufficientStockException;
+import com.example.prodavnicaracunara.exception.ResourceNotFoundException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reserves product stock for orders with conditional, set-based updates.
+ * <p>
+ * All lines of a reservation are sent as one JDBC batch of guarded
+ * {@code UPDATE ... WHERE kolicinaustanju >= ?} statements, so no product row is read
+ * before it is written and two racing orders can never oversell the same product.
+ * The batch runs in the caller's transaction: if any line comes up short the whole
+ * transaction is rolled back and the shortages are reported per product.
+ * <p>
+ * With {@code app.inventory.mode=ledger} reservations are served by the {@link InventoryLedger} instead.
+ * Changed products are evicted from the {@link ProizvodCache} once the transaction commits and locked in the
+ * second-level cache until it completes ({@link StockCacheLocks}).
+ */
+@Service
+@Transactional
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    private static final String RESERVE_SQL =
+            "UPDATE proizvodi SET kolicinaustanju = kolicinaustanju - ?, verzija = verzija + 1 WHERE id = ? AND kolicinaustanju >= ?";
+
+    private static final String RELEASE_SQL =
+            "UPDATE proizvodi SET kolicinaustanju = kolicinaustanju + ?, verzija = verzija + 1 WHERE id = ?";
+
+    private static final String STOCK_SQL =
+            "SELECT id, kolicinaustanju FROM proizvodi WHERE id IN (:ids)";
+
+    private static final String STATE_SQL =
+            "SELECT id, kolicinaustanju, verzija FROM proizvodi WHERE id IN (:ids)";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired(required = false)
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private ProizvodCache proizvodCache;
+
+    @Autowired
+    private StockCacheLocks stockCacheLocks;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Atomically reserves the given quantity for every product (product ID -> quantity).
+     * Throws {@link InsufficientStockException} listing every product that came up short.
+     */
+    public void reserve(Map<Long, Integer> kolicine) {
+        if (kolicine.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> sortirano = sortedById(kolicine);
+        if (inventoryLedger != null) {
+            inventoryLedger.reserve(sortirano);
+            return;
+        }
+
+        // Lock rows in ascending ID order so concurrent reservations cannot deadlock
+        List<Map.Entry<Long, Integer>> stavke = new ArrayList<>(sortirano.entrySet());
+        logger.debug("Reserving stock for {} products", stavke.size());
+
+        int[] azurirano = jdbcTemplate.getJdbcTemplate().batchUpdate(RESERVE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<Long, Integer> stavka = stavke.get(i);
+                ps.setInt(1, stavka.getValue());
+                ps.setLong(2, stavka.getKey());
+                ps.setInt(3, stavka.getValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return stavke.size();
+            }
+        });
+
+        // A guarded update that matched no row means the product is missing or short on stock.
+        // The driver must report real update counts, so rewriteBatchedStatements has to stay off.
+        Map<Long, Integer> nedostaje = new LinkedHashMap<>();
+        for (int i = 0; i < azurirano.length; i++) {
+            if (azurirano[i] == 0) {
+                nedostaje.put(stavke.get(i).getKey(), stavke.get(i).getValue());
+            }
+        }
+
+        if (!nedostaje.isEmpty()) {
+            Map<Long, Integer> dostupno = findCurrentStock(nedostaje.keySet().stream().toList());
+            for (Long id : nedostaje.keySet()) {
+                if (!dostupno.containsKey(id)) {
+                    throw new ResourceNotFoundException("Proizvod with ID " + id + " not found");
+                }
+            }
+            logger.warn("Stock reservation failed, insufficient stock for products: {}", nedostaje.keySet());
+            throw new InsufficientStockException(nedostaje, dostupno);
+        }
+
+        stockCacheLocks.lock(sortirano.keySet());
+        proizvodCache.evictStock(sortirano.keySet());
+        logger.debug("Stock reserved successfully for {} products", stavke.size());
+    }
+
+    /**
+     * Gives products loaded before their reservation in this transaction the stock and version it left, with one query.
+     * They are detached first, the reservation has already written the new values. With the ledger the stock is the
+     * quantity still available and the version is the table's until the next flush.
+     */
+    public void refresh(Collection<Proizvod> proizvodi) {
+        if (proizvodi.isEmpty()) {
+            return;
+        }
+        proizvodi.forEach(entityManager::detach);
+        if (inventoryLedger != null) {
+            proizvodi.forEach(p -> p.setKolicinaUStanju(inventoryLedger.available(p.getId())));
+            return;
+        }
+
+        Map<Long, Proizvod> poId = proizvodi.stream().collect(Collectors.toMap(Proizvod::getId, Function.identity()));
+        // The reservation holds the row locks, nothing changes the rows before the commit
+        jdbcTemplate.query(STATE_SQL, new MapSqlParameterSource("ids", new ArrayList<>(poId.keySet())), rs -> {
+            Proizvod proizvod = poId.get(rs.getLong("id"));
+            proizvod.setKolicinaUStanju(rs.getInt("kolicinaustanju"));
+            proizvod.setVerzija(rs.getLong("verzija"));
+        });
+    }
+
+    /**
+     * Returns stock (product ID -> quantity) with one batch of increment-by-delta updates,
+     * so concurrent stock changes are never overwritten
+     */
+    public void release(Map<Long, Integer> kolicine) {
+        if (kolicine.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> sortirano = sortedById(kolicine);
+        if (inventoryLedger != null) {
+            inventoryLedger.release(sortirano);
+            return;
+        }
+
+        List<Object[]> stavke = new ArrayList<>();
+        sortirano.forEach((id, kolicina) -> stavke.add(new Object[]{kolicina, id}));
+        int[] azurirano = jdbcTemplate.getJdbcTemplate().batchUpdate(RELEASE_SQL, stavke);
+
+        for (int i = 0; i < azurirano.length; i++) {
+            if (azurirano[i] == 0) {
+                logger.warn("Product {} no longer exists, {} units not returned to stock", stavke.get(i)[1], stavke.get(i)[0]);
+            }
+        }
+        stockCacheLocks.lock(sortirano.keySet());
+        proizvodCache.evictStock(sortirano.keySet());
+        logger.debug("Stock released for {} products", stavke.size());
+    }
+
+    /**
+     * Returns the quantity currently available for reservation per product ID
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Integer> getAvailableStock(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        if (inventoryLedger != null) {
+            Map<Long, Integer> stanje = new HashMap<>();
+            ids.forEach(id -> stanje.put(id, inventoryLedger.available(id)));
+            return stanje;
+        }
+        return findCurrentStock(new ArrayList<>(ids));
+    }
+
+    private Map<Long, Integer> findCurrentStock(List<Long> ids) {
+        Map<Long, Integer> stanje = new HashMap<>();
+        jdbcTemplate.query(STOCK_SQL, new MapSqlParameterSource("ids", ids),
+                rs -> { stanje.put(rs.getLong("id"), rs.getInt("kolicinaustanju")); });
+        return stanje;
+    }
+
+    private static Map<Long, Integer> sortedById(Map<Long, Integer> kolicine) {
+        Map<Long, Integer> sortirano = new TreeMap<>();
+        kolicine.forEach((id, kolicina) -> {
+            if (id == null) {
+                throw new IllegalArgumentException("Product ID is required");
+            }
+            if (kolicina == null || kolicina <= 0) {
+                throw new IllegalArgumentException("Quantity must be positive for product ID: " + id);
+            }
+            sortirano.merge(id, kolicina, Integer::sum);
+        });
+        return sortirano;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.entity.NacinPlacanja;
+import com.example.prodavnicaracunara.exception.PaymentDeclinedException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process payment gateway for development and load tests, used while {@code app.placanja.gateway.type} is
+ * {@code stub}. Answers after {@code latency-ms} plus a random jitter of up to {@code latency-jitter-ms}, and declines
+ * ({@code decline-rate}) or fails ({@code error-rate}) that share of the charges at random.
+ * <p>
+ * Like a real acquirer it takes the charge when it receives it and deduplicates on the payment ID: a payment charged
+ * again (a retry after a timeout, a concurrent duplicate) gets the reference of its first approved charge, even if
+ * the answer to that one never arrived. Declined and failed charges are not kept, the last {@code dedup-max-size}
+ * approved ones are.
+ */
+@Component
+@ConditionalOnProperty(name = "app.placanja.gateway.type", havingValue = "stub", matchIfMissing = true)
+public class StubPaymentGateway implements PaymentGateway {
+
+    @Value("${app.placanja.gateway.stub.latency-ms:50}")
+    private long latencyMs;
+
+    @Value("${app.placanja.gateway.stub.latency-jitter-ms:0}")
+    private long latencyJitterMs;
+
+    @Value("${app.placanja.gateway.stub.decline-rate:0}")
+    private double declineRate;
+
+    @Value("${app.placanja.gateway.stub.error-rate:0}")
+    private double errorRate;
+
+    @Value("${app.placanja.gateway.stub.dedup-max-size:100000}")
+    private long dedupMaxSize;
+
+    private final AtomicLong brojNaplata = new AtomicLong();
+
+    // Charges by payment ID, completed as soon as they are received
+    private Cache<Long, CompletableFuture<String>> naplate;
+
+    @PostConstruct
+    public void init() {
+        naplate = Caffeine.newBuilder().maximumSize(dedupMaxSize).build();
+    }
+
+    @Override
+    public String charge(Long placanjeId, NacinPlacanja nacinPlacanja, BigDecimal iznos) {
+        CompletableFuture<String> nova = new CompletableFuture<>();
+        CompletableFuture<String> naplata = naplate.asMap().putIfAbsent(placanjeId, nova);
+        if (naplata == null) {
+            naplata = nova;
+            receive(placanjeId, nacinPlacanja, nova);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long cekanje = latencyMs + (latencyJitterMs > 0 ? random.nextLong(latencyJitterMs + 1) : 0);
+        if (cekanje > 0) {
+            try {
+                Thread.sleep(cekanje);
+            } catch (InterruptedException e) {
+                // The caller stopped waiting, the charge stands
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Stub gateway interrupted", e);
+            }
+        }
+
+        try {
+            return naplata.join();
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private void receive(Long placanjeId, NacinPlacanja nacinPlacanja, CompletableFuture<String> naplata) {
+        double ishod = ThreadLocalRandom.current().nextDouble();
+        if (ishod < errorRate + declineRate) {
+            // Not charged, a retry is a new charge
+            naplate.asMap().remove(placanjeId, naplata);
+            naplata.completeExceptionally(ishod < errorRate
+                    ? new IllegalStateException("Stub gateway failed to charge payment " + placanjeId)
+                    : new PaymentDeclinedException("Payment " + placanjeId + " was declined by the payment gateway"));
+            return;
+        }
+        naplata.complete("STUB-" + nacinPlacanja + "-" + placanjeId + "-" + brojNaplata.incrementAndGet());
+    }
+}
@@ -16,9 +16,11 @@ public class OrderMonitoringTask {
     private NarudzbaService narudzbaService;
 
     /**
-     * Monitoring task that runs every 5 seconds to check and update order statuses
+     * Safety-net sweep for transitions the {@link OrderStatusScheduler} missed,
+     * for example orders changed by another instance or directly in the database
      */
-    @Scheduled(fixedRate = 5000) // Run every 5 seconds
+    @Scheduled(initialDelayString = "${app.narudzbe.monitoring.sweep-interval-ms:300000}",
+               fixedDelayString = "${app.narudzbe.monitoring.sweep-interval-ms:300000}")
     public void monitorOrderStatuses() {
         try {
             logger.debug("Starting order status monitoring task");
@@ -0,0 +1,232 @@
+package com.example.prodavnicaracunara.task;
+
+import com.example.prodavnicaracunara.entity.StatusNarudzbe;
+import com.example.prodavnicaracunara.event.NarudzbaStatusChangedEvent;
+import com.example.prodavnicaracunara.event.ParticijePreuzeteEvent;
+import com.example.prodavnicaracunara.repository.NarudzbaRepository;
+import com.example.prodavnicaracunara.service.MonitoringLeaseService;
+import com.example.prodavnicaracunara.service.NarudzbaService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Applies automatic order status transitions when they come due.
+ * <p>
+ * Every active order has one pending deadline in a {@link DelayQueue}: {@code U_OBRADI -> POSLATA}
+ * after {@code app.narudzbe.monitoring.processing-delay-ms} and {@code POSLATA -> ISPORUCENA} after
+ * {@code app.narudzbe.monitoring.delivery-delay-ms}, both counted from order creation. A single thread
+ * stays parked until the earliest deadline expires, then applies all expired deadlines with one guarded
+ * bulk update per status, so an idle shop costs nothing regardless of how many orders are active.
+ * Deadlines are reloaded from the database on startup and scheduled from status change events after commit.
+ * <p>
+ * With {@link MonitoringLeaseService} leases enabled, only orders in the partitions this instance holds are
+ * scheduled: deadlines are loaded for partitions as they are taken over, orders changed here in a partition held by
+ * another instance are left to that instance's sweep, and deadlines of partitions lost in the meantime are dropped
+ * when they come due. The status guard makes a transition applied by two instances a no-op for the second one.
+ */
+@Component
+public class OrderStatusScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatusScheduler.class);
+
+    private static final long RETRY_DELAY_MS = 5000;
+
+    @Autowired
+    private NarudzbaService narudzbaService;
+
+    @Autowired
+    private NarudzbaRepository narudzbaRepository;
+
+    @Autowired
+    private MonitoringLeaseService monitoringLeaseService;
+
+    @Value("${app.narudzbe.monitoring.processing-delay-ms:300000}")
+    private long processingDelayMs;
+
+    @Value("${app.narudzbe.monitoring.delivery-delay-ms:600000}")
+    private long deliveryDelayMs;
+
+    @Value("${app.narudzbe.monitoring.batch-size:500}")
+    private int batchSize;
+
+    private final DelayQueue<Rok> rokovi = new DelayQueue<>();
+
+    // Current deadline per order, entries replaced in the queue are skipped when they expire
+    private final ConcurrentHashMap<Long, Rok> zakazano = new ConcurrentHashMap<>();
+
+    private volatile Thread radnik;
+
+    /**
+     * Loads deadlines of all active orders and starts the scheduler thread.
+     * With monitoring leases deadlines are loaded per partition as the partitions are taken over.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!monitoringLeaseService.isEnabled()) {
+            load(monitoringLeaseService.getPartitionCount(), monitoringLeaseService.getOwnedPartitions());
+        }
+
+        radnik = new Thread(this::run, "narudzba-status-scheduler");
+        radnik.setDaemon(true);
+        radnik.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (radnik != null) {
+            radnik.interrupt();
+        }
+    }
+
+    /**
+     * Loads deadlines of orders in partitions taken over from another instance
+     */
+    @EventListener
+    public void onPartitionsAcquired(ParticijePreuzeteEvent event) {
+        load(event.getBrojParticija(), event.getParticije());
+    }
+
+    /**
+     * Schedules the next transition of an order once its status change is committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(NarudzbaStatusChangedEvent event) {
+        schedule(event.getNarudzbaId(), event.getStatus(), event.getDatumKreiranja());
+    }
+
+    /**
+     * Number of orders with a pending transition
+     */
+    public int getPendingCount() {
+        return zakazano.size();
+    }
+
+    private void load(int brojParticija, Set<Integer> particije) {
+        List<Object[]> aktivne = narudzbaRepository.findActiveOrderDeadlines(brojParticija, particije);
+        for (Object[] red : aktivne) {
+            schedule((Long) red[0], (StatusNarudzbe) red[1], (LocalDateTime) red[2]);
+        }
+        logger.info("Order status scheduler loaded {} pending deadlines", aktivne.size());
+    }
+
+    private void schedule(Long narudzbaId, StatusNarudzbe status, LocalDateTime datumKreiranja) {
+        long kasnjenje;
+        if (status == StatusNarudzbe.U_OBRADI) {
+            kasnjenje = processingDelayMs;
+        } else if (status == StatusNarudzbe.POSLATA) {
+            kasnjenje = deliveryDelayMs;
+        } else {
+            // Delivered and cancelled orders have no further transitions
+            zakazano.remove(narudzbaId);
+            return;
+        }
+        if (!monitoringLeaseService.owns(narudzbaId)) {
+            zakazano.remove(narudzbaId);
+            return;
+        }
+        long kreirano = datumKreiranja.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        enqueue(new Rok(narudzbaId, status, datumKreiranja, kreirano + kasnjenje));
+    }
+
+    private void enqueue(Rok rok) {
+        zakazano.put(rok.narudzbaId, rok);
+        rokovi.put(rok);
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<Rok> dospeli = new ArrayList<>();
+                dospeli.add(rokovi.take());
+                rokovi.drainTo(dospeli, batchSize - 1);
+                apply(dospeli);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.error("Error occurred in order status scheduler: {}", e.getMessage(), e);
+            }
+        }
+        logger.info("Order status scheduler stopped");
+    }
+
+    private void apply(List<Rok> dospeli) {
+        Map<StatusNarudzbe, List<Rok>> poStatusu = dospeli.stream()
+                .filter(rok -> zakazano.remove(rok.narudzbaId, rok))
+                // Partition taken over by another instance, which loaded the deadline itself
+                .filter(rok -> monitoringLeaseService.owns(rok.narudzbaId))
+                .collect(Collectors.groupingBy(rok -> rok.status));
+
+        List<Rok> obrada = poStatusu.getOrDefault(StatusNarudzbe.U_OBRADI, List.of());
+        if (advance(obrada, StatusNarudzbe.POSLATA)) {
+            // Bulk updates publish no events, so the delivery deadline is scheduled here
+            obrada.forEach(rok -> schedule(rok.narudzbaId, StatusNarudzbe.POSLATA, rok.datumKreiranja));
+        }
+        advance(poStatusu.getOrDefault(StatusNarudzbe.POSLATA, List.of()), StatusNarudzbe.ISPORUCENA);
+    }
+
+    private boolean advance(List<Rok> rokoviZaStatus, StatusNarudzbe noviStatus) {
+        if (rokoviZaStatus.isEmpty()) {
+            return false;
+        }
+        StatusNarudzbe status = rokoviZaStatus.get(0).status;
+        List<Long> ids = rokoviZaStatus.stream().map(rok -> rok.narudzbaId).collect(Collectors.toList());
+        try {
+            // Orders that changed status in the meantime are skipped by the status guard
+            narudzbaService.advanceStatus(ids, status, noviStatus);
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Error advancing {} orders from {}, retrying in {} ms: {}", ids.size(), status, RETRY_DELAY_MS, e.getMessage());
+            long ponovo = System.currentTimeMillis() + RETRY_DELAY_MS;
+            rokoviZaStatus.forEach(rok -> zakazano.computeIfAbsent(rok.narudzbaId, id -> {
+                Rok novi = new Rok(rok.narudzbaId, rok.status, rok.datumKreiranja, ponovo);
+                rokovi.put(novi);
+                return novi;
+            }));
+            return false;
+        }
+    }
+
+    private static final class Rok implements Delayed {
+
+        private final Long narudzbaId;
+        private final StatusNarudzbe status;
+        private final LocalDateTime datumKreiranja;
+        private final long dospeva;
+
+        private Rok(Long narudzbaId, StatusNarudzbe status, LocalDateTime datumKreiranja, long dospeva) {
+            this.narudzbaId = narudzbaId;
+            this.status = status;
+            this.datumKreiranja = datumKreiranja;
+            this.dospeva = dospeva;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dospeva - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dospeva, ((Rok) other).dospeva);
+        }
+    }
+}
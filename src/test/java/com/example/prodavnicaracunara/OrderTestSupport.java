@@ -0,0 +1,69 @@
+package com.example.prodavnicaracunara;
+
+import com.example.prodavnicaracunara.entity.Kupac;
+import com.example.prodavnicaracunara.entity.Narudzba;
+import com.example.prodavnicaracunara.entity.Proizvod;
+import com.example.prodavnicaracunara.repository.KupacRepository;
+import com.example.prodavnicaracunara.repository.NarudzbaRepository;
+import com.example.prodavnicaracunara.repository.PlacanjeRepository;
+import com.example.prodavnicaracunara.repository.ProizvodRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base of tests that place orders: one customer and two products, a laptop and a mouse, on an emptied database
+ */
+public abstract class OrderTestSupport {
+
+    @Autowired
+    protected KupacRepository kupacRepository;
+
+    @Autowired
+    protected ProizvodRepository proizvodRepository;
+
+    @Autowired
+    protected NarudzbaRepository narudzbaRepository;
+
+    @Autowired
+    protected PlacanjeRepository placanjeRepository;
+
+    protected Kupac kupac;
+
+    protected Proizvod laptop;
+
+    protected Proizvod mis;
+
+    /**
+     * Deletes every order, payment, customer and product and saves the customer and products with the given stock
+     */
+    protected void seed(int laptopNaStanju, int misNaStanju) {
+        placanjeRepository.deleteAll();
+        narudzbaRepository.deleteAll();
+        kupacRepository.deleteAll();
+        proizvodRepository.deleteAll();
+
+        kupac = kupacRepository.save(new Kupac("Ana", "Anić", "ana@example.com", null, "Beograd"));
+        laptop = proizvodRepository.save(new Proizvod("Laptop", "i7", "16GB", "RTX", new BigDecimal("1000"), laptopNaStanju));
+        mis = proizvodRepository.save(new Proizvod("Miš", null, null, null, new BigDecimal("20"), misNaStanju));
+    }
+
+    /**
+     * Order of the customer as a client sends it, products referenced by ID only
+     */
+    protected Narudzba order(Proizvod... proizvodi) {
+        Narudzba narudzba = new Narudzba();
+        narudzba.setKupac(new Kupac());
+        narudzba.getKupac().setId(kupac.getId());
+        List<Proizvod> stavke = new ArrayList<>();
+        for (Proizvod proizvod : proizvodi) {
+            Proizvod stavka = new Proizvod();
+            stavka.setId(proizvod.getId());
+            stavke.add(stavka);
+        }
+        narudzba.setProizvodi(stavke);
+        return narudzba;
+    }
+}
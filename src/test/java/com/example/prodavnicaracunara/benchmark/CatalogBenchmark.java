@@ -0,0 +1,67 @@
+package com.example.prodavnicaracunara.benchmark;
+
+import com.example.prodavnicaracunara.dto.CursorPage;
+import com.example.prodavnicaracunara.dto.FacetPage;
+import com.example.prodavnicaracunara.dto.ProizvodFacetFilter;
+import com.example.prodavnicaracunara.entity.Proizvod;
+import com.example.prodavnicaracunara.repository.ProizvodRepository;
+import com.example.prodavnicaracunara.service.ProizvodService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog search queries over the seeded products
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CatalogBenchmark {
+
+    private ProizvodService proizvodService;
+    private ProizvodRepository proizvodRepository;
+    private ProizvodFacetFilter facetFilter;
+
+    @Setup
+    public void setUp(ShopState shop) {
+        proizvodService = shop.bean(ProizvodService.class);
+        proizvodRepository = shop.bean(ProizvodRepository.class);
+
+        // Same question as searchBySpecifications, answered from the facet index
+        facetFilter = new ProizvodFacetFilter();
+        facetFilter.setCpuProizvodjac(List.of("AMD"));
+        facetFilter.setMinRamGb(32);
+        facetFilter.setGpuSerija(List.of("RTX"));
+        facetFilter.setMaxCena(new BigDecimal("200000"));
+    }
+
+    @Benchmark
+    public CursorPage<Proizvod> search() {
+        return proizvodService.search("thinkpad rtx", null, null);
+    }
+
+    @Benchmark
+    public List<Proizvod> searchBySpecifications() {
+        return proizvodRepository.findBySpecifications(null, "ryzen 7", "32gb", "rtx", null, new BigDecimal("200000"));
+    }
+
+    @Benchmark
+    public FacetPage<Proizvod> facetSearch() {
+        return proizvodService.facetSearch(facetFilter, null, null);
+    }
+
+    @Benchmark
+    public CursorPage<Proizvod> priceRange() {
+        return proizvodService.getProizvodiByPriceRange(new BigDecimal("100000"), new BigDecimal("120000"), null, null);
+    }
+
+    @Benchmark
+    public CursorPage<Proizvod> inStock() {
+        return proizvodService.getProizvodiInStock(null, null);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.prodavnicaracunara.benchmark;
+
+import com.example.prodavnicaracunara.dto.CursorPage;
+import com.example.prodavnicaracunara.dto.NarudzbaDto;
+import com.example.prodavnicaracunara.entity.Proizvod;
+import com.example.prodavnicaracunara.service.NarudzbaService;
+import com.example.prodavnicaracunara.service.ProizvodService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialization of full list pages (500 products, 500 orders) per response encoding, with and without gzip.
+ * Payload sizes are logged once on setup.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EncodingBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(EncodingBenchmark.class);
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private ObjectMapper mapper;
+    private CursorPage<Proizvod> proizvodi;
+    private CursorPage<NarudzbaDto> narudzbe;
+
+    @Setup
+    public void setUp(ShopState shop) throws IOException {
+        // The mappers of the message converters serving the responses
+        Class<? extends AbstractJackson2HttpMessageConverter> converter = switch (format) {
+            case "cbor" -> MappingJackson2CborHttpMessageConverter.class;
+            case "smile" -> MappingJackson2SmileHttpMessageConverter.class;
+            default -> MappingJackson2HttpMessageConverter.class;
+        };
+        mapper = shop.bean(converter).getObjectMapper();
+        proizvodi = shop.bean(ProizvodService.class).getAllProizvodi(null, 500);
+        narudzbe = shop.bean(NarudzbaService.class).getAllNarudzbe(null, 500);
+
+        logger.info("{}{}: proizvodi {} B, narudzbe {} B", format, gzip ? "+gzip" : "",
+                serialize(proizvodi).length, serialize(narudzbe).length);
+    }
+
+    @Benchmark
+    public byte[] proizvodi() throws IOException {
+        return serialize(proizvodi);
+    }
+
+    @Benchmark
+    public byte[] narudzbe() throws IOException {
+        return serialize(narudzbe);
+    }
+
+    private byte[] serialize(Object stranica) throws IOException {
+        ByteArrayOutputStream bajtovi = new ByteArrayOutputStream();
+        try (OutputStream izlaz = gzip ? new GZIPOutputStream(bajtovi) : bajtovi) {
+            mapper.writeValue(izlaz, stranica);
+        }
+        return bajtovi.toByteArray();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.prodavnicaracunara.benchmark;
+
+import com.example.prodavnicaracunara.entity.Kupac;
+import com.example.prodavnicaracunara.entity.Narudzba;
+import com.example.prodavnicaracunara.entity.Proizvod;
+import com.example.prodavnicaracunara.repository.ProizvodRepository;
+import com.example.prodavnicaracunara.service.NarudzbaService;
+import com.example.prodavnicaracunara.service.OrderNumberGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order hot paths: placing an order, pricing its lines and issuing an order number.
+ * Throughput and sampled latency (p99) per operation; run with {@code -prof gc} for allocation rate.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderBenchmark {
+
+    private NarudzbaService narudzbaService;
+    private OrderNumberGenerator orderNumberGenerator;
+    private List<Proizvod> stavke;
+
+    @Setup
+    public void setUp(ShopState shop) {
+        narudzbaService = shop.bean(NarudzbaService.class);
+        orderNumberGenerator = shop.bean(OrderNumberGenerator.class);
+        // A typical basket: laptop, a second unit of it and an accessory
+        List<Proizvod> proizvodi = shop.bean(ProizvodRepository.class).findAllById(List.of(1L, 2L));
+        stavke = List.of(proizvodi.get(0), proizvodi.get(0), proizvodi.get(1));
+    }
+
+    @Benchmark
+    public Narudzba createNarudzba() {
+        Kupac kupac = new Kupac();
+        kupac.setId(ThreadLocalRandom.current().nextLong(1, ShopState.KUPCI + 1));
+
+        List<Proizvod> proizvodi = new ArrayList<>();
+        for (int i = 0; i < ShopState.STAVKI; i++) {
+            Proizvod proizvod = new Proizvod();
+            proizvod.setId(ThreadLocalRandom.current().nextLong(1, ShopState.PROIZVODI + 1));
+            proizvodi.add(proizvod);
+        }
+
+        Narudzba narudzba = new Narudzba();
+        narudzba.setKupac(kupac);
+        narudzba.setProizvodi(proizvodi);
+        return narudzbaService.createNarudzba(narudzba);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public BigDecimal calculateTotalPrice() {
+        return NarudzbaService.calculateTotalPrice(stavke);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String generateOrderNumber() {
+        return orderNumberGenerator.nextOrderNumber();
+    }
+}
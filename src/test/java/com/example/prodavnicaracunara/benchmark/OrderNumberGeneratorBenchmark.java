@@ -0,0 +1,55 @@
+package com.example.prodavnicaracunara.benchmark;
+
+import com.example.prodavnicaracunara.service.OrderNumberGenerator;
+import com.example.prodavnicaracunara.service.SnowflakeOrderNumberGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Snowflake order number generator with the previous
+ * UUID-substring scheme.
+ * <p>
+ * The UUID variant only carries 32 random bits, so it had to be paired with an
+ * {@code existsByBrojNarudzbe} query per order (a 50% collision chance is reached
+ * after roughly 77 000 orders) and its random values scatter inserts across the
+ * whole unique index. The Snowflake variant needs neither.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderNumberGeneratorBenchmark {
+
+    private OrderNumberGenerator snowflake;
+
+    @Setup
+    public void setUp() {
+        snowflake = new SnowflakeOrderNumberGenerator(1);
+    }
+
+    @Benchmark
+    public String snowflake() {
+        return snowflake.nextOrderNumber();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String snowflakeContended() {
+        return snowflake.nextOrderNumber();
+    }
+
+    @Benchmark
+    public String uuidSubstring() {
+        return "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String uuidSubstringContended() {
+        return "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+}
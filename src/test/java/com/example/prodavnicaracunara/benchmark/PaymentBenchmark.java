@@ -0,0 +1,49 @@
+package com.example.prodavnicaracunara.benchmark;
+
+import com.example.prodavnicaracunara.entity.Placanje;
+import com.example.prodavnicaracunara.service.PlacanjeService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payment processing against the seeded payments, each invocation processes a different unpaid payment.
+ * Payments (and the revenue rollups they feed) are reset to unpaid before every iteration.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentBenchmark {
+
+    private static final String RESET_SQL = "UPDATE placanja SET status = 'NEPLACENO' WHERE status <> 'NEPLACENO'";
+
+    private ShopState shop;
+    private PlacanjeService placanjeService;
+    private long sledeci;
+
+    @Setup(Level.Trial)
+    public void setUp(ShopState shop) {
+        this.shop = shop;
+        placanjeService = shop.bean(PlacanjeService.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPayments() {
+        shop.jdbcTemplate.update(RESET_SQL);
+        shop.jdbcTemplate.update("DELETE FROM prihod_po_satu");
+        shop.jdbcTemplate.update("DELETE FROM prihod_po_danu");
+        sledeci = 0;
+    }
+
+    @Benchmark
+    public Placanje processPayment() {
+        if (sledeci == ShopState.NARUDZBE) {
+            // Pool exhausted within one iteration, only happens with very long iterations
+            resetPayments();
+        }
+        return placanjeService.processPayment(++sledeci, null);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.prodavnicaracunara.benchmark;
+
+import com.example.prodavnicaracunara.repository.PlacanjeRepository;
+import com.example.prodavnicaracunara.service.PlacanjeService;
+import com.example.prodavnicaracunara.service.RevenueRollup;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revenue over a range of {@code dani} days, read from the hourly and daily rollups versus summed over the payments.
+ * Every seeded payment (one per 10 minutes) is paid, the range ends mid-hour so both partial edges are read.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RevenueBenchmark {
+
+    @Param({"1", "30", "300"})
+    private int dani;
+
+    private PlacanjeService placanjeService;
+    private PlacanjeRepository placanjeRepository;
+    private LocalDateTime od;
+    private LocalDateTime doVkljucivo;
+    private long pomak;
+
+    @Setup
+    public void setUp(ShopState shop) {
+        placanjeService = shop.bean(PlacanjeService.class);
+        placanjeRepository = shop.bean(PlacanjeRepository.class);
+        shop.jdbcTemplate.update("UPDATE placanja SET status = 'PLACENO'");
+        shop.bean(RevenueRollup.class).rebuild();
+
+        // Seeded payments end about 18 days ago
+        doVkljucivo = LocalDateTime.now().minusDays(20).truncatedTo(ChronoUnit.HOURS).plusMinutes(37);
+        od = doVkljucivo.minusDays(dani).minusMinutes(14);
+    }
+
+    @Benchmark
+    public BigDecimal rollup() {
+        long sekundi = next();
+        return placanjeService.getTotalRevenue(od.plusSeconds(sekundi), doVkljucivo.plusSeconds(sekundi));
+    }
+
+    @Benchmark
+    public BigDecimal scan() {
+        long sekundi = next();
+        return placanjeRepository.sumRevenue(od.plusSeconds(sekundi), doVkljucivo.plusSeconds(sekundi).plus(1, ChronoUnit.MICROS));
+    }
+
+    /**
+     * Shifts the range by up to an hour on every call, H2 would return a repeated query's cached result
+     */
+    private long next() {
+        pomak = (pomak + 1) % 3600;
+        return pomak;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.prodavnicaracunara.benchmark;
+
+import com.example.prodavnicaracunara.dto.SettlementRequest;
+import com.example.prodavnicaracunara.dto.SettlementResult;
+import com.example.prodavnicaracunara.service.PlacanjeService;
+import com.example.prodavnicaracunara.service.PlacanjeSettlementService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settling {@code broj} unpaid payments with one {@code processPayment} call each versus one bulk settlement.
+ * Every invocation settles the next window of seeded payments, reset to unpaid before it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SettlementBenchmark {
+
+    @Param({"1000"})
+    private int broj;
+
+    private ShopState shop;
+    private PlacanjeService placanjeService;
+    private PlacanjeSettlementService placanjeSettlementService;
+    private List<Long> ids;
+    private long pocetak;
+
+    @Setup(Level.Trial)
+    public void setUp(ShopState shop) {
+        this.shop = shop;
+        placanjeService = shop.bean(PlacanjeService.class);
+        placanjeSettlementService = shop.bean(PlacanjeSettlementService.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void nextWindow() {
+        if (pocetak + broj > ShopState.NARUDZBE) {
+            pocetak = 0;
+        }
+        shop.jdbcTemplate.update("UPDATE placanja SET status = 'NEPLACENO' WHERE id > ? AND id <= ?", pocetak, pocetak + broj);
+        ids = new ArrayList<>(broj);
+        for (long id = pocetak + 1; id <= pocetak + broj; id++) {
+            ids.add(id);
+        }
+        pocetak += broj;
+    }
+
+    @Benchmark
+    public int processOneByOne() {
+        ids.forEach(id -> placanjeService.processPayment(id, null));
+        return ids.size();
+    }
+
+    @Benchmark
+    public List<SettlementResult> settle() {
+        return placanjeSettlementService.settle(new SettlementRequest(ids));
+    }
+}
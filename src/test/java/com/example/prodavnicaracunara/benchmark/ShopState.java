@@ -0,0 +1,108 @@
+package com.example.prodavnicaracunara.benchmark;
+
+import com.example.prodavnicaracunara.ProdavnicaRacunaraApplication;
+import com.example.prodavnicaracunara.service.ProizvodFacetIndex;
+import com.example.prodavnicaracunara.service.ProizvodSearchIndex;
+import com.example.prodavnicaracunara.service.RevenueRollup;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Application context on an embedded H2 database seeded with a realistic shop:
+ * {@value #KUPCI} customers, {@value #PROIZVODI} products and {@value #NARUDZBE} orders
+ * of {@value #STAVKI} lines, each with a payment. Shared by all benchmarks of one fork.
+ */
+@State(Scope.Benchmark)
+public class ShopState {
+
+    static final int KUPCI = 10_000;
+    static final int PROIZVODI = 5_000;
+    static final int NARUDZBE = 50_000;
+    static final int STAVKI = 3;
+
+    // Clear of the narudzbe_seq range used by orders created during the benchmark
+    private static final long PRVA_NARUDZBA = 10_000_000L;
+
+    private static final String[] MODELI = {"Lenovo ThinkPad", "Dell XPS", "HP EliteBook", "ASUS ROG", "Acer Aspire",
+            "MSI Katana", "Apple MacBook", "Gigabyte Aorus", "Razer Blade", "Huawei MateBook"};
+    private static final String[] CPU = {"Intel Core i5-13400", "Intel Core i7-13700H", "Intel Core i9-13900K",
+            "AMD Ryzen 5 7600", "AMD Ryzen 7 7840HS", "AMD Ryzen 9 7950X", "Apple M2"};
+    private static final String[] RAM = {"8GB DDR4", "16GB DDR4", "16GB DDR5", "32GB DDR5", "64GB DDR5"};
+    private static final String[] GPU = {"Intel Iris Xe", "NVIDIA RTX 3050", "NVIDIA RTX 4060", "NVIDIA RTX 4070",
+            "NVIDIA RTX 4090", "AMD Radeon RX 7600", "AMD Radeon 780M"};
+
+    ConfigurableApplicationContext context;
+    JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(ProdavnicaRacunaraApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.example.prodavnicaracunara=WARN");
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        seed();
+        // Rows inserted with JDBC bypass the index updates
+        bean(ProizvodSearchIndex.class).rebuild();
+        bean(ProizvodFacetIndex.class).rebuild();
+        bean(RevenueRollup.class).rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    private void seed() {
+        List<Object[]> kupci = new ArrayList<>(KUPCI);
+        for (int i = 0; i < KUPCI; i++) {
+            kupci.add(new Object[]{"Ime" + i, "Prezime" + i, "kupac" + i + "@example.com", "+381601234567", "Ulica " + i + ", Beograd"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO kupci (ime, prezime, email, telefon, adresa, verzija) VALUES (?, ?, ?, ?, ?, 0)", kupci);
+
+        List<Object[]> proizvodi = new ArrayList<>(PROIZVODI);
+        for (int i = 0; i < PROIZVODI; i++) {
+            proizvodi.add(new Object[]{MODELI[i % MODELI.length] + " " + (1000 + i), CPU[i % CPU.length], RAM[i % RAM.length],
+                    GPU[i % GPU.length], BigDecimal.valueOf(30_000 + (i * 7919L) % 270_000, 0), 1_000_000});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO proizvodi (naziv, cpu, ram, gpu, cena, kolicinaustanju, verzija) VALUES (?, ?, ?, ?, ?, ?, 0)", proizvodi);
+
+        String[] statusi = {"ISPORUCENA", "ISPORUCENA", "ISPORUCENA", "POSLATA", "U_OBRADI", "OTKAZANA"};
+        String[] nacini = {"KARTICA", "PAYPAL", "GOTOVINA"};
+        LocalDateTime pocetak = LocalDateTime.now().minusDays(365);
+        List<Object[]> narudzbe = new ArrayList<>(NARUDZBE);
+        List<Object[]> stavke = new ArrayList<>(NARUDZBE * STAVKI);
+        List<Object[]> placanja = new ArrayList<>(NARUDZBE);
+        for (int i = 0; i < NARUDZBE; i++) {
+            long id = PRVA_NARUDZBA + i;
+            Timestamp datum = Timestamp.valueOf(pocetak.plusMinutes(i * 10L));
+            narudzbe.add(new Object[]{id, "SEED-" + i, datum, statusi[i % statusi.length], new BigDecimal("250000.00"), 1 + i % KUPCI});
+            for (int j = 0; j < STAVKI; j++) {
+                stavke.add(new Object[]{id, 1 + (i * 31L + j * 17L) % PROIZVODI});
+            }
+            placanja.add(new Object[]{datum, nacini[i % nacini.length], "NEPLACENO", id});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO narudzbe (id, broj_narudzbe, datum_kreiranja, status, ukupna_cena, kupac_id, verzija) VALUES (?, ?, ?, ?, ?, ?, 0)", narudzbe);
+        jdbcTemplate.batchUpdate("INSERT INTO narudzba_proizvod (narudzba_id, proizvod_id) VALUES (?, ?)", stavke);
+        jdbcTemplate.batchUpdate("INSERT INTO placanja (datum, nacin_placanja, status, narudzba_id, verzija) VALUES (?, ?, ?, ?, 0)", placanja);
+    }
+}
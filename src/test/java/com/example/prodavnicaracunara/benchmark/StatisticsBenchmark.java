@@ -0,0 +1,46 @@
+package com.example.prodavnicaracunara.benchmark;
+
+import com.example.prodavnicaracunara.repository.PlacanjeRepository;
+import com.example.prodavnicaracunara.service.LiveStatistics;
+import com.example.prodavnicaracunara.service.PlacanjeService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payment statistics by method served from the in-memory counters versus the GROUP BY query over the seeded payments
+ * (every other one paid)
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StatisticsBenchmark {
+
+    private PlacanjeService placanjeService;
+    private PlacanjeRepository placanjeRepository;
+
+    @Setup
+    public void setUp(ShopState shop) {
+        placanjeService = shop.bean(PlacanjeService.class);
+        placanjeRepository = shop.bean(PlacanjeRepository.class);
+        shop.jdbcTemplate.update("UPDATE placanja SET status = 'PLACENO' WHERE MOD(id, 2) = 0");
+        // Rows changed with JDBC are picked up by the reconciliation
+        shop.bean(LiveStatistics.class).reconcile();
+        // H2 would otherwise return the previous result of the same query over unchanged tables
+        shop.jdbcTemplate.execute("SET OPTIMIZE_REUSE_RESULTS 0");
+    }
+
+    @Benchmark
+    public List<?> counters() {
+        return placanjeService.getPaymentStatisticsByMethod();
+    }
+
+    @Benchmark
+    public List<?> groupBy() {
+        return placanjeRepository.getPaymentStatisticsByMethod();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.prodavnicaracunara.controller;
+
+import com.example.prodavnicaracunara.OrderTestSupport;
+import com.example.prodavnicaracunara.dto.BatchNarudzbaRequest;
+import com.example.prodavnicaracunara.entity.Kupac;
+import com.example.prodavnicaracunara.entity.Proizvod;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that bulk order ingestion reports one result per order and skips only the invalid ones
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:batchdb",
+        "app.narudzbe.batch.chunk-size=2",
+        "app.narudzbe.batch.max-size=10"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BatchNarudzbaTest extends OrderTestSupport {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void seed() {
+        seed(3, 1);
+    }
+
+    @Test
+    void invalidOrdersAreReportedAndTheRestCreated() throws Exception {
+        Long k = kupac.getId();
+        List<BatchNarudzbaRequest> narudzbe = List.of(
+                new BatchNarudzbaRequest(k, List.of(laptop.getId())),
+                new BatchNarudzbaRequest(k + 1000, List.of(laptop.getId())),
+                new BatchNarudzbaRequest(k, List.of(mis.getId(), mis.getId())),
+                new BatchNarudzbaRequest(k, List.of(mis.getId())),
+                new BatchNarudzbaRequest(k, List.of(laptop.getId(), 424242L)),
+                new BatchNarudzbaRequest(k, List.of(laptop.getId(), laptop.getId())),
+                // Its chunk sees the stock left by the previous chunks
+                new BatchNarudzbaRequest(k, List.of(laptop.getId())));
+
+        mockMvc.perform(post("/narudzbe/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(narudzbe)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ukupno").value(7))
+                .andExpect(jsonPath("$.uspesno").value(3))
+                .andExpect(jsonPath("$.neuspesno").value(4))
+                .andExpect(jsonPath("$.rezultati[0].uspesno").value(true))
+                .andExpect(jsonPath("$.rezultati[0].brojNarudzbe").isNotEmpty())
+                .andExpect(jsonPath("$.rezultati[1].indeks").value(1))
+                .andExpect(jsonPath("$.rezultati[1].uspesno").value(false))
+                .andExpect(jsonPath("$.rezultati[1].greska", containsString("Kupac with ID")))
+                .andExpect(jsonPath("$.rezultati[1].narudzbaId").value(nullValue()))
+                .andExpect(jsonPath("$.rezultati[2].greska", containsString("Insufficient stock")))
+                .andExpect(jsonPath("$.rezultati[3].uspesno").value(true))
+                .andExpect(jsonPath("$.rezultati[4].greska", containsString("Products not found: [424242]")))
+                .andExpect(jsonPath("$.rezultati[5].uspesno").value(true))
+                .andExpect(jsonPath("$.rezultati[6].greska", containsString("Insufficient stock")));
+
+        assertEquals(3, narudzbaRepository.count());
+        assertEquals(0, stock(laptop));
+        assertEquals(0, stock(mis));
+    }
+
+    @Test
+    void oversizedBatchIsRejected() throws Exception {
+        List<BatchNarudzbaRequest> narudzbe = Collections.nCopies(11,
+                new BatchNarudzbaRequest(kupac.getId(), List.of(mis.getId())));
+
+        mockMvc.perform(post("/narudzbe/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(narudzbe)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("maximum is 10")));
+
+        assertEquals(0, narudzbaRepository.count());
+        assertEquals(1, stock(mis));
+    }
+
+    private int stock(Proizvod proizvod) {
+        return proizvodRepository.findById(proizvod.getId()).orElseThrow().getKolicinaUStanju();
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.prodavnicaracunara.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks If-None-Match and If-Match handling, one weak tag for every encoding and that writes answer with the ETag a following GET returns
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:conditionaldb")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ConditionalRequestTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("DELETE FROM placanja");
+        jdbcTemplate.update("DELETE FROM narudzba_proizvod");
+        jdbcTemplate.update("DELETE FROM narudzbe");
+        jdbcTemplate.update("DELETE FROM kupci");
+        jdbcTemplate.update("DELETE FROM proizvodi");
+        jdbcTemplate.update("INSERT INTO kupci (id, ime, prezime, email, adresa, verzija) VALUES (1, 'Ana', 'Anić', 'ana@example.com', 'Beograd', 0)");
+        jdbcTemplate.update("INSERT INTO proizvodi (id, naziv, cena, kolicinaustanju, verzija) VALUES (1, 'Laptop', 1000, 5, 0)");
+        jdbcTemplate.update("INSERT INTO narudzbe (id, broj_narudzbe, datum_kreiranja, status, ukupna_cena, kupac_id, verzija) VALUES (1, 'ET-1', CURRENT_TIMESTAMP, 'U_OBRADI', 1000.00, 1, 0)");
+        jdbcTemplate.update("INSERT INTO narudzba_proizvod (narudzba_id, proizvod_id) VALUES (1, 1)");
+        jdbcTemplate.update("INSERT INTO placanja (id, datum, nacin_placanja, status, narudzba_id, verzija) VALUES (1, CURRENT_TIMESTAMP, 'KARTICA', 'NEPLACENO', 1, 0)");
+    }
+
+    @Test
+    void unchangedResourceAnswers304() throws Exception {
+        for (String putanja : new String[]{"/proizvodi/1", "/kupci/1", "/narudzbe/1", "/placanja/1"}) {
+            String etag = etag(putanja);
+
+            mockMvc.perform(get(putanja).header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.ETAG, etag))
+                    .andExpect(content().string(""));
+            // The tag is weak, its strong form names the same versions
+            assertTrue(etag.startsWith("W/\""));
+            mockMvc.perform(get(putanja).header(HttpHeaders.IF_NONE_MATCH, etag.substring(2)))
+                    .andExpect(status().isNotModified());
+            mockMvc.perform(get(putanja).header(HttpHeaders.IF_NONE_MATCH, "\"drugi\""))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    void everyEncodingSharesTheWeakTag() throws Exception {
+        String json = etag("/narudzbe/1");
+        String cbor = mockMvc.perform(get("/narudzbe/1").accept("application/cbor").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals(json, cbor);
+
+        mockMvc.perform(get("/narudzbe/1").accept("application/x-jackson-smile").header(HttpHeaders.IF_NONE_MATCH, json))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void productUpdateAnswersWithNewETagAndRejectsStaleOne() throws Exception {
+        String staro = etag("/proizvodi/1");
+        String proizvod = """
+                {"naziv": "Laptop Pro", "cena": 1200, "kolicinaUStanju": 5}""";
+
+        String novo = mockMvc.perform(put("/proizvodi/1").header(HttpHeaders.IF_MATCH, staro)
+                        .contentType(MediaType.APPLICATION_JSON).content(proizvod))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(staro, novo);
+        assertEquals(etag("/proizvodi/1"), novo);
+
+        mockMvc.perform(put("/proizvodi/1").header(HttpHeaders.IF_MATCH, staro)
+                        .contentType(MediaType.APPLICATION_JSON).content(proizvod.replace("Pro", "Max")))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(header().string(HttpHeaders.ETAG, novo));
+        mockMvc.perform(get("/proizvodi/1")).andExpect(jsonPath("$.naziv").value("Laptop Pro"));
+
+        String stanje = mockMvc.perform(patch("/proizvodi/1/stock").param("novaKolicina", "7").header(HttpHeaders.IF_MATCH, novo))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals(etag("/proizvodi/1"), stanje);
+    }
+
+    @Test
+    void customerUpdateAnswersWithETagOfFollowingGet() throws Exception {
+        String staro = etag("/kupci/1");
+
+        String novo = mockMvc.perform(put("/kupci/1").header(HttpHeaders.IF_MATCH, staro)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"ime": "Ana", "prezime": "Anić", "email": "ana@example.com", "adresa": "Novi Sad"}"""))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertNotEquals(staro, novo);
+        assertEquals(etag("/kupci/1"), novo);
+    }
+
+    @Test
+    void orderAndPaymentPatchesAnswerWithETagOfFollowingGet() throws Exception {
+        String narudzba = etag("/narudzbe/1");
+        String status = mockMvc.perform(patch("/narudzbe/1/status").param("noviStatus", "POSLATA").header(HttpHeaders.IF_MATCH, narudzba))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals(etag("/narudzbe/1"), status);
+
+        mockMvc.perform(patch("/narudzbe/1/cancel").header(HttpHeaders.IF_MATCH, narudzba))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(header().string(HttpHeaders.ETAG, status));
+
+        String placanje = etag("/placanja/1");
+        String nacin = mockMvc.perform(patch("/placanja/1/payment-method").param("noviNacinPlacanja", "PAYPAL")
+                        .header(HttpHeaders.IF_MATCH, placanje))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(placanje, nacin);
+        assertEquals(etag("/placanja/1"), nacin);
+
+        String otkazano = mockMvc.perform(patch("/placanja/1/cancel").header(HttpHeaders.IF_MATCH, nacin))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals(etag("/placanja/1"), otkazano);
+
+        String otkazana = mockMvc.perform(patch("/narudzbe/1/cancel").header(HttpHeaders.IF_MATCH, etag("/narudzbe/1")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals(etag("/narudzbe/1"), otkazana);
+    }
+
+    private String etag(String putanja) throws Exception {
+        return mockMvc.perform(get(putanja))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.prodavnicaracunara.controller;
+
+import com.example.prodavnicaracunara.entity.NacinPlacanja;
+import com.example.prodavnicaracunara.exception.PaymentDeclinedException;
+import com.example.prodavnicaracunara.service.IdempotencyStore;
+import com.example.prodavnicaracunara.service.PaymentGateway;
+import com.example.prodavnicaracunara.service.PlacanjeService;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that retries with the same Idempotency-Key are replayed and concurrent duplicates share one execution
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:idempotencydb")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class IdempotencyTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private PlacanjeService placanjeService;
+
+    @MockBean
+    private PaymentGateway paymentGateway;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("DELETE FROM idempotentni_zahtevi");
+        jdbcTemplate.update("DELETE FROM placanja");
+        jdbcTemplate.update("DELETE FROM narudzbe");
+        jdbcTemplate.update("DELETE FROM kupci");
+        jdbcTemplate.update("INSERT INTO kupci (id, ime, prezime, email, adresa, verzija) VALUES (1, 'Ana', 'Anić', 'ana@example.com', 'Beograd', 0)");
+        for (long id = 1; id <= 3; id++) {
+            jdbcTemplate.update("INSERT INTO narudzbe (id, broj_narudzbe, datum_kreiranja, status, ukupna_cena, kupac_id, verzija) VALUES (?, ?, CURRENT_TIMESTAMP, 'U_OBRADI', 100.00, 1, 0)",
+                    id, "ID-" + id);
+        }
+        jdbcTemplate.update("INSERT INTO placanja (id, datum, nacin_placanja, status, narudzba_id, verzija) VALUES (2, CURRENT_TIMESTAMP, 'KARTICA', 'NEPLACENO', 2, 0)");
+        jdbcTemplate.update("INSERT INTO placanja (id, datum, nacin_placanja, status, narudzba_id, verzija) VALUES (3, CURRENT_TIMESTAMP, 'PAYPAL', 'NEPLACENO', 3, 0)");
+    }
+
+    @Test
+    void retriedCreateIsReplayedFromTheStoredResponse() throws Exception {
+        Integer id = JsonPath.read(create("kljuc-create", 1)
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString(), "$.id");
+
+        create("kljuc-create", 1)
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyStore.REPLAYED_HEADER, "true"))
+                .andExpect(jsonPath("$.id").value(id))
+                .andExpect(jsonPath("$.status").value("NEPLACENO"));
+
+        verify(placanjeService, times(1)).createPlacanje(any());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM placanja WHERE narudzba_id = 1", Integer.class));
+        assertEquals(201, jdbcTemplate.queryForObject("SELECT status FROM idempotentni_zahtevi WHERE kljuc = 'kljuc-create'", Integer.class));
+
+        // The key belongs to the first request
+        create("kljuc-create", 3).andExpect(status().isBadRequest());
+        // Without the key the retry runs again and fails
+        mockMvc.perform(post("/placanja").contentType(MediaType.APPLICATION_JSON).content(placanje(1)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Payment already exists for order: ID-1"));
+    }
+
+    @Test
+    void retriedProcessIsNotChargedAgain() throws Exception {
+        when(paymentGateway.charge(eq(2L), eq(NacinPlacanja.KARTICA), any())).thenReturn("REF-2");
+
+        String etag = process("kljuc-process", 2)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("PLACENO"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        process("kljuc-process", 2)
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyStore.REPLAYED_HEADER, "true"))
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(jsonPath("$.status").value("PLACENO"));
+
+        verify(paymentGateway, times(1)).charge(eq(2L), any(), any());
+        // Replayed the same way after a restart or on another instance
+        String zaglavlja = jdbcTemplate.queryForObject("SELECT zaglavlja FROM idempotentni_zahtevi WHERE kljuc = 'kljuc-process'", String.class);
+        assertEquals(etag, JsonPath.read(zaglavlja, "$.ETag[0]"));
+    }
+
+    @Test
+    void concurrentDuplicatesShareOneCharge() throws Exception {
+        CountDownLatch uPozivu = new CountDownLatch(1);
+        CountDownLatch odgovori = new CountDownLatch(1);
+        when(paymentGateway.charge(eq(2L), eq(NacinPlacanja.KARTICA), any())).thenAnswer(poziv -> {
+            uPozivu.countDown();
+            odgovori.await(5, TimeUnit.SECONDS);
+            return "REF-2";
+        });
+
+        // The first request waits for the gateway, the duplicates wait for the first request
+        List<MvcResult> zahtevi = new ArrayList<>();
+        zahtevi.add(start("kljuc-isti", 2));
+        assertTrue(uPozivu.await(2, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            zahtevi.add(start("kljuc-isti", 2));
+        }
+        odgovori.countDown();
+
+        int ponovljeni = 0;
+        for (MvcResult zahtev : zahtevi) {
+            zahtev.getAsyncResult(5_000);
+            MvcResult odgovor = mockMvc.perform(asyncDispatch(zahtev))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.id").value(2))
+                    .andExpect(jsonPath("$.status").value("PLACENO"))
+                    .andReturn();
+            if ("true".equals(odgovor.getResponse().getHeader(IdempotencyStore.REPLAYED_HEADER))) {
+                ponovljeni++;
+            }
+        }
+        assertEquals(3, ponovljeni);
+        verify(paymentGateway, times(1)).charge(eq(2L), any(), any());
+    }
+
+    @Test
+    void failureIsSharedWithWaitingDuplicatesAndCanBeRetried() throws Exception {
+        CountDownLatch uPozivu = new CountDownLatch(1);
+        CountDownLatch odgovori = new CountDownLatch(1);
+        when(paymentGateway.charge(eq(3L), eq(NacinPlacanja.PAYPAL), any()))
+                .thenAnswer(poziv -> {
+                    uPozivu.countDown();
+                    odgovori.await(5, TimeUnit.SECONDS);
+                    throw new PaymentDeclinedException("Payment 3 was declined by the payment gateway");
+                })
+                .thenReturn("REF-3");
+
+        MvcResult prvi = start("kljuc-odbijen", 3);
+        assertTrue(uPozivu.await(2, TimeUnit.SECONDS));
+        MvcResult duplikat = start("kljuc-odbijen", 3);
+        odgovori.countDown();
+
+        for (MvcResult zahtev : List.of(prvi, duplikat)) {
+            zahtev.getAsyncResult(5_000);
+            mockMvc.perform(asyncDispatch(zahtev))
+                    .andExpect(status().isPaymentRequired())
+                    .andExpect(jsonPath("$.message").value("Payment 3 was declined by the payment gateway"));
+        }
+
+        // Nothing was stored for the key, the retry is charged
+        process("kljuc-odbijen", 3)
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IdempotencyStore.REPLAYED_HEADER))
+                .andExpect(jsonPath("$.status").value("PLACENO"));
+        verify(paymentGateway, times(2)).charge(eq(3L), any(), any());
+    }
+
+    private ResultActions create(String kljuc, long narudzbaId) throws Exception {
+        return mockMvc.perform(post("/placanja").header(IdempotencyStore.HEADER, kljuc)
+                .contentType(MediaType.APPLICATION_JSON).content(placanje(narudzbaId)));
+    }
+
+    private ResultActions process(String kljuc, long id) throws Exception {
+        MvcResult rezultat = start(kljuc, id);
+        rezultat.getAsyncResult(5_000);
+        return mockMvc.perform(asyncDispatch(rezultat));
+    }
+
+    private MvcResult start(String kljuc, long id) throws Exception {
+        MvcResult rezultat = mockMvc.perform(patch("/placanja/{id}/process", id).header(IdempotencyStore.HEADER, kljuc)).andReturn();
+        assertTrue(rezultat.getRequest().isAsyncStarted());
+        return rezultat;
+    }
+
+    private static String placanje(long narudzbaId) {
+        return """
+                {"narudzba": {"id": %d}, "nacinPlacanja": "KARTICA"}""".formatted(narudzbaId);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.prodavnicaracunara.controller;
+
+import com.example.prodavnicaracunara.OrderTestSupport;
+import com.example.prodavnicaracunara.entity.Kupac;
+import com.example.prodavnicaracunara.entity.NacinPlacanja;
+import com.example.prodavnicaracunara.entity.Narudzba;
+import com.example.prodavnicaracunara.entity.Placanje;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that list endpoints run a fixed number of SQL statements however many rows they return
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:querycountdb",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ListQueryCountTest extends OrderTestSupport {
+
+    private static final int BROJ_NARUDZBI = 12;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void seed() {
+        seed(100, 100);
+
+        for (int i = 0; i < BROJ_NARUDZBI; i++) {
+            Kupac vlasnik = i % 2 == 0 ? kupac
+                    : kupacRepository.save(new Kupac("Kupac" + i, "Prezime", "kupac" + i + "@example.com", null, null));
+            Narudzba narudzba = narudzbaRepository.save(new Narudzba("ORD-TEST-" + i, vlasnik,
+                    new ArrayList<>(List.of(laptop, mis, mis)), new BigDecimal("1040")));
+            placanjeRepository.save(new Placanje(narudzba, NacinPlacanja.KARTICA));
+        }
+    }
+
+    @Test
+    void orderListsLoadPaymentsAndProductsPerPage() throws Exception {
+        assertStatements(2, "/narudzbe", BROJ_NARUDZBI);
+        assertStatements(2, "/narudzbe/kupac/" + kupac.getId(), BROJ_NARUDZBI / 2);
+        assertStatements(2, "/narudzbe/status/U_OBRADI", BROJ_NARUDZBI);
+        assertStatements(2, "/narudzbe/active", BROJ_NARUDZBI);
+    }
+
+    @Test
+    void customerAndPaymentListsRunOneQuery() throws Exception {
+        assertStatements(1, "/kupci", BROJ_NARUDZBI / 2 + 1);
+        assertStatements(1, "/placanja", BROJ_NARUDZBI);
+        assertStatements(1, "/placanja/kupac/" + kupac.getId(), BROJ_NARUDZBI / 2);
+        assertStatements(1, "/placanja/status/NEPLACENO", BROJ_NARUDZBI);
+    }
+
+    private void assertStatements(long ocekivano, String putanja, int brojStavki) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get(putanja))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.velicina").value(brojStavki));
+
+        assertEquals(ocekivano, statistics.getPrepareStatementCount(), "SQL statements for " + putanja);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.prodavnicaracunara.controller;
+
+import com.example.prodavnicaracunara.entity.Narudzba;
+import com.example.prodavnicaracunara.exception.InsufficientStockException;
+import com.example.prodavnicaracunara.service.NarudzbaService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that asynchronously accepted orders are refused with 503 once the queue is full
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:acceptancedb",
+        "app.narudzbe.async.enabled=true",
+        "app.narudzbe.async.workers=1",
+        "app.narudzbe.async.queue-capacity=1"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OrderAcceptanceTest {
+
+    private static final String NARUDZBA = """
+            {"brojNarudzbe": "-", "kupac": {"id": 1}, "proizvodi": [{"id": 1}], "ukupnaCena": 100}""";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private NarudzbaService narudzbaService;
+
+    @Test
+    void fullQueueAnswers503AndAcceptsAgainOnceDrained() throws Exception {
+        CountDownLatch uObradi = new CountDownLatch(1);
+        CountDownLatch nastavi = new CountDownLatch(1);
+        when(narudzbaService.createNarudzba(any(Narudzba.class), anyString())).thenAnswer(poziv -> {
+            uObradi.countDown();
+            nastavi.await(5, TimeUnit.SECONDS);
+            Narudzba narudzba = new Narudzba();
+            narudzba.setId(42L);
+            return narudzba;
+        });
+
+        // One order is processed by the only worker, one waits in the queue of one
+        String prva = accept();
+        assertTrue(uObradi.await(2, TimeUnit.SECONDS));
+        String druga = accept();
+
+        create().andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("$.message", containsString("queue is full")));
+
+        nastavi.countDown();
+        awaitState(prva, "KREIRANA");
+        awaitState(druga, "KREIRANA");
+        mockMvc.perform(get("/narudzbe/async/{broj}", prva)).andExpect(jsonPath("$.narudzbaId").value(42));
+
+        // The refused order never reached a worker
+        verify(narudzbaService, times(2)).createNarudzba(any(Narudzba.class), anyString());
+        accept();
+    }
+
+    @Test
+    void failedOrderIsReportedAsRejected() throws Exception {
+        when(narudzbaService.createNarudzba(any(Narudzba.class), anyString()))
+                .thenThrow(new InsufficientStockException(Map.of(1L, 1), Map.of(1L, 0)));
+
+        String broj = accept();
+
+        awaitState(broj, "ODBIJENA");
+        mockMvc.perform(get("/narudzbe/async/{broj}", broj))
+                .andExpect(jsonPath("$.greska", containsString("Insufficient stock")));
+    }
+
+    private String accept() throws Exception {
+        String odgovor = create().andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, containsString("/narudzbe/async/")))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(odgovor).get("brojNarudzbe").asText();
+    }
+
+    private ResultActions create() throws Exception {
+        return mockMvc.perform(post("/narudzbe").contentType(MediaType.APPLICATION_JSON).content(NARUDZBA));
+    }
+
+    private void awaitState(String brojNarudzbe, String stanje) throws Exception {
+        long rok = System.currentTimeMillis() + 5_000;
+        String trenutno;
+        do {
+            String odgovor = mockMvc.perform(get("/narudzbe/async/{broj}", brojNarudzbe))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode status = objectMapper.readTree(odgovor);
+            trenutno = status.get("stanje").asText();
+            if (!stanje.equals(trenutno)) {
+                Thread.sleep(20);
+            }
+        } while (!stanje.equals(trenutno) && System.currentTimeMillis() < rok);
+        assertEquals(stanje, trenutno);
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.prodavnicaracunara.controller;
+
+import com.example.prodavnicaracunara.entity.NacinPlacanja;
+import com.example.prodavnicaracunara.exception.PaymentDeclinedException;
+import com.example.prodavnicaracunara.exception.ServiceOverloadedException;
+import com.example.prodavnicaracunara.service.PaymentGateway;
+import com.example.prodavnicaracunara.service.PlacanjeService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks how payment processing answers declines, timeouts, an open circuit and a full bulkhead of the payment gateway.
+ * Every test uses its own payment method, circuits are per method.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:gatewaydb",
+        "app.placanja.gateway.bulkhead.max-concurrent=1",
+        "app.placanja.gateway.bulkhead.queue-capacity=1",
+        "app.placanja.gateway.timeout-ms=300",
+        "app.placanja.gateway.circuit.failure-threshold=3",
+        "app.placanja.gateway.circuit.open-ms=500"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PaymentGatewayTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PlacanjeService placanjeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private PaymentGateway paymentGateway;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("DELETE FROM povracaji");
+        jdbcTemplate.update("DELETE FROM placanja");
+        jdbcTemplate.update("DELETE FROM narudzbe");
+        jdbcTemplate.update("DELETE FROM kupci");
+        jdbcTemplate.update("INSERT INTO kupci (id, ime, prezime, email, adresa, verzija) VALUES (1, 'Ana', 'Anić', 'ana@example.com', 'Beograd', 0)");
+        placanje(1, NacinPlacanja.KARTICA, "NEPLACENO");
+        placanje(2, NacinPlacanja.KARTICA, "NEPLACENO");
+        placanje(3, NacinPlacanja.KARTICA, "NEPLACENO");
+        placanje(4, NacinPlacanja.KARTICA, "OTKAZANO");
+        placanje(5, NacinPlacanja.PAYPAL, "NEPLACENO");
+        placanje(6, NacinPlacanja.GOTOVINA, "NEPLACENO");
+    }
+
+    @Test
+    void declinedChargeAnswers402AndCanBeRetried() throws Exception {
+        when(paymentGateway.charge(anyLong(), any(), any()))
+                .thenThrow(new PaymentDeclinedException("Payment 1 was declined by the payment gateway"))
+                .thenReturn("REF-1");
+
+        process(1).andExpect(status().isPaymentRequired())
+                .andExpect(jsonPath("$.message").value("Payment 1 was declined by the payment gateway"));
+        assertEquals("NEPLACENO", statusPlacanja(1));
+
+        String etag = process(1).andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("PLACENO"))
+                .andExpect(jsonPath("$.referenca").value("REF-1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/placanja/{id}", 1))
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(jsonPath("$.referenca").value("REF-1"));
+        process(1).andExpect(status().isBadRequest()).andExpect(jsonPath("$.message").value("Payment is already processed"));
+        verify(paymentGateway, times(2)).charge(eq(1L), eq(NacinPlacanja.KARTICA), any());
+    }
+
+    @Test
+    void cancelledPaymentIsNotCharged() throws Exception {
+        process(4).andExpect(status().isBadRequest()).andExpect(jsonPath("$.message").value("Payment is cancelled"));
+        verify(paymentGateway, never()).charge(anyLong(), any(), any());
+    }
+
+    @Test
+    void chargeOfPaymentCancelledMeanwhileIsQueuedForRefund() throws Exception {
+        when(paymentGateway.charge(eq(2L), eq(NacinPlacanja.KARTICA), any())).thenAnswer(poziv -> {
+            // Settled and cancelled with its order while the gateway charged it
+            jdbcTemplate.update("UPDATE placanja SET status = 'OTKAZANO', verzija = verzija + 1 WHERE id = 2");
+            return "REF-2";
+        });
+
+        process(2).andExpect(status().isBadRequest()).andExpect(jsonPath("$.message").value("Payment is cancelled"));
+        // A repeated completion of the same charge is queued once
+        assertThrows(IllegalArgumentException.class, () -> placanjeService.completePayment(2L, "REF-2"));
+
+        Map<String, Object> povracaj = jdbcTemplate.queryForMap("SELECT placanje_id, referenca, iznos FROM povracaji");
+        assertEquals(2L, ((Number) povracaj.get("placanje_id")).longValue());
+        assertEquals("REF-2", povracaj.get("referenca"));
+        assertEquals(0, new BigDecimal("100.00").compareTo((BigDecimal) povracaj.get("iznos")));
+        assertEquals("OTKAZANO", statusPlacanja(2));
+        assertNull(jdbcTemplate.queryForObject("SELECT referenca FROM placanja WHERE id = 2", String.class));
+    }
+
+    @Test
+    void timedOutChargeAnswers503AndFreesItsThread() throws Exception {
+        CountDownLatch prekinut = new CountDownLatch(1);
+        when(paymentGateway.charge(eq(5L), eq(NacinPlacanja.PAYPAL), any()))
+                .thenAnswer(poziv -> {
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        prekinut.countDown();
+                        throw new IllegalStateException("Interrupted", e);
+                    }
+                    return "REF-KASNO";
+                })
+                .thenReturn("REF-5");
+
+        process(5).andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("$.message", containsString("did not answer in time")));
+        assertTrue(prekinut.await(2, TimeUnit.SECONDS));
+        assertEquals("NEPLACENO", statusPlacanja(5));
+
+        // The only bulkhead thread is free again, the retry is charged
+        process(5).andExpect(status().isOk()).andExpect(jsonPath("$.status").value("PLACENO"));
+    }
+
+    @Test
+    void circuitOpensAfterFailuresAndClosesAfterSuccessfulTrial() throws Exception {
+        when(paymentGateway.charge(eq(6L), eq(NacinPlacanja.GOTOVINA), any()))
+                .thenThrow(new IllegalStateException("Gateway down"))
+                .thenThrow(new IllegalStateException("Gateway down"))
+                .thenThrow(new IllegalStateException("Gateway down"))
+                .thenThrow(new IllegalStateException("Gateway still down"))
+                .thenReturn("REF-6");
+        when(paymentGateway.charge(eq(1L), eq(NacinPlacanja.KARTICA), any())).thenReturn("REF-1");
+
+        for (int i = 0; i < 3; i++) {
+            process(6).andExpect(status().isServiceUnavailable()).andExpect(jsonPath("$.message", containsString("failed")));
+        }
+        process(6).andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+                .andExpect(jsonPath("$.message", containsString("unavailable")));
+        verify(paymentGateway, times(3)).charge(eq(6L), any(), any());
+        assertEquals(1, circuitOpen(NacinPlacanja.GOTOVINA));
+
+        // Other payment methods are not affected
+        process(1).andExpect(status().isOk());
+        assertEquals(0, circuitOpen(NacinPlacanja.KARTICA));
+
+        // Half-open: a failed trial opens the circuit again
+        Thread.sleep(600);
+        process(6).andExpect(status().isServiceUnavailable()).andExpect(jsonPath("$.message", containsString("failed")));
+        process(6).andExpect(status().isServiceUnavailable()).andExpect(jsonPath("$.message", containsString("unavailable")));
+        verify(paymentGateway, times(4)).charge(eq(6L), any(), any());
+
+        // A successful trial closes it
+        Thread.sleep(600);
+        process(6).andExpect(status().isOk()).andExpect(jsonPath("$.status").value("PLACENO"));
+        assertEquals(0, circuitOpen(NacinPlacanja.GOTOVINA));
+    }
+
+    @Test
+    void fullBulkheadRefusesCharges() throws Exception {
+        CountDownLatch uPozivu = new CountDownLatch(1);
+        CountDownLatch odgovori = new CountDownLatch(1);
+        when(paymentGateway.charge(anyLong(), eq(NacinPlacanja.KARTICA), any())).thenAnswer(poziv -> {
+            uPozivu.countDown();
+            odgovori.await(5, TimeUnit.SECONDS);
+            return "REF-" + poziv.getArgument(0);
+        });
+
+        // One charge runs on the only thread, one waits in the queue of one
+        CompletableFuture<String> prva = placanjeService.chargePayment(1L, null);
+        assertTrue(uPozivu.await(2, TimeUnit.SECONDS));
+        CompletableFuture<String> druga = placanjeService.chargePayment(2L, null);
+
+        assertThrows(ServiceOverloadedException.class, () -> placanjeService.chargePayment(3L, null));
+        process(3).andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("$.message", containsString("busy")));
+
+        odgovori.countDown();
+        assertEquals("REF-1", prva.get(2, TimeUnit.SECONDS));
+        assertEquals("REF-2", druga.get(2, TimeUnit.SECONDS));
+        // A refused charge is not a gateway failure
+        assertEquals(0, circuitOpen(NacinPlacanja.KARTICA));
+    }
+
+    private ResultActions process(long id) throws Exception {
+        ResultActions akcije = mockMvc.perform(patch("/placanja/{id}/process", id));
+        MvcResult rezultat = akcije.andReturn();
+        if (!rezultat.getRequest().isAsyncStarted()) {
+            // Refused before the gateway was called
+            return akcije;
+        }
+        rezultat.getAsyncResult(5_000);
+        return mockMvc.perform(asyncDispatch(rezultat));
+    }
+
+    private void placanje(long id, NacinPlacanja nacin, String status) {
+        jdbcTemplate.update("INSERT INTO narudzbe (id, broj_narudzbe, datum_kreiranja, status, ukupna_cena, kupac_id, verzija) VALUES (?, ?, CURRENT_TIMESTAMP, 'U_OBRADI', 100.00, 1, 0)",
+                id, "GW-" + id);
+        jdbcTemplate.update("INSERT INTO placanja (id, datum, nacin_placanja, status, narudzba_id, verzija) VALUES (?, CURRENT_TIMESTAMP, ?, ?, ?, 0)",
+                id, nacin.name(), status, id);
+    }
+
+    private String statusPlacanja(long id) {
+        return jdbcTemplate.queryForObject("SELECT status FROM placanja WHERE id = ?", String.class, id);
+    }
+
+    private double circuitOpen(NacinPlacanja nacin) {
+        return meterRegistry.get("payment.gateway.circuit.open").tag("nacin", nacin.name()).gauge().value();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.prodavnicaracunara.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the exports write one JSON line per order and payment
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:exportdb")
+@ActiveProfiles("test")
+class ExportServiceTest {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("DELETE FROM placanja");
+        jdbcTemplate.update("DELETE FROM narudzba_proizvod");
+        jdbcTemplate.update("DELETE FROM narudzbe");
+        jdbcTemplate.update("DELETE FROM kupci");
+        jdbcTemplate.update("DELETE FROM proizvodi");
+        jdbcTemplate.update("INSERT INTO kupci (id, ime, prezime, email, adresa, verzija) VALUES (1, 'Ana', 'Anić', 'ana@example.com', 'Beograd', 0)");
+        jdbcTemplate.update("INSERT INTO proizvodi (id, naziv, cena, kolicinaustanju, verzija) VALUES (1, 'Laptop', 1000, 5, 0)");
+        jdbcTemplate.update("INSERT INTO proizvodi (id, naziv, cena, kolicinaustanju, verzija) VALUES (2, 'Miš', 20, 5, 0)");
+        for (long id = 1; id <= 3; id++) {
+            jdbcTemplate.update("INSERT INTO narudzbe (id, broj_narudzbe, datum_kreiranja, status, ukupna_cena, kupac_id, verzija) VALUES (?, ?, CURRENT_TIMESTAMP, 'U_OBRADI', 1020.00, 1, 0)",
+                    id, "EX-" + id);
+        }
+        jdbcTemplate.update("INSERT INTO narudzba_proizvod (narudzba_id, proizvod_id) VALUES (1, 1)");
+        jdbcTemplate.update("INSERT INTO narudzba_proizvod (narudzba_id, proizvod_id) VALUES (1, 2)");
+        jdbcTemplate.update("INSERT INTO narudzba_proizvod (narudzba_id, proizvod_id) VALUES (3, 2)");
+        jdbcTemplate.update("INSERT INTO placanja (id, datum, nacin_placanja, status, narudzba_id, verzija) VALUES (1, CURRENT_TIMESTAMP, 'KARTICA', 'PLACENO', 1, 0)");
+        jdbcTemplate.update("INSERT INTO placanja (id, datum, nacin_placanja, status, narudzba_id, verzija) VALUES (2, CURRENT_TIMESTAMP, 'PAYPAL', 'NEPLACENO', 3, 0)");
+    }
+
+    @Test
+    void ordersAreExportedWithTheirProducts() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(3, exportService.exportNarudzbe(out));
+
+        String[] linije = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, linije.length);
+        JsonNode prva = objectMapper.readTree(linije[0]);
+        assertEquals("EX-1", prva.get("brojNarudzbe").asText());
+        assertEquals(1, prva.get("kupacId").asLong());
+        assertEquals(2, prva.get("proizvodIds").size());
+        assertEquals(0, objectMapper.readTree(linije[1]).get("proizvodIds").size());
+        assertEquals(2, objectMapper.readTree(linije[2]).get("proizvodIds").get(0).asLong());
+    }
+
+    @Test
+    void paymentsAreExportedWithOrderTotal() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(2, exportService.exportPlacanja(out));
+
+        String[] linije = out.toString(StandardCharsets.UTF_8).split("\n");
+        JsonNode druga = objectMapper.readTree(linije[1]);
+        assertEquals(3, druga.get("narudzbaId").asLong());
+        assertEquals(0, druga.get("iznos").decimalValue().compareTo(new BigDecimal("1020.00")));
+        assertEquals("PAYPAL", druga.get("nacinPlacanja").asText());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.prodavnicaracunara.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks the attributes parsed from free-text CPU, RAM and GPU descriptions
+ */
+class HardwareSpecsTest {
+
+    @Test
+    void intelAndNvidia() {
+        HardwareSpecs specs = HardwareSpecs.parse("Intel Core i7-12700H 14 cores", "16GB DDR5", "NVIDIA GeForce RTX 3060 6GB");
+
+        assertEquals("INTEL", specs.getCpuProizvodjac());
+        assertEquals(14, specs.getCpuJezgra());
+        assertEquals(16, specs.getRamGb());
+        assertEquals("NVIDIA", specs.getGpuProizvodjac());
+        assertEquals("RTX", specs.getGpuSerija());
+        assertEquals(6, specs.getVramGb());
+    }
+
+    @Test
+    void amdWithCoreThreadNotationAndSpacedUnits() {
+        HardwareSpecs specs = HardwareSpecs.parse("AMD Ryzen 7 5800X 8C/16T", "32 GB", "AMD Radeon RX 6700 XT 12 GB");
+
+        assertEquals("AMD", specs.getCpuProizvodjac());
+        assertEquals(8, specs.getCpuJezgra());
+        assertEquals(32, specs.getRamGb());
+        assertEquals("AMD", specs.getGpuProizvodjac());
+        assertEquals("RX", specs.getGpuSerija());
+        assertEquals(12, specs.getVramGb());
+    }
+
+    @Test
+    void appleWithoutCoreCountOrVram() {
+        HardwareSpecs specs = HardwareSpecs.parse("Apple M2 Pro", "16GB unified", "M2 Pro integrisana");
+
+        assertEquals("APPLE", specs.getCpuProizvodjac());
+        assertNull(specs.getCpuJezgra());
+        assertEquals("APPLE", specs.getGpuProizvodjac());
+        assertNull(specs.getGpuSerija());
+        assertNull(specs.getVramGb());
+    }
+
+    @Test
+    void coresInWordsAndInSerbian() {
+        assertEquals(4, HardwareSpecs.parse("Intel Core i5 quad-core", null, null).getCpuJezgra());
+        assertEquals(8, HardwareSpecs.parse("Octa Core 2.4GHz", null, null).getCpuJezgra());
+        assertEquals(6, HardwareSpecs.parse("Procesor sa 6 jezgara", null, null).getCpuJezgra());
+        assertEquals(12, HardwareSpecs.parse("12-core Xeon", null, null).getCpuJezgra());
+        assertNull(HardwareSpecs.parse("Procesor sa 6 jezgara", null, null).getCpuProizvodjac());
+    }
+
+    @Test
+    void integratedIntelGraphics() {
+        HardwareSpecs iris = HardwareSpecs.parse(null, null, "Intel Iris Xe");
+        HardwareSpecs uhd = HardwareSpecs.parse(null, null, "UHD Graphics 620");
+
+        assertEquals("INTEL", iris.getGpuProizvodjac());
+        assertEquals("IRIS", iris.getGpuSerija());
+        assertEquals("INTEL", uhd.getGpuProizvodjac());
+        assertEquals("UHD", uhd.getGpuSerija());
+        assertNull(uhd.getVramGb());
+    }
+
+    @Test
+    void firstAmountIsTheRam() {
+        assertEquals(8, HardwareSpecs.parse(null, "8 GB + 8 GB", null).getRamGb());
+        assertEquals(64, HardwareSpecs.parse(null, "64gb ddr4 3200", null).getRamGb());
+    }
+
+    @Test
+    void unknownOrMissingTextGivesNoAttributes() {
+        HardwareSpecs specs = HardwareSpecs.parse("nepoznat", "puno", "brza");
+        HardwareSpecs prazno = HardwareSpecs.parse(null, null, null);
+
+        for (HardwareSpecs s : new HardwareSpecs[]{specs, prazno}) {
+            assertNull(s.getCpuProizvodjac());
+            assertNull(s.getCpuJezgra());
+            assertNull(s.getRamGb());
+            assertNull(s.getGpuProizvodjac());
+            assertNull(s.getGpuSerija());
+            assertNull(s.getVramGb());
+        }
+    }
+}
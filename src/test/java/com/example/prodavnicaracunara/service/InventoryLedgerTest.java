@@ -0,0 +1,115 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.OrderTestSupport;
+import com.example.prodavnicaracunara.entity.Proizvod;
+import com.example.prodavnicaracunara.exception.InsufficientStockException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that the inventory ledger writes only committed reservations back to the table
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ledgerdb",
+        "app.inventory.mode=ledger",
+        "app.inventory.ledger.flush-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+class InventoryLedgerTest extends OrderTestSupport {
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private NarudzbaService narudzbaService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        seed(5, 1);
+    }
+
+    @Test
+    void committedReservationsAreFlushedAsDeltas() {
+        narudzbaService.createNarudzba(order(laptop, laptop, mis));
+        narudzbaService.createNarudzba(order(laptop));
+
+        assertEquals(2, inventoryLedger.available(laptop.getId()));
+        assertEquals(0, inventoryLedger.available(mis.getId()));
+        // The table lags the counters until the next flush
+        assertEquals(5, tableStock(laptop));
+        int verzija = tableVersion(laptop);
+
+        inventoryLedger.flush();
+
+        assertEquals(2, tableStock(laptop));
+        assertEquals(0, tableStock(mis));
+        assertEquals(verzija + 1, tableVersion(laptop));
+
+        // Nothing is written twice
+        inventoryLedger.flush();
+        assertEquals(2, tableStock(laptop));
+    }
+
+    @Test
+    void rolledBackReservationIsUndone() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            narudzbaService.createNarudzba(order(laptop, laptop));
+            assertEquals(3, inventoryLedger.available(laptop.getId()));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(5, inventoryLedger.available(laptop.getId()));
+        inventoryLedger.flush();
+        assertEquals(5, tableStock(laptop));
+        assertEquals(0, narudzbaRepository.count());
+    }
+
+    @Test
+    void shortageReturnsAlreadyReservedLines() {
+        InsufficientStockException e = assertThrows(InsufficientStockException.class,
+                () -> narudzbaService.createNarudzba(order(laptop, laptop, mis, mis)));
+
+        assertEquals(Map.of(mis.getId(), 2), e.getTrazeno());
+        assertEquals(Map.of(mis.getId(), 1), e.getDostupno());
+        assertEquals(5, inventoryLedger.available(laptop.getId()));
+        assertEquals(1, inventoryLedger.available(mis.getId()));
+        inventoryLedger.flush();
+        assertEquals(5, tableStock(laptop));
+    }
+
+    @Test
+    void releasedStockIsFlushedWithReservations() {
+        narudzbaService.createNarudzba(order(laptop, laptop, laptop));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                inventoryLedger.release(Map.of(laptop.getId(), 1)));
+
+        assertEquals(3, inventoryLedger.available(laptop.getId()));
+        inventoryLedger.flush();
+        assertEquals(3, tableStock(laptop));
+    }
+
+    private int tableStock(Proizvod proizvod) {
+        return jdbcTemplate.queryForObject("SELECT kolicinaustanju FROM proizvodi WHERE id = ?", Integer.class, proizvod.getId());
+    }
+
+    private int tableVersion(Proizvod proizvod) {
+        return jdbcTemplate.queryForObject("SELECT verzija FROM proizvodi WHERE id = ?", Integer.class, proizvod.getId());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.dto.CursorPage;
+import com.example.prodavnicaracunara.dto.KupacDto;
+import com.example.prodavnicaracunara.entity.Kupac;
+import com.example.prodavnicaracunara.repository.KupacRepository;
+import com.example.prodavnicaracunara.repository.NarudzbaRepository;
+import com.example.prodavnicaracunara.repository.PlacanjeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that the customer trigram index finds substrings, misspelled names and phone digits
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:kupacsearchdb")
+@ActiveProfiles("test")
+class KupacSearchTest {
+
+    @Autowired
+    private KupacService kupacService;
+
+    @Autowired
+    private KupacSearchIndex kupacSearchIndex;
+
+    @Autowired
+    private KupacRepository kupacRepository;
+
+    @Autowired
+    private NarudzbaRepository narudzbaRepository;
+
+    @Autowired
+    private PlacanjeRepository placanjeRepository;
+
+    @BeforeEach
+    void seed() {
+        placanjeRepository.deleteAll();
+        narudzbaRepository.deleteAll();
+        kupacRepository.deleteAll();
+        kupacRepository.save(new Kupac("Marko", "Petrović", "marko.petrovic@example.com", "064 123 4567", "Bulevar kralja Aleksandra 73, Beograd"));
+        kupacRepository.save(new Kupac("Jovana", "Jovanović", "jovana@example.com", "+381 63 555 1212", "Zmaj Jovina 5, Novi Sad"));
+        kupacRepository.save(new Kupac("Đorđe", "Nikolić", "djordje.n@example.com", null, "Knez Mihailova 10, Beograd"));
+        kupacRepository.save(new Kupac("Ana", "Marković", "ana.m@example.com", null, "Takovska 2, Beograd"));
+        // Written past the service, the index only sees them after a rebuild
+        kupacSearchIndex.rebuild();
+    }
+
+    @Test
+    void substringOfEmailIsFound() {
+        assertEquals(List.of("Marko"), imena(kupacService.searchAll("petrovic@exa", null, 10)));
+    }
+
+    @Test
+    void diacriticsAndMisspelledNamesAreFound() {
+        assertEquals(List.of("Đorđe"), imena(kupacService.searchByPrezime("nikolic", null, 10)));
+        // Two letters more than the folded "dorde"
+        assertEquals(List.of("Đorđe"), imena(kupacService.searchByIme("Djordje", null, 10)));
+        // Swapped letters share no trigram with "marko", the word match finds it
+        assertEquals(List.of("Marko"), imena(kupacService.searchByIme("Makro", null, 10)));
+        assertEquals(List.of("Jovana"), imena(kupacService.searchByPrezime("Jovanovci", null, 10)));
+        assertEquals(List.of("Ana"), imena(kupacService.searchByPrezime("Markovic", null, 10)));
+    }
+
+    @Test
+    void phoneIsSearchedByDigits() {
+        assertEquals(List.of("Jovana"), imena(kupacService.searchAll("555-1212", null, 10)));
+        assertEquals(List.of("Marko"), imena(kupacService.searchAll("(064) 123", null, 10)));
+    }
+
+    @Test
+    void tooShortTextIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> kupacService.searchByIme("an", null, 10));
+    }
+
+    @Test
+    void pagesDoNotRepeatCustomers() {
+        List<String> imena = new ArrayList<>();
+        String kursor = null;
+        do {
+            CursorPage<KupacDto> stranica = kupacService.searchByAdresa("Beograd", kursor, 1);
+            imena.addAll(imena(stranica));
+            kursor = stranica.getSledeciKursor();
+        } while (kursor != null);
+
+        assertEquals(3, imena.size());
+        assertEquals(3, imena.stream().distinct().count());
+    }
+
+    @Test
+    void committedChangesAreSearchable() {
+        Kupac kupac = kupacService.createKupac(new Kupac("Milica", "Stanković", "milica@example.com", null, "Niš"));
+        assertEquals(List.of("Milica"), imena(kupacService.searchByIme("Milca", null, 10)));
+
+        kupacService.deleteKupac(kupac.getId());
+        CursorPage<KupacDto> posleBrisanja = kupacService.searchByIme("Milica", null, 10);
+        assertEquals(List.of(), imena(posleBrisanja));
+        assertNull(posleBrisanja.getSledeciKursor());
+    }
+
+    private static List<String> imena(CursorPage<KupacDto> stranica) {
+        return stranica.getStavke().stream().map(KupacDto::getIme).toList();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.ProdavnicaRacunaraApplication;
+import com.example.prodavnicaracunara.entity.StatusNarudzbe;
+import com.example.prodavnicaracunara.event.NarudzbaStatusChangedEvent;
+import com.example.prodavnicaracunara.task.OrderStatusScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs several application contexts against one shared H2 database, like instances sharing MySQL
+ */
+class MonitoringLeaseServiceTest {
+
+    private static final int PARTICIJE = 8;
+
+    private final List<ConfigurableApplicationContext> konteksti = new ArrayList<>();
+
+    @AfterEach
+    void closeContexts() {
+        konteksti.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void partitionsAreSplitBetweenNodesAndRebalanced() throws InterruptedException {
+        MonitoringLeaseService prvi = startNode();
+        waitUntil(() -> prvi.getOwnedPartitions().size() == PARTICIJE);
+
+        ConfigurableApplicationContext drugiKontekst = startContext();
+        MonitoringLeaseService drugi = drugiKontekst.getBean(MonitoringLeaseService.class);
+        waitUntil(() -> prvi.getOwnedPartitions().size() == PARTICIJE / 2 && drugi.getOwnedPartitions().size() == PARTICIJE / 2);
+        assertDisjointAndComplete(prvi.getOwnedPartitions(), drugi.getOwnedPartitions());
+
+        // A stopped node gives its partitions back
+        drugiKontekst.close();
+        waitUntil(() -> prvi.getOwnedPartitions().size() == PARTICIJE);
+    }
+
+    @Test
+    void expiredLeasesOfSilentNodeAreTakenOver() throws InterruptedException {
+        MonitoringLeaseService prvi = startNode();
+        waitUntil(() -> prvi.getOwnedPartitions().size() == PARTICIJE);
+
+        // A node that stopped renewing: leases expired, heartbeat old
+        JdbcTemplate jdbcTemplate = konteksti.get(0).getBean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO monitoring_cvorovi (id, poslednji_signal) VALUES (?, ?)", "ugasen", LocalDateTime.now().minusHours(1));
+        jdbcTemplate.update("UPDATE monitoring_particije SET vlasnik = ?, zakup_do = ? WHERE broj < 3", "ugasen", LocalDateTime.now().minusSeconds(1));
+
+        waitUntil(() -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM monitoring_particije WHERE vlasnik = 'ugasen'", Integer.class) == 0);
+        waitUntil(() -> prvi.getOwnedPartitions().size() == PARTICIJE);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM monitoring_cvorovi WHERE id = 'ugasen'", Integer.class));
+    }
+
+    @Test
+    void leasesAreRenewedWhileSharedSchedulerIsBusy() throws InterruptedException {
+        ConfigurableApplicationContext kontekst = startContext();
+        MonitoringLeaseService cvor = kontekst.getBean(MonitoringLeaseService.class);
+        waitUntil(() -> cvor.getOwnedPartitions().size() == PARTICIJE);
+
+        // A sweep or reconciliation holding the @Scheduled thread for twice the lease TTL
+        CountDownLatch zavrsen = new CountDownLatch(1);
+        kontekst.getBean(ThreadPoolTaskScheduler.class).execute(() -> {
+            try {
+                Thread.sleep(3000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            zavrsen.countDown();
+        });
+        while (!zavrsen.await(50, TimeUnit.MILLISECONDS)) {
+            assertEquals(PARTICIJE, cvor.getOwnedPartitions().size());
+        }
+    }
+
+    @Test
+    void ordersInPartitionsOfOtherNodeAreNotScheduled() throws InterruptedException {
+        MonitoringLeaseService prvi = startNode();
+        waitUntil(() -> prvi.getOwnedPartitions().size() == PARTICIJE);
+        MonitoringLeaseService drugi = startNode();
+        waitUntil(() -> prvi.getOwnedPartitions().size() == PARTICIJE / 2 && drugi.getOwnedPartitions().size() == PARTICIJE / 2);
+
+        ConfigurableApplicationContext kontekst = konteksti.get(0);
+        OrderStatusScheduler scheduler = kontekst.getBean(OrderStatusScheduler.class);
+        int zakazano = scheduler.getPendingCount();
+        for (long id = 1; id <= PARTICIJE; id++) {
+            kontekst.publishEvent(new NarudzbaStatusChangedEvent(id, StatusNarudzbe.U_OBRADI, LocalDateTime.now()));
+        }
+        assertEquals(zakazano + PARTICIJE / 2, scheduler.getPendingCount());
+    }
+
+    private MonitoringLeaseService startNode() {
+        return startContext().getBean(MonitoringLeaseService.class);
+    }
+
+    private ConfigurableApplicationContext startContext() {
+        ConfigurableApplicationContext kontekst = new SpringApplicationBuilder(ProdavnicaRacunaraApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--spring.datasource.url=jdbc:h2:mem:leasedb;DB_CLOSE_DELAY=-1",
+                        // create-drop would drop the shared schema when one node stops
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--app.narudzbe.monitoring.lease.enabled=true",
+                        "--app.narudzbe.monitoring.partitions=" + PARTICIJE,
+                        "--app.narudzbe.monitoring.lease.ttl-ms=1500",
+                        "--app.narudzbe.monitoring.lease.renew-interval-ms=200");
+        konteksti.add(kontekst);
+        return kontekst;
+    }
+
+    private static void assertDisjointAndComplete(Set<Integer> prve, Set<Integer> druge) {
+        Set<Integer> sve = new HashSet<>(prve);
+        sve.addAll(druge);
+        assertEquals(prve.size() + druge.size(), sve.size(), "Partitions held by both nodes");
+        assertEquals(PARTICIJE, sve.size(), "Unassigned partitions");
+    }
+
+    private static void waitUntil(BooleanSupplier uslov) throws InterruptedException {
+        long kraj = System.currentTimeMillis() + 15000;
+        while (!uslov.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < kraj, "Condition not reached in time");
+            Thread.sleep(50);
+        }
+    }
+}
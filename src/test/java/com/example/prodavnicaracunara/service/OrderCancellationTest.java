@@ -0,0 +1,86 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.OrderTestSupport;
+import com.example.prodavnicaracunara.entity.Narudzba;
+import com.example.prodavnicaracunara.entity.Proizvod;
+import com.example.prodavnicaracunara.entity.StatusNarudzbe;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that cancelled orders return their stock as deltas, exactly once
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:cancellationdb")
+@ActiveProfiles("test")
+class OrderCancellationTest extends OrderTestSupport {
+
+    @Autowired
+    private NarudzbaService narudzbaService;
+
+    @Autowired
+    private ProizvodService proizvodService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        seed(10, 10);
+    }
+
+    @Test
+    void cancellationKeepsStockChangedSinceTheOrder() {
+        Narudzba prva = narudzbaService.createNarudzba(order(laptop, laptop, mis));
+        Narudzba druga = narudzbaService.createNarudzba(order(laptop, mis, mis));
+        assertEquals(7, stock(laptop));
+
+        // Restocked while the orders were open
+        proizvodService.updateStock(laptop.getId(), 20, null);
+
+        narudzbaService.cancelOrders(List.of(prva.getId(), druga.getId()));
+
+        assertEquals(23, stock(laptop));
+        assertEquals(10, stock(mis));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM narudzbe WHERE status = 'OTKAZANA'", Integer.class));
+    }
+
+    @Test
+    void alreadyCancelledOrderIsNotRestockedAgain() {
+        Narudzba prva = narudzbaService.createNarudzba(order(laptop, laptop));
+        Narudzba druga = narudzbaService.createNarudzba(order(laptop));
+        narudzbaService.cancelOrder(prva.getId(), null);
+        assertEquals(9, stock(laptop));
+
+        narudzbaService.cancelOrders(List.of(prva.getId(), druga.getId(), prva.getId()));
+        narudzbaService.cancelOrder(druga.getId(), null);
+
+        assertEquals(10, stock(laptop));
+    }
+
+    @Test
+    void deliveredOrderRejectsTheWholeBatch() {
+        Narudzba prva = narudzbaService.createNarudzba(order(laptop));
+        Narudzba isporucena = narudzbaService.createNarudzba(order(mis));
+        jdbcTemplate.update("UPDATE narudzbe SET status = ? WHERE id = ?", StatusNarudzbe.ISPORUCENA.name(), isporucena.getId());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> narudzbaService.cancelOrders(List.of(prva.getId(), isporucena.getId())));
+
+        assertEquals(9, stock(laptop));
+        assertEquals(9, stock(mis));
+        assertEquals(StatusNarudzbe.U_OBRADI, narudzbaRepository.findById(prva.getId()).orElseThrow().getStatus());
+    }
+
+    private int stock(Proizvod proizvod) {
+        return jdbcTemplate.queryForObject("SELECT kolicinaustanju FROM proizvodi WHERE id = ?", Integer.class, proizvod.getId());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.prodavnicaracunara.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the monitoring sweep moves every due order exactly once across many keyset chunks
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sweepdb",
+        "app.narudzbe.monitoring.processing-delay-ms=300000",
+        "app.narudzbe.monitoring.delivery-delay-ms=600000",
+        "app.narudzbe.monitoring.batch-size=4"
+})
+@ActiveProfiles("test")
+class OrderStatusSweepTest {
+
+    private static final int BROJ_NARUDZBI = 60;
+
+    @Autowired
+    private NarudzbaService narudzbaService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Status every order has to end in
+    private final Map<Long, String> ocekivano = new HashMap<>();
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("DELETE FROM narudzbe");
+        jdbcTemplate.update("DELETE FROM kupci");
+        jdbcTemplate.update("INSERT INTO kupci (id, ime, prezime, email, adresa, verzija) VALUES (1, 'Ana', 'Anić', 'ana@example.com', 'Beograd', 0)");
+
+        // Due and not yet due orders interleaved, so chunk ranges also cover orders the sweep has to skip
+        LocalDateTime sada = LocalDateTime.now();
+        for (long id = 1; id <= BROJ_NARUDZBI; id++) {
+            switch ((int) (id % 5)) {
+                case 0 -> narudzba(id, "U_OBRADI", sada.minusMinutes(7), "POSLATA");
+                case 1 -> narudzba(id, "POSLATA", sada.minusMinutes(20), "ISPORUCENA");
+                case 2 -> narudzba(id, "U_OBRADI", sada.minusMinutes(1), "U_OBRADI");
+                case 3 -> narudzba(id, "POSLATA", sada.minusMinutes(7), "POSLATA");
+                default -> narudzba(id, "OTKAZANA", sada.minusMinutes(20), "OTKAZANA");
+            }
+        }
+    }
+
+    @Test
+    void everyDueOrderAdvancesOnce() {
+        double poslato = transitions("POSLATA");
+        double isporuceno = transitions("ISPORUCENA");
+
+        narudzbaService.processOrderStatusUpdates();
+
+        assertStatuses();
+        // 12 due orders per transition, several chunks of 4 each
+        assertEquals(12, transitions("POSLATA") - poslato);
+        assertEquals(12, transitions("ISPORUCENA") - isporuceno);
+
+        // Shipped orders are not due for delivery yet, a second sweep changes nothing
+        narudzbaService.processOrderStatusUpdates();
+        assertStatuses();
+    }
+
+    private void assertStatuses() {
+        jdbcTemplate.query("SELECT id, status, verzija FROM narudzbe", rs -> {
+            long id = rs.getLong("id");
+            String status = rs.getString("status");
+            assertEquals(ocekivano.get(id), status, "Status of order " + id);
+            // Exactly one bumped version per transition
+            long promena = id % 5 == 0 || id % 5 == 1 ? 1 : 0;
+            assertEquals(promena, rs.getLong("verzija"), "Version of order " + id);
+        });
+    }
+
+    private void narudzba(long id, String status, LocalDateTime kreirano, String krajnjiStatus) {
+        jdbcTemplate.update("INSERT INTO narudzbe (id, broj_narudzbe, datum_kreiranja, status, ukupna_cena, kupac_id, verzija) VALUES (?, ?, ?, ?, 100.00, 1, 0)",
+                id, "SW-" + id, kreirano, status);
+        ocekivano.put(id, krajnjiStatus);
+    }
+
+    private double transitions(String status) {
+        return meterRegistry.counter("narudzbe.status.transitions", "status", status, "izvor", "sweep").count();
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.dto.SettlementRequest;
+import com.example.prodavnicaracunara.dto.SettlementResult;
+import com.example.prodavnicaracunara.entity.NacinPlacanja;
+import com.example.prodavnicaracunara.repository.PlacanjeRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Checks the per-payment outcomes of a settlement and that a payment processed while its chunk settles is counted once
+ */
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:settlementdb", "app.placanja.settlement.chunk-size=10"})
+@ActiveProfiles("test")
+class PlacanjeSettlementTest {
+
+    private static final LocalDateTime DATUM = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    @Autowired
+    private PlacanjeSettlementService placanjeSettlementService;
+
+    @Autowired
+    private PlacanjeService placanjeService;
+
+    @Autowired
+    private RevenueRollup revenueRollup;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @SpyBean
+    private PlacanjeRepository placanjeRepository;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("DELETE FROM placanja");
+        jdbcTemplate.update("DELETE FROM narudzbe");
+        jdbcTemplate.update("DELETE FROM kupci");
+        jdbcTemplate.update("INSERT INTO kupci (id, ime, prezime, email, adresa, verzija) VALUES (1, 'Ana', 'Anić', 'ana@example.com', 'Beograd', 0)");
+        placanje(1, "NEPLACENO", "10.00");
+        placanje(2, "NEPLACENO", "20.00");
+        placanje(3, "NEPLACENO", "30.00");
+        placanje(4, "PLACENO", "40.00");
+        revenueRollup.rebuild();
+    }
+
+    @Test
+    void everyPaymentGetsItsOwnOutcome() {
+        List<SettlementResult> rezultati = placanjeSettlementService.settle(new SettlementRequest(Arrays.asList(3L, 1L, 4L, 99L, 1L)));
+
+        assertEquals(List.of(3L, 1L, 4L, 99L), rezultati.stream().map(SettlementResult::getPlacanjeId).toList());
+        assertSettled(rezultati.get(0), "30.00");
+        assertSettled(rezultati.get(1), "10.00");
+        assertFailed(rezultati.get(2), "Payment is already processed");
+        assertFailed(rezultati.get(3), "Placanje with ID 99 not found");
+        assertEquals("PLACENO", status(1));
+        assertEquals("NEPLACENO", status(2));
+        assertEquals(0, new BigDecimal("80.00").compareTo(revenue()));
+    }
+
+    @Test
+    void paymentProcessedDuringItsChunkIsCountedOnce() {
+        AtomicReference<CompletableFuture<Void>> obrada = completeBeforeUpdate(2);
+
+        List<SettlementResult> rezultati = placanjeSettlementService.settle(new SettlementRequest(Arrays.asList(1L, 2L, 3L)));
+
+        rezultati.forEach(rezultat -> assertTrue(rezultat.isUspesno(), rezultat.getGreska()));
+        assertProcessingLost(obrada);
+        assertEquals("PLACENO", status(2));
+        assertEquals(0, new BigDecimal("100.00").compareTo(revenue()));
+    }
+
+    @Test
+    void paymentProcessedDuringRangeSettlementIsCountedOnce() {
+        AtomicReference<CompletableFuture<Void>> obrada = completeBeforeUpdate(1);
+
+        List<SettlementResult> rezultati = placanjeSettlementService.settle(
+                new SettlementRequest(NacinPlacanja.KARTICA, DATUM.minusHours(1), DATUM.plusHours(1)));
+
+        assertEquals(List.of(1L, 2L, 3L), rezultati.stream().map(SettlementResult::getPlacanjeId).toList());
+        rezultati.forEach(rezultat -> assertTrue(rezultat.isUspesno(), rezultat.getGreska()));
+        assertProcessingLost(obrada);
+        assertEquals(0, new BigDecimal("100.00").compareTo(revenue()));
+    }
+
+    /**
+     * Completes the payment's gateway charge on another thread after the chunk was read, just before its UPDATE
+     */
+    private AtomicReference<CompletableFuture<Void>> completeBeforeUpdate(long id) {
+        // The spy wraps a proxy without a real method to call, the UPDATE runs on a repository of the same EntityManager
+        PlacanjeRepository stvarni = new JpaRepositoryFactory(entityManager).getRepository(PlacanjeRepository.class);
+        AtomicReference<CompletableFuture<Void>> obrada = new AtomicReference<>();
+        doAnswer(poziv -> {
+            obrada.set(CompletableFuture.runAsync(() -> placanjeService.completePayment(id, "REF-" + id)));
+            // Time to read the payment and block on the settlement's row lock
+            Thread.sleep(300);
+            assertFalse(obrada.get().isDone(), "Payment was processed while its settlement chunk was open");
+            return stvarni.advanceStatus(poziv.getArgument(0), poziv.getArgument(1), poziv.getArgument(2));
+        }).when(placanjeRepository).advanceStatus(any(), any(), any());
+        return obrada;
+    }
+
+    private static void assertProcessingLost(AtomicReference<CompletableFuture<Void>> obrada) {
+        CompletionException greska = assertThrows(CompletionException.class, () -> obrada.get().join());
+        assertInstanceOf(ObjectOptimisticLockingFailureException.class, greska.getCause());
+    }
+
+    private static void assertSettled(SettlementResult rezultat, String iznos) {
+        assertTrue(rezultat.isUspesno(), rezultat.getGreska());
+        assertEquals(0, new BigDecimal(iznos).compareTo(rezultat.getIznos()));
+    }
+
+    private static void assertFailed(SettlementResult rezultat, String greska) {
+        assertFalse(rezultat.isUspesno());
+        assertEquals(greska, rezultat.getGreska());
+    }
+
+    private BigDecimal revenue() {
+        return revenueRollup.revenue(DATUM.minusDays(1), DATUM.plusDays(1));
+    }
+
+    private void placanje(long id, String status, String iznos) {
+        jdbcTemplate.update("INSERT INTO narudzbe (id, broj_narudzbe, datum_kreiranja, status, ukupna_cena, kupac_id, verzija) VALUES (?, ?, ?, 'U_OBRADI', ?, 1, 0)",
+                id, "ST-" + id, DATUM, new BigDecimal(iznos));
+        jdbcTemplate.update("INSERT INTO placanja (id, datum, nacin_placanja, status, narudzba_id, verzija) VALUES (?, ?, 'KARTICA', ?, ?, 0)",
+                id, DATUM, status, id);
+    }
+
+    private String status(long id) {
+        return jdbcTemplate.queryForObject("SELECT status FROM placanja WHERE id = ?", String.class, id);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.dto.CursorPage;
+import com.example.prodavnicaracunara.entity.Proizvod;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks that reads overtaken by an eviction leave nothing in the catalog cache and that cached products are copies
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:proizvodcachedb")
+@ActiveProfiles("test")
+class ProizvodCacheTest {
+
+    @Autowired
+    private ProizvodCache proizvodCache;
+
+    @Test
+    void pageReadBeforeStockChangeIsNotCached() {
+        AtomicInteger upiti = new AtomicInteger();
+        String kljuc = ProizvodCache.inStockKey(0, 10);
+        Function<Collection<Long>, List<Proizvod>> ucitaj = ids -> {
+            throw new AssertionError("Products of the page should be cached");
+        };
+
+        // A stock change commits while the first query runs
+        proizvodCache.page(kljuc, () -> {
+            upiti.incrementAndGet();
+            proizvodCache.evictStock(List.of(1L));
+            return new CursorPage<>(List.of(proizvod(1L, 5)), null);
+        }, ucitaj);
+        proizvodCache.page(kljuc, () -> {
+            upiti.incrementAndGet();
+            return new CursorPage<>(List.of(proizvod(1L, 4)), null);
+        }, ucitaj);
+        CursorPage<Proizvod> stranica = proizvodCache.page(kljuc, () -> {
+            throw new AssertionError("Page should be cached");
+        }, ucitaj);
+
+        assertEquals(2, upiti.get());
+        assertEquals(4, stranica.getStavke().get(0).getKolicinaUStanju());
+    }
+
+    @Test
+    void bulkLoadOvertakenByEditIsNotCached() {
+        AtomicInteger ucitavanja = new AtomicInteger();
+        CursorPage<Long> ids = new CursorPage<>(List.of(2L, 3L), null);
+
+        proizvodCache.load(ids, nedostaju -> {
+            ucitavanja.incrementAndGet();
+            proizvodCache.evictProizvod(2L);
+            return List.of(proizvod(2L, 1), proizvod(3L, 1));
+        });
+        // Only the product evicted during the load is read again
+        List<Proizvod> drugo = proizvodCache.load(ids, nedostaju -> {
+            ucitavanja.incrementAndGet();
+            assertEquals(List.of(2L), List.copyOf(nedostaju));
+            return List.of(proizvod(2L, 7));
+        }).getStavke();
+
+        assertEquals(2, ucitavanja.get());
+        assertEquals(7, drugo.get(0).getKolicinaUStanju());
+    }
+
+    @Test
+    void cachedProductIsDetachedCopy() {
+        Proizvod ucitan = proizvod(4L, 3);
+
+        Proizvod prvi = proizvodCache.get(4L, id -> ucitan);
+        Proizvod drugi = proizvodCache.get(4L, id -> {
+            throw new AssertionError("Product should be cached");
+        });
+
+        assertNotSame(ucitan, prvi);
+        assertSame(prvi, drugi);
+        assertEquals(ucitan.getVerzija(), prvi.getVerzija());
+        assertEquals(ucitan.getNaziv(), prvi.getNaziv());
+    }
+
+    private static Proizvod proizvod(Long id, int kolicina) {
+        Proizvod proizvod = new Proizvod("Laptop " + id, "Intel Core i5", "16GB", "Iris Xe", new BigDecimal("1000.00"), kolicina);
+        proizvod.setId(id);
+        proizvod.setVerzija((long) kolicina);
+        return proizvod;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.dto.SettlementRequest;
+import com.example.prodavnicaracunara.dto.SettlementResult;
+import com.example.prodavnicaracunara.dto.StatistikaNacinaPlacanja;
+import com.example.prodavnicaracunara.entity.Kupac;
+import com.example.prodavnicaracunara.entity.NacinPlacanja;
+import com.example.prodavnicaracunara.repository.KupacRepository;
+import com.example.prodavnicaracunara.repository.PlacanjeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks revenue read from the rollups against the sum over the payments, across paying, settling, cancelling and deleting
+ */
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:revenuedb", "app.placanja.settlement.chunk-size=32"})
+@ActiveProfiles("test")
+class RevenueRollupTest {
+
+    private static final LocalDateTime POCETAK = LocalDateTime.of(2024, 3, 1, 0, 0);
+    private static final int PLACANJA = 400;
+
+    @Autowired
+    private PlacanjeService placanjeService;
+
+    @Autowired
+    private NarudzbaService narudzbaService;
+
+    @Autowired
+    private KupacService kupacService;
+
+    @Autowired
+    private PlacanjeSettlementService placanjeSettlementService;
+
+    @Autowired
+    private RevenueRollup revenueRollup;
+
+    @Autowired
+    private LiveStatistics liveStatistics;
+
+    @Autowired
+    private PlacanjeRepository placanjeRepository;
+
+    @Autowired
+    private KupacRepository kupacRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Random random = new Random(42);
+
+    private List<Long> placanja;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("DELETE FROM placanja");
+        jdbcTemplate.update("DELETE FROM narudzbe");
+        jdbcTemplate.update("DELETE FROM kupci");
+        revenueRollup.rebuild();
+
+        Long prvi = kupacRepository.save(new Kupac("Ana", "Anić", "ana@example.com", null, "Beograd")).getId();
+        Long drugi = kupacRepository.save(new Kupac("Marko", "Marković", "marko@example.com", null, "Novi Sad")).getId();
+        for (int i = 0; i < PLACANJA; i++) {
+            // Payments about 3 hours apart at odd minutes and seconds, so ranges cut hours and days anywhere
+            Timestamp datum = Timestamp.valueOf(POCETAK.plusSeconds(i * 10_837L));
+            long narudzbaId = 1_000_000L + i;
+            jdbcTemplate.update("INSERT INTO narudzbe (id, broj_narudzbe, datum_kreiranja, status, ukupna_cena, kupac_id, verzija) VALUES (?, ?, ?, 'U_OBRADI', ?, ?, 0)",
+                    narudzbaId, "TEST-" + i, datum, BigDecimal.valueOf(1 + random.nextInt(100_000), 2), i % 3 == 0 ? drugi : prvi);
+            jdbcTemplate.update("INSERT INTO placanja (datum, nacin_placanja, status, narudzba_id, verzija) VALUES (?, 'KARTICA', 'NEPLACENO', ?, 0)",
+                    datum, narudzbaId);
+        }
+        placanja = jdbcTemplate.queryForList("SELECT id FROM placanja ORDER BY id", Long.class);
+    }
+
+    @Test
+    void rollupsMatchPaymentsAfterPayingCancellingAndDeleting() {
+        for (int i = 0; i < placanja.size(); i++) {
+            if (i % 4 != 3) {
+                placanjeService.processPayment(placanja.get(i), null);
+            }
+        }
+        assertRangesMatch();
+
+        narudzbaService.cancelOrder(1_000_001L, null);
+        narudzbaService.cancelOrders(List.of(1_000_002L, 1_000_003L, 1_000_010L));
+        assertRangesMatch();
+
+        kupacService.deleteKupac(jdbcTemplate.queryForObject("SELECT id FROM kupci WHERE email = 'marko@example.com'", Long.class));
+        assertRangesMatch();
+
+        // A rebuild from the payments gives the same buckets
+        List<Map<String, Object>> sati = jdbcTemplate.queryForList("SELECT * FROM prihod_po_satu WHERE broj_placanja <> 0 ORDER BY sat");
+        revenueRollup.rebuild();
+        assertEquals(sati, jdbcTemplate.queryForList("SELECT * FROM prihod_po_satu ORDER BY sat"));
+    }
+
+    @Test
+    void rollupsAndStatisticsMatchPaymentsAfterSettlement() {
+        jdbcTemplate.update("UPDATE placanja SET nacin_placanja = 'PAYPAL' WHERE MOD(id, 3) = 1");
+        jdbcTemplate.update("UPDATE placanja SET status = 'OTKAZANO' WHERE id = ?", placanja.get(1));
+        liveStatistics.reconcile();
+        placanjeService.processPayment(placanja.get(0), null);
+
+        List<Long> ids = new ArrayList<>(placanja.subList(0, 150));
+        ids.add(placanja.get(5));
+        ids.add(-1L);
+        List<SettlementResult> rezultati = placanjeSettlementService.settle(new SettlementRequest(ids));
+        assertEquals(151, rezultati.size());
+        assertEquals("Payment is already processed", rezultati.get(0).getGreska());
+        assertEquals("Payment is cancelled", rezultati.get(1).getGreska());
+        assertEquals("Placanje with ID -1 not found", rezultati.get(150).getGreska());
+        assertEquals(148, rezultati.stream().filter(SettlementResult::isUspesno).count());
+        assertRangesMatch();
+
+        LocalDateTime od = POCETAK.plusDays(10);
+        LocalDateTime doDatuma = POCETAK.plusDays(40);
+        rezultati = placanjeSettlementService.settle(new SettlementRequest(NacinPlacanja.PAYPAL, od, doDatuma));
+        assertTrue(rezultati.size() > 32);
+        assertTrue(rezultati.stream().allMatch(SettlementResult::isUspesno));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM placanja WHERE status = 'NEPLACENO' " +
+                "AND nacin_placanja = 'PAYPAL' AND datum BETWEEN ? AND ?", Integer.class, od, doDatuma));
+        assertRangesMatch();
+
+        Map<NacinPlacanja, String> izBaze = new EnumMap<>(NacinPlacanja.class);
+        placanjeRepository.getPaymentStatisticsByMethod().forEach(red ->
+                izBaze.put((NacinPlacanja) red[0], red[1] + " " + ((BigDecimal) red[2]).setScale(2)));
+        Map<NacinPlacanja, String> uMemoriji = new EnumMap<>(NacinPlacanja.class);
+        for (StatistikaNacinaPlacanja statistika : liveStatistics.getPaymentStatisticsByMethod()) {
+            if (statistika.getBrojPlacanja() > 0) {
+                uMemoriji.put(statistika.getNacinPlacanja(), statistika.getBrojPlacanja() + " " + statistika.getIznos());
+            }
+        }
+        assertEquals(izBaze, uMemoriji);
+    }
+
+    private void assertRangesMatch() {
+        long sekundi = PLACANJA * 10_837L;
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime od = POCETAK.plusSeconds(random.nextLong(sekundi)).truncatedTo(i % 2 == 0 ? ChronoUnit.SECONDS : ChronoUnit.HOURS);
+            LocalDateTime doVkljucivo = od.plusSeconds(random.nextLong(i % 3 == 0 ? 7_200 : sekundi));
+            assertEquals(placanjeRepository.sumRevenue(od, doVkljucivo.plus(1, ChronoUnit.MICROS)).setScale(2),
+                    placanjeService.getTotalRevenue(od, doVkljucivo), od + " - " + doVkljucivo);
+        }
+        assertEquals(placanjeRepository.sumRevenue(POCETAK, POCETAK.plusYears(1)).setScale(2),
+                placanjeService.getTotalRevenue(POCETAK.minusDays(3), POCETAK.plusYears(1)));
+    }
+}
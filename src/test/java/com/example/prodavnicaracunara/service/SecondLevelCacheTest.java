@@ -0,0 +1,96 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.OrderTestSupport;
+import com.example.prodavnicaracunara.entity.Proizvod;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that orders read customers and products from the second-level cache and never see stock older than the table
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:l2cachedb",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("test")
+class SecondLevelCacheTest extends OrderTestSupport {
+
+    @Autowired
+    private NarudzbaService narudzbaService;
+
+    @Autowired
+    private ProizvodService proizvodService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void seed() {
+        seed(100, 1);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void cachedCustomerAndProductsAreNotSelectedAgain() {
+        long hladno = statementsFor(() -> narudzbaService.createNarudzba(order(laptop)));
+
+        // Catalog reads put the customer and product back after the first order locked the product
+        kupacRepository.findById(kupac.getId());
+        proizvodRepository.findById(laptop.getId());
+        long toplo = statementsFor(() -> narudzbaService.createNarudzba(order(laptop)));
+
+        assertEquals(hladno - 2, toplo, "SQL statements per order with customer and product cached");
+    }
+
+    @Test
+    void reservationIsVisibleThroughTheCache() {
+        proizvodRepository.findById(laptop.getId());
+        narudzbaService.createNarudzba(order(laptop, laptop));
+
+        Proizvod procitan = proizvodRepository.findById(laptop.getId()).orElseThrow();
+        assertEquals(98, procitan.getKolicinaUStanju());
+        assertEquals(laptop.getVerzija() + 1, procitan.getVerzija());
+
+        // A stale cached version would fail this update with an optimistic locking conflict
+        proizvodService.updateStock(laptop.getId(), 50, null);
+        assertEquals(50, proizvodRepository.findById(laptop.getId()).orElseThrow().getKolicinaUStanju());
+    }
+
+    @Test
+    void inStockQueryIsInvalidatedByReservation() {
+        assertTrue(inStockIds().contains(mis.getId()));
+        assertTrue(inStockIds().contains(mis.getId()));
+        assertTrue(statistics.getQueryCacheHitCount() > 0);
+
+        narudzbaService.createNarudzba(order(mis));
+
+        assertFalse(inStockIds().contains(mis.getId()));
+    }
+
+    private List<Long> inStockIds() {
+        return proizvodRepository.findInStock(0L, PageRequest.of(0, 10)).stream().map(Proizvod::getId).toList();
+    }
+
+    private long statementsFor(Runnable akcija) {
+        statistics.clear();
+        akcija.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.prodavnicaracunara.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that order numbers stay unique and ordered when the clock stalls, runs backwards or is shared by threads
+ */
+class SnowflakeOrderNumberGeneratorTest {
+
+    private static final long NODE_ID = 5;
+
+    private static final long SEKVENCE = 4096;
+
+    private final AtomicLong sat = new AtomicLong(SnowflakeOrderNumberGenerator.EPOCH + 1_000);
+
+    private final SnowflakeOrderNumberGenerator generator = new SnowflakeOrderNumberGenerator(NODE_ID, sat::get);
+
+    @Test
+    void idPacksTimestampNodeAndSequence() {
+        long prvi = generator.nextId();
+        long drugi = generator.nextId();
+
+        assertEquals(1_000, timestamp(prvi));
+        assertEquals(NODE_ID, (prvi >> 12) & SnowflakeOrderNumberGenerator.MAX_NODE_ID);
+        assertEquals(0, sequence(prvi));
+        assertEquals(1, sequence(drugi));
+
+        sat.addAndGet(1);
+        assertEquals(1_001, timestamp(generator.nextId()));
+        assertEquals("ORD-", SnowflakeOrderNumberGenerator.format(prvi).substring(0, 4));
+        assertEquals(17, SnowflakeOrderNumberGenerator.format(prvi).length());
+    }
+
+    @Test
+    void exhaustedSequenceBorrowsTheNextMillisecond() {
+        long prethodni = -1;
+        for (int i = 0; i < SEKVENCE; i++) {
+            long id = generator.nextId();
+            assertEquals(1_000, timestamp(id));
+            assertEquals(i, sequence(id));
+            assertTrue(id > prethodni);
+            prethodni = id;
+        }
+
+        long pozajmljen = generator.nextId();
+        assertEquals(1_001, timestamp(pozajmljen));
+        assertEquals(0, sequence(pozajmljen));
+        // The clock catching up to the borrowed millisecond continues its sequence
+        sat.addAndGet(1);
+        long sledeci = generator.nextId();
+        assertEquals(1_001, timestamp(sledeci));
+        assertEquals(1, sequence(sledeci));
+    }
+
+    @Test
+    void clockTurnedBackDoesNotRepeatNumbers() {
+        sat.addAndGet(500);
+        long pre = generator.nextId();
+
+        sat.addAndGet(-400);
+        long posle = generator.nextId();
+        assertTrue(posle > pre);
+        assertEquals(timestamp(pre), timestamp(posle));
+        assertTrue(SnowflakeOrderNumberGenerator.format(posle).compareTo(SnowflakeOrderNumberGenerator.format(pre)) > 0);
+
+        // Once the clock passes the last issued millisecond, numbers follow it again
+        sat.addAndGet(401);
+        assertEquals(1_501, timestamp(generator.nextId()));
+    }
+
+    @Test
+    void concurrentCallersGetUniqueIncreasingNumbers() throws Exception {
+        int niti = 8;
+        int poNiti = 20_000;
+        // Millisecond ticks slower than numbers are requested, sequences overflow while threads compete
+        AtomicLong pozivi = new AtomicLong();
+        SnowflakeOrderNumberGenerator deljen = new SnowflakeOrderNumberGenerator(NODE_ID,
+                () -> SnowflakeOrderNumberGenerator.EPOCH + pozivi.incrementAndGet() / 6_000);
+
+        ExecutorService executor = Executors.newFixedThreadPool(niti);
+        List<Future<List<String>>> rezultati = new ArrayList<>();
+        try {
+            for (int n = 0; n < niti; n++) {
+                rezultati.add(executor.submit(() -> {
+                    List<String> brojevi = new ArrayList<>(poNiti);
+                    for (int i = 0; i < poNiti; i++) {
+                        brojevi.add(deljen.nextOrderNumber());
+                    }
+                    return brojevi;
+                }));
+            }
+
+            Set<String> svi = new HashSet<>();
+            for (Future<List<String>> rezultat : rezultati) {
+                List<String> brojevi = rezultat.get();
+                for (int i = 1; i < brojevi.size(); i++) {
+                    // Each caller sees its numbers in the order it asked for them
+                    assertTrue(brojevi.get(i).compareTo(brojevi.get(i - 1)) > 0, brojevi.get(i - 1) + " before " + brojevi.get(i));
+                }
+                svi.addAll(brojevi);
+            }
+            assertEquals(niti * poNiti, svi.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void nodeIdOutsideTenBitsIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeOrderNumberGenerator(1024, sat::get));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeOrderNumberGenerator(-1, sat::get));
+    }
+
+    private static long timestamp(long id) {
+        return id >>> 22;
+    }
+
+    private static long sequence(long id) {
+        return id & (SEKVENCE - 1);
+    }
+}
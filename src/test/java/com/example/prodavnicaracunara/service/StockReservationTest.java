@@ -0,0 +1,126 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.OrderTestSupport;
+import com.example.prodavnicaracunara.entity.Narudzba;
+import com.example.prodavnicaracunara.entity.Proizvod;
+import com.example.prodavnicaracunara.exception.GlobalExceptionHandler;
+import com.example.prodavnicaracunara.exception.GlobalExceptionHandler.InsufficientStockErrorResponse;
+import com.example.prodavnicaracunara.exception.InsufficientStockException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that an order reserves the stock of all its products or of none of them
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:reservationdb")
+@ActiveProfiles("test")
+class StockReservationTest extends OrderTestSupport {
+
+    @Autowired
+    private NarudzbaService narudzbaService;
+
+    @BeforeEach
+    void seed() {
+        seed(5, 1);
+    }
+
+    @Test
+    void shortageRollsBackEveryReservedLine() {
+        // The laptop has the lower ID, its line is reserved before the mouse comes up short
+        InsufficientStockException e = assertThrows(InsufficientStockException.class,
+                () -> narudzbaService.createNarudzba(order(laptop, laptop, mis, mis, mis)));
+
+        assertEquals(Map.of(mis.getId(), 3), e.getTrazeno());
+        assertEquals(Map.of(mis.getId(), 1), e.getDostupno());
+        assertEquals(5, stock(laptop));
+        assertEquals(1, stock(mis));
+        assertEquals(0, narudzbaRepository.count());
+    }
+
+    @Test
+    void createdOrderShowsTheReservedStock() {
+        Narudzba narudzba = narudzbaService.createNarudzba(order(laptop, laptop, mis));
+
+        assertEquals(List.of(3, 3, 0), narudzba.getProizvodi().stream().map(Proizvod::getKolicinaUStanju).toList());
+        assertEquals(laptop.getVerzija() + 1, narudzba.getProizvodi().get(0).getVerzija());
+        assertEquals(mis.getVerzija() + 1, narudzba.getProizvodi().get(2).getVerzija());
+        // The ETag of the response is the one a later read computes
+        assertEquals(EntityTags.narudzba(narudzba), narudzbaService.getNarudzbaETag(narudzba.getId()));
+    }
+
+    @Test
+    void shortageAnswers409WithEveryShortProduct() {
+        InsufficientStockException e = assertThrows(InsufficientStockException.class,
+                () -> narudzbaService.createNarudzba(order(laptop, laptop, laptop, laptop, laptop, laptop, mis, mis)));
+
+        ResponseEntity<InsufficientStockErrorResponse> odgovor = new GlobalExceptionHandler().handleInsufficientStockException(e);
+
+        assertEquals(HttpStatus.CONFLICT, odgovor.getStatusCode());
+        assertEquals(2, odgovor.getBody().getShortages().size());
+        assertEquals(laptop.getId(), odgovor.getBody().getShortages().get(0).getProizvodId());
+        assertEquals(6, odgovor.getBody().getShortages().get(0).getTrazeno());
+        assertEquals(5, odgovor.getBody().getShortages().get(0).getDostupno());
+        assertEquals(mis.getId(), odgovor.getBody().getShortages().get(1).getProizvodId());
+        assertEquals(1, odgovor.getBody().getShortages().get(1).getDostupno());
+    }
+
+    @Test
+    void successfulOrderReservesEveryLine() {
+        narudzbaService.createNarudzba(order(laptop, laptop, mis));
+
+        assertEquals(3, stock(laptop));
+        assertEquals(0, stock(mis));
+        assertEquals(1, narudzbaRepository.count());
+    }
+
+    @Test
+    void concurrentOrdersNeverOversell() throws Exception {
+        List<Callable<Boolean>> narudzbe = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            narudzbe.add(() -> {
+                try {
+                    narudzbaService.createNarudzba(order(laptop));
+                    return true;
+                } catch (InsufficientStockException e) {
+                    return false;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        int prihvaceno = 0;
+        try {
+            for (Future<Boolean> rezultat : executor.invokeAll(narudzbe)) {
+                prihvaceno += rezultat.get() ? 1 : 0;
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(5, prihvaceno);
+        assertEquals(0, stock(laptop));
+        assertEquals(5, narudzbaRepository.count());
+    }
+
+    private int stock(Proizvod proizvod) {
+        return proizvodRepository.findById(proizvod.getId()).orElseThrow().getKolicinaUStanju();
+    }
+}
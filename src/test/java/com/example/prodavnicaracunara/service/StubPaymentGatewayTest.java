@@ -0,0 +1,75 @@
+package com.example.prodavnicaracunara.service;
+
+import com.example.prodavnicaracunara.entity.NacinPlacanja;
+import com.example.prodavnicaracunara.exception.PaymentDeclinedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that the stub gateway deduplicates charges of a payment like a real acquirer
+ */
+class StubPaymentGatewayTest {
+
+    private static final BigDecimal IZNOS = new BigDecimal("100.00");
+
+    @Test
+    void retryAfterInterruptedAnswerGetsTheFirstCharge() throws Exception {
+        StubPaymentGateway gateway = gateway(10_000, 0, 0);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> prva = executor.submit(() -> gateway.charge(1L, NacinPlacanja.KARTICA, IZNOS));
+            Thread.sleep(100);
+            // The caller timed out and stopped waiting, the charge was taken anyway
+            prva.cancel(true);
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(2, TimeUnit.SECONDS);
+        }
+
+        ReflectionTestUtils.setField(gateway, "latencyMs", 0L);
+        String referenca = gateway.charge(1L, NacinPlacanja.KARTICA, IZNOS);
+        assertEquals(referenca, gateway.charge(1L, NacinPlacanja.KARTICA, IZNOS));
+        assertNotEquals(referenca, gateway.charge(2L, NacinPlacanja.KARTICA, IZNOS));
+        assertEquals(2L, ((AtomicLong) ReflectionTestUtils.getField(gateway, "brojNaplata")).get());
+    }
+
+    @Test
+    void declinedChargeIsNotKept() {
+        StubPaymentGateway gateway = gateway(0, 1, 0);
+        assertThrows(PaymentDeclinedException.class, () -> gateway.charge(1L, NacinPlacanja.PAYPAL, IZNOS));
+
+        ReflectionTestUtils.setField(gateway, "declineRate", 0.0);
+        String referenca = gateway.charge(1L, NacinPlacanja.PAYPAL, IZNOS);
+        assertEquals(referenca, gateway.charge(1L, NacinPlacanja.PAYPAL, IZNOS));
+    }
+
+    @Test
+    void failedChargeIsNotKept() {
+        StubPaymentGateway gateway = gateway(0, 0, 1);
+        assertThrows(IllegalStateException.class, () -> gateway.charge(1L, NacinPlacanja.GOTOVINA, IZNOS));
+
+        ReflectionTestUtils.setField(gateway, "errorRate", 0.0);
+        assertEquals("STUB-GOTOVINA-1-1", gateway.charge(1L, NacinPlacanja.GOTOVINA, IZNOS));
+    }
+
+    private static StubPaymentGateway gateway(long latencyMs, double declineRate, double errorRate) {
+        StubPaymentGateway gateway = new StubPaymentGateway();
+        ReflectionTestUtils.setField(gateway, "latencyMs", latencyMs);
+        ReflectionTestUtils.setField(gateway, "declineRate", declineRate);
+        ReflectionTestUtils.setField(gateway, "errorRate", errorRate);
+        ReflectionTestUtils.setField(gateway, "dedupMaxSize", 100L);
+        gateway.init();
+        return gateway;
+    }
+}
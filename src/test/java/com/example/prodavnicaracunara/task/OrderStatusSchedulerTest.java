@@ -0,0 +1,118 @@
+package com.example.prodavnicaracunara.task;
+
+import com.example.prodavnicaracunara.entity.StatusNarudzbe;
+import com.example.prodavnicaracunara.event.NarudzbaStatusChangedEvent;
+import com.example.prodavnicaracunara.event.ParticijePreuzeteEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the deadline queue applies due transitions, skips orders changed meanwhile and picks up taken-over
+ * partitions
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:schedulerdb",
+        "app.narudzbe.monitoring.processing-delay-ms=400",
+        "app.narudzbe.monitoring.delivery-delay-ms=800"
+})
+@ActiveProfiles("test")
+class OrderStatusSchedulerTest {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("DELETE FROM narudzbe");
+        jdbcTemplate.update("DELETE FROM kupci");
+        jdbcTemplate.update("INSERT INTO kupci (id, ime, prezime, email, adresa, verzija) VALUES (1, 'Ana', 'Anić', 'ana@example.com', 'Beograd', 0)");
+    }
+
+    @Test
+    void deadlinesMoveOrderThroughItsStatuses() throws InterruptedException {
+        LocalDateTime kreirano = LocalDateTime.now();
+        schedule(narudzba(1, StatusNarudzbe.U_OBRADI, kreirano));
+
+        assertEquals("U_OBRADI", status(1));
+        waitUntil(() -> "POSLATA".equals(status(1)));
+        // Bumped like every other write, cached representations see the change
+        assertEquals(1, verzija(1));
+        waitUntil(() -> "ISPORUCENA".equals(status(1)));
+        assertEquals(2, verzija(1));
+        assertTrue(LocalDateTime.now().isAfter(kreirano.plusNanos(800_000_000)));
+    }
+
+    @Test
+    void orderChangedBeforeItsDeadlineIsLeftAlone() throws InterruptedException {
+        LocalDateTime kreirano = LocalDateTime.now();
+        // Order 3 comes due first, it has been handled by the time order 2 moves
+        schedule(narudzba(3, StatusNarudzbe.U_OBRADI, kreirano.minusNanos(50_000_000)));
+        schedule(narudzba(2, StatusNarudzbe.U_OBRADI, kreirano));
+        // Cancelled directly in the database, no event reaches the scheduler
+        jdbcTemplate.update("UPDATE narudzbe SET status = 'OTKAZANA', verzija = verzija + 1 WHERE id = 3");
+
+        waitUntil(() -> "POSLATA".equals(status(2)));
+        assertEquals("OTKAZANA", status(3));
+        assertEquals(1, verzija(3));
+    }
+
+    @Test
+    void deadlinesAreLoadedForTakenOverPartitions() throws InterruptedException {
+        // Orders of another instance, overdue and never scheduled here
+        LocalDateTime davno = LocalDateTime.now().minusHours(1);
+        narudzba(4, StatusNarudzbe.U_OBRADI, davno);
+        narudzba(5, StatusNarudzbe.U_OBRADI, davno);
+        narudzba(6, StatusNarudzbe.POSLATA, davno);
+        Thread.sleep(200);
+        assertEquals("U_OBRADI", status(4));
+
+        // Even order IDs of two partitions
+        eventPublisher.publishEvent(new ParticijePreuzeteEvent(Set.of(0), 2));
+
+        waitUntil(() -> "ISPORUCENA".equals(status(6)));
+        waitUntil(() -> "ISPORUCENA".equals(status(4)));
+        assertEquals("U_OBRADI", status(5));
+    }
+
+    private NarudzbaStatusChangedEvent narudzba(long id, StatusNarudzbe status, LocalDateTime kreirano) {
+        jdbcTemplate.update("INSERT INTO narudzbe (id, broj_narudzbe, datum_kreiranja, status, ukupna_cena, kupac_id, verzija) VALUES (?, ?, ?, ?, 100.00, 1, 0)",
+                id, "SCH-" + id, kreirano, status.name());
+        return new NarudzbaStatusChangedEvent(id, status, kreirano);
+    }
+
+    private void schedule(NarudzbaStatusChangedEvent event) {
+        // Published outside a transaction, the listener runs at once
+        eventPublisher.publishEvent(event);
+    }
+
+    private String status(long id) {
+        return jdbcTemplate.queryForObject("SELECT status FROM narudzbe WHERE id = ?", String.class, id);
+    }
+
+    private long verzija(long id) {
+        return jdbcTemplate.queryForObject("SELECT verzija FROM narudzbe WHERE id = ?", Long.class, id);
+    }
+
+    private static void waitUntil(BooleanSupplier uslov) throws InterruptedException {
+        long kraj = System.currentTimeMillis() + 5000;
+        while (!uslov.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < kraj, "Condition not reached in time");
+            Thread.sleep(20);
+        }
+    }
+}